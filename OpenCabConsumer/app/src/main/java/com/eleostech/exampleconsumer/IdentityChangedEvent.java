@@ -1,9 +1,19 @@
 package com.eleostech.exampleconsumer;
 
+import org.opencabstandard.provider.IdentityContract;
+
+import java.util.ArrayList;
+
 public class IdentityChangedEvent {
     public String action;
 
-    public IdentityChangedEvent(String eventAction){
+    /**
+     * The active drivers from the snapshot of the broadcast, or null if it carried none.
+     */
+    public ArrayList<IdentityContract.Driver> activeDrivers;
+
+    public IdentityChangedEvent(String eventAction, ArrayList<IdentityContract.Driver> snapshotActiveDrivers){
         action = eventAction;
+        activeDrivers = snapshotActiveDrivers;
     }
 }
@@ -4,8 +4,11 @@ import android.content.ContentResolver;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.ProviderInfo;
+import android.database.ContentObserver;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.view.View;
 import android.widget.ArrayAdapter;
@@ -13,9 +16,10 @@ import android.widget.ArrayAdapter;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.eleostech.exampleconsumer.databinding.ActivityMainBinding;
-import com.google.gson.Gson;
 
+import org.opencabstandard.provider.ChunkedResults;
 import org.opencabstandard.provider.HOSContract;
+import org.opencabstandard.provider.HOSJsonCodec;
 import org.opencabstandard.provider.IdentityContract;
 import org.opencabstandard.provider.VehicleInformationContract;
 import org.opencabstandard.provider.Version;
@@ -30,6 +34,8 @@ import de.greenrobot.event.EventBus;
 
 public class MainActivity extends AppCompatActivity {
     private static final String LOG_TAG = MainActivity.class.getCanonicalName();
+    private static final long HOS_TIMEOUT_MILLIS = 2000;
+    private static final int MAX_CHUNK_BYTES = 64 * 1024;
 
     private ActivityMainBinding binding;
     private ArrayAdapter<String> adapterHos;
@@ -38,6 +44,30 @@ public class MainActivity extends AppCompatActivity {
     private ArrayAdapter<String> adapterLoginCredentials;
     private ArrayAdapter<String> adapterActiveDrivers;
 
+    // Refetch only when a provider reports a change, instead of polling.
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final ContentObserver hosObserver = new ContentObserver(handler) {
+        @Override
+        public void onChange(boolean selfChange, Uri uri) {
+            Log.d(LOG_TAG, "HOS changed: " + uri);
+            callHOSProvider();
+        }
+    };
+    private final ContentObserver vehicleInformationObserver = new ContentObserver(handler) {
+        @Override
+        public void onChange(boolean selfChange, Uri uri) {
+            Log.d(LOG_TAG, "Vehicle information changed: " + uri);
+            callVehicleInformationProvider();
+        }
+    };
+    private final ContentObserver activeDriversObserver = new ContentObserver(handler) {
+        @Override
+        public void onChange(boolean selfChange, Uri uri) {
+            Log.d(LOG_TAG, "Active drivers changed: " + uri);
+            callIdentityProviderGetActiveDrivers();
+        }
+    };
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -70,13 +100,51 @@ public class MainActivity extends AppCompatActivity {
     @Override
     public void onResume() {
         super.onResume();
+        registerObservers();
     }
 
     @Override
     public void onPause() {
+        ContentResolver resolver = getContentResolver();
+        resolver.unregisterContentObserver(hosObserver);
+        resolver.unregisterContentObserver(vehicleInformationObserver);
+        resolver.unregisterContentObserver(activeDriversObserver);
         super.onPause();
     }
 
+    /**
+     * Observe every OpenCab provider, scanning the installed packages once for all three contracts.
+     */
+    private void registerObservers() {
+        List<PackageInfo> packages = getPackageManager().getInstalledPackages(PackageManager.GET_PROVIDERS);
+        for (PackageInfo pkg : packages) {
+            if (pkg.providers != null) {
+                for (ProviderInfo provider : pkg.providers) {
+                    String authority = provider.authority;
+                    if (authority == null) {
+                        continue;
+                    }
+                    if (authority.endsWith(".org.opencabstandard.hos")) {
+                        registerObserver(authority, HOSContract.PATH_DRIVERS, true, hosObserver);
+                    } else if (authority.endsWith(".org.opencabstandard.vehicleinformation")) {
+                        registerObserver(authority, VehicleInformationContract.PATH_VEHICLE_INFORMATION, false, vehicleInformationObserver);
+                    } else if (authority.endsWith(".org.opencabstandard.identity")) {
+                        registerObserver(authority, IdentityContract.PATH_ACTIVE_DRIVERS, false, activeDriversObserver);
+                    }
+                }
+            }
+        }
+    }
+
+    private void registerObserver(String authority, String path, boolean notifyForDescendants, ContentObserver observer) {
+        Uri uri = Uri.parse("content://" + authority + "/" + path);
+        try {
+            getContentResolver().registerContentObserver(uri, notifyForDescendants, observer);
+        } catch (SecurityException ex) {
+            Log.i(LOG_TAG, "Unable to observe " + uri, ex);
+        }
+    }
+
     @Override
     public void onDestroy() {
         EventBus.getDefault().unregister(this);
@@ -85,12 +153,24 @@ public class MainActivity extends AppCompatActivity {
 
     public void onEvent(VehicleInformationChangedEvent event) {
         Log.d(LOG_TAG, "onVehicleInformationChanged()");
-        logEvent(event.action);
+        if (event.hasSnapshot) {
+            logEvent(event.action + " VIN: " + (event.vehicleInformation != null ? event.vehicleInformation.getVin() : "none"));
+        } else {
+            logEvent(event.action);
+        }
     }
 
     public void onEvent(IdentityChangedEvent event) {
         Log.d(LOG_TAG, "IdentityChangedEvent()");
-        logEvent(event.action);
+        if (event.activeDrivers != null) {
+            List<String> usernames = new ArrayList<>();
+            for (IdentityContract.Driver driver : event.activeDrivers) {
+                usernames.add(driver.getUsername());
+            }
+            logEvent(event.action + " drivers: " + usernames);
+        } else {
+            logEvent(event.action);
+        }
     }
 
     private void logEvent(String event) {
@@ -112,14 +192,17 @@ public class MainActivity extends AppCompatActivity {
                 for (ProviderInfo provider : pkg.providers) {
                     if (provider.authority != null) {
                         if (provider.authority.endsWith(".org.opencabstandard.hos")) {
-                            Gson gson = new Gson();
+                            HOSJsonCodec codec = HOSJsonCodec.getInstance();
                             ContentResolver resolver = getApplicationContext().getContentResolver();
                             Uri authority = Uri.parse("content://" + provider.authority);
                             Bundle result;
                             SimpleDateFormat s = new SimpleDateFormat("MM/dd hh:mm:ss");
                             String dateTime = s.format(new Date());
+                            Bundle extras = new Bundle();
+                            extras.putLong(HOSContract.KEY_TIMEOUT_MILLIS, HOS_TIMEOUT_MILLIS);
+                            extras.putInt(HOSContract.KEY_MAX_CHUNK_BYTES, MAX_CHUNK_BYTES);
                             try {
-                                result = resolver.call(authority, HOSContract.METHOD_GET_HOS, HOSContract.VERSION, null);
+                                result = ChunkedResults.join(resolver, authority, resolver.call(authority, HOSContract.METHOD_GET_HOS, HOSContract.VERSION, extras));
                             } catch (Exception ex) {
                                 Log.i(LOG_TAG, "Error calling provider: ", ex);
                                 adapterHos.insert(dateTime + " : " + "Package: " + provider.packageName + ", Error: " + ex.getMessage(), 0);
@@ -129,13 +212,17 @@ public class MainActivity extends AppCompatActivity {
                             if (result != null) {
                                 Log.d(LOG_TAG, "Got result!");
                                 result.setClassLoader(HOSContract.class.getClassLoader());
+                                if (result.containsKey(HOSContract.KEY_STALE_MILLIS)) {
+                                    adapterHos.insert(dateTime + " : " + "Package: " + provider.packageName + ", Stale: " + result.getLong(HOSContract.KEY_STALE_MILLIS) + " ms", 0);
+                                }
 
-                                Version supportedVersionV4 = new Version("0.4");
-                                Version supportedVersionV3 = new Version("0.3");
-                                Version supportedVersionV2 = new Version("0.2");
+                                Version supportedVersionV5 = Version.of("0.5");
+                                Version supportedVersionV4 = Version.of("0.4");
+                                Version supportedVersionV3 = Version.of("0.3");
+                                Version supportedVersionV2 = Version.of("0.2");
                                 Version resultVersion = null;
                                 if (result.containsKey(HOSContract.KEY_VERSION) && result.get(HOSContract.KEY_VERSION) != null) {
-                                    resultVersion = new Version(result.getString(HOSContract.KEY_VERSION));
+                                    resultVersion = Version.of(result.getString(HOSContract.KEY_VERSION));
                                 } else {
                                     resultVersion = supportedVersionV2;
                                 }
@@ -188,7 +275,7 @@ public class MainActivity extends AppCompatActivity {
                                 //Support for Version 0.4
                                 } else if (resultVersion.compareTo(supportedVersionV4) == 0) {
                                     if (result.containsKey(HOSContract.KEY_HOS)) {
-                                        HOSContract.HOSData hosStatus = gson.fromJson(result.getString(HOSContract.KEY_HOS), HOSContract.HOSData.class);
+                                        HOSContract.HOSData hosStatus = codec.parseHOSData(result.getString(HOSContract.KEY_HOS));
                                         if (hosStatus != null) {
                                             adapterHos.insert(dateTime + " : " + "Package: " + provider.packageName + ", Username: " + hosStatus.getUsername() +", Manage Action: " + hosStatus.getManageAction() + ", Logout Action: " + hosStatus.getLogoutAction() + ", KEY_VERSION: " + (result.containsKey(HOSContract.KEY_VERSION) ? result.getString(HOSContract.KEY_VERSION) : "null"), 0);
                                             for (HOSContract.ClockData clock : hosStatus.getClocks()) {
@@ -201,7 +288,7 @@ public class MainActivity extends AppCompatActivity {
                                         adapterHos.insert(dateTime + " : " + "Package: " + provider.packageName + ", Error: " + error, 0);
                                     }
                                     if (result.containsKey(HOSContract.KEY_TEAM_HOS)) {
-                                        HOSContract.HOSTeamData teamHOSData = gson.fromJson((result.getString(HOSContract.KEY_TEAM_HOS)), HOSContract.HOSTeamData.class);
+                                        HOSContract.HOSTeamData teamHOSData = codec.parseHOSTeamData(result.getString(HOSContract.KEY_TEAM_HOS));
                                         ArrayList<HOSContract.HOSData> hosStatusList = teamHOSData.getTeamHosData();
                                         if (hosStatusList != null && hosStatusList.size() > 0) {
                                             for (HOSContract.HOSData item : hosStatusList) {
@@ -217,6 +304,33 @@ public class MainActivity extends AppCompatActivity {
                                         Log.d(LOG_TAG, "Error: " + error);
                                         adapterHos.insert(dateTime + " : " + "Package: " + provider.packageName + ", Error: " + error, 0);
                                     }
+                                //Support for Version 0.5
+                                } else if (resultVersion.compareTo(supportedVersionV5) == 0) {
+                                    if (result.containsKey(HOSContract.KEY_HOS)) {
+                                        HOSContract.HOSStatusV3 hosStatus = result.getParcelable(HOSContract.KEY_HOS);
+                                        if (hosStatus != null) {
+                                            adapterHos.insert(dateTime + " : " + "Package: " + provider.packageName + ", Username: " + hosStatus.getUsername() + ", Manage Action: " + hosStatus.getManageAction() + ", Logout Action: " + hosStatus.getLogoutAction() + ", KEY_VERSION: " + result.getString(HOSContract.KEY_VERSION), 0);
+                                            for (HOSContract.ClockV2 clock : hosStatus.getClocks()) {
+                                                adapterHos.insert(dateTime + " : " + "Package: " + provider.packageName + ", Label: " + clock.getLabel() + ", Value: " + clock.getValue() + ", Duration: " + clock.getDurationSeconds(), 0);
+                                            }
+                                        }
+                                    } else if (result.containsKey(HOSContract.KEY_ERROR)) {
+                                        String error = result.getString(HOSContract.KEY_ERROR);
+                                        Log.d(LOG_TAG, "Error: " + error);
+                                        adapterHos.insert(dateTime + " : " + "Package: " + provider.packageName + ", Error: " + error, 0);
+                                    }
+                                    if (result.containsKey(HOSContract.KEY_TEAM_HOS)) {
+                                        ArrayList<HOSContract.HOSStatusV3> hosStatusList = result.getParcelableArrayList(HOSContract.KEY_TEAM_HOS);
+                                        if (hosStatusList != null) {
+                                            for (HOSContract.HOSStatusV3 item : hosStatusList) {
+                                                if (item.getClocks() != null) {
+                                                    for (HOSContract.ClockV2 clock : item.getClocks()) {
+                                                        adapterHos.insert(dateTime + " : " + "Package: " + provider.packageName + ", Username: " + item.getUsername() + ", Label: " + clock.getLabel() + ", Value: " + clock.getValue() + ", Duration: " + clock.getDurationSeconds(), 0);
+                                                    }
+                                                }
+                                            }
+                                        }
+                                    }
                                 }
                             } else {
                                 Log.d(LOG_TAG, "Result from provider is null.");
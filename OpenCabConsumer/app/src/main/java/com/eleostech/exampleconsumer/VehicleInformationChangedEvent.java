@@ -1,10 +1,23 @@
 package com.eleostech.exampleconsumer;
 
+import org.opencabstandard.provider.VehicleInformationContract;
+
 public class VehicleInformationChangedEvent {
 
     public String action;
 
-    public VehicleInformationChangedEvent(String eventAction){
+    /**
+     * True if the broadcast carried a snapshot, in which case {@link #vehicleInformation} is the vehicle,
+     * or null if the device is not in one.
+     */
+    public boolean hasSnapshot;
+
+    public VehicleInformationContract.VehicleInformation vehicleInformation;
+
+    public VehicleInformationChangedEvent(String eventAction, boolean snapshot,
+                                          VehicleInformationContract.VehicleInformation snapshotVehicleInformation){
         action = eventAction;
+        hasSnapshot = snapshot;
+        vehicleInformation = snapshotVehicleInformation;
     }
 }
@@ -7,14 +7,31 @@ import android.util.Log;
 
 import com.eleostech.exampleconsumer.IdentityChangedEvent;
 
+import org.opencabstandard.provider.IdentityContract;
+import org.opencabstandard.provider.OpenCabSnapshots;
+
+import java.util.ArrayList;
+
 import de.greenrobot.event.EventBus;
 
 public class IdentityChangedReceiver extends BroadcastReceiver {
     private static final String LOG_TAG = IdentityChangedReceiver.class.getCanonicalName();
 
+    /**
+     * The epoch of the latest snapshot read from each provider, so that a snapshot delivered out of
+     * order is not used.
+     */
+    private static final OpenCabSnapshots.LatestEpochs EPOCHS = new OpenCabSnapshots.LatestEpochs();
+
     @Override
     public void onReceive(Context context, Intent intent) {
         Log.i(LOG_TAG, "onReceiver()");
-        EventBus.getDefault().post(new IdentityChangedEvent(intent.getAction()));
+        // Providers that send a snapshot save the consumer a call to METHOD_GET_ACTIVE_DRIVERS.
+        // Broadcasts without one, or with an older one, are still delivered as events.
+        ArrayList<IdentityContract.Driver> activeDrivers = null;
+        if (EPOCHS.update(intent.getExtras())) {
+            activeDrivers = OpenCabSnapshots.getActiveDrivers(intent.getExtras());
+        }
+        EventBus.getDefault().post(new IdentityChangedEvent(intent.getAction(), activeDrivers));
     }
 }
@@ -7,15 +7,27 @@ import android.util.Log;
 
 import com.eleostech.exampleconsumer.VehicleInformationChangedEvent;
 
+import org.opencabstandard.provider.OpenCabSnapshots;
+
 import de.greenrobot.event.EventBus;
 
 public class VehicleInformationChangedReceiver extends BroadcastReceiver {
     private static final String LOG_TAG = VehicleInformationChangedReceiver.class.getCanonicalName();
 
+    /**
+     * The epoch of the latest snapshot read from each provider, so that a snapshot delivered out of
+     * order is not used.
+     */
+    private static final OpenCabSnapshots.LatestEpochs EPOCHS = new OpenCabSnapshots.LatestEpochs();
+
     @Override
     public void onReceive(Context context, Intent intent) {
         Log.i(LOG_TAG, "onReceiver()");
 
-        EventBus.getDefault().post(new VehicleInformationChangedEvent(intent.getAction()));
+        // Providers that send a snapshot save the consumer a call to METHOD_GET_VEHICLE_INFORMATION.
+        boolean snapshot = OpenCabSnapshots.hasVehicleInformation(intent.getExtras())
+                && EPOCHS.update(intent.getExtras());
+        EventBus.getDefault().post(new VehicleInformationChangedEvent(intent.getAction(), snapshot,
+                snapshot ? OpenCabSnapshots.getVehicleInformation(intent.getExtras()) : null));
     }
 }
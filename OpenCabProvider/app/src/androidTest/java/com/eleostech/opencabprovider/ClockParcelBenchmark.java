@@ -0,0 +1,145 @@
+package com.eleostech.opencabprovider;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.opencabstandard.provider.HOSContract;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the version 0.3 {@link HOSContract.HOSStatusV2} encoding with the compact version 0.5
+ * {@link HOSContract.HOSStatusV3} encoding, for a five driver team.  Parcel is only implemented on a
+ * device, so this runs as an instrumented test and logs the size and the time of a round trip.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ClockParcelBenchmark {
+    private static final String LOG_TAG = ClockParcelBenchmark.class.getSimpleName();
+    private static final int DRIVERS = 5;
+    private static final int WARMUP = 2000;
+    private static final int ITERATIONS = 20000;
+
+    @Test
+    public void compactEncoding_RoundTrips() {
+        ArrayList<HOSContract.HOSStatusV3> team = team(HOSContract.HOSStatusV3::new);
+        team.get(0).getClocks().add(null);
+        ArrayList<HOSContract.HOSStatusV3> read = roundTrip(team, HOSContract.HOSStatusV3.CREATOR);
+
+        assertEquals(DRIVERS, read.size());
+        for (int i = 0; i < DRIVERS; i++) {
+            HOSContract.HOSStatusV3 expected = team.get(i);
+            HOSContract.HOSStatusV3 actual = read.get(i);
+            assertEquals(expected.getUsername(), actual.getUsername());
+            assertEquals(expected.getManageAction(), actual.getManageAction());
+            assertEquals(expected.getLogoutAction(), actual.getLogoutAction());
+            assertEquals(expected.getClocks().size(), actual.getClocks().size());
+            for (int j = 0; j < expected.getClocks().size(); j++) {
+                HOSContract.ClockV2 expectedClock = expected.getClocks().get(j);
+                HOSContract.ClockV2 actualClock = actual.getClocks().get(j);
+                if (expectedClock == null) {
+                    assertNull(actualClock);
+                    continue;
+                }
+                assertEquals(expectedClock.getLabel(), actualClock.getLabel());
+                assertEquals(expectedClock.getValue(), actualClock.getValue());
+                assertEquals(expectedClock.getValueType(), actualClock.getValueType());
+                assertEquals(expectedClock.isImportant(), actualClock.isImportant());
+                assertEquals(expectedClock.isLimitsDrivingRange(), actualClock.isLimitsDrivingRange());
+                assertEquals(expectedClock.getDurationSeconds(), actualClock.getDurationSeconds());
+            }
+        }
+    }
+
+    @Test
+    public void compactEncoding_IsSmallerAndFaster() {
+        ArrayList<HOSContract.HOSStatusV2> v3 = team(HOSContract.HOSStatusV2::new);
+        ArrayList<HOSContract.HOSStatusV3> v5 = team(HOSContract.HOSStatusV3::new);
+
+        int v3Bytes = size(v3);
+        int v5Bytes = size(v5);
+        long v3Nanos = time(v3, HOSContract.HOSStatusV2.CREATOR);
+        long v5Nanos = time(v5, HOSContract.HOSStatusV3.CREATOR);
+        Log.i(LOG_TAG, "0.3: " + v3Bytes + " bytes, " + v3Nanos + " ns per round trip");
+        Log.i(LOG_TAG, "0.5: " + v5Bytes + " bytes, " + v5Nanos + " ns per round trip");
+        assertTrue(v5Bytes < v3Bytes);
+    }
+
+    private interface Factory<T extends HOSContract.HOSStatusV2> {
+        T create();
+    }
+
+    private static <T extends HOSContract.HOSStatusV2> ArrayList<T> team(Factory<T> factory) {
+        ArrayList<T> team = new ArrayList<>();
+        for (int i = 0; i < DRIVERS; i++) {
+            T status = factory.create();
+            if (status instanceof HOSContract.HOSStatusV3) {
+                ((HOSContract.HOSStatusV3) status).setUsername("DRIVER_" + i);
+            }
+            status.setManageAction("hos://com.eleostech.opencabprovider/hos");
+            status.setLogoutAction("hos://com.eleostech.opencabprovider/logout");
+            ArrayList<HOSContract.ClockV2> clocks = new ArrayList<>();
+            clocks.add(clock("Driver", "DRIVER_" + i, HOSContract.ClockV2.ValueType.STRING, false, false, null));
+            clocks.add(clock("Status", "D", HOSContract.ClockV2.ValueType.STRING, true, false, null));
+            clocks.add(clock("Drive", "05:30", HOSContract.ClockV2.ValueType.COUNTDOWN, true, true, 19800.0));
+            clocks.add(clock("Shift", "09:15", HOSContract.ClockV2.ValueType.COUNTDOWN, false, true, 33300.0));
+            clocks.add(clock("Break", "02:00", HOSContract.ClockV2.ValueType.COUNTDOWN, false, true, 7200.0));
+            clocks.add(clock("Cycle", "52:45", HOSContract.ClockV2.ValueType.COUNTDOWN, false, false, 189900.0));
+            status.setClocks(clocks);
+            team.add(status);
+        }
+        return team;
+    }
+
+    private static HOSContract.ClockV2 clock(String label, String value, HOSContract.ClockV2.ValueType valueType,
+                                             boolean important, boolean limitsDrivingRange, Double durationSeconds) {
+        HOSContract.ClockV2 clock = new HOSContract.ClockV2();
+        clock.setLabel(label);
+        clock.setValue(value);
+        clock.setValueType(valueType);
+        clock.setImportant(important);
+        clock.setLimitsDrivingRange(limitsDrivingRange);
+        clock.setDurationSeconds(durationSeconds);
+        return clock;
+    }
+
+    private static int size(ArrayList<? extends Parcelable> team) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeTypedList(team);
+            return parcel.dataSize();
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private static <T extends Parcelable> ArrayList<T> roundTrip(ArrayList<T> team, Parcelable.Creator<T> creator) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeTypedList(team);
+            parcel.setDataPosition(0);
+            return parcel.createTypedArrayList(creator);
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private static <T extends Parcelable> long time(ArrayList<T> team, Parcelable.Creator<T> creator) {
+        for (int i = 0; i < WARMUP; i++) {
+            roundTrip(team, creator);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            roundTrip(team, creator);
+        }
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+}
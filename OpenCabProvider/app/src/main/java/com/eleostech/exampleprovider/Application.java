@@ -1,12 +1,39 @@
 package com.eleostech.exampleprovider;
 
+import org.opencabstandard.provider.OpenCabBroadcaster;
+import org.opencabstandard.provider.OpenCabReceiverIndex;
 
 public class Application extends android.app.Application {
 
     private static final String LOG_TAG = Application.class.getCanonicalName();
 
+    private OpenCabReceiverIndex receiverIndex;
+    private OpenCabBroadcaster broadcaster;
+
     @Override
     public void onCreate() {
         super.onCreate();
+        receiverIndex = new OpenCabReceiverIndex(this);
+        receiverIndex.register();
+        broadcaster = new OpenCabBroadcaster(this, receiverIndex, OpenCabBroadcaster.DEFAULT_WINDOW_MILLIS);
+        // If required by your use case or for security reasons, you can apply any
+        // package name-based filtering by setting a receiver filter that checks the
+        // package name against a server-provided list. It is not recommended that you
+        // hard code any package names in your mobile implementation directly.
+        // See section 5, "Security," of the specification for more information.
+    }
+
+    /**
+     * @return The OpenCab receivers of the installed packages, kept up to date for the life of the app.
+     */
+    public OpenCabReceiverIndex getReceiverIndex() {
+        return receiverIndex;
+    }
+
+    /**
+     * @return Sends the OpenCab broadcasts of the app from a background thread.
+     */
+    public OpenCabBroadcaster getBroadcaster() {
+        return broadcaster;
     }
 }
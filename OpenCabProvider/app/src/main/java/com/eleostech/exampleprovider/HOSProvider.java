@@ -1,35 +1,56 @@
 package com.eleostech.exampleprovider;
 
+import android.content.SharedPreferences;
 import android.util.Log;
 
 import org.opencabstandard.provider.AbstractHOSProvider;
 import org.opencabstandard.provider.HOSContract;
 
-import java.util.ArrayList;
-
 public class HOSProvider extends AbstractHOSProvider {
     private static final String LOG_TAG = HOSProvider.class.getName();
 
     public static final String DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSSSZ";
 
+    /**
+     * Shorter than the delay enabled by the "delay HOS response" toggle, so that consumers receive
+     * the last successful response instead of waiting for it.
+     */
+    private static final long HOS_TIMEOUT_MILLIS = 5000;
+
+    private static final long TEAM_DRIVER_TIMEOUT_MILLIS = 3000;
+
+    /**
+     * The clocks of the sample app are shown to the minute, so consumers polling several versions at
+     * once can share one computation.  Preference changes still take effect immediately.
+     */
+    private static final long HOS_MAX_AGE_MILLIS = 1000;
+
+    /**
+     * The HOS of the sample app is derived from its preferences, so any change to them may change it.
+     * Held in a field because the preferences only keep a weak reference to their listeners.
+     */
+    private final SharedPreferences.OnSharedPreferenceChangeListener preferencesListener = (preferences, key) -> notifyHOSChanged(null);
+
     @Override
-    protected HOSContract.HOSStatus getHOS() {
-        return HOSUtil.getHOSStatus(getContext(), false);
+    public boolean onCreate() {
+        super.onCreate();
+        Preferences.getPreferences(getContext()).registerOnSharedPreferenceChangeListener(preferencesListener);
+        return true;
     }
 
     @Override
-    protected HOSContract.HOSStatusV2 getHOSV2() {
-        return HOSUtil.getHOSStatusV2(getContext());
+    protected boolean isHOSDerivedFromHOSData() {
+        return true;
     }
 
     @Override
-    protected HOSContract.HOSData getHOSData() {
-        return HOSUtil.getHOSData(getContext());
+    protected long getHOSMaxAgeMillis() {
+        return HOS_MAX_AGE_MILLIS;
     }
 
     @Override
-    protected ArrayList<HOSContract.HOSStatusV2> getTeamHOSV2() {
-        return HOSUtil.getHOSStatusTeamV2(getContext());
+    protected HOSContract.HOSData getHOSData() {
+        return HOSUtil.getHOSData(getContext());
     }
 
     @Override
@@ -37,16 +58,35 @@ public class HOSProvider extends AbstractHOSProvider {
         return HOSUtil.getTeamHOSData(getContext());
     }
 
+    @Override
+    protected boolean isTeamDriverHOSComputedSeparately() {
+        return true;
+    }
+
+    @Override
+    protected HOSContract.HOSData getTeamDriverHOSData(int index) {
+        return HOSUtil.getTeamDriverHOSData(getContext(), index);
+    }
+
+    @Override
+    protected long getTeamDriverTimeoutMillis() {
+        return TEAM_DRIVER_TIMEOUT_MILLIS;
+    }
+
     @Override
     protected Boolean startNavigation(String version) {
-        Log.d(LOG_TAG, "startNavigation()");
+        if (isLoggable(Log.DEBUG)) {
+            Log.d(LOG_TAG, "startNavigation()");
+        }
         Preferences.setNavigationState(getContext(), true);
         return true;
     }
 
     @Override
     protected Boolean endNavigation(String version) {
-        Log.d(LOG_TAG, "endNavigation()");
+        if (isLoggable(Log.DEBUG)) {
+            Log.d(LOG_TAG, "endNavigation()");
+        }
         Preferences.setNavigationState(getContext(), false);
         return true;
     }
@@ -61,6 +101,11 @@ public class HOSProvider extends AbstractHOSProvider {
         return Preferences.getHosVersion(getContext());
     }
 
+    @Override
+    protected long getHOSTimeoutMillis() {
+        return HOS_TIMEOUT_MILLIS;
+    }
+
     @Override
     protected int getTeamsDriversNumber() {
         return Preferences.getTeamsDriversNumber(getContext());
@@ -9,6 +9,7 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class HOSUtil {
 
@@ -17,22 +18,28 @@ public class HOSUtil {
 
     private static final String LOG_TAG = HOSUtil.class.getCanonicalName();
 
+    private static final String TEAM_DRIVER_USERNAME_PREFIX = "OPENCAB_TEAM_DRIVER_";
+
     /**
-     * If "Add team driver(s) is checked, this will retrieve number of drivers requested and return
-     * an array of {@link HOSContract.HOSStatusV2}
-     * @param context
-     * @return
+     * SimpleDateFormat is not thread safe, and team drivers are computed in parallel.
      */
-    public static ArrayList<HOSContract.HOSStatusV2> getHOSStatusTeamV2(Context context) {
-        ArrayList<HOSContract.HOSStatusV2> response = new ArrayList<>();
-        if (Preferences.isIdentityProviderTeamDriverEnabled(context)) {
-            for (int i = 0; i < Preferences.getTeamsDriversNumber(context); i++) {
-                //this will return a Team driver with unique name
-                response.add(getHOSStatusV2(context, true, "OPENCAB_TEAM_DRIVER_" + (i + 1)));
-            }
+    private static final ThreadLocal<SimpleDateFormat> DATE_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat(HOSProvider.DATE_FORMAT);
         }
-        return response;
-    }
+    };
+
+    /**
+     * Clocks whose value repeats between calls, such as the duty status or the username, by label and
+     * value.  They cannot be modified, so every snapshot and every team driver shares the same instance.
+     */
+    private static final ConcurrentHashMap<String, ConcurrentHashMap<String, HOSContract.ClockData>> SHARED_CLOCK_DATA = new ConcurrentHashMap<>();
+
+    /**
+     * Upper bound on the values remembered for one label.
+     */
+    private static final int MAX_SHARED_VALUES = 16;
 
     /**
      * If "Add team driver(s) is checked, this will retrieve number of drivers requested and return
@@ -44,7 +51,7 @@ public class HOSUtil {
         ArrayList<HOSContract.HOSData> response = new ArrayList<>();
         if (Preferences.isIdentityProviderTeamDriverEnabled(context)) {
             for (int i = 0; i < Preferences.getTeamsDriversNumber(context); i++) {
-                response.add(getHOSData(context, true, "OPENCAB_TEAM_DRIVER_" + (i + 1)));
+                response.add(getTeamDriverHOSData(context, i));
             }
         }
         HOSContract.HOSTeamData data = new HOSContract.HOSTeamData();
@@ -52,11 +59,24 @@ public class HOSUtil {
         return data;
     }
 
+    /**
+     * Retrieve the {@link HOSContract.HOSData} of a single team driver.
+     * @param context
+     * @param index The team driver, starting at 0
+     * @return
+     */
+    public static HOSContract.HOSData getTeamDriverHOSData(Context context, int index) {
+        return getHOSData(context, true, TEAM_DRIVER_USERNAME_PREFIX + (index + 1));
+    }
+
     public static HOSContract.HOSData getHOSData(Context context) {
         return getHOSData(context, false, null);
     }
 
-
+    /**
+     * The only HOS computed by the sample app.  The responses for contract versions 0.2, 0.3 and 0.5
+     * are converted from it by {@link org.opencabstandard.provider.AbstractHOSProvider}.
+     */
     public static HOSContract.HOSData getHOSData(Context context, boolean isTeamDriver, String userName) {
         long currentMillis = System.currentTimeMillis();
         Date currentMillisDate = new Date(currentMillis);
@@ -86,55 +106,30 @@ public class HOSUtil {
                 label = "Rest Time Remaining";
                 break;
         }
-        ArrayList<HOSContract.ClockData> clocks = new ArrayList<>();
-        HOSContract.ClockData item1 = new HOSContract.ClockData();
-        item1.setLabel("Duty Status");
-        item1.setValueType(HOSContract.ClockData.ValueType.STRING);
-        item1.setValue(duty);
-        clocks.add(item1);
-        HOSContract.ClockData item2 = new HOSContract.ClockData();
-        item2.setLabel(label);
-        item2.setValueType(HOSContract.ClockData.ValueType.COUNTDOWN);
-        item2.setLimitsDrivingRange(limit);
-
-        SimpleDateFormat format = new SimpleDateFormat(HOSProvider.DATE_FORMAT);
-        item2.setValue(format.format(date));
-        item2.setImportant(true);
-        clocks.add(item2);
-
-        HOSContract.ClockData item3 = new HOSContract.ClockData();
-        item3.setLabel("User");
-        item3.setValueType(HOSContract.ClockData.ValueType.STRING);
-        item3.setValue(username);
-        clocks.add(item3);
-
-        HOSContract.ClockData item4 = new HOSContract.ClockData();
-        item4.setLabel("Time since Rest");
-        item4.setValueType(HOSContract.ClockData.ValueType.COUNTUP);
-        Long time = new Date().getTime();
-        Date midnight = new Date(time - time % (24 * 60 * 60 * 1000));
-        item4.setValue(format.format(midnight));
-        clocks.add(item4);
-
-        HOSContract.ClockData item5 = new HOSContract.ClockData();
-        item5.setLabel(HOS_DURATION_CLOCK_LABEL);
-        item5.setValueType(HOSContract.ClockData.ValueType.STRING);
-        long dateMillis = (date.getTime() - new Date().getTime()) / 1000;
-        item5.setValue(String.format("%02d:%02d", dateMillis / 60 / 60, dateMillis / 60 % 60));
-        item5.setDurationSeconds(new Double(dateMillis));
-        item5.setLimitsDrivingRange(useDurationSeconds);
-        clocks.add(item5);
-
-        HOSContract.ClockData item6 = new HOSContract.ClockData();
-        item6.setLabel("Today's Date");
-        item6.setValueType(HOSContract.ClockData.ValueType.DATE);
-        String strDate = format.format(new Date());
-        item6.setValue(strDate);
-        clocks.add(item6);
-
-        HOSContract.HOSData hosData = new HOSContract.HOSData();
-        hosData.setUsername(username);
-        hosData.setClocks(clocks);
+        SimpleDateFormat format = DATE_FORMAT.get();
+        long dateSeconds = (date.getTime() - currentMillis) / 1000;
+        Date midnight = new Date(currentMillis - currentMillis % (24 * 60 * 60 * 1000));
+        ArrayList<HOSContract.ClockData> clocks = new ArrayList<>(6);
+        clocks.add(sharedClockData("Duty Status", duty, HOSContract.ClockData.ValueType.STRING, false, false));
+        clocks.add(sharedClockData(label, format.format(date), HOSContract.ClockData.ValueType.COUNTDOWN, true, limit));
+        clocks.add(sharedClockData("User", username, HOSContract.ClockData.ValueType.STRING, false, false));
+        clocks.add(sharedClockData("Time since Rest", format.format(midnight), HOSContract.ClockData.ValueType.COUNTUP, false, false));
+        clocks.add(new HOSContract.ClockData.Builder()
+                .setLabel(HOS_DURATION_CLOCK_LABEL)
+                .setValueType(HOSContract.ClockData.ValueType.STRING)
+                .setValue(String.format("%02d:%02d", dateSeconds / 60 / 60, dateSeconds / 60 % 60))
+                .setDurationSeconds((double) dateSeconds)
+                .setLimitsDrivingRange(useDurationSeconds)
+                .build());
+        clocks.add(new HOSContract.ClockData.Builder()
+                .setLabel("Today's Date")
+                .setValueType(HOSContract.ClockData.ValueType.DATE)
+                .setValue(format.format(currentMillisDate))
+                .build());
+
+        HOSContract.HOSData.Builder hosData = new HOSContract.HOSData.Builder()
+                .setUsername(username)
+                .setClocks(clocks);
         if (Preferences.isManageAction(context)) {
             String logoutAction = Preferences.getToggleLogoutAction(context) ? "googlechrome://navigate?url=google.com" : "hos://com.eleostech.opencabprovider/hos";
             hosData.setManageAction("hos://com.eleostech.opencabprovider/hos");
@@ -147,183 +142,39 @@ public class HOSUtil {
                 Log.e(LOG_TAG, e.getMessage());
             }
         }
-        return hosData;
-    }
-
-    public static HOSContract.HOSStatusV2 getHOSStatusV2(Context context) {
-        return getHOSStatusV2(context, false, null);
+        return hosData.build();
     }
 
-    private static HOSContract.HOSStatusV2 getHOSStatusV2(Context context, boolean isTeamDriver, String userName) {
-        long currentMillis = System.currentTimeMillis();
-        Date currentMillisDate = new Date(currentMillis);
-
-        String username = isTeamDriver ? userName : Preferences.getUsername(context);
-        String duty = null;
-        Date date = new Date();
-        String label = null;
-        boolean useDurationSeconds = false;
-        boolean limit = false;
-        switch (Preferences.getDutyStatus(context)) {
-            case "d":
-                duty = "D";
-                date = addHoursToDate(currentMillisDate, 11);
-                label = "Drive Time Remaining";
-                limit = true;
-                break;
-            case "on":
-                duty = "ON";
-                date = addHoursToDate(currentMillisDate, 7);
-                label = "On Duty Time Remaining";
-                useDurationSeconds = true;
-                break;
-            case "off":
-                duty = "OFF";
-                date = addHoursToDate(currentMillisDate, 9);
-                label = "Rest Time Remaining";
-                break;
-        }
-        ArrayList<HOSContract.ClockV2> clocks = new ArrayList<>();
-        HOSContract.ClockV2 item1 = new HOSContract.ClockV2();
-        item1.setLabel("Duty Status");
-        item1.setValueType(HOSContract.ClockV2.ValueType.STRING);
-        item1.setValue(duty);
-        clocks.add(item1);
-        HOSContract.ClockV2 item2 = new HOSContract.ClockV2();
-        item2.setLabel(label);
-        item2.setValueType(HOSContract.ClockV2.ValueType.COUNTDOWN);
-        item2.setLimitsDrivingRange(limit);
-
-        SimpleDateFormat format = new SimpleDateFormat(HOSProvider.DATE_FORMAT);
-        item2.setValue(format.format(date));
-        item2.setImportant(true);
-        clocks.add(item2);
-
-        HOSContract.ClockV2 item3 = new HOSContract.ClockV2();
-        item3.setLabel("User");
-        item3.setValueType(HOSContract.ClockV2.ValueType.STRING);
-        item3.setValue(username);
-        clocks.add(item3);
-
-        HOSContract.ClockV2 item4 = new HOSContract.ClockV2();
-        item4.setLabel("Time since Rest");
-        item4.setValueType(HOSContract.ClockV2.ValueType.COUNTUP);
-        Long time = new Date().getTime();
-        Date midnight = new Date(time - time % (24 * 60 * 60 * 1000));
-        item4.setValue(format.format(midnight));
-        clocks.add(item4);
-
-        HOSContract.ClockV2 item5 = new HOSContract.ClockV2();
-        item5.setLabel(HOS_DURATION_CLOCK_LABEL);
-        item5.setValueType(HOSContract.ClockV2.ValueType.STRING);
-        long dateMillis = (date.getTime() - new Date().getTime()) / 1000;
-        item5.setValue(String.format("%02d:%02d", dateMillis / 60 / 60, dateMillis / 60 % 60));
-        item5.setDurationSeconds(new Double(dateMillis));
-        item5.setLimitsDrivingRange(useDurationSeconds);
-        clocks.add(item5);
-
-        HOSContract.ClockV2 item6 = new HOSContract.ClockV2();
-        item6.setLabel("Today's Date");
-        item6.setValueType(HOSContract.ClockV2.ValueType.DATE);
-        String strDate = format.format(new Date());
-        item6.setValue(strDate);
-        clocks.add(item6);
-
-        HOSContract.HOSStatusV2 hosStatusV2 = new HOSContract.HOSStatusV2();
-        hosStatusV2.setClocks(clocks);
-        if (Preferences.isManageAction(context)) {
-            String logoutAction = Preferences.getToggleLogoutAction(context) ? "googlechrome://navigate?url=google.com" : "hos://com.eleostech.opencabprovider/hos";
-            hosStatusV2.setManageAction("hos://com.eleostech.opencabprovider/hos");
-            hosStatusV2.setLogoutAction(logoutAction);
-        }
-        if (Preferences.getToggleDelayHosResponse(context)) {
-            try {
-                Thread.sleep(15000);
-            } catch (InterruptedException e) {
-                Log.e(LOG_TAG, e.getMessage());
+    private static HOSContract.ClockData sharedClockData(String label, String value, HOSContract.ClockData.ValueType valueType,
+                                                         boolean important, boolean limitsDrivingRange) {
+        ConcurrentHashMap<String, HOSContract.ClockData> byValue = label != null ? sharedValues(SHARED_CLOCK_DATA, label) : null;
+        HOSContract.ClockData clock = byValue != null && value != null ? byValue.get(value) : null;
+        if (clock == null || clock.getValueType() != valueType || clock.isImportant() != important
+                || clock.isLimitsDrivingRange() != limitsDrivingRange) {
+            clock = new HOSContract.ClockData.Builder()
+                    .setLabel(label)
+                    .setValue(value)
+                    .setValueType(valueType)
+                    .setImportant(important)
+                    .setLimitsDrivingRange(limitsDrivingRange)
+                    .build();
+            if (byValue != null && value != null) {
+                if (byValue.size() >= MAX_SHARED_VALUES) {
+                    byValue.clear();
+                }
+                byValue.put(value, clock);
             }
         }
-        return hosStatusV2;
+        return clock;
     }
 
-    public static HOSContract.HOSStatus getHOSStatus(Context context, boolean isTeamDriver) {
-        long currentMillis = System.currentTimeMillis();
-        Date currentMillisDate = new Date(currentMillis);
-
-        String username = isTeamDriver ? "OPENCAB_TEAM_DRIVER" : Preferences.getUsername(context);
-        String duty = null;
-        Date date = new Date();
-        String label = null;
-        boolean limit = false;
-        if (Preferences.getDutyStatus(context) != null) {
-            switch (Preferences.getDutyStatus(context)) {
-                case "d":
-                    duty = "D";
-                    date = addHoursToDate(currentMillisDate, 11);
-                    label = "Drive Time Remaining";
-                    limit = true;
-                    break;
-                case "on":
-                    duty = "ON";
-                    date = addHoursToDate(currentMillisDate, 7);
-                    label = "On Duty Time Remaining";
-                    break;
-                case "off":
-                    duty = "OFF";
-                    date = addHoursToDate(currentMillisDate, 9);
-                    label = "Rest Time Remaining";
-                    break;
-            }
-        }
-        ArrayList<HOSContract.Clock> clocks = new ArrayList<>();
-        HOSContract.Clock item1 = new HOSContract.Clock();
-        item1.setLabel("Duty Status");
-        item1.setValueType(HOSContract.Clock.ValueType.STRING);
-        item1.setValue(duty);
-        clocks.add(item1);
-        HOSContract.Clock item2 = new HOSContract.Clock();
-        item2.setLabel(label);
-        item2.setValueType(HOSContract.Clock.ValueType.COUNTDOWN);
-        item2.setLimitsDrivingRange(limit);
-
-        SimpleDateFormat format = new SimpleDateFormat(HOSProvider.DATE_FORMAT);
-        item2.setValue(format.format(date));
-        clocks.add(item2);
-
-        HOSContract.Clock item3 = new HOSContract.Clock();
-        item3.setLabel("User");
-        item3.setValueType(HOSContract.Clock.ValueType.STRING);
-        item3.setValue(username);
-        clocks.add(item3);
-
-        HOSContract.Clock item4 = new HOSContract.Clock();
-        item4.setLabel("Time since Rest");
-        item4.setValueType(HOSContract.Clock.ValueType.COUNTUP);
-        Long time = new Date().getTime();
-        Date midnight = new Date(time - time % (24 * 60 * 60 * 1000));
-        item4.setValue(format.format(midnight));
-        clocks.add(item4);
-
-        HOSContract.Clock item5 = new HOSContract.Clock();
-        item5.setLabel("Today's Date");
-        item5.setValueType(HOSContract.Clock.ValueType.DATE);
-        String strDate = format.format(new Date());
-        item5.setValue(strDate);
-        clocks.add(item5);
-
-        HOSContract.HOSStatus hosStatus = new HOSContract.HOSStatus();
-        hosStatus.setClocks(clocks);
-        if (Preferences.isManageAction(context)) {
-            hosStatus.setManageAction("hos://com.eleostech.opencabprovider/hos");
-        }
-        if (Preferences.getToggleDelayHosResponse(context)) {
-            try {
-                Thread.sleep(15000);
-            } catch (InterruptedException e) {
-                Log.e(LOG_TAG, e.getMessage());
-            }
+    private static <T> ConcurrentHashMap<String, T> sharedValues(ConcurrentHashMap<String, ConcurrentHashMap<String, T>> shared, String label) {
+        ConcurrentHashMap<String, T> byValue = shared.get(label);
+        if (byValue == null) {
+            shared.putIfAbsent(label, new ConcurrentHashMap<>());
+            byValue = shared.get(label);
         }
-        return hosStatus;
+        return byValue;
     }
 
     private static Date addHoursToDate(Date date, int hours) {
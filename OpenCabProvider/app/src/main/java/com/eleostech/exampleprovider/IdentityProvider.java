@@ -1,10 +1,11 @@
 package com.eleostech.exampleprovider;
 
+import android.content.SharedPreferences;
 import android.util.Log;
 
 import org.opencabstandard.provider.AbstractIdentityProvider;
 import org.opencabstandard.provider.IdentityContract;
-import org.opencabstandard.provider.Version;
+import org.opencabstandard.provider.VersionResolver;
 
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -17,47 +18,73 @@ import io.jsonwebtoken.Jwts;
 public class IdentityProvider extends AbstractIdentityProvider {
     private static final String LOG_TAG = IdentityProvider.class.getName();
 
-    @Override
-    public IdentityContract.LoginCredentials getLoginCredentials(String version) {
-        Log.d(LOG_TAG, "getLoginCredentials()");
+    private static final VersionResolver TEAM_DRIVER_VERSIONS = new VersionResolver("0.2", "0.3");
 
-        IdentityContract.LoginCredentials creds = null;
-        String username = Preferences.getUsername((getContext()));
+    private static final String TEAM_DRIVER_USERNAME = "OPENCAB-TEAM-DRIVER";
 
-        /* To make testing and development easy, the sample app can vend either a JWT
-         * or any string entered into the UI as the identity token. However, keep in mind
-         * that the OpenCab standard does not currently require any particular token format.
-         *
-         * It's the responsibility of providers to document the token format they use, how to
-         * verify it, and the unique authority string that can be used to identify a specific format.
-         */
-        if (username != null && username.length() > 0) {
-            creds = new IdentityContract.LoginCredentials();
-            if (Preferences.getIdentityResponseAsJWT(getContext())) {
-                creds.setToken(createJwt(username));
-            } else {
-                String response = null;
-                String identityResponseToken = Preferences.getIdentityResponseToken(getContext());
-                if (identityResponseToken != null && identityResponseToken.length() > 0) {
-                    response = identityResponseToken;
-                }
-                creds.setToken(response);
-            }
+    /**
+     * The active drivers and credentials of the sample app are derived from its identity settings, so a
+     * change to one of them may change them.  Other preferences, such as the duty status, do not.  Held
+     * in a field because the preferences only keep a weak reference to their listeners.
+     */
+    private final SharedPreferences.OnSharedPreferenceChangeListener preferencesListener = (preferences, key) -> {
+        if (Preferences.isIdentityKey(key)) {
+            getCredentialCache().invalidateAll();
+            notifyActiveDriversChanged();
+        }
+    };
+
+    @Override
+    public boolean onCreate() {
+        super.onCreate();
+        Preferences.getPreferences(getContext()).registerOnSharedPreferenceChangeListener(preferencesListener);
+        return true;
+    }
 
-            creds.setProvider(getContext().getPackageName());
-            creds.setAuthority(IdentityContract.AUTHORITY);
+    @Override
+    public IdentityContract.LoginCredentials getLoginCredentials(String version) {
+        if (isLoggable(Log.DEBUG)) {
+            Log.d(LOG_TAG, "getLoginCredentials()");
         }
 
-        return creds;
+        String username = IdentityState.get(getContext()).getUsername();
+        if (username != null && username.length() > 0) {
+            return getCredentialCache().get(username, this::mintLoginCredentials);
+        }
+        return null;
     }
 
     @Override
     public ArrayList<IdentityContract.DriverSession> getAllLoginCredentials(String version) {
-        Log.d(LOG_TAG, "getAllLoginCredentials()");
+        if (isLoggable(Log.DEBUG)) {
+            Log.d(LOG_TAG, "getAllLoginCredentials()");
+        }
 
         ArrayList<IdentityContract.DriverSession> driverSessionList = new ArrayList<>();
-        String username = Preferences.getUsername((getContext()));
+        IdentityState state = IdentityState.get(getContext());
+        String username = state.getUsername();
+        if (username != null && username.length() > 0) {
+            driverSessionList.add(getDriverSession(username));
+            if (state.isTeamDriverEnabled()) {
+                driverSessionList.add(getDriverSession(TEAM_DRIVER_USERNAME));
+            }
+        }
+
+        return driverSessionList;
+    }
+
+    private IdentityContract.DriverSession getDriverSession(String username) {
+        IdentityContract.DriverSession driverSession = new IdentityContract.DriverSession();
+        driverSession.setUsername(username);
+        driverSession.setLoginCredentials(getCredentialCache().get(username, this::mintLoginCredentials));
+        return driverSession;
+    }
 
+    /**
+     * Called by the credential cache when the driver has no credentials yet, or when they are about to
+     * expire, rather than on every call.
+     */
+    private IdentityContract.LoginCredentials mintLoginCredentials(String username) {
         /* To make testing and development easy, the sample app can vend either a JWT
          * or any string entered into the UI as the identity token. However, keep in mind
          * that the OpenCab standard does not currently require any particular token format.
@@ -65,64 +92,38 @@ public class IdentityProvider extends AbstractIdentityProvider {
          * It's the responsibility of providers to document the token format they use, how to
          * verify it, and the unique authority string that can be used to identify a specific format.
          */
-        if (username != null && username.length() > 0) {
-            IdentityContract.DriverSession driverSession = new IdentityContract.DriverSession();
-            driverSession.setUsername(username);
-            IdentityContract.LoginCredentials creds = new IdentityContract.LoginCredentials();
-            if (Preferences.getIdentityResponseAsJWT(getContext())) {
-                creds.setToken(createJwt(username));
-            } else {
-                String response = null;
-                String identityResponseToken = Preferences.getIdentityResponseToken(getContext());
-                if (identityResponseToken != null && identityResponseToken.length() > 0) {
-                    response = identityResponseToken;
-                }
-                creds.setToken(response);
-            }
-
-            creds.setProvider(getContext().getPackageName());
-            creds.setAuthority(IdentityContract.AUTHORITY);
-            driverSession.setLoginCredentials(creds);
-            driverSessionList.add(driverSession);
-            if (Preferences.isIdentityProviderTeamDriverEnabled(getContext())) {
-                IdentityContract.DriverSession driverSessionTeam = new IdentityContract.DriverSession();
-                driverSessionTeam.setUsername("OPENCAB-TEAM-DRIVER");
-                IdentityContract.LoginCredentials credsTeam = new IdentityContract.LoginCredentials();
-                if (Preferences.getIdentityResponseAsJWT(getContext())) {
-                    credsTeam.setToken(createJwt("OPENCAB-TEAM-DRIVER"));
-                } else {
-                    String response = null;
-                    String identityResponseToken = Preferences.getIdentityResponseToken(getContext());
-                    if (identityResponseToken != null && identityResponseToken.length() > 0) {
-                        response = identityResponseToken;
-                    }
-                    creds.setToken(response);
-                }
-
-                credsTeam.setProvider(getContext().getPackageName());
-                credsTeam.setAuthority(IdentityContract.AUTHORITY);
-                driverSessionTeam.setLoginCredentials(credsTeam);
-                driverSessionList.add(driverSessionTeam);
+        IdentityState state = IdentityState.get(getContext());
+        IdentityContract.LoginCredentials creds = new IdentityContract.LoginCredentials();
+        if (state.isResponseAsJWT()) {
+            creds.setToken(createJwt(username));
+        } else {
+            String response = null;
+            String identityResponseToken = state.getResponseToken();
+            if (identityResponseToken != null && identityResponseToken.length() > 0) {
+                response = identityResponseToken;
             }
+            creds.setToken(response);
         }
 
-        return driverSessionList;
+        creds.setProvider(getContext().getPackageName());
+        creds.setAuthority(IdentityContract.AUTHORITY);
+        return creds;
     }
 
     @Override
     public ArrayList<IdentityContract.Driver> getActiveDrivers(String version) {
-        Log.d(LOG_TAG, "getActiveDrivers() for version " + version);
-        ArrayList<IdentityContract.Driver> activeDrivers = Preferences.getActiveDrivers(getContext());
-        if (Preferences.isIdentityProviderTeamDriverEnabled(getContext())) {
-            // See subsection 3.5.4 for details about this fallback logic.
-            Version requestedVersion = new Version(version != null ? version : "0.2");
-            Version supportedVersion = new Version("0.3");
-            // This implements subsection 3.5.3 of the spec.
-            if (requestedVersion.compareTo(supportedVersion) >= 0) {
+        if (isLoggable(Log.DEBUG)) {
+            Log.d(LOG_TAG, "getActiveDrivers() for version " + version);
+        }
+        IdentityState state = IdentityState.get(getContext());
+        ArrayList<IdentityContract.Driver> activeDrivers = state.getActiveDrivers() != null ? new ArrayList<>(state.getActiveDrivers()) : null;
+        if (state.isTeamDriverEnabled()) {
+            // See subsections 3.5.3 and 3.5.4 for details about this fallback logic.
+            if ("0.3".equals(TEAM_DRIVER_VERSIONS.resolve(version))) {
                 if (activeDrivers != null) {
                     IdentityContract.Driver teamDriver = new IdentityContract.Driver();
                     teamDriver.setDriving(false);
-                    teamDriver.setUsername("OPENCAB-TEAM-DRIVER");
+                    teamDriver.setUsername(TEAM_DRIVER_USERNAME);
                     activeDrivers.add(teamDriver);
                 }
             }
@@ -144,7 +145,9 @@ public class IdentityProvider extends AbstractIdentityProvider {
 
         Date expire = addHoursToDate(new Date(), 730);
         String jwt = Jwts.builder().setClaims(claims).setExpiration(expire).compact();
-        Log.d(LOG_TAG, "JWT: " + jwt);
+        if (isLoggable(Log.DEBUG)) {
+            Log.d(LOG_TAG, "JWT: " + jwt);
+        }
 
         return jwt;
     }
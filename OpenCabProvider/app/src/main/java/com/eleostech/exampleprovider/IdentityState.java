@@ -0,0 +1,127 @@
+package com.eleostech.exampleprovider;
+
+import android.content.Context;
+
+import org.opencabstandard.provider.IdentityContract;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The identity of the sample app: the logged in driver, the active drivers and how credentials are
+ * returned.  It cannot be modified, and the current state is replaced as a whole, so a provider call
+ * that reads it once sees a consistent login even while the driver logs in or out.
+ *
+ * <p>The state is read from the preferences once per process.  Changes are made here first and then
+ * written to the preferences, see {@link Preferences}.</p>
+ */
+public final class IdentityState {
+
+    /**
+     * The state of a fresh install, or after logging out.
+     */
+    static final IdentityState EMPTY = new IdentityState(null, null, true, "", false);
+
+    private static final AtomicReference<IdentityState> CURRENT = new AtomicReference<>();
+
+    /**
+     * A change to the state.
+     */
+    interface Update {
+        IdentityState apply(IdentityState state);
+    }
+
+    private final String username;
+    private final List<IdentityContract.Driver> activeDrivers;
+    private final boolean responseAsJWT;
+    private final String responseToken;
+    private final boolean teamDriverEnabled;
+
+    IdentityState(String username, List<IdentityContract.Driver> activeDrivers, boolean responseAsJWT,
+                  String responseToken, boolean teamDriverEnabled) {
+        this.username = username;
+        this.activeDrivers = activeDrivers != null ? Collections.unmodifiableList(new ArrayList<>(activeDrivers)) : null;
+        this.responseAsJWT = responseAsJWT;
+        this.responseToken = responseToken;
+        this.teamDriverEnabled = teamDriverEnabled;
+    }
+
+    /**
+     * The current state, read from the preferences on first use.
+     *
+     * @param context Any context of the app.
+     * @return The current state.
+     */
+    public static IdentityState get(Context context) {
+        IdentityState state = CURRENT.get();
+        if (state == null) {
+            CURRENT.compareAndSet(null, Preferences.loadIdentityState(context));
+            state = CURRENT.get();
+        }
+        return state;
+    }
+
+    /**
+     * Replace the current state with a changed copy, retrying if another thread replaced it first.
+     *
+     * @return The new state.
+     */
+    static IdentityState update(Context context, Update update) {
+        while (true) {
+            IdentityState state = get(context);
+            IdentityState updated = update.apply(state);
+            if (CURRENT.compareAndSet(state, updated)) {
+                return updated;
+            }
+        }
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * @return The active drivers, which must not be modified, or null if none were saved.
+     */
+    public List<IdentityContract.Driver> getActiveDrivers() {
+        return activeDrivers;
+    }
+
+    public boolean isResponseAsJWT() {
+        return responseAsJWT;
+    }
+
+    public String getResponseToken() {
+        return responseToken;
+    }
+
+    public boolean isTeamDriverEnabled() {
+        return teamDriverEnabled;
+    }
+
+    IdentityState withLogin(String username, List<IdentityContract.Driver> activeDrivers) {
+        return new IdentityState(username, activeDrivers, responseAsJWT, responseToken, teamDriverEnabled);
+    }
+
+    IdentityState withUsername(String username) {
+        return new IdentityState(username, activeDrivers, responseAsJWT, responseToken, teamDriverEnabled);
+    }
+
+    IdentityState withActiveDrivers(List<IdentityContract.Driver> activeDrivers) {
+        return new IdentityState(username, activeDrivers, responseAsJWT, responseToken, teamDriverEnabled);
+    }
+
+    IdentityState withResponseAsJWT(boolean responseAsJWT) {
+        return new IdentityState(username, activeDrivers, responseAsJWT, responseToken, teamDriverEnabled);
+    }
+
+    IdentityState withResponseToken(String responseToken) {
+        return new IdentityState(username, activeDrivers, responseAsJWT, responseToken, teamDriverEnabled);
+    }
+
+    IdentityState withTeamDriverEnabled(boolean teamDriverEnabled) {
+        return new IdentityState(username, activeDrivers, responseAsJWT, responseToken, teamDriverEnabled);
+    }
+}
@@ -1,10 +1,5 @@
 package com.eleostech.exampleprovider;
 
-import android.content.ComponentName;
-import android.content.Intent;
-import android.content.pm.ActivityInfo;
-import android.content.pm.PackageInfo;
-import android.content.pm.PackageManager;
 import android.os.Bundle;
 import android.text.Editable;
 import android.text.TextWatcher;
@@ -20,12 +15,11 @@ import com.eleostech.opencabprovider.R;
 import com.eleostech.opencabprovider.databinding.ActivityMainBinding;
 
 import org.opencabstandard.provider.IdentityContract;
+import org.opencabstandard.provider.OpenCabBroadcaster;
+import org.opencabstandard.provider.OpenCabSnapshots;
 import org.opencabstandard.provider.VehicleInformationContract;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 
 public class MainActivity extends AppCompatActivity {
     private static final String LOG_TAG = MainActivity.class.getCanonicalName();
@@ -192,34 +186,19 @@ public class MainActivity extends AppCompatActivity {
     private void login(final String username) {
         Log.d(LOG_TAG, "login()");
 
-        Preferences.setUsername(MainActivity.this, username);
         binding.welcomeUser.setText("Welcome " + username);
         binding.loginContainer.setVisibility(View.GONE);
         binding.logoutContainer.setVisibility(View.VISIBLE);
         setDutyStatus("off");
         addUser(username, false);
 
-        HashMap<String, ActivityInfo> discoveredReceivers = getReceivers(IdentityContract.IDENTITY_CHANGED_RECEIVER);
-
-        if (discoveredReceivers != null) {
-            for (Map.Entry<String, ActivityInfo> entry : discoveredReceivers.entrySet()) {
-                String key = entry.getKey();
-                ActivityInfo value = entry.getValue();
-                // If required by your use case or for security reasons, you can apply any
-                // package name-based filtering by checking `value.packageName` against
-                // a server-provided list. It is not recommended that you hard code any
-                // package names in your mobile implementation directly.
-                // See section 5, "Security," of the specification for more information.
-                Intent intent1 = new Intent();
-                intent1.setComponent(new ComponentName(value.packageName, key));
-                intent1.setAction(IdentityContract.ACTION_IDENTITY_INFORMATION_CHANGED);
-                getApplication().sendBroadcast(intent1);
-                Intent intent2 = new Intent();
-                intent2.setComponent(new ComponentName(value.packageName, key));
-                intent2.setAction(IdentityContract.ACTION_DRIVER_LOGIN);
-                getApplication().sendBroadcast(intent2);
-            }
-        }
+        // The broadcaster sends these from a background thread, together with any other
+        // identity broadcasts published within its window, such as the logout of switchDriver().
+        // The snapshot lets consumers skip calling back for the active drivers.
+        OpenCabBroadcaster broadcaster = ((Application) getApplication()).getBroadcaster();
+        Bundle snapshot = OpenCabSnapshots.newIdentitySnapshot(username, Preferences.getActiveDrivers(this));
+        broadcaster.publish(IdentityContract.IDENTITY_CHANGED_RECEIVER, IdentityContract.ACTION_IDENTITY_INFORMATION_CHANGED, snapshot);
+        broadcaster.publish(IdentityContract.IDENTITY_CHANGED_RECEIVER, IdentityContract.ACTION_DRIVER_LOGIN, snapshot);
     }
 
     private void switchDriver() {
@@ -229,23 +208,15 @@ public class MainActivity extends AppCompatActivity {
 
     private void logout() {
         binding.identityProviderTeamDriverSwitch.setChecked(false);
+        String username = Preferences.getUsername(this);
         Preferences.clear(this);
 
         binding.loginContainer.setVisibility(View.VISIBLE);
         binding.logoutContainer.setVisibility(View.GONE);
 
-        HashMap<String, ActivityInfo> discoveredReceivers = getReceivers(IdentityContract.IDENTITY_CHANGED_RECEIVER);
-
-        if (discoveredReceivers != null) {
-            for (Map.Entry<String, ActivityInfo> entry : discoveredReceivers.entrySet()) {
-                String key = entry.getKey();
-                ActivityInfo value = entry.getValue();
-                Intent intent = new Intent();
-                intent.setComponent(new ComponentName(value.packageName, key));
-                intent.setAction(IdentityContract.ACTION_DRIVER_LOGOUT);
-                getApplication().sendBroadcast(intent);
-            }
-        }
+        ((Application) getApplication()).getBroadcaster()
+                .publish(IdentityContract.IDENTITY_CHANGED_RECEIVER, IdentityContract.ACTION_DRIVER_LOGOUT,
+                        OpenCabSnapshots.newIdentitySnapshot(username, null));
     }
 
     private void setDutyStatus(String status) {
@@ -276,7 +247,7 @@ public class MainActivity extends AppCompatActivity {
         ArrayList<IdentityContract.Driver> drivers = new ArrayList<>();
         drivers.add(driver);
 
-        Preferences.setActiveDrivers(this, drivers);
+        Preferences.setLogin(this, username, drivers);
     }
 
     private void broadCastEvent() {
@@ -284,85 +255,27 @@ public class MainActivity extends AppCompatActivity {
         // this process.
         String event = binding.broadcastEventSpinner.getSelectedItem().toString();
         Log.d(LOG_TAG, "Broadcasting " + event + " event");
-        HashMap<String, ActivityInfo> discoveredReceivers;
+        OpenCabBroadcaster broadcaster = ((Application) getApplication()).getBroadcaster();
+        Bundle identitySnapshot = OpenCabSnapshots.newIdentitySnapshot(Preferences.getUsername(this), Preferences.getActiveDrivers(this));
         switch (event) {
             case "ACTION_DRIVER_LOGOUT":
-                discoveredReceivers = getReceivers(IdentityContract.IDENTITY_CHANGED_RECEIVER);
-                if (discoveredReceivers.size() > 0) {
-                    for (Map.Entry<String, ActivityInfo> entry : discoveredReceivers.entrySet()) {
-                        String key = entry.getKey();
-                        ActivityInfo value = entry.getValue();
-                        Intent intent = new Intent();
-                        intent.setComponent(new ComponentName(value.packageName, key));
-                        intent.setAction(IdentityContract.ACTION_DRIVER_LOGOUT);
-                        getApplication().sendBroadcast(intent);
-                    }
-                }
+                broadcaster.publish(IdentityContract.IDENTITY_CHANGED_RECEIVER, IdentityContract.ACTION_DRIVER_LOGOUT, identitySnapshot);
                 break;
             case "ACTION_DRIVER_LOGIN":
-                discoveredReceivers = getReceivers(IdentityContract.IDENTITY_CHANGED_RECEIVER);
-                if (discoveredReceivers.size() > 0) {
-                    for (Map.Entry<String, ActivityInfo> entry : discoveredReceivers.entrySet()) {
-                        String key = entry.getKey();
-                        ActivityInfo value = entry.getValue();
-                        Intent intent = new Intent();
-                        intent.setComponent(new ComponentName(value.packageName, key));
-                        intent.setAction(IdentityContract.ACTION_DRIVER_LOGIN);
-                        getApplication().sendBroadcast(intent);
-                    }
-                }
+                broadcaster.publish(IdentityContract.IDENTITY_CHANGED_RECEIVER, IdentityContract.ACTION_DRIVER_LOGIN, identitySnapshot);
                 break;
             case "ACTION_IDENTITY_INFORMATION_CHANGED":
-                discoveredReceivers = getReceivers(IdentityContract.IDENTITY_CHANGED_RECEIVER);
-                if (discoveredReceivers.size() > 0) {
-                    for (Map.Entry<String, ActivityInfo> entry : discoveredReceivers.entrySet()) {
-                        String key = entry.getKey();
-                        ActivityInfo value = entry.getValue();
-                        Intent intent = new Intent();
-                        intent.setComponent(new ComponentName(value.packageName, key));
-                        intent.setAction(IdentityContract.ACTION_IDENTITY_INFORMATION_CHANGED);
-                        getApplication().sendBroadcast(intent);
-                    }
-                }
+                broadcaster.publish(IdentityContract.IDENTITY_CHANGED_RECEIVER, IdentityContract.ACTION_IDENTITY_INFORMATION_CHANGED, identitySnapshot);
                 break;
             case "ACTION_VEHICLE_INFORMATION_CHANGED":
-                discoveredReceivers = getReceivers(VehicleInformationContract.VEHICLE_INFORMATION_CHANGED_RECEIVER);
-                if (discoveredReceivers.size() > 0) {
-                    for (Map.Entry<String, ActivityInfo> entry : discoveredReceivers.entrySet()) {
-                        String key = entry.getKey();
-                        ActivityInfo value = entry.getValue();
-                        Intent intent = new Intent();
-                        intent.setComponent(new ComponentName(value.packageName, key));
-                        intent.setAction(VehicleInformationContract.ACTION_VEHICLE_INFORMATION_CHANGED);
-                        getApplication().sendBroadcast(intent);
-                    }
-                }
+                broadcaster.publish(VehicleInformationContract.VEHICLE_INFORMATION_CHANGED_RECEIVER, VehicleInformationContract.ACTION_VEHICLE_INFORMATION_CHANGED,
+                        OpenCabSnapshots.newVehicleInformationSnapshot(VehicleInformationProvider.newVehicleInformation()));
                 break;
             default:
                 // code block
         }
     }
 
-    private HashMap<String, ActivityInfo> getReceivers(String type) {
-        // See section 3.4, "Publishing broadcast intents", for specifics about this
-        // enumeration process.
-        List<PackageInfo> packages = getApplication().getPackageManager().getInstalledPackages(PackageManager.GET_RECEIVERS);
-        HashMap<String, ActivityInfo> discoveredReceivers = new HashMap<>();
-        if (packages != null) {
-            for (PackageInfo packageInfo : packages) {
-                if (packageInfo.receivers != null) {
-                    for (ActivityInfo activityInfo : packageInfo.receivers) {
-                        if (activityInfo.name.endsWith("." + type)) {
-                            discoveredReceivers.put(activityInfo.name, activityInfo);
-                        }
-
-                    }
-                }
-            }
-        }
-        return discoveredReceivers;
-    }
-
     private void updateIdentityProviderTeamDriver() {
         Preferences.setIdentityProviderTeamDriver(this, binding.identityProviderTeamDriverSwitch.isChecked());
     }
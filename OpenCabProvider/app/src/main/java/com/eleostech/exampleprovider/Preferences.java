@@ -10,7 +10,12 @@ import com.google.gson.reflect.TypeToken;
 import org.opencabstandard.provider.IdentityContract;
 
 import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * The settings of the sample app.  The identity settings are read from the {@link IdentityState},
+ * which is changed first and then written to the preferences in the background.
+ */
 public class Preferences {
     private static final String LOG_TAG = Preferences.class.getCanonicalName();
     public static final String PREFS_NAME = "opencab";
@@ -60,17 +65,30 @@ public class Preferences {
     }
 
     public static void clear(Context context) {
-        SharedPreferences.Editor editor = getPreferencesEditor(context);
-        editor.clear();
-        editor.commit();
+        IdentityState.update(context, state -> IdentityState.EMPTY);
+        synchronized (Preferences.class) {
+            SharedPreferences.Editor editor = getPreferencesEditor(context);
+            editor.clear();
+            editor.commit();
+        }
+    }
+
+    /**
+     * Log a driver in, setting the username and the active drivers together so that no provider call
+     * sees one without the other.
+     */
+    public static void setLogin(Context context, String username, ArrayList<IdentityContract.Driver> activeDrivers) {
+        IdentityState.update(context, state -> state.withLogin(username, activeDrivers));
+        saveIdentityState(context);
     }
 
     public static void setUsername(Context context, String username) {
-        putString(context, PREFS_USERNAME, username);
+        IdentityState.update(context, state -> state.withUsername(username));
+        saveIdentityState(context);
     }
 
     public static String getUsername(Context context) {
-        return getString(context, PREFS_USERNAME, null);
+        return IdentityState.get(context).getUsername();
     }
 
     public static void setDutyStatus(Context context, String dutyStatus) {
@@ -83,20 +101,16 @@ public class Preferences {
     }
 
     public static void setActiveDrivers(Context context, ArrayList<IdentityContract.Driver> activeDrivers) {
-        String drivers = new Gson().toJson(activeDrivers);
-        Log.d(LOG_TAG, "Saving drivers: " + drivers);
-        putString(context, PREFS_ACTIVE_DRIVERS, drivers);
+        IdentityState.update(context, state -> state.withActiveDrivers(activeDrivers));
+        saveIdentityState(context);
     }
 
+    /**
+     * @return A copy of the active drivers, which the caller may modify, or null if none were saved.
+     */
     public static ArrayList<IdentityContract.Driver> getActiveDrivers(Context context) {
-        String drivers = getString(context, PREFS_ACTIVE_DRIVERS, null);
-        ArrayList<IdentityContract.Driver> activeDrivers = null;
-        if (drivers != null) {
-            java.lang.reflect.Type listType = new TypeToken<ArrayList<IdentityContract.Driver>>() {
-            }.getType();
-            activeDrivers = new Gson().fromJson(drivers, listType);
-        }
-        return activeDrivers;
+        List<IdentityContract.Driver> activeDrivers = IdentityState.get(context).getActiveDrivers();
+        return activeDrivers != null ? new ArrayList<>(activeDrivers) : null;
     }
 
     public static void setNavigationState(Context context, boolean isNavigating) {
@@ -110,34 +124,84 @@ public class Preferences {
     }
 
     public static void setIdentityResponseJWT(Context context, boolean isJWT) {
-        SharedPreferences.Editor editor = getPreferencesEditor(context);
-        editor.putBoolean(PREFS_IDENTITY_PROVIDER_SEND_JWT, isJWT);
-        editor.commit();
+        IdentityState.update(context, state -> state.withResponseAsJWT(isJWT));
+        saveIdentityState(context);
     }
 
 
     public static boolean getIdentityResponseAsJWT(Context context) {
-        return getPreferences(context).getBoolean(PREFS_IDENTITY_PROVIDER_SEND_JWT, true);
+        return IdentityState.get(context).isResponseAsJWT();
     }
 
     public static void setIdentityResponseToken(Context context, String token) {
-        SharedPreferences.Editor editor = getPreferencesEditor(context);
-        editor.putString(PREFS_IDENTITY_PROVIDER_TOKEN, token);
-        editor.commit();
+        IdentityState.update(context, state -> state.withResponseToken(token));
+        saveIdentityState(context);
     }
 
     public static String getIdentityResponseToken(Context context) {
-        return getPreferences(context).getString(PREFS_IDENTITY_PROVIDER_TOKEN, "");
+        return IdentityState.get(context).getResponseToken();
     }
 
     public static void setIdentityProviderTeamDriver(Context context, boolean isEnabled) {
-        SharedPreferences.Editor editor = getPreferencesEditor(context);
-        editor.putBoolean(PREFS_IDENTITY_PROVIDER_TEAM_DRIVER, isEnabled);
-        editor.commit();
+        IdentityState.update(context, state -> state.withTeamDriverEnabled(isEnabled));
+        saveIdentityState(context);
     }
 
     public static boolean isIdentityProviderTeamDriverEnabled(Context context) {
-        return getPreferences(context).getBoolean(PREFS_IDENTITY_PROVIDER_TEAM_DRIVER, false);
+        return IdentityState.get(context).isTeamDriverEnabled();
+    }
+
+    /**
+     * Whether a changed preference is one of the identity settings of {@link IdentityState}.
+     *
+     * @param key The key passed to a {@link SharedPreferences.OnSharedPreferenceChangeListener}, which
+     *            is null when the preferences are cleared.
+     */
+    static boolean isIdentityKey(String key) {
+        return key == null
+                || PREFS_USERNAME.equals(key)
+                || PREFS_ACTIVE_DRIVERS.equals(key)
+                || PREFS_IDENTITY_PROVIDER_SEND_JWT.equals(key)
+                || PREFS_IDENTITY_PROVIDER_TOKEN.equals(key)
+                || PREFS_IDENTITY_PROVIDER_TEAM_DRIVER.equals(key);
+    }
+
+    /**
+     * Read the identity settings, decoding the active drivers.  Only called once per process.
+     */
+    static IdentityState loadIdentityState(Context context) {
+        SharedPreferences preferences = getPreferences(context);
+        String drivers = preferences.getString(PREFS_ACTIVE_DRIVERS, null);
+        ArrayList<IdentityContract.Driver> activeDrivers = null;
+        if (drivers != null) {
+            java.lang.reflect.Type listType = new TypeToken<ArrayList<IdentityContract.Driver>>() {
+            }.getType();
+            activeDrivers = new Gson().fromJson(drivers, listType);
+        }
+        return new IdentityState(preferences.getString(PREFS_USERNAME, null),
+                activeDrivers,
+                preferences.getBoolean(PREFS_IDENTITY_PROVIDER_SEND_JWT, true),
+                preferences.getString(PREFS_IDENTITY_PROVIDER_TOKEN, ""),
+                preferences.getBoolean(PREFS_IDENTITY_PROVIDER_TEAM_DRIVER, false));
+    }
+
+    /**
+     * Write the current identity settings in the background.  The latest state is written, under a
+     * lock, so concurrent changes cannot leave an older state on disk.
+     */
+    private static void saveIdentityState(Context context) {
+        synchronized (Preferences.class) {
+            IdentityState state = IdentityState.get(context);
+            String drivers = state.getActiveDrivers() != null ? new Gson().toJson(state.getActiveDrivers()) : null;
+            Log.d(LOG_TAG, "Saving drivers: " + drivers);
+            SharedPreferences.Editor editor = getPreferencesEditor(context);
+            editor.putString(PREFS_USERNAME, state.getUsername());
+            editor.putString(PREFS_ACTIVE_DRIVERS, drivers);
+            editor.putBoolean(PREFS_IDENTITY_PROVIDER_SEND_JWT, state.isResponseAsJWT());
+            editor.putString(PREFS_IDENTITY_PROVIDER_TOKEN, state.getResponseToken());
+            editor.putBoolean(PREFS_IDENTITY_PROVIDER_TEAM_DRIVER, state.isTeamDriverEnabled());
+            editor.apply();
+        }
     }
 
     public static void setToggleLogoutAction(Context context, boolean logoutAction) {
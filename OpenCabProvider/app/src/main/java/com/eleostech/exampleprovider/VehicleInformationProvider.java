@@ -10,8 +10,17 @@ public class VehicleInformationProvider extends AbstractVehicleInformationProvid
 
     @Override
     public VehicleInformationContract.VehicleInformation getVehicleInformation(String version) {
-        Log.d(LOG_TAG, "getVehicleInformation()");
+        if (isLoggable(Log.DEBUG)) {
+            Log.d(LOG_TAG, "getVehicleInformation()");
+        }
 
+        return newVehicleInformation();
+    }
+
+    /**
+     * The vehicle of the sample app, also sent in the snapshot of its vehicle information broadcasts.
+     */
+    static VehicleInformationContract.VehicleInformation newVehicleInformation() {
         VehicleInformationContract.VehicleInformation vehicleInformation = new VehicleInformationContract.VehicleInformation();
         vehicleInformation.setVehicleId("Great Vehicle ID 1");
         vehicleInformation.setVin("QWERRTYUIOP12345");
@@ -1,27 +1,162 @@
 package org.opencabstandard.provider;
 
-import android.content.ContentProvider;
-import android.content.ContentValues;
-import android.database.Cursor;
-import android.net.Uri;
 import android.os.Bundle;
+import android.os.IBinder;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import com.google.gson.Gson;
-
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * An abstract ContentProvider that implements the {@link HOSContract}.  The provider app can choose
  * to implement the full ContentProvider or to extend this class.  If extending this class it only needs
  * to implement the abstract methods.
+ *
+ * <p>By default every {@link HOSContract}.METHOD_GET_HOS call invokes the abstract getters. Provider apps
+ * that know when their HOS state changes can instead call {@link #publish(HOSContract.HOSData, HOSContract.HOSTeamData)}
+ * whenever it does. The responses for every supported contract version are then built once, at publish
+ * time, and returned from {@link #call(String, String, Bundle)} without calling the abstract getters.</p>
+ *
+ * <p>Calls to the abstract getters can be bounded by {@link #getHOSTimeoutMillis()} and by the
+ * {@link HOSContract}.KEY_TIMEOUT_MILLIS extra passed by the consumer.  When the getters do not finish
+ * in time the last successful response for the same contract version is returned with
+ * {@link HOSContract}.KEY_STALE_MILLIS, so a stalled provider app does not block the consumer.</p>
+ *
+ * <p>The abstract getters run on a small executor of their own, sized by {@link #getHOSThreadCount()}
+ * and {@link #getHOSQueueCapacity()}, so that slow getters cannot take every binder thread of the
+ * provider app.  When it is saturated, calls are answered at once with the last successful response,
+ * and counted by {@link #getRejectedHOSCalls()}.</p>
+ *
+ * <p>Concurrent calls that negotiate the same contract version share a single call to the abstract
+ * getters.  {@link #getComputedHOSCalls()} and {@link #getMergedHOSCalls()} count how often the getters
+ * ran and how many calls reused a computation that was already in progress.</p>
+ *
+ * <p>Provider apps that look up each team driver separately can override
+ * {@link #isTeamDriverHOSComputedSeparately()} and the per-driver getters.  The team drivers are then
+ * computed in parallel, each within {@link #getTeamDriverTimeoutMillis()} of when it starts, and a
+ * driver that fails, times out or finds the provider too busy gets an empty entry in
+ * {@link HOSContract}.KEY_TEAM_HOS and an error message in {@link HOSContract}.KEY_TEAM_HOS_ERRORS
+ * instead of failing or delaying the whole response.</p>
+ *
+ * <p>{@link #publish(HOSContract.HOSData, HOSContract.HOSTeamData)} notifies the
+ * {@link HOSContract}.PATH_DRIVERS URI of every driver whose HOS changed.  Provider apps that do not
+ * publish should call {@link #notifyHOSChanged(String)} when their HOS state changes, so consumers
+ * do not need to poll.</p>
+ *
+ * <p>Consumers that pass {@link HOSContract}.KEY_HOS_CALLBACK to METHOD_START_NAVIGATION are sent the
+ * HOS, obtained like METHOD_GET_HOS, at most every few seconds until METHOD_END_NAVIGATION or until
+ * their process dies.  Calling {@link #notifyHOSChanged(String)} or publishing sends it sooner.</p>
+ *
+ * <p>Provider apps that override {@link #isHOSDerivedFromHOSData()} only need to compute the version
+ * 0.4 HOS.  The responses for the other versions are converted from it, so consumers of different
+ * versions share one call to the getters.</p>
+ *
+ * <p>{@link HOSContract}.METHOD_GET_HOS_DELTA is answered from the last distinct version 0.4 HOS states
+ * that were computed or published, so the objects returned by the getters must not be modified after
+ * they are returned.</p>
  */
-public abstract class AbstractHOSProvider extends ContentProvider {
+public abstract class AbstractHOSProvider extends AbstractOpenCabProvider {
     private static final String LOG_TAG = AbstractHOSProvider.class.getName();
 
+    private static final String ERROR_HOS_UNAVAILABLE = "Sorry, we are unable to fetch the current HOS.";
+    private static final String ERROR_HOS_BUSY = "The provider is too busy to compute the HOS.";
+
+    /**
+     * The contract versions supported for {@link HOSContract}.METHOD_GET_HOS.
+     */
+    private static final VersionResolver HOS_VERSIONS = new VersionResolver("0.2", "0.3", "0.4", "0.5");
+
+    /**
+     * The contract versions supported for {@link HOSContract}.METHOD_GET_HOS_DELTA.
+     */
+    private static final VersionResolver HOS_DELTA_VERSIONS = new VersionResolver("0.4");
+
+    /**
+     * The number of previous HOS states kept for {@link HOSContract}.METHOD_GET_HOS_DELTA.  Consumers
+     * whose sequence number is older receive the full HOS.
+     */
+    private static final int HOS_HISTORY_SIZE = 16;
+
+    /**
+     * The default budget of each consumer for METHOD_GET_HOS and METHOD_GET_HOS_DELTA.  Consumers that
+     * need the HOS as soon as it changes should observe {@link HOSContract}.PATH_DRIVERS instead of polling.
+     */
+    private static final RateLimit HOS_RATE_LIMIT = new RateLimit(5, 10);
+
+    private static final String[] CLOCK_COLUMNS = {
+            HOSContract.COLUMN_DRIVER_INDEX,
+            HOSContract.COLUMN_USERNAME,
+            HOSContract.COLUMN_LABEL,
+            HOSContract.COLUMN_VALUE,
+            HOSContract.COLUMN_VALUE_TYPE,
+            HOSContract.COLUMN_IMPORTANT,
+            HOSContract.COLUMN_LIMITS_DRIVING_RANGE,
+            HOSContract.COLUMN_DURATION_SECONDS
+    };
+
+    /**
+     * The default number of threads running the abstract getters, see {@link #getHOSThreadCount()}.
+     */
+    private static final int HOS_THREADS = 2;
+
+    /**
+     * The default number of computations waiting for a thread, see {@link #getHOSQueueCapacity()}.
+     */
+    private static final int HOS_QUEUE_CAPACITY = 4;
+
+    /**
+     * Number of team drivers whose HOS is computed at the same time by each provider.
+     */
+    private static final int TEAM_DRIVER_THREADS = 4;
+
+    /**
+     * Number of team drivers waiting for a thread in each provider.  Drivers beyond it get an error
+     * entry instead of waiting behind getters that do not return.
+     */
+    private static final int TEAM_DRIVER_QUEUE_CAPACITY = 8;
+
+    private volatile PublishedHOS published;
+    private final Object publishLock = new Object();
+    private final ConcurrentHashMap<String, LastKnownHOS> lastKnown = new ConcurrentHashMap<>();
+    private final HOSHistory history = new HOSHistory(HOS_HISTORY_SIZE);
+    private final ConcurrentHashMap<String, HOSComputation> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong computedCalls = new AtomicLong();
+    private final AtomicLong mergedCalls = new AtomicLong();
+    private final AtomicLong rejectedCalls = new AtomicLong();
+    private volatile ThreadPoolExecutor hosExecutor;
+    private volatile ThreadPoolExecutor teamDriverExecutor;
+    private final Object canonicalLock = new Object();
+    private volatile CanonicalHOS canonical;
+    private final AtomicLong canonicalGeneration = new AtomicLong();
+    private final HOSPushSessions pushSessions = new HOSPushSessions(new PushSource());
+
+    public AbstractHOSProvider() {
+        registerMethod(HOSContract.METHOD_GET_HOS, HOS_VERSIONS, this::handleGetHOS);
+        registerMethod(HOSContract.METHOD_GET_HOS_DELTA, HOS_DELTA_VERSIONS, this::handleGetHOSDelta);
+        registerQuery(HOSContract.PATH_CLOCKS, CLOCK_COLUMNS, this::getClockRows);
+        registerMethod(HOSContract.METHOD_START_NAVIGATION, this::handleStartNavigation);
+        registerMethod(HOSContract.METHOD_END_NAVIGATION, this::handleEndNavigation);
+    }
+
     /**
      * Initialize the provider.
      *
@@ -34,165 +169,1085 @@ public abstract class AbstractHOSProvider extends ContentProvider {
     }
 
     /**
-     * Not used.
+     * Negotiates the version of {@link HOSContract}.METHOD_GET_HOS calls against the version passed by
+     * the consumer, limited to {@link #getHosVersion()} when the provider app sets one.
      *
-     * @param uri
-     * @param strings
-     * @param s
-     * @param strings1
-     * @param s1
-     * @return
+     * @param versions The contract versions supported for the method being called.
+     * @param version  The version passed by the consumer, which may be null.
+     * @return The contract version to respond with, or null if the request is not supported.
      */
     @Nullable
     @Override
-    public Cursor query(@NonNull Uri uri, @Nullable String[] strings, @Nullable String s, @Nullable String[] strings1, @Nullable String s1) {
-        return null;
+    protected String resolveVersion(@NonNull VersionResolver versions, @Nullable String version) {
+        return versions.resolve(version, getHosVersion());
+    }
+
+    @NonNull
+    private Bundle handleGetHOS(@NonNull MethodCall call) {
+        String version = call.negotiatedVersion;
+        PublishedHOS snapshot = published;
+        if (snapshot != null) {
+            return new Bundle(snapshot.get(version));
+        }
+
+        long timeoutMillis = getTimeoutMillis(call.extras);
+        HOSComputation started = new HOSComputation(version);
+        HOSComputation computation = startComputation(started);
+        if (computation == null) {
+            return getLastKnownHOS(version, ERROR_HOS_BUSY);
+        }
+
+        try {
+            Bundle result = timeoutMillis <= 0 ? computation.get() : computation.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            // Every caller gets its own copy of a shared result.
+            return computation != started ? new Bundle(result) : result;
+        } catch (TimeoutException e) {
+            // Runs on every call while a getter is stalled, so the message is only built when logged.
+            if (isLoggable(Log.WARN)) {
+                Log.w(LOG_TAG, "HOS not available within " + timeoutMillis + " ms");
+            }
+        } catch (CancellationException e) {
+            return getLastKnownHOS(version, ERROR_HOS_BUSY);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+        // The message is only built when there is no last known HOS to return instead.
+        Bundle result = getStaleHOS(version);
+        if (result == null) {
+            result = new Bundle();
+            result.putString(HOSContract.KEY_ERROR, "The HOS is not available within " + timeoutMillis + " ms.");
+        }
+        return result;
     }
 
     /**
-     * Not used.
+     * Runs a computation of the HOS, or merges into the one of the same version that is running.
      *
-     * @param uri
-     * @return
+     * @param computation A new computation.
+     * @return The computation that runs, or null if the executor rejected it.
      */
     @Nullable
-    @Override
-    public String getType(@NonNull Uri uri) {
-        return null;
+    private HOSComputation startComputation(@NonNull HOSComputation computation) {
+        HOSComputation existing = inFlight.putIfAbsent(computation.version, computation);
+        if (existing != null) {
+            mergedCalls.incrementAndGet();
+            return existing;
+        }
+        try {
+            getHOSExecutor().execute(computation);
+            computedCalls.incrementAndGet();
+            return computation;
+        } catch (RejectedExecutionException e) {
+            rejectedCalls.incrementAndGet();
+            // Calls that merged into the computation in the meantime are released too.
+            computation.cancel(false);
+            return null;
+        }
     }
 
     /**
-     * Not used.
-     *
-     * @param uri
-     * @param contentValues
-     * @return
+     * The last successful response for a version, with {@link HOSContract}.KEY_STALE_MILLIS, or a
+     * KEY_ERROR result if there is none.
+     */
+    @NonNull
+    private Bundle getLastKnownHOS(@NonNull String version, @NonNull String error) {
+        Bundle result = getStaleHOS(version);
+        if (result == null) {
+            result = new Bundle();
+            result.putString(HOSContract.KEY_ERROR, error);
+        }
+        return result;
+    }
+
+    /**
+     * The last successful response for a version, with {@link HOSContract}.KEY_STALE_MILLIS, or null if
+     * there is none.
      */
     @Nullable
-    @Override
-    public Uri insert(@NonNull Uri uri, @Nullable ContentValues contentValues) {
-        return null;
+    private Bundle getStaleHOS(@NonNull String version) {
+        LastKnownHOS last = lastKnown.get(version);
+        if (last == null) {
+            return null;
+        }
+        Bundle result = new Bundle(last.result);
+        result.putLong(HOSContract.KEY_STALE_MILLIS, SystemClock.elapsedRealtime() - last.elapsedRealtime);
+        return result;
     }
 
     /**
-     * Not used.
-     *
-     * @param uri
-     * @param s
-     * @param strings
-     * @return
+     * The executor running the abstract getters, created on first use.  It is bounded, and rejects
+     * computations when every thread is busy and its queue is full, so that slow getters cannot take
+     * more threads from the provider app.
      */
-    @Override
-    public int delete(@NonNull Uri uri, @Nullable String s, @Nullable String[] strings) {
-        return 0;
+    @NonNull
+    private ThreadPoolExecutor getHOSExecutor() {
+        ThreadPoolExecutor executor = hosExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = hosExecutor;
+                if (executor == null) {
+                    int threads = Math.max(1, getHOSThreadCount());
+                    executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                            new ArrayBlockingQueue<>(Math.max(1, getHOSQueueCapacity())), runnable -> {
+                        Thread thread = new Thread(runnable, "OpenCab-HOS");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    executor.allowCoreThreadTimeOut(true);
+                    hosExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * The executor running the per-driver getters when team drivers are computed separately, created on
+     * first use.  Like the executor of the abstract getters it is bounded, and rejects drivers when every
+     * thread is busy and its queue is full.
+     */
+    @NonNull
+    private ThreadPoolExecutor getTeamDriverExecutor() {
+        ThreadPoolExecutor executor = teamDriverExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = teamDriverExecutor;
+                if (executor == null) {
+                    executor = new ThreadPoolExecutor(TEAM_DRIVER_THREADS, TEAM_DRIVER_THREADS, 30, TimeUnit.SECONDS,
+                            new ArrayBlockingQueue<>(TEAM_DRIVER_QUEUE_CAPACITY), runnable -> {
+                        Thread thread = new Thread(runnable, "OpenCab-HOS-Team");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    executor.allowCoreThreadTimeOut(true);
+                    teamDriverExecutor = executor;
+                }
+            }
+        }
+        return executor;
     }
 
     /**
-     * Not used.
+     * Prints the state of the executor running the abstract getters after the metrics of every call.
      *
-     * @param uri
-     * @param contentValues
-     * @param s
-     * @param strings
-     * @return
+     * @param fd     The raw file descriptor the dump is written to.
+     * @param writer The writer the dump is printed to.
+     * @param args   The arguments passed to dumpsys, which are ignored.
      */
     @Override
-    public int update(@NonNull Uri uri, @Nullable ContentValues contentValues, @Nullable String s, @Nullable String[] strings) {
-        return 0;
+    public void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(fd, writer, args);
+        ThreadPoolExecutor executor = hosExecutor;
+        writer.print("HOS computations: ");
+        writer.print(computedCalls.get());
+        writer.print(" computed, ");
+        writer.print(mergedCalls.get());
+        writer.print(" merged, ");
+        writer.print(rejectedCalls.get());
+        writer.print(" rejected");
+        if (executor != null) {
+            writer.print(", ");
+            writer.print(executor.getActiveCount());
+            writer.print('/');
+            writer.print(executor.getMaximumPoolSize());
+            writer.print(" threads busy, ");
+            writer.print(executor.getQueue().size());
+            writer.print(" queued");
+        }
+        writer.println();
     }
 
     /**
-     * This method will be called for all interactions with the ContentProvider based on the method argument
-     * passed in.  The appropriate abstract method will be called based on the method argument.
+     * Limits {@link HOSContract}.METHOD_GET_HOS and METHOD_GET_HOS_DELTA to 5 calls per second per
+     * consumer, after a burst of 10.
      *
-     * @param method  The desired method to call.
-     * @param version The {@link HOSContract}.VERSION
-     * @param extras  Additional data if needed by the method.
-     * @return {@link Bundle} with results.
+     * @param method The method called.
+     * @return The budget of the method.
      */
     @Nullable
     @Override
-    public Bundle call(@NonNull String method, @Nullable String version, @Nullable Bundle extras) {
-        Bundle result = new Bundle();
-        Log.i(LOG_TAG, "Method name: " + method + ", version: " + version);
+    protected RateLimit getRateLimit(@NonNull String method) {
         switch (method) {
             case HOSContract.METHOD_GET_HOS:
-                result.putString(HOSContract.KEY_VERSION, getHosVersion());
-                Version requestedVersion = new Version(getHosVersion() != null ? getHosVersion() : "0.2");
-                Version supportedVersionV2 = new Version("0.2");
-                Version supportedVersionV3 = new Version("0.3");
-                Version supportedVersionV4 = new Version("0.4");
-                Log.i(LOG_TAG, "requested version: " + requestedVersion + ", supported version: " + supportedVersionV2);
-                if (requestedVersion.compareTo(supportedVersionV2) == 0) {
-                    HOSContract.HOSStatus status = getHOS();
-                    if (status != null) {
-                        result.putParcelable(HOSContract.KEY_HOS, status);
-                        result.putString(HOSContract.KEY_VERSION, "0.2");
-                    } else {
-                        result.putString(HOSContract.KEY_ERROR, "Sorry, we are unable to fetch the current HOS.");
+            case HOSContract.METHOD_GET_HOS_DELTA:
+                return HOS_RATE_LIMIT;
+            default:
+                return super.getRateLimit(method);
+        }
+    }
+
+    /**
+     * Answers METHOD_GET_HOS calls over the budget with the published HOS, or the last successful
+     * response for the same version with {@link HOSContract}.KEY_STALE_MILLIS, so a consumer that polls
+     * too often still gets the HOS without the getters being called.
+     */
+    @NonNull
+    @Override
+    protected Bundle onRateLimited(@NonNull MethodCall call, long retryAfterMillis) {
+        if (!HOSContract.METHOD_GET_HOS.equals(call.method) || call.negotiatedVersion == null) {
+            return super.onRateLimited(call, retryAfterMillis);
+        }
+        Bundle result;
+        PublishedHOS snapshot = published;
+        LastKnownHOS last = lastKnown.get(call.negotiatedVersion);
+        if (snapshot != null) {
+            result = new Bundle(snapshot.get(call.negotiatedVersion));
+        } else if (last != null) {
+            result = new Bundle(last.result);
+            result.putLong(HOSContract.KEY_STALE_MILLIS, SystemClock.elapsedRealtime() - last.elapsedRealtime);
+        } else {
+            return super.onRateLimited(call, retryAfterMillis);
+        }
+        result.putLong(HOSContract.KEY_RETRY_AFTER_MILLIS, retryAfterMillis);
+        return result;
+    }
+
+    /**
+     * Answers {@link HOSContract}.METHOD_GET_HOS_DELTA from the HOS states recorded when the version 0.4
+     * HOS is computed or published.  The current HOS is obtained exactly like METHOD_GET_HOS, including
+     * its time limit.
+     */
+    @NonNull
+    private Bundle handleGetHOSDelta(@NonNull MethodCall call) {
+        Bundle current = handleGetHOS(new MethodCall(HOSContract.METHOD_GET_HOS, call.version, call.negotiatedVersion, call.extras));
+        HOSHistory.Snapshot latest = history.latest();
+        if (current.containsKey(HOSContract.KEY_ERROR) || latest == null) {
+            return current;
+        }
+
+        Bundle result = new Bundle();
+        result.putString(HOSContract.KEY_VERSION, call.negotiatedVersion);
+        result.putLong(HOSContract.KEY_SEQUENCE, latest.sequence);
+        if (current.containsKey(HOSContract.KEY_STALE_MILLIS)) {
+            result.putLong(HOSContract.KEY_STALE_MILLIS, current.getLong(HOSContract.KEY_STALE_MILLIS));
+        }
+        HOSHistory.Snapshot previous = null;
+        if (call.extras != null && call.extras.containsKey(HOSContract.KEY_SEQUENCE)) {
+            previous = history.get(call.extras.getLong(HOSContract.KEY_SEQUENCE));
+        }
+        if (previous != null) {
+            HOSContract.HOSDelta delta = HOSContract.HOSDelta.between(previous.sequence, previous.drivers, latest.sequence, latest.drivers);
+            result.putString(HOSContract.KEY_HOS_DELTA, HOSJsonCodec.getInstance().toJson(delta));
+        } else {
+            putHOSV4(result, latest);
+        }
+        return result;
+    }
+
+    @NonNull
+    private Bundle handleStartNavigation(@NonNull MethodCall call) {
+        Boolean started = startNavigation(call.version);
+        Bundle result = new Bundle();
+        result.putBoolean(HOSContract.KEY_NAVIGATION_RESULT, started);
+        IBinder callback = call.extras != null ? call.extras.getBinder(HOSContract.KEY_HOS_CALLBACK) : null;
+        if (callback != null) {
+            String negotiatedVersion = resolveVersion(HOS_VERSIONS, call.version);
+            boolean registered = Boolean.TRUE.equals(started) && negotiatedVersion != null
+                    && pushSessions.add(callback, negotiatedVersion, getCallingPackageOrNull(),
+                    call.extras.getLong(HOSContract.KEY_HOS_CALLBACK_INTERVAL_MILLIS, 0));
+            result.putBoolean(HOSContract.KEY_HOS_CALLBACK_REGISTERED, registered);
+        }
+        return result;
+    }
+
+    /**
+     * Releases the callback passed by the consumer, or every callback of the consumer if it passed none.
+     */
+    @NonNull
+    private Bundle handleEndNavigation(@NonNull MethodCall call) {
+        IBinder callback = call.extras != null ? call.extras.getBinder(HOSContract.KEY_HOS_CALLBACK) : null;
+        if (callback != null) {
+            pushSessions.remove(callback);
+        } else {
+            pushSessions.removeAll(getCallingPackageOrNull());
+        }
+        Bundle result = new Bundle();
+        result.putBoolean(HOSContract.KEY_NAVIGATION_RESULT, endNavigation(call.version));
+        return result;
+    }
+
+    /**
+     * The HOS sent to navigation callbacks, obtained like METHOD_GET_HOS in the version negotiated when
+     * navigation started, except that the push thread never waits for the getters.
+     */
+    private final class PushSource implements HOSPushSessions.Source {
+
+        @Nullable
+        @Override
+        public Bundle getAvailableHOS(@NonNull String negotiatedVersion) {
+            PublishedHOS snapshot = published;
+            return snapshot != null ? new Bundle(snapshot.get(negotiatedVersion)) : null;
+        }
+
+        @Override
+        public void computeHOS(@NonNull String negotiatedVersion, @NonNull HOSPushSessions.Listener listener) {
+            HOSComputation computation = startComputation(new HOSComputation(negotiatedVersion));
+            if (computation == null) {
+                listener.onHOS(AbstractHOSProvider.this.getLastKnownHOS(negotiatedVersion, ERROR_HOS_BUSY));
+                return;
+            }
+            computation.addListener(() -> {
+                try {
+                    listener.onHOS(new Bundle(computation.get()));
+                } catch (CancellationException e) {
+                    listener.onHOS(AbstractHOSProvider.this.getLastKnownHOS(negotiatedVersion, ERROR_HOS_BUSY));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    listener.onHOS(null);
+                } catch (ExecutionException e) {
+                    if (isLoggable(Log.WARN)) {
+                        Log.w(LOG_TAG, "Unable to compute the HOS for navigation", e.getCause());
                     }
-                } else if (requestedVersion.compareTo(supportedVersionV3) == 0) {
-                    HOSContract.HOSStatusV2 status = getHOSV2();
-                    if (status != null) {
-                        result.putParcelable(HOSContract.KEY_HOS, status);
-                        if (isTeamDriverEnabled()) {
-                            result.putParcelableArrayList(HOSContract.KEY_TEAM_HOS, getTeamHOSV2());
-                        }
-                        result.putString(HOSContract.KEY_VERSION, "0.3");
+                    listener.onHOS(null);
+                }
+            });
+        }
+
+        @Nullable
+        @Override
+        public Bundle getLastKnownHOS(@NonNull String negotiatedVersion) {
+            return getStaleHOS(negotiatedVersion);
+        }
+    }
+
+    /**
+     * The rows of {@link HOSContract}.PATH_CLOCKS, from the version 0.4 HOS obtained exactly like
+     * METHOD_GET_HOS.  There are none when {@link #getHosVersion()} is older than 0.4.
+     */
+    @NonNull
+    private List<Object[]> getClockRows() {
+        String version = resolveVersion(HOS_VERSIONS, "0.4");
+        if (!"0.4".equals(version)) {
+            return Collections.emptyList();
+        }
+        Bundle current = handleGetHOS(new MethodCall(HOSContract.METHOD_GET_HOS, "0.4", version, null));
+        HOSHistory.Snapshot latest = history.latest();
+        if (current.containsKey(HOSContract.KEY_ERROR) || latest == null) {
+            return Collections.emptyList();
+        }
+        ArrayList<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < latest.drivers.size(); i++) {
+            HOSContract.HOSData driver = latest.drivers.get(i);
+            if (driver == null || driver.getClocks() == null) {
+                continue;
+            }
+            for (HOSContract.ClockData clock : driver.getClocks()) {
+                if (clock != null) {
+                    rows.add(new Object[]{
+                            i,
+                            driver.getUsername(),
+                            clock.getLabel(),
+                            clock.getValue(),
+                            clock.getValueType() != null ? clock.getValueType().name() : null,
+                            clock.isImportant() ? 1 : 0,
+                            clock.isLimitsDrivingRange() ? 1 : 0,
+                            clock.getDurationSeconds()
+                    });
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * The time limit for a call: the smaller of {@link #getHOSTimeoutMillis()} and the limit passed by
+     * the consumer, where zero or less means no limit.
+     */
+    private long getTimeoutMillis(@Nullable Bundle extras) {
+        long timeoutMillis = getHOSTimeoutMillis();
+        if (extras != null) {
+            long requested = extras.getLong(HOSContract.KEY_TIMEOUT_MILLIS, 0);
+            if (requested > 0 && (timeoutMillis <= 0 || requested < timeoutMillis)) {
+                timeoutMillis = requested;
+            }
+        }
+        return timeoutMillis;
+    }
+
+    @NonNull
+    private Bundle computeHOS(@NonNull String version) {
+        Bundle result;
+        if (isHOSDerivedFromHOSData()) {
+            result = new Bundle(getCanonicalHOS().get(version));
+        } else if ("0.2".equals(version)) {
+            result = new Bundle();
+            result.putString(HOSContract.KEY_VERSION, version);
+            putHOSV2(result, getHOS());
+        } else if ("0.3".equals(version)) {
+            result = new Bundle();
+            result.putString(HOSContract.KEY_VERSION, version);
+            if (isTeamDriverHOSComputedSeparately() && isTeamDriverEnabled()) {
+                TeamDrivers<HOSContract.HOSStatusV2> team = new TeamDrivers<>(this::getTeamDriverHOSV2);
+                HOSContract.HOSStatusV2 status = getHOSV2();
+                ArrayList<HOSContract.HOSStatusV2> teamStatus = null;
+                if (status != null) {
+                    teamStatus = team.collect(HOSContract.HOSStatusV2::new);
+                } else {
+                    team.cancel();
+                }
+                putHOSV3(result, status, teamStatus);
+                putTeamErrors(result, team.errors);
+            } else {
+                HOSContract.HOSStatusV2 status = getHOSV2();
+                putHOSV3(result, status, status != null && isTeamDriverEnabled() ? getTeamHOSV2() : null);
+            }
+        } else {
+            result = collectHOSData().get(version);
+        }
+        if (!result.containsKey(HOSContract.KEY_ERROR)) {
+            lastKnown.put(version, new LastKnownHOS(new Bundle(result), SystemClock.elapsedRealtime()));
+        }
+        return result;
+    }
+
+    /**
+     * Calls {@link #getHOSData()} and {@link #getHOSTeamData()}, or the per-driver getters when team
+     * drivers are computed separately.
+     */
+    @NonNull
+    private CanonicalHOS collectHOSData() {
+        long generation = canonicalGeneration.get();
+        HOSContract.HOSData hosData;
+        HOSContract.HOSTeamData teamData = null;
+        ArrayList<String> teamErrors = null;
+        if (isTeamDriverHOSComputedSeparately() && isTeamDriverEnabled()) {
+            TeamDrivers<HOSContract.HOSData> team = new TeamDrivers<>(this::getTeamDriverHOSData);
+            hosData = getHOSData();
+            if (hosData != null) {
+                teamData = new HOSContract.HOSTeamData();
+                teamData.setTeamHosData(team.collect(HOSContract.HOSData::new));
+                teamErrors = team.errors;
+            } else {
+                team.cancel();
+            }
+        } else {
+            hosData = getHOSData();
+            if (hosData != null && isTeamDriverEnabled()) {
+                teamData = getHOSTeamData();
+            }
+        }
+        return new CanonicalHOS(hosData, teamData, teamErrors, generation);
+    }
+
+    /**
+     * The HOS from which every version is derived when {@link #isHOSDerivedFromHOSData()} returns true.
+     * Calls that arrive while it is being computed, or within {@link #getHOSMaxAgeMillis()} of it, reuse
+     * it whatever version they negotiated.  {@link #notifyHOSChanged(String)} discards it.
+     */
+    @NonNull
+    private CanonicalHOS getCanonicalHOS() {
+        long requestedNanos = SystemClock.elapsedRealtimeNanos();
+        synchronized (canonicalLock) {
+            CanonicalHOS current = canonical;
+            if (current != null && current.generation == canonicalGeneration.get()
+                    && (current.elapsedRealtimeNanos >= requestedNanos
+                    || SystemClock.elapsedRealtimeNanos() - current.elapsedRealtimeNanos < TimeUnit.MILLISECONDS.toNanos(getHOSMaxAgeMillis()))) {
+                return current;
+            }
+            current = collectHOSData();
+            canonical = current.hosData != null ? current : null;
+            return current;
+        }
+    }
+
+    /**
+     * Publish the current HOS state.  Call this whenever the HOS for the driver or the team changes.
+     * The responses for every supported contract version are built here, once, and every subsequent
+     * {@link HOSContract}.METHOD_GET_HOS call returns them without calling the abstract getters.
+     *
+     * <p>The version 0.2, 0.3 and 0.5 responses are derived from the version 0.4 data, so the published
+     * objects must not be modified after they are passed to this method.</p>
+     *
+     * @param hosData  The current HOS for the primary driver, or null if it is not available.
+     * @param teamData The current HOS for the other team drivers, or null if team driving is not in use.
+     */
+    public void publish(@Nullable HOSContract.HOSData hosData, @Nullable HOSContract.HOSTeamData teamData) {
+        Bundle v2 = new Bundle();
+        putHOSV2(v2, hosData != null ? toHOSStatus(hosData) : null);
+
+        Bundle v3 = new Bundle();
+        putHOSV3(v3, hosData != null ? toHOSStatusV2(hosData) : null, toHOSStatusV2(teamData));
+
+        Bundle v5 = new Bundle();
+        putHOSV5(v5, hosData != null ? toHOSStatusV3(hosData) : null, toHOSStatusV3(teamData));
+
+        HOSHistory.Snapshot previous;
+        HOSHistory.Snapshot snapshot;
+        boolean wasPublished;
+        // Concurrent publishers record and publish in the same order, so the published HOS is always
+        // the latest state of the history.
+        synchronized (publishLock) {
+            previous = history.latest();
+            snapshot = hosData != null ? history.record(hosData, teamData) : null;
+            Bundle v4 = new Bundle();
+            putHOSV4(v4, snapshot);
+
+            wasPublished = published != null;
+            published = new PublishedHOS(v2, v3, v4, v5);
+        }
+        if (snapshot == null || previous == null || !wasPublished) {
+            notifyHOSChanged(null);
+        } else if (snapshot != previous) {
+            notifyHOSChanged(previous, snapshot);
+        }
+    }
+
+    /**
+     * Notify consumers observing {@link HOSContract}.PATH_DRIVERS that the HOS of a driver changed.
+     * {@link #publish(HOSContract.HOSData, HOSContract.HOSTeamData)} calls this for every driver that
+     * changed.  Provider apps that do not publish should call this when their HOS state changes.
+     *
+     * @param username The driver whose HOS changed, or null to notify every driver.
+     */
+    public void notifyHOSChanged(@Nullable String username) {
+        canonicalGeneration.incrementAndGet();
+        pushSessions.changed();
+        if (username != null) {
+            notifyChange(HOSContract.PATH_DRIVERS, username);
+        } else {
+            notifyChange(HOSContract.PATH_DRIVERS);
+        }
+        notifyChange(HOSContract.PATH_CLOCKS);
+    }
+
+    private void notifyHOSChanged(HOSHistory.Snapshot previous, HOSHistory.Snapshot snapshot) {
+        HOSContract.HOSDelta delta = HOSContract.HOSDelta.between(previous.sequence, previous.drivers, snapshot.sequence, snapshot.drivers);
+        Set<String> usernames = new LinkedHashSet<>();
+        for (HOSContract.DriverDelta driver : delta.getDrivers()) {
+            int index = driver.getIndex();
+            // A driver whose username changed is reported under both names.
+            if (index < previous.drivers.size() && previous.drivers.get(index) != null) {
+                usernames.add(previous.drivers.get(index).getUsername());
+            }
+            if (index < snapshot.drivers.size() && snapshot.drivers.get(index) != null) {
+                usernames.add(snapshot.drivers.get(index).getUsername());
+            }
+        }
+        if (usernames.contains(null)) {
+            notifyHOSChanged(null);
+            return;
+        }
+        for (String username : usernames) {
+            notifyChange(HOSContract.PATH_DRIVERS, username);
+        }
+        notifyChange(HOSContract.PATH_CLOCKS);
+        pushSessions.changed();
+    }
+
+    private static void putHOSV2(Bundle result, HOSContract.HOSStatus status) {
+        if (status != null) {
+            result.putParcelable(HOSContract.KEY_HOS, status);
+            result.putString(HOSContract.KEY_VERSION, "0.2");
+        } else {
+            result.putString(HOSContract.KEY_ERROR, ERROR_HOS_UNAVAILABLE);
+        }
+    }
+
+    private static void putHOSV3(Bundle result, HOSContract.HOSStatusV2 status, ArrayList<HOSContract.HOSStatusV2> team) {
+        if (status != null) {
+            result.putParcelable(HOSContract.KEY_HOS, status);
+            if (team != null) {
+                result.putParcelableArrayList(HOSContract.KEY_TEAM_HOS, team);
+            }
+            result.putString(HOSContract.KEY_VERSION, "0.3");
+        } else {
+            result.putString(HOSContract.KEY_ERROR, ERROR_HOS_UNAVAILABLE);
+        }
+    }
+
+    private static void putHOSV4(Bundle result, HOSHistory.Snapshot snapshot) {
+        if (snapshot != null) {
+            result.putString(HOSContract.KEY_HOS, snapshot.hosJson);
+            if (snapshot.teamJson != null) {
+                result.putString(HOSContract.KEY_TEAM_HOS, snapshot.teamJson);
+            }
+            result.putString(HOSContract.KEY_VERSION, "0.4");
+        } else {
+            result.putString(HOSContract.KEY_ERROR, ERROR_HOS_UNAVAILABLE);
+        }
+    }
+
+    private static void putTeamErrors(Bundle result, ArrayList<String> errors) {
+        if (errors != null && !result.containsKey(HOSContract.KEY_ERROR)) {
+            result.putStringArrayList(HOSContract.KEY_TEAM_HOS_ERRORS, errors);
+        }
+    }
+
+    private static void putHOSV5(Bundle result, HOSContract.HOSStatusV3 status, ArrayList<HOSContract.HOSStatusV3> team) {
+        if (status != null) {
+            result.putParcelable(HOSContract.KEY_HOS, status);
+            if (team != null) {
+                result.putParcelableArrayList(HOSContract.KEY_TEAM_HOS, team);
+            }
+            result.putString(HOSContract.KEY_VERSION, "0.5");
+        } else {
+            result.putString(HOSContract.KEY_ERROR, ERROR_HOS_UNAVAILABLE);
+        }
+    }
+
+    private static HOSContract.HOSStatus toHOSStatus(HOSContract.HOSData hosData) {
+        HOSContract.HOSStatus status = new HOSContract.HOSStatus();
+        status.setManageAction(hosData.getManageAction());
+        if (hosData.getClocks() != null) {
+            ArrayList<HOSContract.Clock> clocks = new ArrayList<>(hosData.getClocks().size());
+            for (HOSContract.ClockData data : hosData.getClocks()) {
+                HOSContract.Clock clock = new HOSContract.Clock();
+                clock.setLabel(data.getLabel());
+                clock.setValue(data.getValue());
+                clock.setValueType(data.getValueType() != null ? HOSContract.Clock.ValueType.valueOf(data.getValueType().name()) : null);
+                clock.setImportant(data.isImportant());
+                clock.setLimitsDrivingRange(data.isLimitsDrivingRange());
+                clocks.add(clock);
+            }
+            status.setClocks(clocks);
+        }
+        return status;
+    }
+
+    private static HOSContract.HOSStatusV2 toHOSStatusV2(HOSContract.HOSData hosData) {
+        HOSContract.HOSStatusV2 status = new HOSContract.HOSStatusV2();
+        status.setManageAction(hosData.getManageAction());
+        status.setLogoutAction(hosData.getLogoutAction());
+        status.setClocks(toClocksV2(hosData.getClocks()));
+        return status;
+    }
+
+    private static ArrayList<HOSContract.HOSStatusV2> toHOSStatusV2(HOSContract.HOSTeamData teamData) {
+        if (teamData == null || teamData.getTeamHosData() == null) {
+            return null;
+        }
+        ArrayList<HOSContract.HOSStatusV2> team = new ArrayList<>(teamData.getTeamHosData().size());
+        for (HOSContract.HOSData member : teamData.getTeamHosData()) {
+            team.add(toHOSStatusV2(member));
+        }
+        return team;
+    }
+
+    private static HOSContract.HOSStatusV3 toHOSStatusV3(HOSContract.HOSData hosData) {
+        HOSContract.HOSStatusV3 status = new HOSContract.HOSStatusV3();
+        status.setUsername(hosData.getUsername());
+        status.setManageAction(hosData.getManageAction());
+        status.setLogoutAction(hosData.getLogoutAction());
+        status.setClocks(toClocksV2(hosData.getClocks()));
+        return status;
+    }
+
+    private static ArrayList<HOSContract.HOSStatusV3> toHOSStatusV3(HOSContract.HOSTeamData teamData) {
+        if (teamData == null || teamData.getTeamHosData() == null) {
+            return null;
+        }
+        ArrayList<HOSContract.HOSStatusV3> team = new ArrayList<>(teamData.getTeamHosData().size());
+        for (HOSContract.HOSData member : teamData.getTeamHosData()) {
+            team.add(toHOSStatusV3(member));
+        }
+        return team;
+    }
+
+    private static ArrayList<HOSContract.ClockV2> toClocksV2(List<HOSContract.ClockData> clockData) {
+        if (clockData == null) {
+            return null;
+        }
+        ArrayList<HOSContract.ClockV2> clocks = new ArrayList<>(clockData.size());
+        for (HOSContract.ClockData data : clockData) {
+            HOSContract.ClockV2 clock = new HOSContract.ClockV2();
+            clock.setLabel(data.getLabel());
+            clock.setValue(data.getValue());
+            clock.setValueType(data.getValueType() != null ? HOSContract.ClockV2.ValueType.valueOf(data.getValueType().name()) : null);
+            clock.setImportant(data.isImportant());
+            clock.setLimitsDrivingRange(data.isLimitsDrivingRange());
+            clock.setDurationSeconds(data.getDurationSeconds());
+            clocks.add(clock);
+        }
+        return clocks;
+    }
+
+    /**
+     * The responses built by {@link #publish(HOSContract.HOSData, HOSContract.HOSTeamData)}, one per
+     * supported contract version.  Callers receive a copy so the cached bundles are never modified.
+     */
+    private static final class PublishedHOS {
+        final Bundle v2;
+        final Bundle v3;
+        final Bundle v4;
+        final Bundle v5;
+
+        PublishedHOS(Bundle v2, Bundle v3, Bundle v4, Bundle v5) {
+            this.v2 = v2;
+            this.v3 = v3;
+            this.v4 = v4;
+            this.v5 = v5;
+        }
+
+        Bundle get(String version) {
+            switch (version) {
+                case "0.2":
+                    return v2;
+                case "0.3":
+                    return v3;
+                case "0.4":
+                    return v4;
+                default:
+                    return v5;
+            }
+        }
+    }
+
+    /**
+     * The version 0.4 HOS returned by the getters, from which the response for each contract version is
+     * built the first time it is needed.
+     */
+    private final class CanonicalHOS {
+        final HOSContract.HOSData hosData;
+        final HOSContract.HOSTeamData teamData;
+        final ArrayList<String> teamErrors;
+        final long generation;
+        final long elapsedRealtimeNanos = SystemClock.elapsedRealtimeNanos();
+        private final ConcurrentHashMap<String, Bundle> responses = new ConcurrentHashMap<>();
+
+        CanonicalHOS(HOSContract.HOSData hosData, HOSContract.HOSTeamData teamData, ArrayList<String> teamErrors, long generation) {
+            this.hosData = hosData;
+            this.teamData = teamData;
+            this.teamErrors = teamErrors;
+            this.generation = generation;
+        }
+
+        /**
+         * The response for one contract version.  It is shared, so callers must copy it before
+         * modifying it.
+         */
+        synchronized Bundle get(String version) {
+            Bundle result = responses.get(version);
+            if (result != null) {
+                return result;
+            }
+            result = new Bundle();
+            result.putString(HOSContract.KEY_VERSION, version);
+            switch (version) {
+                case "0.2":
+                    putHOSV2(result, hosData != null ? toHOSStatus(hosData) : null);
+                    break;
+                case "0.3":
+                    putHOSV3(result, hosData != null ? toHOSStatusV2(hosData) : null, toHOSStatusV2(teamData));
+                    break;
+                case "0.4":
+                    putHOSV4(result, hosData != null ? history.record(hosData, teamData) : null);
+                    break;
+                default:
+                    putHOSV5(result, hosData != null ? toHOSStatusV3(hosData) : null, toHOSStatusV3(teamData));
+            }
+            putTeamErrors(result, teamErrors);
+            responses.put(version, result);
+            return result;
+        }
+    }
+
+    /**
+     * The number of {@link HOSContract}.METHOD_GET_HOS calls that ran the abstract getters.
+     *
+     * @return The number of computed calls since the provider was created.
+     */
+    public long getComputedHOSCalls() {
+        return computedCalls.get();
+    }
+
+    /**
+     * The number of {@link HOSContract}.METHOD_GET_HOS calls answered without calling the abstract
+     * getters because every thread of {@link #getHOSThreadCount()} was busy and the queue was full.
+     * A growing count means the getters are too slow for the calls the provider receives.
+     *
+     * @return The number of rejected calls since the provider was created.
+     */
+    public long getRejectedHOSCalls() {
+        return rejectedCalls.get();
+    }
+
+    /**
+     * The number of {@link HOSContract}.METHOD_GET_HOS calls that received the result of a computation
+     * started by a concurrent call for the same contract version.
+     *
+     * @return The number of merged calls since the provider was created.
+     */
+    public long getMergedHOSCalls() {
+        return mergedCalls.get();
+    }
+
+    /**
+     * A call to the abstract getters for one contract version, shared by every call that arrives while
+     * it is running.  It removes itself from the in-flight calls when it completes.
+     */
+    private final class HOSComputation extends FutureTask<Bundle> {
+        private final String version;
+        private final ArrayList<Runnable> listeners = new ArrayList<>();
+
+        HOSComputation(String version) {
+            super(() -> computeHOS(version));
+            this.version = version;
+        }
+
+        /**
+         * Run a listener when the computation completes or is cancelled, or now if it already did.
+         */
+        void addListener(@NonNull Runnable listener) {
+            synchronized (listeners) {
+                if (!isDone()) {
+                    listeners.add(listener);
+                    return;
+                }
+            }
+            listener.run();
+        }
+
+        @Override
+        protected void done() {
+            inFlight.remove(version, this);
+            ArrayList<Runnable> completed;
+            synchronized (listeners) {
+                completed = new ArrayList<>(listeners);
+                listeners.clear();
+            }
+            for (Runnable listener : completed) {
+                listener.run();
+            }
+        }
+    }
+
+    private interface TeamDriverGetter<T> {
+        T get(int index);
+    }
+
+    private interface Placeholder<T> {
+        T create();
+    }
+
+    /**
+     * The computation of one team driver, which records when it starts running.
+     */
+    private static final class TeamDriverTask<T> extends FutureTask<T> {
+        private volatile boolean started;
+        private long startNanos;
+
+        TeamDriverTask(TeamDriverGetter<T> getter, int index) {
+            super(() -> getter.get(index));
+        }
+
+        @Override
+        public void run() {
+            startNanos = System.nanoTime();
+            started = true;
+            super.run();
+        }
+
+        /**
+         * Wait for the result, up to the time limit measured from when the driver started running.  A
+         * driver that is still queued is given the time limit from now instead, so it is not penalized
+         * for waiting behind the drivers before it.
+         */
+        T get(long timeoutNanos, long waitStartNanos) throws InterruptedException, ExecutionException, TimeoutException {
+            long deadline = (started ? startNanos : waitStartNanos) + timeoutNanos;
+            while (true) {
+                try {
+                    return get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    if (!started || startNanos + timeoutNanos <= deadline) {
+                        throw e;
+                    }
+                    deadline = startNanos + timeoutNanos;
+                }
+            }
+        }
+    }
+
+    /**
+     * The HOS of every team driver, computed in parallel.  The computation of each driver is started
+     * when this is created, so the primary driver can be computed while they run.
+     */
+    private final class TeamDrivers<T> {
+        private final List<TeamDriverTask<T>> tasks;
+        private ArrayList<String> errors;
+
+        TeamDrivers(TeamDriverGetter<T> getter) {
+            int count = getTeamsDriversNumber();
+            ThreadPoolExecutor executor = getTeamDriverExecutor();
+            tasks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                TeamDriverTask<T> task = new TeamDriverTask<>(getter, i);
+                try {
+                    executor.execute(task);
+                } catch (RejectedExecutionException e) {
+                    task = null;
+                }
+                tasks.add(task);
+            }
+        }
+
+        /**
+         * Wait for every driver, each up to the per-driver time limit measured from when it started
+         * running.  Drivers that time out are interrupted, so their thread is released if the getter
+         * responds to interruption.
+         */
+        ArrayList<T> collect(Placeholder<T> placeholder) {
+            long timeoutMillis = getTeamDriverTimeoutMillis();
+            ArrayList<T> team = new ArrayList<>(tasks.size());
+            for (int i = 0; i < tasks.size(); i++) {
+                TeamDriverTask<T> task = tasks.get(i);
+                String error = null;
+                T member = null;
+                try {
+                    if (task == null) {
+                        error = "The provider is too busy to compute the HOS for team driver " + (i + 1) + ".";
+                    } else if (timeoutMillis <= 0) {
+                        member = task.get();
                     } else {
-                        result.putString(HOSContract.KEY_ERROR, "Sorry, we are unable to fetch the current HOS.");
+                        member = task.get(TimeUnit.MILLISECONDS.toNanos(timeoutMillis), System.nanoTime());
+                    }
+                    if (member == null && error == null) {
+                        error = "The HOS is not available for team driver " + (i + 1) + ".";
                     }
-                } else if (requestedVersion.compareTo(supportedVersionV4) >= 0) {
-                    Gson gson = new Gson();
-                    HOSContract.HOSData hosData = getHOSData();
-                    if (hosData != null) {
-                        result.putString(HOSContract.KEY_HOS, gson.toJson(hosData));
-                        if (isTeamDriverEnabled()) {
-                            result.putString(HOSContract.KEY_TEAM_HOS, gson.toJson(getHOSTeamData()));
+                } catch (TimeoutException e) {
+                    task.cancel(true);
+                    error = "The HOS for team driver " + (i + 1) + " is not available within " + timeoutMillis + " ms.";
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    task.cancel(true);
+                    error = "The HOS for team driver " + (i + 1) + " was interrupted.";
+                } catch (ExecutionException e) {
+                    if (isLoggable(Log.WARN)) {
+                        Log.w(LOG_TAG, "Failed to get the HOS for team driver " + (i + 1), e.getCause());
+                    }
+                    error = "The HOS for team driver " + (i + 1) + " failed: " + e.getCause();
+                }
+                if (error != null) {
+                    if (errors == null) {
+                        errors = new ArrayList<>(tasks.size());
+                        for (int j = 0; j < i; j++) {
+                            errors.add(null);
                         }
-                        result.putString(HOSContract.KEY_VERSION, "0.4");
-                    } else {
-                        result.putString(HOSContract.KEY_ERROR, "Sorry, we are unable to fetch the current HOS.");
                     }
+                    member = placeholder.create();
+                }
+                if (errors != null) {
+                    errors.add(error);
+                }
+                team.add(member);
+            }
+            return team;
+        }
 
+        void cancel() {
+            for (TeamDriverTask<T> task : tasks) {
+                if (task != null) {
+                    task.cancel(true);
                 }
-                break;
-            case HOSContract.METHOD_START_NAVIGATION:
-                boolean startStatus = startNavigation(version);
-                result.putBoolean(HOSContract.KEY_NAVIGATION_RESULT, startStatus);
-                break;
-            case HOSContract.METHOD_END_NAVIGATION:
-                boolean endStatus = endNavigation(version);
-                result.putBoolean(HOSContract.KEY_NAVIGATION_RESULT, endStatus);
-                break;
-            default:
-                Log.w(LOG_TAG, "Unrecognized method name: " + method);
-                result.putString(HOSContract.KEY_ERROR, "The provided method was not recognized: " + method);
+            }
         }
+    }
 
-        return result;
+    /**
+     * The last successful response for one contract version, returned when the getters time out.
+     */
+    private static final class LastKnownHOS {
+        final Bundle result;
+        final long elapsedRealtime;
+
+        LastKnownHOS(Bundle result, long elapsedRealtime) {
+            this.result = result;
+            this.elapsedRealtime = elapsedRealtime;
+        }
+    }
+
+    /**
+     * Override this to limit how long a {@link HOSContract}.METHOD_GET_HOS call may wait for the
+     * abstract getters.  Consumers can lower the limit with {@link HOSContract}.KEY_TIMEOUT_MILLIS.
+     *
+     * @return The limit in milliseconds, or zero for no limit.  The default is no limit.
+     */
+    protected long getHOSTimeoutMillis() {
+        return 0;
+    }
+
+    /**
+     * Override this to change the number of threads running the abstract getters.  They are separate
+     * from the binder threads of the provider app, so calls to other providers in the same app are not
+     * delayed by slow getters.  Called once, on the first METHOD_GET_HOS call.
+     *
+     * @return The number of threads.  The default is 2.
+     */
+    protected int getHOSThreadCount() {
+        return HOS_THREADS;
+    }
+
+    /**
+     * Override this to change the number of computations that may wait for a thread.  Calls beyond it
+     * are answered immediately with the last successful response, see {@link #getRejectedHOSCalls()}.
+     * Called once, on the first METHOD_GET_HOS call.
+     *
+     * @return The capacity of the queue.  The default is 4.
+     */
+    protected int getHOSQueueCapacity() {
+        return HOS_QUEUE_CAPACITY;
+    }
+
+    /**
+     * Override this to return true if the responses for every contract version may be derived from
+     * {@link #getHOSData()} and {@link #getHOSTeamData()}.  The HOS is then computed once for consumers
+     * of every version, and {@link #getHOS()}, {@link #getHOSV2()} and {@link #getTeamHOSV2()} are not
+     * called.
+     *
+     * @return True to derive every version from the version 0.4 getters.  The default is false.
+     */
+    protected boolean isHOSDerivedFromHOSData() {
+        return false;
     }
 
     /**
-     * Implement this method to return the current HOS status v2.
+     * Override this to reuse the HOS computed for one call in the calls that follow it, when
+     * {@link #isHOSDerivedFromHOSData()} returns true.  {@link #notifyHOSChanged(String)} ends the reuse
+     * early.
+     *
+     * @return How long the HOS may be reused, in milliseconds.  The default is zero, which only shares
+     * the HOS between calls that arrive while it is being computed.
+     */
+    protected long getHOSMaxAgeMillis() {
+        return 0;
+    }
+
+    /**
+     * Override this method to return the current HOS status for version 0.2.  The default converts
+     * {@link #getHOSData()}.
      *
      * @return The current HOS
      */
-    protected abstract HOSContract.HOSStatus getHOS();
+    protected HOSContract.HOSStatus getHOS() {
+        HOSContract.HOSData hosData = getHOSData();
+        return hosData != null ? toHOSStatus(hosData) : null;
+    }
 
     /**
-     * Implement this method to return the current HOS status v2.
+     * Override this method to return the current HOS status v2.  The default converts
+     * {@link #getHOSData()}.
      *
      * @return The current HOS
      */
-    protected abstract HOSContract.HOSStatusV2 getHOSV2();
+    protected HOSContract.HOSStatusV2 getHOSV2() {
+        HOSContract.HOSData hosData = getHOSData();
+        return hosData != null ? toHOSStatusV2(hosData) : null;
+    }
 
     /**
-     * Implement this method to return the current team HOS status v2.
+     * Override this method to return the current team HOS status v2.  The default converts
+     * {@link #getHOSTeamData()}.
      *
      * @return The current HOS
      */
-    protected abstract ArrayList<HOSContract.HOSStatusV2> getTeamHOSV2();
+    protected ArrayList<HOSContract.HOSStatusV2> getTeamHOSV2() {
+        return toHOSStatusV2(getHOSTeamData());
+    }
 
     /**
      * Implement this method to return the current HOSData
@@ -223,6 +1278,56 @@ public abstract class AbstractHOSProvider extends ContentProvider {
      */
     protected abstract Boolean endNavigation(String version);
 
+    /**
+     * Override this to return true if the provider app implements {@link #getTeamDriverHOSData(int)},
+     * and optionally {@link #getTeamDriverHOSV2(int)}.  The team drivers are then computed in parallel with those
+     * methods, and {@link #getTeamHOSV2()} and {@link #getHOSTeamData()} are not called.
+     *
+     * @return True to compute each team driver separately.  The default is false.
+     */
+    protected boolean isTeamDriverHOSComputedSeparately() {
+        return false;
+    }
+
+    /**
+     * Override this to return the current HOS status v2 of one team driver when
+     * {@link #isTeamDriverHOSComputedSeparately()} returns true.  Called on a background thread.  The
+     * default converts {@link #getTeamDriverHOSData(int)}.
+     *
+     * @param index The team driver, from 0 to {@link #getTeamsDriversNumber()} - 1.
+     * @return The current HOS of the team driver, or null if it is not available.
+     */
+    protected HOSContract.HOSStatusV2 getTeamDriverHOSV2(int index) {
+        HOSContract.HOSData hosData = getTeamDriverHOSData(index);
+        return hosData != null ? toHOSStatusV2(hosData) : null;
+    }
+
+    /**
+     * Override this to return the current HOSData of one team driver when
+     * {@link #isTeamDriverHOSComputedSeparately()} returns true.  Called on a background thread.
+     * Provider apps that return true must override this method, as the default looks the driver up in
+     * {@link #getHOSTeamData()}, which is then called once per team driver.
+     *
+     * @param index The team driver, from 0 to {@link #getTeamsDriversNumber()} - 1.
+     * @return The current HOS of the team driver, or null if it is not available.
+     */
+    protected HOSContract.HOSData getTeamDriverHOSData(int index) {
+        HOSContract.HOSTeamData teamData = getHOSTeamData();
+        List<HOSContract.HOSData> team = teamData != null ? teamData.getTeamHosData() : null;
+        return team != null && index >= 0 && index < team.size() ? team.get(index) : null;
+    }
+
+    /**
+     * Override this to limit how long the HOS of each team driver may take when
+     * {@link #isTeamDriverHOSComputedSeparately()} returns true.  The limit is measured from when the
+     * driver starts running, and a driver that exceeds it is interrupted.
+     *
+     * @return The limit in milliseconds, or zero for no limit.  The default is no limit.
+     */
+    protected long getTeamDriverTimeoutMillis() {
+        return 0;
+    }
+
     /**
      * Implement this to enable team driver functionality.
      *
@@ -231,9 +1336,10 @@ public abstract class AbstractHOSProvider extends ContentProvider {
     protected abstract Boolean isTeamDriverEnabled();
 
     /**
-     * Implement this to force a specific {@link HOSContract}.VERSION.
+     * Implement this to limit the {@link HOSContract}.VERSION returned to consumers.  Consumers that
+     * request a newer version receive this one instead.
      *
-     * @return
+     * @return The newest version to return, or null to return the version requested by the consumer.
      */
     protected abstract String getHosVersion();
 
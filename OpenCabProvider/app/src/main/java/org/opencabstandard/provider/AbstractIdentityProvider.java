@@ -1,9 +1,5 @@
 package org.opencabstandard.provider;
 
-import android.content.ContentProvider;
-import android.content.ContentValues;
-import android.database.Cursor;
-import android.net.Uri;
 import android.os.Bundle;
 import android.util.Log;
 
@@ -11,141 +7,150 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * An abstract ContentProvider that implements the {@link IdentityContract}. The provider app can choose
  * to implement the full ContentProvider or to extend this class.  If extending this class it only needs
  * to implement the abstract methods.
  */
-public abstract class AbstractIdentityProvider extends ContentProvider {
+public abstract class AbstractIdentityProvider extends AbstractOpenCabProvider {
     private static final String LOG_TAG = AbstractIdentityProvider.class.getName();
 
     /**
-     * Initialize the provider.
-     *
-     * @return Indicates successful initialization.
+     * The contract versions supported by this provider.
      */
-    @Override
-    public boolean onCreate() {
-        Log.d(LOG_TAG, "Created");
-        return true;
-    }
+    private static final VersionResolver IDENTITY_VERSIONS = new VersionResolver("0.2", "0.3");
 
     /**
-     * Not used.
-     *
-     * @param uri
-     * @param strings
-     * @param s
-     * @param strings1
-     * @param s1
-     * @return
+     * The default budget of each consumer, which can observe {@link IdentityContract}.PATH_ACTIVE_DRIVERS
+     * instead of polling the drivers.  METHOD_GET_LOGIN_CREDENTIALS is not limited, as consumers read
+     * any KEY_ERROR from it as the driver not being signed in, and expensive tokens are cached by
+     * {@link #getCredentialCache()} instead.
      */
-    @Nullable
-    @Override
-    public Cursor query(@NonNull Uri uri, @Nullable String[] strings, @Nullable String s, @Nullable String[] strings1, @Nullable String s1) {
-        return null;
-    }
+    private static final RateLimit ACTIVE_DRIVERS_RATE_LIMIT = new RateLimit(5, 10);
 
     /**
-     * Not used.
-     *
-     * @param uri
-     * @return
+     * Credentials whose token has no expiry are minted again after this long.
      */
-    @Nullable
-    @Override
-    public String getType(@NonNull Uri uri) {
-        return null;
-    }
+    private static final long CREDENTIALS_MAX_AGE_MILLIS = TimeUnit.HOURS.toMillis(1);
 
     /**
-     * Not used.
-     *
-     * @param uri
-     * @param contentValues
-     * @return
+     * Tokens are minted again in the background when they are used this long before they expire.
      */
-    @Nullable
-    @Override
-    public Uri insert(@NonNull Uri uri, @Nullable ContentValues contentValues) {
-        return null;
-    }
+    private static final long CREDENTIALS_REFRESH_AHEAD_MILLIS = TimeUnit.MINUTES.toMillis(5);
 
-    /**
-     * Not used.
-     *
-     * @param uri
-     * @param s
-     * @param strings
-     * @return
-     */
-    @Override
-    public int delete(@NonNull Uri uri, @Nullable String s, @Nullable String[] strings) {
-        return 0;
+    private final CredentialCache credentialCache = new CredentialCache(CREDENTIALS_MAX_AGE_MILLIS, CREDENTIALS_REFRESH_AHEAD_MILLIS);
+
+    private static final String[] ACTIVE_DRIVER_COLUMNS = {
+            IdentityContract.COLUMN_USERNAME,
+            IdentityContract.COLUMN_DRIVING
+    };
+
+    public AbstractIdentityProvider() {
+        registerMethod(IdentityContract.METHOD_GET_ACTIVE_DRIVERS, IDENTITY_VERSIONS, this::handleGetActiveDrivers);
+        registerMethod(IdentityContract.METHOD_GET_LOGIN_CREDENTIALS, IDENTITY_VERSIONS, this::handleGetLoginCredentials);
+        registerQuery(IdentityContract.PATH_ACTIVE_DRIVERS, ACTIVE_DRIVER_COLUMNS, this::getActiveDriverRows);
     }
 
     /**
-     * Not used.
+     * Initialize the provider.
      *
-     * @param uri
-     * @param contentValues
-     * @param s
-     * @param strings
-     * @return
+     * @return Indicates successful initialization.
      */
     @Override
-    public int update(@NonNull Uri uri, @Nullable ContentValues contentValues, @Nullable String s, @Nullable String[] strings) {
-        return 0;
+    public boolean onCreate() {
+        Log.d(LOG_TAG, "Created");
+        return true;
     }
 
     /**
-     * This method will be called for all interactions with the ContentProvider based on the method argument
-     * passed in.  The appropriate abstract method will be called based on the method argument.
+     * Limits {@link IdentityContract}.METHOD_GET_ACTIVE_DRIVERS to 5 calls per second per consumer,
+     * after a burst of 10.  METHOD_GET_LOGIN_CREDENTIALS is not limited, so that a consumer over its
+     * budget cannot fail the sign-in of a driver.
      *
-     * @param method  The desired method to call.
-     * @param version The {@link IdentityContract}.VERSION
-     * @param extras  Additional data if needed by the method.
-     * @return {@link Bundle} with results.
+     * @param method The method called.
+     * @return The budget of the method.
      */
     @Nullable
     @Override
-    public Bundle call(@NonNull String method, @Nullable String version, @Nullable Bundle extras) {
-        Bundle result = new Bundle();
-        Log.i(LOG_TAG, "Method name: " + method + ", version: " + version);
-
+    protected RateLimit getRateLimit(@NonNull String method) {
         switch (method) {
             case IdentityContract.METHOD_GET_ACTIVE_DRIVERS:
-                ArrayList<IdentityContract.Driver> drivers = getActiveDrivers(version);
-                int count = (drivers != null) ? drivers.size() : 0;
-                Log.d(LOG_TAG, "Found active drivers: " + count);
-                result.putParcelableArrayList(IdentityContract.KEY_ACTIVE_DRIVERS, drivers);
-                result.putString(IdentityContract.KEY_VERSION, "0.2");
-                break;
-            case IdentityContract.METHOD_GET_LOGIN_CREDENTIALS:
-                IdentityContract.LoginCredentials creds = getLoginCredentials(version);
-                result.putParcelable(IdentityContract.KEY_LOGIN_CREDENTIALS, creds);
-                Version callerVersion = new Version(version != null ? version : "0.2");
-                Version minSupportedVersion = new Version("0.3");
-                // With only KEY_LOGIN_CREDENTIALS, this response is compliant with version 0.2
-                // of the contract.
-                result.putString(IdentityContract.KEY_VERSION, "0.2");
-                if (callerVersion.compareTo(minSupportedVersion) >= 0) {
-                    ArrayList<IdentityContract.DriverSession> driverSessionList = getAllLoginCredentials(version);
-                    result.putParcelableArrayList(IdentityContract.KEY_ALL_LOGIN_CREDENTIALS, driverSessionList);
-                    // With the addition of the KEY_ALL_LOGIN_CREDENTIALS info, this response is compliant
-                    // with version 0.3 of the contract.
-                    result.putString(IdentityContract.KEY_VERSION, "0.3");
-                }
-                break;
+                return ACTIVE_DRIVERS_RATE_LIMIT;
             default:
-                Log.w(LOG_TAG, "Unrecognized method name: " + method);
-                result.putString(IdentityContract.KEY_ERROR, "The provided method was not recognized: " + method);
+                return super.getRateLimit(method);
         }
+    }
 
+    @NonNull
+    private Bundle handleGetActiveDrivers(@NonNull MethodCall call) {
+        Bundle result = new Bundle();
+        ArrayList<IdentityContract.Driver> drivers = getActiveDrivers(call.version);
+        if (isLoggable(Log.DEBUG)) {
+            Log.d(LOG_TAG, "Found active drivers: " + (drivers != null ? drivers.size() : 0));
+        }
+        result.putParcelableArrayList(IdentityContract.KEY_ACTIVE_DRIVERS, drivers);
+        result.putString(IdentityContract.KEY_VERSION, call.negotiatedVersion);
         return result;
     }
 
+    @NonNull
+    private List<Object[]> getActiveDriverRows() {
+        ArrayList<IdentityContract.Driver> drivers = getActiveDrivers(IDENTITY_VERSIONS.getLatest());
+        if (drivers == null) {
+            return Collections.emptyList();
+        }
+        ArrayList<Object[]> rows = new ArrayList<>(drivers.size());
+        for (IdentityContract.Driver driver : drivers) {
+            if (driver != null) {
+                rows.add(new Object[]{driver.getUsername(), driver.isDriving() ? 1 : 0});
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Notify consumers observing {@link IdentityContract}.PATH_ACTIVE_DRIVERS that the active drivers
+     * changed.  Call this when the drivers log in or out, or when the driving driver changes.
+     */
+    public void notifyActiveDriversChanged() {
+        notifyChange(IdentityContract.PATH_ACTIVE_DRIVERS);
+    }
+
+    @NonNull
+    private Bundle handleGetLoginCredentials(@NonNull MethodCall call) {
+        Bundle result = new Bundle();
+        IdentityContract.LoginCredentials creds = getLoginCredentials(call.version);
+        result.putParcelable(IdentityContract.KEY_LOGIN_CREDENTIALS, creds);
+        // With only KEY_LOGIN_CREDENTIALS, this response is compliant with version 0.2
+        // of the contract.
+        result.putString(IdentityContract.KEY_VERSION, "0.2");
+        if ("0.3".equals(call.negotiatedVersion)) {
+            ArrayList<IdentityContract.DriverSession> driverSessionList = getAllLoginCredentials(call.version);
+            result.putParcelableArrayList(IdentityContract.KEY_ALL_LOGIN_CREDENTIALS, driverSessionList);
+            // With the addition of the KEY_ALL_LOGIN_CREDENTIALS info, this response is compliant
+            // with version 0.3 of the contract.
+            result.putString(IdentityContract.KEY_VERSION, "0.3");
+        }
+        return result;
+    }
+
+    /**
+     * The credentials of each driver, for implementations of {@link #getLoginCredentials(String)} and
+     * {@link #getAllLoginCredentials(String)} whose tokens are expensive to mint.  A
+     * METHOD_GET_LOGIN_CREDENTIALS call for version 0.3 calls both methods, so the token of the primary
+     * driver is then only minted once.
+     *
+     * @return The cache of this provider.
+     */
+    @NonNull
+    protected final CredentialCache getCredentialCache() {
+        return credentialCache;
+    }
+
     /**
      * Implement this method to return the login credentials.
      *
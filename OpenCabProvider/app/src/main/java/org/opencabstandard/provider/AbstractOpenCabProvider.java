@@ -0,0 +1,756 @@
+package org.opencabstandard.provider;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.pm.ProviderInfo;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.os.Binder;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Parcel;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Common base class for the abstract OpenCab providers.  Each provider registers a handler for every
+ * contract method it supports, and {@link #call(String, String, Bundle)} dispatches to it with a single
+ * map lookup.  Methods registered with a {@link VersionResolver} have the consumer's version negotiated
+ * as described in section 3.5 of the specification before their handler is called.
+ *
+ * <p>Every provider also supports METHOD_BATCH, which runs several of its methods in a single call.</p>
+ *
+ * <p>Consumers that pass KEY_MAX_CHUNK_BYTES receive results larger than that, or than
+ * {@link #getMaxChunkBytes()}, in chunks fetched with METHOD_GET_CHUNK, so that large results do not
+ * exceed the binder transaction limit.  See {@link ChunkedResults}.</p>
+ *
+ * <p>Providers can also register queries, which serve rows through {@link #query(Uri, String[], String, String[], String)}.
+ * The rows are filtered by the selection, see {@link QuerySelection}, and only the projected columns are
+ * returned, so a consumer can read just the data it needs without unparcelling whole objects.</p>
+ *
+ * <p>Subclasses call {@link #notifyChange(String...)} when their data changes, so consumers that
+ * registered a {@link android.database.ContentObserver} for the content URIs of the contract, or that hold
+ * a query cursor, can fetch the data again instead of polling.</p>
+ *
+ * <p>The number, errors, duration and result size of the calls are recorded per method, negotiated
+ * version and calling package, and returned for METHOD_GET_METRICS and by {@link #dump}.  See
+ * {@link ProviderMetrics}.</p>
+ *
+ * <p>Each stage of a call is marked with an {@link Trace} section, and the most recent calls are kept in
+ * memory and printed by {@link #dump}.  Nothing is logged per call unless logging is enabled with
+ * <code>adb shell setprop log.tag.OpenCab DEBUG</code>, see {@link #isLoggable(int)}.</p>
+ *
+ * <p>Each consumer has a budget of calls per method, see {@link #getRateLimit(String)}, so that one
+ * consumer calling in a tight loop cannot occupy every binder thread of the provider app.  Calls over
+ * the budget get {@link #onRateLimited(MethodCall, long)} instead of the handler.</p>
+ */
+public abstract class AbstractOpenCabProvider extends ContentProvider {
+    private static final String LOG_TAG = AbstractOpenCabProvider.class.getName();
+
+    /**
+     * The value of KEY_ERROR, which is the same in every contract.
+     */
+    static final String KEY_ERROR = "error";
+
+    /**
+     * The value of KEY_RETRY_AFTER_MILLIS, which is the same in every contract.
+     */
+    static final String KEY_RETRY_AFTER_MILLIS = "retry_after_millis";
+
+    /**
+     * The value of KEY_VERSION, which is the same in every contract.
+     */
+    static final String KEY_VERSION = "key_version";
+
+    /**
+     * The value of METHOD_BATCH and its keys, which are the same in every contract.
+     */
+    static final String METHOD_BATCH = "batch";
+    static final String KEY_BATCH_CALLS = "batch_calls";
+    static final String KEY_BATCH_METHOD = "batch_method";
+    static final String KEY_BATCH_VERSION = "batch_version";
+    static final String KEY_BATCH_EXTRAS = "batch_extras";
+    static final String KEY_BATCH_RESULTS = "batch_results";
+
+    /**
+     * The value of METHOD_GET_CHUNK and the chunk keys, which are the same in every contract.
+     */
+    static final String METHOD_GET_CHUNK = "getChunk";
+    static final String KEY_MAX_CHUNK_BYTES = "max_chunk_bytes";
+    static final String KEY_CHUNK = "chunk";
+    static final String KEY_CHUNK_TOKEN = "chunk_token";
+    static final String KEY_CHUNK_COUNT = "chunk_count";
+    static final String KEY_CHUNK_INDEX = "chunk_index";
+
+    /**
+     * The value of METHOD_GET_METRICS and KEY_METRICS, which are the same in every contract.
+     */
+    static final String METHOD_GET_METRICS = "getMetrics";
+    static final String KEY_METRICS = "metrics";
+
+    /**
+     * Lower bound on the chunk size requested by consumers, so that a result is not split into
+     * thousands of calls.
+     */
+    private static final int MIN_CHUNK_BYTES = 4 * 1024;
+
+    /**
+     * Results that were split into chunks are kept this long for the consumer to fetch the rest.
+     */
+    private static final long CHUNK_EXPIRY_MILLIS = 30 * 1000;
+
+    /**
+     * Upper bound on the number of results waiting for their chunks to be fetched.
+     */
+    private static final int MAX_PENDING_CHUNKED_RESULTS = 16;
+
+    /**
+     * Upper bound on the number of calls in one METHOD_BATCH, so that one consumer cannot occupy a
+     * binder thread indefinitely.
+     */
+    private static final int MAX_BATCH_CALLS = 32;
+
+    private final ConcurrentHashMap<String, Registration> handlers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ChunkedResult> chunkedResults = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, QueryRegistration> queries = new ConcurrentHashMap<>();
+    private volatile String authority;
+    private final ProviderMetrics metrics = new ProviderMetrics();
+    private final ProviderTracer tracer = new ProviderTracer();
+    private final RateLimiter rateLimiter = new RateLimiter();
+
+    /**
+     * Handles one contract method.
+     */
+    protected interface MethodHandler {
+
+        /**
+         * Handle a call to the provider.
+         *
+         * @param call The method, version and extras passed by the consumer.
+         * @return {@link Bundle} with results.
+         */
+        @NonNull
+        Bundle handle(@NonNull MethodCall call);
+    }
+
+    /**
+     * Returns the rows of one query path.
+     */
+    protected interface QueryHandler {
+
+        /**
+         * Get every row.  The provider filters and projects them.
+         *
+         * @return The rows, each with one value per registered column, in the order they were registered.
+         * Boolean values should be returned as 0 or 1.
+         */
+        @NonNull
+        List<Object[]> rows();
+    }
+
+    /**
+     * The arguments of a single call to the provider.
+     */
+    protected static final class MethodCall {
+
+        /**
+         * The method passed by the consumer.
+         */
+        @NonNull
+        public final String method;
+
+        /**
+         * The version passed by the consumer, which may be null.
+         */
+        @Nullable
+        public final String version;
+
+        /**
+         * The contract version to respond with, or null if the method was registered without a
+         * {@link VersionResolver}.
+         */
+        @Nullable
+        public final String negotiatedVersion;
+
+        /**
+         * The extras passed by the consumer, which may be null.
+         */
+        @Nullable
+        public final Bundle extras;
+
+        MethodCall(@NonNull String method, @Nullable String version, @Nullable String negotiatedVersion, @Nullable Bundle extras) {
+            this.method = method;
+            this.version = version;
+            this.negotiatedVersion = negotiatedVersion;
+            this.extras = extras;
+        }
+    }
+
+    public AbstractOpenCabProvider() {
+        registerMethod(METHOD_BATCH, this::handleBatch);
+        registerMethod(METHOD_GET_CHUNK, this::handleGetChunk);
+        registerMethod(METHOD_GET_METRICS, this::handleGetMetrics);
+    }
+
+    /**
+     * A result that was split into chunks, waiting for the consumer to fetch the remaining chunks.
+     */
+    private static final class ChunkedResult {
+        final byte[] data;
+        final int chunkBytes;
+        final int count;
+        final long expiresAt;
+
+        ChunkedResult(byte[] data, int chunkBytes, long expiresAt) {
+            this.data = data;
+            this.chunkBytes = chunkBytes;
+            this.count = (data.length + chunkBytes - 1) / chunkBytes;
+            this.expiresAt = expiresAt;
+        }
+
+        byte[] chunk(int index) {
+            int from = index * chunkBytes;
+            return Arrays.copyOfRange(data, from, Math.min(data.length, from + chunkBytes));
+        }
+    }
+
+    private static final class QueryRegistration {
+        final String[] columns;
+        final QueryHandler handler;
+
+        QueryRegistration(String[] columns, QueryHandler handler) {
+            this.columns = columns;
+            this.handler = handler;
+        }
+    }
+
+    private static final class Registration {
+        final VersionResolver versions;
+        final MethodHandler handler;
+
+        Registration(VersionResolver versions, MethodHandler handler) {
+            this.versions = versions;
+            this.handler = handler;
+        }
+    }
+
+    /**
+     * Register the handler for a method that does not depend on the contract version.
+     *
+     * @param method  The method name.
+     * @param handler The handler called for the method.
+     */
+    protected final void registerMethod(@NonNull String method, @NonNull MethodHandler handler) {
+        handlers.put(method, new Registration(null, handler));
+    }
+
+    /**
+     * Register the handler for a method whose response depends on the contract version.  Calls
+     * requesting a version older than every supported version get a KEY_ERROR response without
+     * the handler being called.
+     *
+     * @param method   The method name.
+     * @param versions The contract versions supported for the method.
+     * @param handler  The handler called for the method.
+     */
+    protected final void registerMethod(@NonNull String method, @NonNull VersionResolver versions, @NonNull MethodHandler handler) {
+        handlers.put(method, new Registration(versions, handler));
+    }
+
+    /**
+     * Register the rows returned by {@link #query(Uri, String[], String, String[], String)} for
+     * <code>content://authority/path</code>.
+     *
+     * @param path    The path of the content URI.
+     * @param columns The names of the columns, in the order of the values in each row.
+     * @param handler The handler returning the rows.
+     */
+    protected final void registerQuery(@NonNull String path, @NonNull String[] columns, @NonNull QueryHandler handler) {
+        queries.put(path, new QueryRegistration(columns.clone(), handler));
+    }
+
+    /**
+     * Remembers the authority of the provider, which is prefixed with the package of the provider app,
+     * to build its content URIs.
+     *
+     * @param context The context of the provider.
+     * @param info    The provider declared in the manifest.
+     */
+    @Override
+    public void attachInfo(Context context, ProviderInfo info) {
+        super.attachInfo(context, info);
+        if (info != null && info.authority != null) {
+            // The manifest may declare several authorities separated by semicolons.
+            authority = info.authority.split(";")[0];
+        }
+    }
+
+    /**
+     * Build a content URI of this provider.
+     *
+     * @param pathSegments The path of the URI, one segment per argument.  Segments are encoded.
+     * @return <code>content://authority/path</code>, or null before the provider is attached.
+     */
+    @Nullable
+    protected final Uri getContentUri(@NonNull String... pathSegments) {
+        if (authority == null) {
+            return null;
+        }
+        Uri.Builder builder = new Uri.Builder().scheme("content").authority(authority);
+        for (String segment : pathSegments) {
+            builder.appendPath(segment);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Notify the observers of a content URI of this provider, and of every URI below it, that the data
+     * changed.  Observers registered with notifyForDescendants for a parent URI are notified too.
+     *
+     * @param pathSegments The path of the URI, one segment per argument.
+     */
+    protected final void notifyChange(@NonNull String... pathSegments) {
+        Context context = getContext();
+        Uri uri = getContentUri(pathSegments);
+        if (context == null || uri == null) {
+            Log.w(LOG_TAG, "Provider is not attached, not notifying " + Arrays.toString(pathSegments));
+            return;
+        }
+        context.getContentResolver().notifyChange(uri, null);
+    }
+
+    /**
+     * Whether a log message should be built.  Checks the <code>OpenCab</code> tag, so the logging of every
+     * provider is enabled with <code>adb shell setprop log.tag.OpenCab DEBUG</code>.  Subclasses should
+     * check this before building log messages on the call path.
+     *
+     * @param level The {@link Log} level.
+     * @return True if messages of this level should be logged.
+     */
+    protected static boolean isLoggable(int level) {
+        return ProviderTracer.isLoggable(level);
+    }
+
+    /**
+     * Resolve the version requested by the consumer.  Subclasses can override this to further limit
+     * the versions they respond with.
+     *
+     * @param versions The contract versions supported for the method being called.
+     * @param version  The version passed by the consumer, which may be null.
+     * @return The contract version to respond with, or null if the request is not supported.
+     */
+    @Nullable
+    protected String resolveVersion(@NonNull VersionResolver versions, @Nullable String version) {
+        return versions.resolve(version);
+    }
+
+    /**
+     * This method will be called for all interactions with the ContentProvider based on the method argument
+     * passed in.  The handler registered for the method will be called.
+     *
+     * @param method  The desired method to call.
+     * @param version The contract VERSION
+     * @param extras  Additional data if needed by the method.
+     * @return {@link Bundle} with results.
+     */
+    @Nullable
+    @Override
+    public Bundle call(@NonNull String method, @Nullable String version, @Nullable Bundle extras) {
+        Trace.beginSection(ProviderTracer.SECTION_CALL);
+        try {
+            Bundle result = dispatch(method, version, extras, getCallingPackageOrNull(), true);
+            int maxChunkBytes = extras != null ? extras.getInt(KEY_MAX_CHUNK_BYTES, 0) : 0;
+            if (maxChunkBytes > 0 && !METHOD_GET_CHUNK.equals(method)) {
+                Trace.beginSection(ProviderTracer.SECTION_SPLIT);
+                try {
+                    result = split(result, Math.max(MIN_CHUNK_BYTES, Math.min(maxChunkBytes, getMaxChunkBytes())));
+                } finally {
+                    Trace.endSection();
+                }
+            }
+            return result;
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+    /**
+     * The largest chunk returned to consumers that accept chunked results.  Override this to lower it.
+     *
+     * @return The maximum size of a result, or of one chunk of it, in bytes.  The default is 256 KB.
+     */
+    protected int getMaxChunkBytes() {
+        return 256 * 1024;
+    }
+
+    /**
+     * Returns the result itself if its encoded size is within the limit, and otherwise the first chunk.
+     */
+    @NonNull
+    private Bundle split(@NonNull Bundle result, int chunkBytes) {
+        Parcel parcel = Parcel.obtain();
+        byte[] data;
+        try {
+            parcel.writeBundle(result);
+            if (parcel.dataSize() <= chunkBytes) {
+                return result;
+            }
+            data = parcel.marshall();
+        } catch (RuntimeException e) {
+            // Results holding binders or file descriptors can not be marshalled.
+            Log.w(LOG_TAG, "Unable to split result into chunks", e);
+            return result;
+        } finally {
+            parcel.recycle();
+        }
+
+        long now = SystemClock.elapsedRealtime();
+        for (Iterator<ChunkedResult> pending = chunkedResults.values().iterator(); pending.hasNext(); ) {
+            if (pending.next().expiresAt <= now) {
+                pending.remove();
+            }
+        }
+        if (chunkedResults.size() >= MAX_PENDING_CHUNKED_RESULTS) {
+            Log.w(LOG_TAG, "Too many chunked results pending, result of " + data.length + " bytes not returned");
+            return error("The result is too large and too many chunked results are pending.");
+        }
+
+        ChunkedResult chunked = new ChunkedResult(data, chunkBytes, now + CHUNK_EXPIRY_MILLIS);
+        String token = UUID.randomUUID().toString();
+        chunkedResults.put(token, chunked);
+        Bundle first = new Bundle();
+        first.putByteArray(KEY_CHUNK, chunked.chunk(0));
+        first.putString(KEY_CHUNK_TOKEN, token);
+        first.putInt(KEY_CHUNK_COUNT, chunked.count);
+        return first;
+    }
+
+    @NonNull
+    private Bundle handleGetChunk(@NonNull MethodCall call) {
+        String token = call.extras != null ? call.extras.getString(KEY_CHUNK_TOKEN) : null;
+        ChunkedResult chunked = token != null ? chunkedResults.get(token) : null;
+        if (chunked == null || chunked.expiresAt <= SystemClock.elapsedRealtime()) {
+            return error("The chunked result is not available: " + token);
+        }
+        int index = call.extras.getInt(KEY_CHUNK_INDEX, -1);
+        if (index < 1 || index >= chunked.count) {
+            return error("The chunk index is not valid: " + index);
+        }
+        if (index == chunked.count - 1) {
+            chunkedResults.remove(token, chunked);
+        }
+        Bundle result = new Bundle();
+        result.putByteArray(KEY_CHUNK, chunked.chunk(index));
+        return result;
+    }
+
+    /**
+     * Calls the handler of a method and records the call in the metrics and the tracer.  Calls to methods
+     * that are not registered are not recorded, so that they cannot crowd out the registered ones.
+     *
+     * @param caller      The package of the consumer, or null if it is not known.
+     * @param measureSize True if the result is returned to the consumer as is, rather than in a batch.
+     */
+    @NonNull
+    private Bundle dispatch(@NonNull String method, @Nullable String version, @Nullable Bundle extras,
+                            @Nullable String caller, boolean measureSize) {
+        Registration registration = handlers.get(method);
+        if (registration == null) {
+            Log.w(LOG_TAG, "Unrecognized method name: " + method);
+            return error("The provided method was not recognized: " + method);
+        }
+
+        String negotiatedVersion = null;
+        if (registration.versions != null) {
+            Trace.beginSection(ProviderTracer.SECTION_RESOLVE_VERSION);
+            try {
+                negotiatedVersion = resolveVersion(registration.versions, version);
+            } finally {
+                Trace.endSection();
+            }
+            if (negotiatedVersion == null) {
+                // This implements subsection 3.5.1 of the spec.
+                ProviderMetrics.Entry entry = metrics.get(method, null, caller);
+                if (entry != null) {
+                    entry.record(0, true);
+                }
+                tracer.record(method, version, caller, SystemClock.elapsedRealtime(), 0, true);
+                return error("The requested version is not supported: " + version);
+            }
+        }
+
+        ProviderMetrics.Entry entry = metrics.get(method, negotiatedVersion, caller);
+        long startNanos = SystemClock.elapsedRealtimeNanos();
+        RateLimit limit = getRateLimit(method);
+        long retryAfterMillis = limit != null ? rateLimiter.acquire(caller, method, limit, startNanos) : 0;
+        MethodCall call = new MethodCall(method, version, negotiatedVersion, extras);
+        Bundle result = null;
+        Trace.beginSection(ProviderTracer.SECTION_HANDLE);
+        try {
+            result = retryAfterMillis > 0 ? onRateLimited(call, retryAfterMillis) : registration.handler.handle(call);
+            return result;
+        } finally {
+            Trace.endSection();
+            long micros = (SystemClock.elapsedRealtimeNanos() - startNanos) / 1000;
+            boolean error = result == null || result.containsKey(KEY_ERROR);
+            tracer.record(method, negotiatedVersion, caller, startNanos / 1000000, micros, error);
+            if (entry != null && entry.record(micros, error) && measureSize && result != null) {
+                entry.recordSize(result);
+            }
+        }
+    }
+
+    /**
+     * Override this to change the budget of calls each consumer may make to a method.  Every consumer,
+     * identified by its package, has its own budget per method.  Calls in a METHOD_BATCH count against
+     * the budget of their own method.
+     *
+     * @param method The method called.
+     * @return The budget, or null to not limit the method.  The default is null, and the abstract
+     * providers return a budget for their methods.
+     */
+    @Nullable
+    protected RateLimit getRateLimit(@NonNull String method) {
+        return null;
+    }
+
+    /**
+     * Override this to answer a call that exceeded the budget of its consumer, for example with a
+     * cached result.  The result should contain KEY_RETRY_AFTER_MILLIS.
+     *
+     * @param call             The call, which was not passed to its handler.
+     * @param retryAfterMillis The number of milliseconds until the consumer may call the method again.
+     * @return The default is a KEY_ERROR result with KEY_RETRY_AFTER_MILLIS.
+     */
+    @NonNull
+    protected Bundle onRateLimited(@NonNull MethodCall call, long retryAfterMillis) {
+        Bundle result = error("Too many calls to " + call.method + ", retry after " + retryAfterMillis + " ms.");
+        result.putLong(KEY_RETRY_AFTER_MILLIS, retryAfterMillis);
+        return result;
+    }
+
+    /**
+     * The package of the consumer making the current call, or null if it is not known, for example
+     * because the provider app called itself.  Unlike {@link #getCallingPackage()}, it does not throw.
+     *
+     * @return The package of the consumer, or null.
+     */
+    @Nullable
+    protected final String getCallingPackageOrNull() {
+        try {
+            return getCallingPackage();
+        } catch (SecurityException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the metrics of the calling package, or of every package when the provider app calls
+     * itself.
+     */
+    @NonNull
+    private Bundle handleGetMetrics(@NonNull MethodCall call) {
+        boolean everyCaller = Binder.getCallingUid() == Process.myUid();
+        Bundle result = new Bundle();
+        result.putParcelableArrayList(KEY_METRICS, metrics.toBundles(everyCaller, getCallingPackageOrNull()));
+        return result;
+    }
+
+    /**
+     * Prints the metrics of every calling package and the most recent calls, for <code>adb shell dumpsys activity provider</code>.
+     *
+     * @param fd     The raw file descriptor the dump is written to.
+     * @param writer The writer the dump is printed to.
+     * @param args   The arguments passed to dumpsys, which are ignored.
+     */
+    @Override
+    public void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        writer.println(getClass().getName());
+        metrics.dump(writer);
+        tracer.dump(writer);
+    }
+
+    /**
+     * Runs each call in KEY_BATCH_CALLS in order.  A call that fails gets a KEY_ERROR result, and the
+     * remaining calls still run.
+     */
+    @NonNull
+    private Bundle handleBatch(@NonNull MethodCall call) {
+        String caller = getCallingPackageOrNull();
+        ArrayList<Bundle> calls = call.extras != null ? getBundleArrayList(call.extras, KEY_BATCH_CALLS) : null;
+        if (calls == null) {
+            return error("The batch does not contain any calls.");
+        }
+        if (calls.size() > MAX_BATCH_CALLS) {
+            return error("The batch contains more than " + MAX_BATCH_CALLS + " calls.");
+        }
+
+        ArrayList<Bundle> results = new ArrayList<>(calls.size());
+        for (Bundle batchCall : calls) {
+            String method = batchCall != null ? batchCall.getString(KEY_BATCH_METHOD) : null;
+            if (method == null) {
+                results.add(error("The batch call does not contain a method."));
+            } else if (METHOD_BATCH.equals(method)) {
+                results.add(error("A batch can not contain another batch."));
+            } else {
+                try {
+                    results.add(dispatch(method, batchCall.getString(KEY_BATCH_VERSION), batchCall.getBundle(KEY_BATCH_EXTRAS), caller, false));
+                } catch (RuntimeException e) {
+                    Log.e(LOG_TAG, "Batch call " + method + " failed", e);
+                    results.add(error("The call failed: " + method));
+                }
+            }
+        }
+        Bundle result = new Bundle();
+        result.putParcelableArrayList(KEY_BATCH_RESULTS, results);
+        return result;
+    }
+
+    /**
+     * Reads a list of bundles with the type-safe method on API 33 and later, where the untyped one is
+     * deprecated.
+     */
+    @Nullable
+    @SuppressWarnings("deprecation")
+    private static ArrayList<Bundle> getBundleArrayList(@NonNull Bundle extras, @NonNull String key) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            return extras.getParcelableArrayList(key, Bundle.class);
+        }
+        return extras.getParcelableArrayList(key);
+    }
+
+    private static Bundle error(String message) {
+        Bundle result = new Bundle();
+        result.putString(KEY_ERROR, message);
+        return result;
+    }
+
+    /**
+     * Returns the rows registered for the path of the URI with {@link #registerQuery}.  The selection
+     * supports equality terms joined by AND, see {@link QuerySelection}.  The sort order is not supported
+     * and the rows are returned in the order of the handler.  The cursor is notified when the subclass
+     * calls {@link #notifyChange(String...)} for the path.
+     *
+     * @param uri           The content URI, <code>content://authority/path</code>.
+     * @param projection    The columns to return, or null for every column.
+     * @param selection     The selection, or null for every row.
+     * @param selectionArgs The values of each <code>?</code> in the selection.
+     * @param sortOrder     Ignored.
+     * @return The rows, or null if no query is registered for the path.
+     * @throws IllegalArgumentException If the projection or selection names an unknown column, or the
+     *                                  selection is not supported.
+     */
+    @Nullable
+    @Override
+    public Cursor query(@NonNull Uri uri, @Nullable String[] projection, @Nullable String selection, @Nullable String[] selectionArgs, @Nullable String sortOrder) {
+        List<String> segments = uri.getPathSegments();
+        QueryRegistration registration = segments.size() == 1 ? queries.get(segments.get(0)) : null;
+        if (registration == null) {
+            Log.w(LOG_TAG, "Unrecognized query: " + uri);
+            return null;
+        }
+        Trace.beginSection(ProviderTracer.SECTION_QUERY);
+        try {
+            return query(uri, registration, projection, selection, selectionArgs);
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+    @NonNull
+    private Cursor query(@NonNull Uri uri, @NonNull QueryRegistration registration, @Nullable String[] projection,
+                         @Nullable String selection, @Nullable String[] selectionArgs) {
+
+        String[] columns = projection != null ? projection : registration.columns;
+        int[] indexes = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            indexes[i] = QuerySelection.indexOf(registration.columns, columns[i]);
+        }
+        QuerySelection filter = QuerySelection.parse(selection, selectionArgs, registration.columns);
+
+        List<Object[]> rows = registration.handler.rows();
+        MatrixCursor cursor = new MatrixCursor(columns, rows.size());
+        for (Object[] row : rows) {
+            if (filter.matches(row)) {
+                Object[] values = new Object[indexes.length];
+                for (int i = 0; i < indexes.length; i++) {
+                    values[i] = row[indexes[i]];
+                }
+                cursor.addRow(values);
+            }
+        }
+        Context context = getContext();
+        if (context != null) {
+            cursor.setNotificationUri(context.getContentResolver(), uri);
+        }
+        return cursor;
+    }
+
+    /**
+     * Not used.
+     *
+     * @param uri
+     * @return
+     */
+    @Nullable
+    @Override
+    public String getType(@NonNull Uri uri) {
+        return null;
+    }
+
+    /**
+     * Not used.
+     *
+     * @param uri
+     * @param contentValues
+     * @return
+     */
+    @Nullable
+    @Override
+    public Uri insert(@NonNull Uri uri, @Nullable ContentValues contentValues) {
+        return null;
+    }
+
+    /**
+     * Not used.
+     *
+     * @param uri
+     * @param s
+     * @param strings
+     * @return
+     */
+    @Override
+    public int delete(@NonNull Uri uri, @Nullable String s, @Nullable String[] strings) {
+        return 0;
+    }
+
+    /**
+     * Not used.
+     *
+     * @param uri
+     * @param contentValues
+     * @param s
+     * @param strings
+     * @return
+     */
+    @Override
+    public int update(@NonNull Uri uri, @Nullable ContentValues contentValues, @Nullable String s, @Nullable String[] strings) {
+        return 0;
+    }
+}
@@ -1,137 +1,103 @@
 package org.opencabstandard.provider;
 
-import android.content.ContentProvider;
-import android.content.ContentValues;
-import android.database.Cursor;
-import android.net.Uri;
 import android.os.Bundle;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * An abstract ContentProvider that implements the {@link VehicleInformationContract}. The provider app can choose
  * to implement the full ContentProvider or to extend this class.  If extending this class it only needs
  * to implement the abstract methods.
  */
-public abstract class AbstractVehicleInformationProvider extends ContentProvider {
+public abstract class AbstractVehicleInformationProvider extends AbstractOpenCabProvider {
     private static final String LOG_TAG = AbstractVehicleInformationProvider.class.getName();
 
     /**
-     * Initialize the provider.
-     *
-     * @return Indicates successful initialization.
+     * The contract versions supported by this provider.
      */
-    @Override
-    public boolean onCreate() {
-        Log.d(LOG_TAG, "OnCreate()");
-        return true;
-    }
+    private static final VersionResolver VEHICLE_INFORMATION_VERSIONS = new VersionResolver("0.2");
 
     /**
-     * Not used.
-     *
-     * @param uri
-     * @param strings
-     * @param s
-     * @param strings1
-     * @param s1
-     * @return
+     * The default budget of each consumer.  Consumers can observe
+     * {@link VehicleInformationContract}.PATH_VEHICLE_INFORMATION instead of polling.
      */
-    @Nullable
-    @Override
-    public Cursor query(@NonNull Uri uri, @Nullable String[] strings, @Nullable String s, @Nullable String[] strings1, @Nullable String s1) {
-        return null;
+    private static final RateLimit VEHICLE_INFORMATION_RATE_LIMIT = new RateLimit(5, 10);
+
+    private static final String[] VEHICLE_INFORMATION_COLUMNS = {
+            VehicleInformationContract.COLUMN_VIN,
+            VehicleInformationContract.COLUMN_VEHICLE_ID,
+            VehicleInformationContract.COLUMN_IN_GEAR
+    };
+
+    public AbstractVehicleInformationProvider() {
+        registerMethod(VehicleInformationContract.METHOD_GET_VEHICLE_INFORMATION, VEHICLE_INFORMATION_VERSIONS, this::handleGetVehicleInformation);
+        registerQuery(VehicleInformationContract.PATH_VEHICLE_INFORMATION, VEHICLE_INFORMATION_COLUMNS, this::getVehicleInformationRows);
     }
 
     /**
-     * Not used.
+     * Initialize the provider.
      *
-     * @param uri
-     * @return
+     * @return Indicates successful initialization.
      */
-    @Nullable
     @Override
-    public String getType(@NonNull Uri uri) {
-        return null;
+    public boolean onCreate() {
+        Log.d(LOG_TAG, "OnCreate()");
+        return true;
     }
 
     /**
-     * Not used.
+     * Limits {@link VehicleInformationContract}.METHOD_GET_VEHICLE_INFORMATION to 5 calls per second
+     * per consumer, after a burst of 10.
      *
-     * @param uri
-     * @param contentValues
-     * @return
+     * @param method The method called.
+     * @return The budget of the method.
      */
     @Nullable
     @Override
-    public Uri insert(@NonNull Uri uri, @Nullable ContentValues contentValues) {
-        return null;
+    protected RateLimit getRateLimit(@NonNull String method) {
+        if (VehicleInformationContract.METHOD_GET_VEHICLE_INFORMATION.equals(method)) {
+            return VEHICLE_INFORMATION_RATE_LIMIT;
+        }
+        return super.getRateLimit(method);
     }
 
-    /**
-     * Not used.
-     *
-     * @param uri
-     * @param s
-     * @param strings
-     * @return
-     */
-    @Override
-    public int delete(@NonNull Uri uri, @Nullable String s, @Nullable String[] strings) {
-        return 0;
+    @NonNull
+    private Bundle handleGetVehicleInformation(@NonNull MethodCall call) {
+        Bundle result = new Bundle();
+        try {
+            VehicleInformationContract.VehicleInformation vehicle = getVehicleInformation(call.version);
+            if (vehicle != null) {
+                result.putParcelable(VehicleInformationContract.KEY_VEHICLE_INFORMATION, vehicle);
+                result.putString(VehicleInformationContract.KEY_VERSION, call.negotiatedVersion);
+            } else {
+                result.putString(VehicleInformationContract.KEY_ERROR, "Sorry, we are unable to fetch the current vehicle information");
+            }
+        } catch (RuntimeException e) {
+            result.putString(VehicleInformationContract.KEY_ERROR, e.getMessage());
+        }
+        return result;
     }
 
-    /**
-     * Not used.
-     *
-     * @param uri
-     * @param contentValues
-     * @param s
-     * @param strings
-     * @return
-     */
-    @Override
-    public int update(@NonNull Uri uri, @Nullable ContentValues contentValues, @Nullable String s, @Nullable String[] strings) {
-        return 0;
+    @NonNull
+    private List<Object[]> getVehicleInformationRows() {
+        VehicleInformationContract.VehicleInformation vehicle = getVehicleInformation(VEHICLE_INFORMATION_VERSIONS.getLatest());
+        if (vehicle == null) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(new Object[]{vehicle.getVin(), vehicle.getVehicleId(), vehicle.isInGear() ? 1 : 0});
     }
 
     /**
-     * This method will be called for all interactions with the ContentProvider based on the method argument
-     * passed in.  The appropriate abstract method will be called based on the method argument.
-     *
-     * @param method  The desired method to call.
-     * @param version The {@link VehicleInformationContract}.VERSION
-     * @param extras  Additional data if needed by the method.
-     * @return {@link Bundle} with results.
+     * Notify consumers observing {@link VehicleInformationContract}.PATH_VEHICLE_INFORMATION that the
+     * vehicle information changed.  Call this when the vehicle, or whether it is in gear, changes.
      */
-    @Nullable
-    @Override
-    public Bundle call(@NonNull String method, @Nullable String version, @Nullable Bundle extras) {
-        Bundle result = new Bundle();
-        Log.i(LOG_TAG, "Method name: " + method + ", version: " + version);
-
-        switch (method) {
-            case VehicleInformationContract.METHOD_GET_VEHICLE_INFORMATION:
-                try {
-                    VehicleInformationContract.VehicleInformation vehicle = getVehicleInformation(version);
-                    if (vehicle != null) {
-                        result.putParcelable(VehicleInformationContract.KEY_VEHICLE_INFORMATION, vehicle);
-                        result.putString(VehicleInformationContract.KEY_VERSION, "0.2");
-                    } else {
-                        result.putString(VehicleInformationContract.KEY_ERROR, "Sorry, we are unable to fetch the current vehicle information");
-                    }
-                } catch (RuntimeException e) {
-                    result.putString(VehicleInformationContract.KEY_ERROR, e.getMessage());
-                }
-                break;
-            default:
-                Log.w(LOG_TAG, "Unrecognized method name: " + method);
-                result.putString(IdentityContract.KEY_ERROR, "The provided method was not recognized: " + method);
-        }
-
-        return result;
+    public void notifyVehicleInformationChanged() {
+        notifyChange(VehicleInformationContract.PATH_VEHICLE_INFORMATION);
     }
 
     /**
@@ -0,0 +1,85 @@
+package org.opencabstandard.provider;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.Parcel;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Reassembles results that a provider split into chunks because the consumer passed KEY_MAX_CHUNK_BYTES.
+ *
+ * <pre>
+ * <code class="language-java">
+ *     Bundle extras = new Bundle();
+ *     extras.putInt(HOSContract.KEY_MAX_CHUNK_BYTES, 64 * 1024);
+ *     Bundle result = ChunkedResults.join(resolver, uri, resolver.call(uri, HOSContract.METHOD_GET_HOS, HOSContract.VERSION, extras));
+ * </code>
+ * </pre>
+ */
+public final class ChunkedResults {
+
+    private ChunkedResults() {
+
+    }
+
+    /**
+     * Fetch the remaining chunks of a result, if it was split, and return the full result.
+     *
+     * @param resolver The resolver used for the original call.
+     * @param uri      The provider URI used for the original call.
+     * @param result   The result of the original call.
+     * @return The full result, the original result if it was not split, or a Bundle with KEY_ERROR if a
+     * chunk could not be fetched.
+     */
+    @Nullable
+    public static Bundle join(@NonNull ContentResolver resolver, @NonNull Uri uri, @Nullable Bundle result) {
+        if (result == null || !result.containsKey(AbstractOpenCabProvider.KEY_CHUNK_TOKEN)) {
+            return result;
+        }
+        String token = result.getString(AbstractOpenCabProvider.KEY_CHUNK_TOKEN);
+        int count = result.getInt(AbstractOpenCabProvider.KEY_CHUNK_COUNT);
+        byte[] first = result.getByteArray(AbstractOpenCabProvider.KEY_CHUNK);
+        if (first == null) {
+            return error("The result does not contain its first chunk.");
+        }
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream(first.length * count);
+        data.write(first, 0, first.length);
+        for (int index = 1; index < count; index++) {
+            Bundle extras = new Bundle();
+            extras.putString(AbstractOpenCabProvider.KEY_CHUNK_TOKEN, token);
+            extras.putInt(AbstractOpenCabProvider.KEY_CHUNK_INDEX, index);
+            Bundle page = resolver.call(uri, AbstractOpenCabProvider.METHOD_GET_CHUNK, null, extras);
+            byte[] chunk = page != null ? page.getByteArray(AbstractOpenCabProvider.KEY_CHUNK) : null;
+            if (chunk == null) {
+                return page != null && page.containsKey(AbstractOpenCabProvider.KEY_ERROR)
+                        ? page : error("Chunk " + index + " of " + count + " is not available.");
+            }
+            data.write(chunk, 0, chunk.length);
+        }
+        return unmarshall(data.toByteArray());
+    }
+
+    private static Bundle unmarshall(byte[] data) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.unmarshall(data, 0, data.length);
+            parcel.setDataPosition(0);
+            Bundle result = parcel.readBundle(ChunkedResults.class.getClassLoader());
+            return result != null ? result : error("The chunked result is empty.");
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private static Bundle error(String message) {
+        Bundle result = new Bundle();
+        result.putString(AbstractOpenCabProvider.KEY_ERROR, message);
+        return result;
+    }
+}
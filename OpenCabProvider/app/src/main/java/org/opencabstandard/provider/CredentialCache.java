@@ -0,0 +1,252 @@
+package org.opencabstandard.provider;
+
+import android.util.Base64;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The login credentials of each driver, by username, so that a token is only minted again when it is
+ * about to expire.  The expiry is read from the <code>exp</code> claim when the token is a JWT, and
+ * is {@link #getDefaultMaxAgeMillis()} after minting otherwise.
+ *
+ * <p>A token that is used within {@link #getRefreshAheadMillis()} of its expiry is returned, and a new
+ * one is minted in the background for the next call.  Concurrent calls for a driver whose token is
+ * missing or expired share a single mint.</p>
+ *
+ * <pre>
+ * <code class="language-java">
+ *     public LoginCredentials getLoginCredentials(String version) {
+ *         return getCredentialCache().get(username, this::mintLoginCredentials);
+ *     }
+ * </code>
+ * </pre>
+ *
+ * <p>The returned credentials are shared between calls and must not be modified.  Call
+ * {@link #invalidate(String)} or {@link #invalidateAll()} when the credentials change before they expire,
+ * for example when a driver logs out.</p>
+ */
+public final class CredentialCache {
+    private static final String LOG_TAG = CredentialCache.class.getName();
+
+    /**
+     * Mints the credentials of one driver.
+     */
+    public interface Minter {
+
+        /**
+         * @param username The driver.
+         * @return The credentials, or null if the driver has none.
+         */
+        @Nullable
+        IdentityContract.LoginCredentials mint(@NonNull String username);
+    }
+
+    /**
+     * Mints the tokens that are about to expire, across all providers.
+     */
+    private static final ThreadPoolExecutor REFRESH_EXECUTOR = new ThreadPoolExecutor(
+            1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+        Thread thread = new Thread(runnable, "OpenCab-Credentials");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        REFRESH_EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, FutureTask<Entry>> minting = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final long defaultMaxAgeMillis;
+    private final long refreshAheadMillis;
+    private final Executor refreshExecutor;
+
+    /**
+     * @param defaultMaxAgeMillis How long credentials whose token has no expiry are kept.
+     * @param refreshAheadMillis  How long before its expiry a token is minted again in the background.
+     */
+    public CredentialCache(long defaultMaxAgeMillis, long refreshAheadMillis) {
+        this(defaultMaxAgeMillis, refreshAheadMillis, REFRESH_EXECUTOR);
+    }
+
+    /**
+     * @param defaultMaxAgeMillis How long credentials whose token has no expiry are kept.
+     * @param refreshAheadMillis  How long before its expiry a token is minted again in the background.
+     * @param refreshExecutor     Mints the tokens that are about to expire.
+     */
+    public CredentialCache(long defaultMaxAgeMillis, long refreshAheadMillis, @NonNull Executor refreshExecutor) {
+        this.defaultMaxAgeMillis = defaultMaxAgeMillis;
+        this.refreshAheadMillis = refreshAheadMillis;
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    private static final class Entry {
+        final IdentityContract.LoginCredentials credentials;
+        final long expiresAt;
+        final long refreshAt;
+
+        Entry(IdentityContract.LoginCredentials credentials, long expiresAt, long refreshAt) {
+            this.credentials = credentials;
+            this.expiresAt = expiresAt;
+            this.refreshAt = refreshAt;
+        }
+    }
+
+    public long getDefaultMaxAgeMillis() {
+        return defaultMaxAgeMillis;
+    }
+
+    public long getRefreshAheadMillis() {
+        return refreshAheadMillis;
+    }
+
+    /**
+     * The credentials of a driver, minted if they are missing or expired.
+     *
+     * @param username The driver.
+     * @param minter   Mints the credentials when needed, on the calling thread or in the background.
+     * @return The credentials, or null if the minter returned null.
+     */
+    @Nullable
+    public IdentityContract.LoginCredentials get(@NonNull String username, @NonNull Minter minter) {
+        return get(username, minter, System.currentTimeMillis());
+    }
+
+    @Nullable
+    IdentityContract.LoginCredentials get(@NonNull String username, @NonNull Minter minter, long nowMillis) {
+        Entry entry = entries.get(username);
+        if (entry == null || entry.expiresAt <= nowMillis) {
+            entry = mint(username, minter, nowMillis, true);
+        } else if (entry.refreshAt <= nowMillis) {
+            mint(username, minter, nowMillis, false);
+        }
+        return entry != null ? entry.credentials : null;
+    }
+
+    /**
+     * Forget the credentials of a driver, so the next call mints them again.
+     *
+     * @param username The driver.
+     */
+    public void invalidate(@NonNull String username) {
+        generation.incrementAndGet();
+        entries.remove(username);
+    }
+
+    /**
+     * Forget the credentials of every driver.
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    /**
+     * Mint the credentials of a driver, unless a mint is already in progress, which is then shared.
+     *
+     * @param wait True to mint on the calling thread, or wait for the mint in progress.  False to mint
+     *             in the background.
+     * @return The new entry when waiting, otherwise null.
+     */
+    @Nullable
+    private Entry mint(@NonNull String username, @NonNull Minter minter, long nowMillis, boolean wait) {
+        long mintGeneration = generation.get();
+        FutureTask<Entry> task = new FutureTask<>(() -> {
+            try {
+                IdentityContract.LoginCredentials credentials = minter.mint(username);
+                if (credentials == null) {
+                    entries.remove(username);
+                    return null;
+                }
+                long expiresAt = getExpiryMillis(credentials.getToken());
+                if (expiresAt <= 0) {
+                    expiresAt = nowMillis + defaultMaxAgeMillis;
+                }
+                Entry entry = new Entry(credentials, expiresAt, expiresAt - refreshAheadMillis);
+                // Credentials minted before an invalidation are returned to the calls waiting for
+                // them, but not kept.
+                if (generation.get() == mintGeneration) {
+                    entries.put(username, entry);
+                }
+                return entry;
+            } finally {
+                minting.remove(username);
+            }
+        });
+        FutureTask<Entry> existing = minting.putIfAbsent(username, task);
+        if (existing != null) {
+            task = existing;
+        } else if (wait) {
+            task.run();
+        } else {
+            try {
+                refreshExecutor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // The cached credentials are still valid, so the next call tries again.
+                minting.remove(username, task);
+            }
+        }
+        if (!wait) {
+            return null;
+        }
+
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * The <code>exp</code> claim of a JWT.
+     *
+     * @param token The token.
+     * @return The expiry in milliseconds since the epoch, or 0 if the token is not a JWT with an expiry.
+     */
+    static long getExpiryMillis(@Nullable String token) {
+        if (token == null) {
+            return 0;
+        }
+        int first = token.indexOf('.');
+        int second = first >= 0 ? token.indexOf('.', first + 1) : -1;
+        if (second < 0) {
+            return 0;
+        }
+        try {
+            byte[] payload = Base64.decode(token.substring(first + 1, second), Base64.URL_SAFE | Base64.NO_WRAP | Base64.NO_PADDING);
+            JsonElement claims = new JsonParser().parse(new String(payload, "UTF-8"));
+            if (!claims.isJsonObject()) {
+                return 0;
+            }
+            JsonObject object = claims.getAsJsonObject();
+            return object.has("exp") ? object.get("exp").getAsLong() * 1000 : 0;
+        } catch (Exception e) {
+            Log.w(LOG_TAG, "Unable to read the expiry of a token", e);
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.opencabstandard.provider;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.Messenger;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Receives the HOS that a provider sends while navigation lasts.  Pass {@link #getBinder()} as
+ * {@link HOSContract}.KEY_HOS_CALLBACK to METHOD_START_NAVIGATION, and again to METHOD_END_NAVIGATION
+ * to stop receiving it.
+ */
+public abstract class HOSCallback {
+    private final Messenger messenger;
+
+    /**
+     * @param looper The looper on which {@link #onHOS(Bundle)} is called.
+     */
+    public HOSCallback(@NonNull Looper looper) {
+        messenger = new Messenger(new Handler(looper, message -> {
+            if (message.what != HOSContract.MESSAGE_HOS) {
+                return false;
+            }
+            Bundle result = message.getData();
+            result.setClassLoader(HOSContract.class.getClassLoader());
+            onHOS(result);
+            return true;
+        }));
+    }
+
+    /**
+     * @return The binder to pass as {@link HOSContract}.KEY_HOS_CALLBACK.
+     */
+    @NonNull
+    public IBinder getBinder() {
+        return messenger.getBinder();
+    }
+
+    /**
+     * Called with each HOS sent by the provider.
+     *
+     * @param result The same keys as the {@link HOSContract}.METHOD_GET_HOS response.
+     */
+    public abstract void onHOS(@NonNull Bundle result);
+}
@@ -7,7 +7,11 @@ import android.os.Parcelable;
 import androidx.annotation.NonNull;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 /**
  * <h2>HOS Contract Provider</h2>
@@ -48,7 +52,7 @@ public final class HOSContract {
      * be passed as an argument to all method calls to the provider. The provider may reject or handle
      * appropriately if the VERSION does not match the expected value when passed to the method calls.
      */
-    public static final String VERSION = "0.4";
+    public static final String VERSION = "0.5";
 
     /**
      * This authority is used for querying the HOS provider.  This should be declared in the manifest
@@ -170,6 +174,9 @@ public final class HOSContract {
      *     {@link HOSStatusV2} status = result.getParelable({@link HOSContract}.KEY_HOS);
      * </code>
      * </pre>
+     *
+     * <p>The value is a {@link HOSStatus} for version 0.2, a {@link HOSStatusV2} for version 0.3, the JSON of
+     * a {@link HOSData} for version 0.4, and a {@link HOSStatusV3} for version 0.5.</p>
      */
     public static final String KEY_HOS = "hos";
 
@@ -179,7 +186,8 @@ public final class HOSContract {
      * {@link HOSContract}.KEY_ERROR.
      *
      * <p>This property will contain an array of {@link HOSStatusV2} parceled objects, each representing the HOS
-     * status and clocks for a different driver.</p>
+     * status and clocks for a different driver.  For version 0.4 it contains the JSON of a {@link HOSTeamData},
+     * and for version 0.5 an array of {@link HOSStatusV3}.</p>
      *
      * <p>
      * Example:
@@ -214,6 +222,22 @@ public final class HOSContract {
      */
     public static final String KEY_ERROR = "error";
 
+    /**
+     * When a consumer calls a method of the provider more often than the provider allows, the returned
+     * {@link android.os.Bundle} contains this key, mapped to a long with the number of milliseconds after which
+     * the consumer may call the method again.  The Bundle also contains either KEY_ERROR or a previous
+     * result of the method.
+     *
+     * <p>
+     * Example:
+     * <pre>
+     * <code class="language-java">
+     *     long retryAfterMillis = result.getLong({@link HOSContract}.KEY_RETRY_AFTER_MILLIS, 0);
+     * </code>
+     * </pre>
+     */
+    public static final String KEY_RETRY_AFTER_MILLIS = "retry_after_millis";
+
     /**
      * For the methods {@link HOSContract}.METHOD_START_NAVIGATION and {@link HOSContract}.METHOD_END_NAVIGATION,
      * the returned {@link android.os.Bundle} object will contain this key which maps to a Boolean indicating
@@ -233,6 +257,56 @@ public final class HOSContract {
      */
     public static final String KEY_NAVIGATION_RESULT = "navigation_result";
 
+    /**
+     * For the methods {@link HOSContract}.METHOD_START_NAVIGATION and {@link HOSContract}.METHOD_END_NAVIGATION,
+     * maps to the {@link android.os.IBinder} of a {@link android.os.Messenger}, passed with
+     * {@link Bundle#putBinder}.  While navigation lasts, the provider sends the HOS to it in messages whose
+     * what is {@link HOSContract}.MESSAGE_HOS, and whose data holds the same keys as the
+     * {@link HOSContract}.METHOD_GET_HOS response for the version passed to METHOD_START_NAVIGATION.
+     * The HOS is sent at most every {@link HOSContract}.KEY_HOS_CALLBACK_INTERVAL_MILLIS, and only when it
+     * changed.  Passing the same binder to METHOD_END_NAVIGATION, or the consumer process dying, stops
+     * the messages.  {@link HOSCallback} implements the receiving side.
+     *
+     * <p>
+     * Example:
+     * <pre>
+     * <code class="language-java">
+     *     {@link HOSCallback} callback = new {@link HOSCallback}(Looper.getMainLooper()) {
+     *         public void onHOS({@link Bundle} result) {
+     *             String hos = result.getString({@link HOSContract}.KEY_HOS);
+     *         }
+     *     };
+     *     {@link Bundle} extras = new {@link Bundle}();
+     *     extras.putBinder({@link HOSContract}.KEY_HOS_CALLBACK, callback.getBinder());
+     *     {@link Bundle} result = provider.call(Uri.parse("content://" + {@link HOSContract}.AUTHORITY),
+     *                                  {@link HOSContract}.METHOD_START_NAVIGATION,
+     *                                  {@link HOSContract}.VERSION,
+     *                                  extras);
+     *     boolean registered = result.getBoolean({@link HOSContract}.KEY_HOS_CALLBACK_REGISTERED);
+     * </code>
+     * </pre>
+     */
+    public static final String KEY_HOS_CALLBACK = "hos_callback";
+
+    /**
+     * For the method {@link HOSContract}.METHOD_START_NAVIGATION, maps to a long with the shortest time
+     * in milliseconds between two messages sent to {@link HOSContract}.KEY_HOS_CALLBACK.  Providers use
+     * 5 seconds when it is missing, and do not send more often than every second.
+     */
+    public static final String KEY_HOS_CALLBACK_INTERVAL_MILLIS = "hos_callback_interval_millis";
+
+    /**
+     * For the method {@link HOSContract}.METHOD_START_NAVIGATION, the returned {@link android.os.Bundle}
+     * contains this key which maps to a Boolean indicating whether the provider will send the HOS to
+     * {@link HOSContract}.KEY_HOS_CALLBACK.  Providers that do not support callbacks do not return it.
+     */
+    public static final String KEY_HOS_CALLBACK_REGISTERED = "hos_callback_registered";
+
+    /**
+     * The what of the {@link android.os.Message} sent to {@link HOSContract}.KEY_HOS_CALLBACK with the HOS.
+     */
+    public static final int MESSAGE_HOS = 1;
+
     /**
      * For the methods {@link HOSContract}.METHOD_GET_HOS,
      * the returned {@link android.os.Bundle} object will contain this key which maps to String indicating
@@ -253,6 +327,301 @@ public final class HOSContract {
      */
     public static final String KEY_VERSION = "key_version";
 
+    /**
+     * For the method {@link HOSContract}.METHOD_GET_HOS, the consumer can pass this key in the extras
+     * {@link android.os.Bundle}, mapped to a long, to limit how many milliseconds the provider may spend
+     * computing the HOS.  A provider that cannot compute the HOS in time returns its last successful
+     * response together with {@link HOSContract}.KEY_STALE_MILLIS, or KEY_ERROR if it has none.
+     *
+     * <p>
+     * Example:
+     * <pre>
+     * <code class="language-java">
+     *     {@link Bundle} extras = new Bundle();
+     *     extras.putLong({@link HOSContract}.KEY_TIMEOUT_MILLIS, 2000);
+     *     {@link Bundle} result = resolver.call(Uri.parse("content://" + {@link HOSContract}.AUTHORITY),
+     *                                  {@link HOSContract}.METHOD_GET_HOS,
+     *                                  {@link HOSContract}.VERSION,
+     *                                  extras);
+     * </code>
+     * </pre>
+     */
+    public static final String KEY_TIMEOUT_MILLIS = "timeout_millis";
+
+    /**
+     * For the method {@link HOSContract}.METHOD_GET_HOS, the returned {@link android.os.Bundle} contains
+     * this key when the provider could not compute the current HOS in time and returned its last
+     * successful response instead.  It maps to a long with the age of that response in milliseconds.
+     *
+     * <p>
+     * Example:
+     * <pre>
+     * <code class="language-java">
+     *     long staleMillis = result.getLong({@link HOSContract}.KEY_STALE_MILLIS, 0);
+     * </code>
+     * </pre>
+     */
+    public static final String KEY_STALE_MILLIS = "stale_millis";
+
+    /**
+     * For the method {@link HOSContract}.METHOD_GET_HOS, the returned {@link android.os.Bundle} contains
+     * this key when the HOS of one or more team drivers could not be computed.  It maps to an
+     * {@link java.util.ArrayList} of String with one entry per team driver, in the same order as
+     * {@link HOSContract}.KEY_TEAM_HOS.  The entry is null for drivers whose HOS was returned, and an
+     * error message for drivers whose entry in KEY_TEAM_HOS is empty.
+     *
+     * <p>
+     * Example:
+     * <pre>
+     * <code class="language-java">
+     *     {@link java.util.ArrayList}&lt;String&gt; errors = result.getStringArrayList({@link HOSContract}.KEY_TEAM_HOS_ERRORS);
+     * </code>
+     * </pre>
+     */
+    public static final String KEY_TEAM_HOS_ERRORS = "hos_team_errors";
+
+    /**
+     * Provider method name for retrieving only the HOS clocks that changed since a previous call.  The
+     * consumer passes the {@link HOSContract}.KEY_SEQUENCE it received last in the extras
+     * {@link android.os.Bundle}.  The returned Bundle contains the new KEY_SEQUENCE and either
+     * {@link HOSContract}.KEY_HOS_DELTA, a JSON {@link HOSDelta}, or, when the provider no longer has the
+     * consumer's sequence or none was passed, the full KEY_HOS and KEY_TEAM_HOS of version 0.4.
+     * Requires version 0.4.
+     *
+     * <p>
+     * Example:
+     * <pre>
+     * <code class="language-java">
+     *     {@link Bundle} extras = new Bundle();
+     *     extras.putLong({@link HOSContract}.KEY_SEQUENCE, lastSequence);
+     *     {@link Bundle} result = resolver.call(Uri.parse("content://" + {@link HOSContract}.AUTHORITY),
+     *                                  {@link HOSContract}.METHOD_GET_HOS_DELTA,
+     *                                  {@link HOSContract}.VERSION,
+     *                                  extras);
+     *     lastSequence = result.getLong({@link HOSContract}.KEY_SEQUENCE);
+     *     if (result.containsKey({@link HOSContract}.KEY_HOS_DELTA)) {
+     *         {@link HOSDelta} delta = {@link HOSJsonCodec}.getInstance().parseHOSDelta(result.getString({@link HOSContract}.KEY_HOS_DELTA));
+     *         drivers = delta.applyTo(drivers);
+     *     }
+     * </code>
+     * </pre>
+     */
+    public static final String METHOD_GET_HOS_DELTA = "getHOSDelta";
+
+    /**
+     * For the method {@link HOSContract}.METHOD_GET_HOS_DELTA, maps to a long identifying the HOS state.
+     * The consumer passes the last one it received in the extras, and the provider returns the current one.
+     */
+    public static final String KEY_SEQUENCE = "sequence";
+
+    /**
+     * For the method {@link HOSContract}.METHOD_GET_HOS_DELTA, maps to the JSON of an {@link HOSDelta}
+     * describing the changes since the sequence passed by the consumer.
+     */
+    public static final String KEY_HOS_DELTA = "hos_delta";
+
+    /**
+     * Provider method name for making several calls to the provider in a single
+     * {@link android.content.ContentResolver#call}.  The extras {@link android.os.Bundle} contains
+     * {@link HOSContract}.KEY_BATCH_CALLS, and the returned Bundle contains {@link HOSContract}.KEY_BATCH_RESULTS
+     * with the result of each call, in the same order.  A call that fails returns a Bundle with KEY_ERROR
+     * without affecting the other calls.  Set the class loader of each result before reading Parcelable
+     * values from it.
+     *
+     * <p>
+     * Example:
+     * <pre>
+     * <code class="language-java">
+     *     {@link Bundle} call = new Bundle();
+     *     call.putString({@link HOSContract}.KEY_BATCH_METHOD, {@link HOSContract}.METHOD_GET_HOS);
+     *     call.putString({@link HOSContract}.KEY_BATCH_VERSION, {@link HOSContract}.VERSION);
+     *     {@link java.util.ArrayList}&lt;{@link Bundle}&gt; calls = new ArrayList&lt;&gt;();
+     *     calls.add(call);
+     *     {@link Bundle} extras = new Bundle();
+     *     extras.putParcelableArrayList({@link HOSContract}.KEY_BATCH_CALLS, calls);
+     *     {@link Bundle} result = resolver.call(Uri.parse("content://" + {@link HOSContract}.AUTHORITY),
+     *                                  {@link HOSContract}.METHOD_BATCH,
+     *                                  {@link HOSContract}.VERSION,
+     *                                  extras);
+     *     {@link java.util.ArrayList}&lt;{@link Bundle}&gt; results = result.getParcelableArrayList({@link HOSContract}.KEY_BATCH_RESULTS);
+     * </code>
+     * </pre>
+     */
+    public static final String METHOD_BATCH = "batch";
+
+    /**
+     * For the method {@link HOSContract}.METHOD_BATCH, maps to an {@link java.util.ArrayList} of
+     * {@link android.os.Bundle}, one per call, each with {@link HOSContract}.KEY_BATCH_METHOD and optionally
+     * {@link HOSContract}.KEY_BATCH_VERSION and {@link HOSContract}.KEY_BATCH_EXTRAS.
+     */
+    public static final String KEY_BATCH_CALLS = "batch_calls";
+
+    /**
+     * For a call in {@link HOSContract}.KEY_BATCH_CALLS, maps to the method name.
+     */
+    public static final String KEY_BATCH_METHOD = "batch_method";
+
+    /**
+     * For a call in {@link HOSContract}.KEY_BATCH_CALLS, maps to the version passed to the method.
+     */
+    public static final String KEY_BATCH_VERSION = "batch_version";
+
+    /**
+     * For a call in {@link HOSContract}.KEY_BATCH_CALLS, maps to the extras {@link android.os.Bundle} passed to the method.
+     */
+    public static final String KEY_BATCH_EXTRAS = "batch_extras";
+
+    /**
+     * For the method {@link HOSContract}.METHOD_BATCH, maps to an {@link java.util.ArrayList} of
+     * {@link android.os.Bundle} with the result of each call in {@link HOSContract}.KEY_BATCH_CALLS, in the same order.
+     */
+    public static final String KEY_BATCH_RESULTS = "batch_results";
+
+    /**
+     * The consumer can pass this key in the extras {@link android.os.Bundle} of any method, mapped to an
+     * int, to accept results split into chunks of at most that many bytes.  When the result is larger,
+     * the returned Bundle only contains the first {@link HOSContract}.KEY_CHUNK, {@link HOSContract}.KEY_CHUNK_TOKEN
+     * and {@link HOSContract}.KEY_CHUNK_COUNT, and the consumer fetches the remaining chunks with
+     * {@link HOSContract}.METHOD_GET_CHUNK.  {@link ChunkedResults#join} does this and returns the full result.
+     *
+     * <p>
+     * Example:
+     * <pre>
+     * <code class="language-java">
+     *     {@link Bundle} extras = new Bundle();
+     *     extras.putInt({@link HOSContract}.KEY_MAX_CHUNK_BYTES, 64 * 1024);
+     *     {@link Bundle} result = ChunkedResults.join(resolver, uri,
+     *             resolver.call(uri, {@link HOSContract}.METHOD_GET_HOS, {@link HOSContract}.VERSION, extras));
+     * </code>
+     * </pre>
+     */
+    public static final String KEY_MAX_CHUNK_BYTES = "max_chunk_bytes";
+
+    /**
+     * Provider method name for retrieving the remaining chunks of a result.  The extras
+     * {@link android.os.Bundle} contains {@link HOSContract}.KEY_CHUNK_TOKEN and {@link HOSContract}.KEY_CHUNK_INDEX,
+     * and the returned Bundle contains {@link HOSContract}.KEY_CHUNK, or KEY_ERROR if the token expired.
+     */
+    public static final String METHOD_GET_CHUNK = "getChunk";
+
+    /**
+     * Maps to a byte array with one chunk of a result.  Joined in order, the chunks are a
+     * {@link android.os.Parcel} holding the result {@link android.os.Bundle}.
+     */
+    public static final String KEY_CHUNK = "chunk";
+
+    /**
+     * Maps to a String identifying a result split into chunks.
+     */
+    public static final String KEY_CHUNK_TOKEN = "chunk_token";
+
+    /**
+     * Maps to an int with the number of chunks of a result.
+     */
+    public static final String KEY_CHUNK_COUNT = "chunk_count";
+
+    /**
+     * For the method {@link HOSContract}.METHOD_GET_CHUNK, maps to the int index of the chunk to return,
+     * starting at 1 for the chunk after the one returned by the original call.
+     */
+    public static final String KEY_CHUNK_INDEX = "chunk_index";
+
+    /**
+     * Provider method name for the metrics of the calls made to the provider, per method, negotiated
+     * version and calling package.  The returned {@link android.os.Bundle} contains {@link HOSContract}.KEY_METRICS.
+     * Consumers only receive the metrics of their own calls.
+     */
+    public static final String METHOD_GET_METRICS = "getMetrics";
+
+    /**
+     * For the method {@link HOSContract}.METHOD_GET_METRICS, maps to an {@link java.util.ArrayList} of
+     * {@link android.os.Bundle}, one per method, version and calling package, with the keys defined in
+     * {@link ProviderMetrics}.
+     */
+    public static final String KEY_METRICS = "metrics";
+
+    /**
+     * The path of the content URIs <code>content://AUTHORITY/drivers/USERNAME</code>.  The provider
+     * calls {@link android.content.ContentResolver#notifyChange} for the URI of a driver when the HOS of
+     * that driver changes, or for <code>content://AUTHORITY/drivers</code> when it cannot tell which
+     * driver changed.  Consumers can register a {@link android.database.ContentObserver} and only call
+     * {@link HOSContract}.METHOD_GET_HOS again when it fires, instead of polling.
+     *
+     * <p>
+     * Example:
+     * <pre>
+     * <code class="language-java">
+     *     // Observe every driver.
+     *     resolver.registerContentObserver(Uri.parse("content://" + authority + "/" + {@link HOSContract}.PATH_DRIVERS),
+     *             true, observer);
+     *     // Observe a single driver.
+     *     resolver.registerContentObserver(Uri.parse("content://" + authority + "/" + {@link HOSContract}.PATH_DRIVERS)
+     *             .buildUpon().appendPath(username).build(), false, observer);
+     * </code>
+     * </pre>
+     */
+    public static final String PATH_DRIVERS = "drivers";
+
+    /**
+     * The path of the content URI <code>content://AUTHORITY/clocks</code>, for
+     * querying the clocks of every driver, one row per clock
+     * with {@link android.content.ContentResolver#query}.  The projection can name any of the
+     * {@link HOSContract}.COLUMN_ constants below.  The selection supports equality terms joined by AND, with
+     * <code>?</code>, number or single-quoted string values.  Boolean columns hold 0 or 1.
+     * The provider notifies this URI whenever it notifies {@link HOSContract}.PATH_DRIVERS.
+     *
+     * <p>
+     * Example:
+     * <pre>
+     * <code class="language-java">
+     *     {@link android.database.Cursor} cursor = resolver.query(Uri.parse("content://" + authority + "/" + {@link HOSContract}.PATH_CLOCKS),
+     *             new String[]{{@link HOSContract}.COLUMN_LABEL, {@link HOSContract}.COLUMN_VALUE},
+     *             "username = ? AND important = 1", new String[]{username}, null);
+     * </code>
+     * </pre>
+     */
+    public static final String PATH_CLOCKS = "clocks";
+
+    /**
+     * The position of the driver: 0 for the driver of KEY_HOS, or i for entry i - 1 of KEY_TEAM_HOS.
+     */
+    public static final String COLUMN_DRIVER_INDEX = "driver_index";
+
+    /**
+     * The username of the driver.
+     */
+    public static final String COLUMN_USERNAME = "username";
+
+    /**
+     * The label of the clock.
+     */
+    public static final String COLUMN_LABEL = "label";
+
+    /**
+     * The value of the clock.
+     */
+    public static final String COLUMN_VALUE = "value";
+
+    /**
+     * The name of the {@link ClockData.ValueType} of the clock, for example "COUNTDOWN".
+     */
+    public static final String COLUMN_VALUE_TYPE = "value_type";
+
+    /**
+     * Is the clock the most important one, 0 or 1.
+     */
+    public static final String COLUMN_IMPORTANT = "important";
+
+    /**
+     * Does the clock limit the driving range, 0 or 1.
+     */
+    public static final String COLUMN_LIMITS_DRIVING_RANGE = "limits_driving_range";
+
+    /**
+     * The duration in seconds of the clock, which may be null.
+     */
+    public static final String COLUMN_DURATION_SECONDS = "duration_seconds";
+
     public HOSContract() {
 
     }
@@ -445,6 +814,82 @@ public final class HOSContract {
         };
     }
 
+    /**
+     * Object representing the HOS status for version 0.5.  It holds the same data as version 0.4, and is
+     * a {@link HOSStatusV2} with the username of the driver, so consumers can read it like version 0.3.
+     * It is written to the {@link Parcel} in a compact encoding: each clock is a single int with its
+     * value type and flags, its label and value, and its duration only when it is set.  This is smaller
+     * and faster to read than the version 0.3 encoding, which writes the value type by name and the
+     * optional values with type tags.
+     */
+    public static class HOSStatusV3 extends HOSStatusV2 {
+        private String username;
+
+        public HOSStatusV3() {
+
+        }
+
+        /**
+         * The username of the driver.
+         *
+         * @param username The username.
+         */
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        /**
+         * The username of the driver.
+         *
+         * @return The username.
+         */
+        public String getUsername() {
+            return username;
+        }
+
+        protected HOSStatusV3(Parcel in) {
+            int size = in.readInt();
+            if (size >= 0) {
+                ArrayList<ClockV2> clocks = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    clocks.add(ClockV2.readCompact(in));
+                }
+                setClocks(clocks);
+            }
+            setManageAction(in.readString());
+            setLogoutAction(in.readString());
+            username = in.readString();
+        }
+
+        @Override
+        public void writeToParcel(Parcel dest, int flags) {
+            List<ClockV2> clocks = getClocks();
+            if (clocks != null) {
+                dest.writeInt(clocks.size());
+                for (int i = 0; i < clocks.size(); i++) {
+                    ClockV2.writeCompact(dest, clocks.get(i));
+                }
+            } else {
+                dest.writeInt(-1);
+            }
+            dest.writeString(getManageAction());
+            dest.writeString(getLogoutAction());
+            dest.writeString(username);
+        }
+
+        public static final Creator<HOSStatusV3> CREATOR = new Creator<HOSStatusV3>() {
+            @Override
+            public HOSStatusV3 createFromParcel(Parcel in) {
+                return new HOSStatusV3(in);
+            }
+
+            @Override
+            public HOSStatusV3[] newArray(int size) {
+                return new HOSStatusV3[size];
+            }
+        };
+    }
+
     /**
      * Object representing an HOS clock for version 0.2.  A clock contains a descriptive label and the value.  The
      * value can be one of the types defined in the {@link ValueType} enum.
@@ -665,6 +1110,7 @@ public final class HOSContract {
         private boolean important;
         private boolean limitsDrivingRange;
         private Double durationSeconds;
+        private transient boolean immutable;
 
         /**
          * Allowed types for valueType field.
@@ -725,6 +1171,7 @@ public final class HOSContract {
          * @param label The clock label.
          */
         public void setLabel(String label) {
+            checkMutable(immutable, this);
             this.label = label;
         }
 
@@ -734,6 +1181,7 @@ public final class HOSContract {
          * @param value The clock value.
          */
         public void setValue(String value) {
+            checkMutable(immutable, this);
             this.value = value;
         }
 
@@ -743,6 +1191,7 @@ public final class HOSContract {
          * @param valueType The valueType for the clock.
          */
         public void setValueType(ValueType valueType) {
+            checkMutable(immutable, this);
             this.valueType = valueType;
         }
 
@@ -754,6 +1203,7 @@ public final class HOSContract {
          * @param important Flag indicating which is the most important clock in the list.
          */
         public void setImportant(boolean important) {
+            checkMutable(immutable, this);
             this.important = important;
         }
 
@@ -765,6 +1215,7 @@ public final class HOSContract {
          * @param limitsDrivingRange Flag indicating which clock limits the driving range.
          */
         public void setLimitsDrivingRange(boolean limitsDrivingRange) {
+            checkMutable(immutable, this);
             this.limitsDrivingRange = limitsDrivingRange;
         }
 
@@ -828,6 +1279,7 @@ public final class HOSContract {
          * @param durationSeconds The duration seconds for the clock.
          */
         public void setDurationSeconds(Double durationSeconds) {
+            checkMutable(immutable, this);
             this.durationSeconds = durationSeconds;
         }
 
@@ -864,6 +1316,146 @@ public final class HOSContract {
                 return new ClockV2[size];
             }
         };
+
+        // The compact encoding used by HOSStatusV3.  The value type is stored as its ordinal plus one in
+        // the bits above the flags, so new value types must only be added at the end of the enum.
+        private static final int FLAG_NULL = 1;
+        private static final int FLAG_IMPORTANT = 1 << 1;
+        private static final int FLAG_LIMITS_DRIVING_RANGE = 1 << 2;
+        private static final int FLAG_DURATION_SECONDS_SET = 1 << 3;
+        private static final int VALUE_TYPE_SHIFT = 8;
+        private static final ValueType[] VALUE_TYPES = ValueType.values();
+
+        /**
+         * Write a clock in the compact encoding of version 0.5: a single int with the value type and
+         * the booleans, the strings, and the duration only when it is set.
+         */
+        static void writeCompact(Parcel dest, ClockV2 clock) {
+            if (clock == null) {
+                dest.writeInt(FLAG_NULL);
+                return;
+            }
+            int flags = clock.valueType != null ? (clock.valueType.ordinal() + 1) << VALUE_TYPE_SHIFT : 0;
+            if (clock.important) {
+                flags |= FLAG_IMPORTANT;
+            }
+            if (clock.limitsDrivingRange) {
+                flags |= FLAG_LIMITS_DRIVING_RANGE;
+            }
+            if (clock.durationSeconds != null) {
+                flags |= FLAG_DURATION_SECONDS_SET;
+            }
+            dest.writeInt(flags);
+            dest.writeString(clock.label);
+            dest.writeString(clock.value);
+            if (clock.durationSeconds != null) {
+                dest.writeDouble(clock.durationSeconds);
+            }
+        }
+
+        /**
+         * Read a clock written by {@link #writeCompact(Parcel, ClockV2)}.  A value type unknown to this
+         * version of the library is read as null.
+         */
+        static ClockV2 readCompact(Parcel in) {
+            int flags = in.readInt();
+            if ((flags & FLAG_NULL) != 0) {
+                return null;
+            }
+            ClockV2 clock = new ClockV2();
+            int valueType = (flags >>> VALUE_TYPE_SHIFT) - 1;
+            clock.valueType = valueType >= 0 && valueType < VALUE_TYPES.length ? VALUE_TYPES[valueType] : null;
+            clock.important = (flags & FLAG_IMPORTANT) != 0;
+            clock.limitsDrivingRange = (flags & FLAG_LIMITS_DRIVING_RANGE) != 0;
+            clock.label = in.readString();
+            clock.value = in.readString();
+            if ((flags & FLAG_DURATION_SECONDS_SET) != 0) {
+                clock.durationSeconds = in.readDouble();
+            }
+            return clock;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ClockV2 clock = (ClockV2) o;
+            return important == clock.important
+                    && limitsDrivingRange == clock.limitsDrivingRange
+                    && Objects.equals(label, clock.label)
+                    && Objects.equals(value, clock.value)
+                    && valueType == clock.valueType
+                    && Objects.equals(durationSeconds, clock.durationSeconds);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(label, value, valueType, important, limitsDrivingRange, durationSeconds);
+        }
+
+        /**
+         * Builds a {@link ClockV2} that cannot be modified, so the same instance can be returned in
+         * every HOS response and for every team driver in which the clock does not change.  The setters
+         * of a built clock throw {@link IllegalStateException}.
+         */
+        public static final class Builder {
+            private String label;
+            private String value;
+            private ValueType valueType;
+            private boolean important;
+            private boolean limitsDrivingRange;
+            private Double durationSeconds;
+
+            public Builder setLabel(String label) {
+                this.label = label;
+                return this;
+            }
+
+            public Builder setValue(String value) {
+                this.value = value;
+                return this;
+            }
+
+            public Builder setValueType(ValueType valueType) {
+                this.valueType = valueType;
+                return this;
+            }
+
+            public Builder setImportant(boolean important) {
+                this.important = important;
+                return this;
+            }
+
+            public Builder setLimitsDrivingRange(boolean limitsDrivingRange) {
+                this.limitsDrivingRange = limitsDrivingRange;
+                return this;
+            }
+
+            /**
+             * @param durationSeconds The duration seconds for the clock, or null if it has none.
+             */
+            public Builder setDurationSeconds(Double durationSeconds) {
+                this.durationSeconds = durationSeconds;
+                return this;
+            }
+
+            @NonNull
+            public ClockV2 build() {
+                ClockV2 clock = new ClockV2();
+                clock.label = label;
+                clock.value = value;
+                clock.valueType = valueType;
+                clock.important = important;
+                clock.limitsDrivingRange = limitsDrivingRange;
+                clock.durationSeconds = durationSeconds;
+                clock.immutable = true;
+                return clock;
+            }
+        }
     }
 
     /**
@@ -898,6 +1490,7 @@ public final class HOSContract {
         private String manageAction;
         private String logoutAction;
         private String username;
+        private transient boolean immutable;
 
         public HOSData() {
 
@@ -918,6 +1511,7 @@ public final class HOSContract {
          * @param clocks The HOS clocks
          */
         public void setClocks(List<ClockData> clocks) {
+            checkMutable(immutable, this);
             this.clocks = clocks;
         }
 
@@ -940,6 +1534,7 @@ public final class HOSContract {
          * @param manageAction The URI string
          */
         public void setManageAction(String manageAction) {
+            checkMutable(immutable, this);
             this.manageAction = manageAction;
         }
 
@@ -962,6 +1557,7 @@ public final class HOSContract {
          * @param logoutAction The URI string
          */
         public void setLogoutAction(String logoutAction) {
+            checkMutable(immutable, this);
             this.logoutAction = logoutAction;
         }
 
@@ -970,8 +1566,71 @@ public final class HOSContract {
         }
 
         public void setUsername(String username) {
+            checkMutable(immutable, this);
             this.username = username;
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            HOSData hosData = (HOSData) o;
+            return Objects.equals(clocks, hosData.clocks)
+                    && Objects.equals(manageAction, hosData.manageAction)
+                    && Objects.equals(logoutAction, hosData.logoutAction)
+                    && Objects.equals(username, hosData.username);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(clocks, manageAction, logoutAction, username);
+        }
+
+        /**
+         * Builds an {@link HOSData} that cannot be modified.  Its clocks are copied into a list that cannot
+         * be modified either, and the setters of a built instance throw {@link IllegalStateException}.
+         */
+        public static final class Builder {
+            private List<ClockData> clocks;
+            private String manageAction;
+            private String logoutAction;
+            private String username;
+
+            public Builder setClocks(List<ClockData> clocks) {
+                this.clocks = clocks;
+                return this;
+            }
+
+            public Builder setManageAction(String manageAction) {
+                this.manageAction = manageAction;
+                return this;
+            }
+
+            public Builder setLogoutAction(String logoutAction) {
+                this.logoutAction = logoutAction;
+                return this;
+            }
+
+            public Builder setUsername(String username) {
+                this.username = username;
+                return this;
+            }
+
+            @NonNull
+            public HOSData build() {
+                HOSData hosData = new HOSData();
+                hosData.clocks = clocks != null ? Collections.unmodifiableList(new ArrayList<>(clocks)) : null;
+                hosData.manageAction = manageAction;
+                hosData.logoutAction = logoutAction;
+                hosData.username = username;
+                hosData.immutable = true;
+                return hosData;
+            }
+        }
     }
 
     /**
@@ -994,6 +1653,7 @@ public final class HOSContract {
         private boolean important;
         private boolean limitsDrivingRange;
         private Double durationSeconds;
+        private transient boolean immutable;
 
         /**
          * Allowed types for valueType field.
@@ -1052,6 +1712,7 @@ public final class HOSContract {
          * @param label The clock label.
          */
         public void setLabel(String label) {
+            checkMutable(immutable, this);
             this.label = label;
         }
 
@@ -1061,6 +1722,7 @@ public final class HOSContract {
          * @param value The clock value.
          */
         public void setValue(String value) {
+            checkMutable(immutable, this);
             this.value = value;
         }
 
@@ -1070,6 +1732,7 @@ public final class HOSContract {
          * @param valueType The valueType for the clock.
          */
         public void setValueType(ClockData.ValueType valueType) {
+            checkMutable(immutable, this);
             this.valueType = valueType;
         }
 
@@ -1081,6 +1744,7 @@ public final class HOSContract {
          * @param important Flag indicating which is the most important clock in the list.
          */
         public void setImportant(boolean important) {
+            checkMutable(immutable, this);
             this.important = important;
         }
 
@@ -1092,6 +1756,7 @@ public final class HOSContract {
          * @param limitsDrivingRange Flag indicating which clock limits the driving range.
          */
         public void setLimitsDrivingRange(boolean limitsDrivingRange) {
+            checkMutable(immutable, this);
             this.limitsDrivingRange = limitsDrivingRange;
         }
 
@@ -1155,7 +1820,499 @@ public final class HOSContract {
          * @param durationSeconds The duration seconds for the clock.
          */
         public void setDurationSeconds(Double durationSeconds) {
+            checkMutable(immutable, this);
             this.durationSeconds = durationSeconds;
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ClockData clock = (ClockData) o;
+            return important == clock.important
+                    && limitsDrivingRange == clock.limitsDrivingRange
+                    && Objects.equals(label, clock.label)
+                    && Objects.equals(value, clock.value)
+                    && valueType == clock.valueType
+                    && Objects.equals(durationSeconds, clock.durationSeconds);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(label, value, valueType, important, limitsDrivingRange, durationSeconds);
+        }
+
+        /**
+         * Builds a {@link ClockData} that cannot be modified, so the same instance can be returned in
+         * every HOS snapshot and for every team driver in which the clock does not change.  The setters
+         * of a built clock throw {@link IllegalStateException}.
+         */
+        public static final class Builder {
+            private String label;
+            private String value;
+            private ClockData.ValueType valueType;
+            private boolean important;
+            private boolean limitsDrivingRange;
+            private Double durationSeconds;
+
+            public Builder setLabel(String label) {
+                this.label = label;
+                return this;
+            }
+
+            public Builder setValue(String value) {
+                this.value = value;
+                return this;
+            }
+
+            public Builder setValueType(ClockData.ValueType valueType) {
+                this.valueType = valueType;
+                return this;
+            }
+
+            public Builder setImportant(boolean important) {
+                this.important = important;
+                return this;
+            }
+
+            public Builder setLimitsDrivingRange(boolean limitsDrivingRange) {
+                this.limitsDrivingRange = limitsDrivingRange;
+                return this;
+            }
+
+            /**
+             * @param durationSeconds The duration seconds for the clock, or null if it has none.
+             */
+            public Builder setDurationSeconds(Double durationSeconds) {
+                this.durationSeconds = durationSeconds;
+                return this;
+            }
+
+            @NonNull
+            public ClockData build() {
+                ClockData clock = new ClockData();
+                clock.label = label;
+                clock.value = value;
+                clock.valueType = valueType;
+                clock.important = important;
+                clock.limitsDrivingRange = limitsDrivingRange;
+                clock.durationSeconds = durationSeconds;
+                clock.immutable = true;
+                return clock;
+            }
+        }
+    }
+
+    /**
+     * The changes to the HOS of the primary driver and the team drivers between two sequence numbers,
+     * returned by {@link HOSContract}.METHOD_GET_HOS_DELTA.  Drivers are identified by their position:
+     * index 0 is the driver of KEY_HOS and index i is entry i - 1 of KEY_TEAM_HOS.  Only drivers that
+     * changed are included.
+     */
+    public static class HOSDelta {
+        private long fromSequence;
+        private long sequence;
+        private List<DriverDelta> drivers;
+
+        /**
+         * The sequence number the changes apply to.
+         *
+         * @return The previous sequence number.
+         */
+        public long getFromSequence() {
+            return fromSequence;
+        }
+
+        /**
+         * The sequence number the changes apply to.
+         *
+         * @param fromSequence The previous sequence number.
+         */
+        public void setFromSequence(long fromSequence) {
+            this.fromSequence = fromSequence;
+        }
+
+        /**
+         * The sequence number of the HOS after the changes are applied.
+         *
+         * @return The current sequence number.
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * The sequence number of the HOS after the changes are applied.
+         *
+         * @param sequence The current sequence number.
+         */
+        public void setSequence(long sequence) {
+            this.sequence = sequence;
+        }
+
+        /**
+         * The drivers that changed.
+         *
+         * @return The changed drivers.
+         */
+        public List<DriverDelta> getDrivers() {
+            return drivers;
+        }
+
+        /**
+         * The drivers that changed.
+         *
+         * @param drivers The changed drivers.
+         */
+        public void setDrivers(List<DriverDelta> drivers) {
+            this.drivers = drivers;
+        }
+
+        /**
+         * Compute the changes between two states of the HOS.
+         *
+         * @param fromSequence The sequence number of the previous state.
+         * @param from         The previous HOS, with the primary driver first followed by the team drivers.
+         * @param sequence     The sequence number of the current state.
+         * @param to           The current HOS, with the primary driver first followed by the team drivers.
+         * @return The changes.
+         */
+        @NonNull
+        public static HOSDelta between(long fromSequence, @NonNull List<HOSData> from, long sequence, @NonNull List<HOSData> to) {
+            ArrayList<DriverDelta> drivers = new ArrayList<>();
+            for (int i = 0; i < Math.max(from.size(), to.size()); i++) {
+                DriverDelta driver = DriverDelta.between(i, i < from.size() ? from.get(i) : null, i < to.size() ? to.get(i) : null);
+                if (driver != null) {
+                    drivers.add(driver);
+                }
+            }
+            HOSDelta delta = new HOSDelta();
+            delta.setFromSequence(fromSequence);
+            delta.setSequence(sequence);
+            delta.setDrivers(drivers);
+            return delta;
+        }
+
+        /**
+         * Apply the changes to the HOS received for {@link #getFromSequence()}.  The drivers passed in
+         * are not modified.
+         *
+         * @param from The previous HOS, with the primary driver first followed by the team drivers.
+         * @return The current HOS, with the primary driver first followed by the team drivers.
+         */
+        @NonNull
+        public ArrayList<HOSData> applyTo(@NonNull List<HOSData> from) {
+            ArrayList<HOSData> to = new ArrayList<>(from);
+            if (drivers != null) {
+                for (DriverDelta driver : drivers) {
+                    while (to.size() <= driver.getIndex()) {
+                        to.add(null);
+                    }
+                    to.set(driver.getIndex(), driver.applyTo(to.get(driver.getIndex())));
+                }
+            }
+            while (!to.isEmpty() && to.get(to.size() - 1) == null) {
+                to.remove(to.size() - 1);
+            }
+            return to;
+        }
+    }
+
+    /**
+     * The changes to the HOS of one driver within an {@link HOSDelta}.  Clocks are identified by their
+     * label.  When {@link #isComplete()} is set, {@link #getClocks()} holds every clock of the driver;
+     * otherwise it holds the clocks that were added or changed, and {@link #getRemovedClocks()} the labels
+     * of the clocks that were removed.  Added clocks go after the existing ones.
+     */
+    public static class DriverDelta {
+        private int index;
+        private boolean removed;
+        private boolean complete;
+        private String username;
+        private String manageAction;
+        private String logoutAction;
+        private List<ClockData> clocks;
+        private List<String> removedClocks;
+
+        /**
+         * The position of the driver: 0 for the driver of KEY_HOS, or i for entry i - 1 of KEY_TEAM_HOS.
+         *
+         * @return The position of the driver.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * The position of the driver: 0 for the driver of KEY_HOS, or i for entry i - 1 of KEY_TEAM_HOS.
+         *
+         * @param index The position of the driver.
+         */
+        public void setIndex(int index) {
+            this.index = index;
+        }
+
+        /**
+         * Is the driver no longer part of the HOS.
+         *
+         * @return Flag indicating the driver was removed.
+         */
+        public boolean isRemoved() {
+            return removed;
+        }
+
+        /**
+         * Is the driver no longer part of the HOS.
+         *
+         * @param removed Flag indicating the driver was removed.
+         */
+        public void setRemoved(boolean removed) {
+            this.removed = removed;
+        }
+
+        /**
+         * Does {@link #getClocks()} hold every clock of the driver.
+         *
+         * @return Flag indicating the clocks replace the previous ones.
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+
+        /**
+         * Does {@link #getClocks()} hold every clock of the driver.
+         *
+         * @param complete Flag indicating the clocks replace the previous ones.
+         */
+        public void setComplete(boolean complete) {
+            this.complete = complete;
+        }
+
+        /**
+         * The current username of the driver.
+         *
+         * @return The username.
+         */
+        public String getUsername() {
+            return username;
+        }
+
+        /**
+         * The current username of the driver.
+         *
+         * @param username The username.
+         */
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        /**
+         * The current manage action of the driver.  See {@link HOSData#getManageAction()}.
+         *
+         * @return The URI string
+         */
+        public String getManageAction() {
+            return manageAction;
+        }
+
+        /**
+         * The current manage action of the driver.  See {@link HOSData#getManageAction()}.
+         *
+         * @param manageAction The URI string
+         */
+        public void setManageAction(String manageAction) {
+            this.manageAction = manageAction;
+        }
+
+        /**
+         * The current logout action of the driver.  See {@link HOSData#getLogoutAction()}.
+         *
+         * @return The URI string
+         */
+        public String getLogoutAction() {
+            return logoutAction;
+        }
+
+        /**
+         * The current logout action of the driver.  See {@link HOSData#getLogoutAction()}.
+         *
+         * @param logoutAction The URI string
+         */
+        public void setLogoutAction(String logoutAction) {
+            this.logoutAction = logoutAction;
+        }
+
+        /**
+         * The added and changed clocks, or every clock if {@link #isComplete()} is set.
+         *
+         * @return The clocks.
+         */
+        public List<ClockData> getClocks() {
+            return clocks;
+        }
+
+        /**
+         * The added and changed clocks, or every clock if {@link #isComplete()} is set.
+         *
+         * @param clocks The clocks.
+         */
+        public void setClocks(List<ClockData> clocks) {
+            this.clocks = clocks;
+        }
+
+        /**
+         * The labels of the removed clocks.
+         *
+         * @return The labels.
+         */
+        public List<String> getRemovedClocks() {
+            return removedClocks;
+        }
+
+        /**
+         * The labels of the removed clocks.
+         *
+         * @param removedClocks The labels.
+         */
+        public void setRemovedClocks(List<String> removedClocks) {
+            this.removedClocks = removedClocks;
+        }
+
+        /**
+         * @return The changes, or null if the driver did not change.
+         */
+        static DriverDelta between(int index, HOSData from, HOSData to) {
+            DriverDelta delta = new DriverDelta();
+            delta.setIndex(index);
+            if (to == null) {
+                if (from == null) {
+                    return null;
+                }
+                delta.setRemoved(true);
+                return delta;
+            }
+            delta.setUsername(to.getUsername());
+            delta.setManageAction(to.getManageAction());
+            delta.setLogoutAction(to.getLogoutAction());
+            boolean sameDetails = from != null
+                    && Objects.equals(from.getUsername(), to.getUsername())
+                    && Objects.equals(from.getManageAction(), to.getManageAction())
+                    && Objects.equals(from.getLogoutAction(), to.getLogoutAction());
+
+            List<ClockData> fromClocks = from != null && from.getClocks() != null ? from.getClocks() : Collections.<ClockData>emptyList();
+            List<ClockData> toClocks = to.getClocks() != null ? to.getClocks() : Collections.<ClockData>emptyList();
+            Map<String, ClockData> fromByLabel = byLabel(fromClocks);
+            Map<String, ClockData> toByLabel = byLabel(toClocks);
+            if (from == null || fromByLabel == null || toByLabel == null) {
+                delta.setComplete(true);
+                delta.setClocks(new ArrayList<>(toClocks));
+                return delta;
+            }
+
+            ArrayList<String> removed = new ArrayList<>();
+            ArrayList<String> kept = new ArrayList<>();
+            for (ClockData clock : fromClocks) {
+                if (toByLabel.containsKey(clock.getLabel())) {
+                    kept.add(clock.getLabel());
+                } else {
+                    removed.add(clock.getLabel());
+                }
+            }
+            ArrayList<ClockData> changed = new ArrayList<>();
+            int position = 0;
+            boolean added = false;
+            for (ClockData clock : toClocks) {
+                ClockData previous = fromByLabel.get(clock.getLabel());
+                if (previous == null) {
+                    added = true;
+                    changed.add(clock);
+                } else if (added || position >= kept.size() || !kept.get(position++).equals(clock.getLabel())) {
+                    // Existing clocks moved, or a clock was added before them, which a partial
+                    // delta cannot express.
+                    delta.setComplete(true);
+                    delta.setClocks(new ArrayList<>(toClocks));
+                    return delta;
+                } else if (!previous.equals(clock)) {
+                    changed.add(clock);
+                }
+            }
+            if (sameDetails && changed.isEmpty() && removed.isEmpty()) {
+                return null;
+            }
+            delta.setClocks(changed);
+            delta.setRemovedClocks(removed);
+            return delta;
+        }
+
+        /**
+         * @return The clocks by label, or null if a label is missing or used twice.
+         */
+        private static Map<String, ClockData> byLabel(List<ClockData> clocks) {
+            HashMap<String, ClockData> byLabel = new HashMap<>();
+            for (ClockData clock : clocks) {
+                if (clock == null || clock.getLabel() == null || byLabel.put(clock.getLabel(), clock) != null) {
+                    return null;
+                }
+            }
+            return byLabel;
+        }
+
+        /**
+         * @return The HOS of the driver after the changes, or null if the driver was removed.
+         */
+        HOSData applyTo(HOSData from) {
+            if (removed) {
+                return null;
+            }
+            HOSData to = new HOSData();
+            to.setUsername(username);
+            to.setManageAction(manageAction);
+            to.setLogoutAction(logoutAction);
+            ArrayList<ClockData> result = new ArrayList<>();
+            if (complete || from == null) {
+                if (clocks != null) {
+                    result.addAll(clocks);
+                }
+            } else {
+                if (from.getClocks() != null) {
+                    for (ClockData clock : from.getClocks()) {
+                        if (removedClocks == null || !removedClocks.contains(clock.getLabel())) {
+                            result.add(clock);
+                        }
+                    }
+                }
+                if (clocks != null) {
+                    for (ClockData clock : clocks) {
+                        int existing = indexOfLabel(result, clock.getLabel());
+                        if (existing >= 0) {
+                            result.set(existing, clock);
+                        } else {
+                            result.add(clock);
+                        }
+                    }
+                }
+            }
+            to.setClocks(result);
+            return to;
+        }
+
+        private static int indexOfLabel(List<ClockData> clocks, String label) {
+            for (int i = 0; i < clocks.size(); i++) {
+                if (Objects.equals(clocks.get(i).getLabel(), label)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static void checkMutable(boolean immutable, Object object) {
+        if (immutable) {
+            throw new IllegalStateException(object.getClass().getSimpleName() + " was built by a Builder and cannot be modified");
+        }
     }
 }
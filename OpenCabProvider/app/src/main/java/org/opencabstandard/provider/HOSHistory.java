@@ -0,0 +1,102 @@
+package org.opencabstandard.provider;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The most recent distinct version 0.4 HOS states of a provider, each with a sequence number, used to
+ * answer {@link HOSContract}.METHOD_GET_HOS_DELTA.  A new sequence number is only assigned when the
+ * HOS actually changes.
+ *
+ * <p>Sequence numbers start from the wall clock time in milliseconds when the history is created, so a
+ * sequence number remembered by a consumer from before the provider process restarted is not found
+ * and the consumer receives the full HOS.</p>
+ */
+final class HOSHistory {
+
+    /**
+     * One recorded HOS state.  The drivers must not be modified.
+     */
+    static final class Snapshot {
+        final long sequence;
+        final List<HOSContract.HOSData> drivers;
+        final String hosJson;
+        final String teamJson;
+
+        Snapshot(long sequence, List<HOSContract.HOSData> drivers, String hosJson, String teamJson) {
+            this.sequence = sequence;
+            this.drivers = drivers;
+            this.hosJson = hosJson;
+            this.teamJson = teamJson;
+        }
+    }
+
+    private final Snapshot[] snapshots;
+    private int count;
+    private int next;
+    private long sequence = System.currentTimeMillis();
+
+    /**
+     * @param size The number of states to keep.
+     */
+    HOSHistory(int size) {
+        snapshots = new Snapshot[size];
+    }
+
+    /**
+     * Record the current HOS, unless it is the same as the latest state.
+     *
+     * @param hosData  The HOS of the primary driver.
+     * @param teamData The HOS of the team drivers, or null.
+     * @return The latest state.
+     */
+    @NonNull
+    synchronized Snapshot record(@NonNull HOSContract.HOSData hosData, @Nullable HOSContract.HOSTeamData teamData) {
+        HOSJsonCodec codec = HOSJsonCodec.getInstance();
+        String hosJson = codec.toJson(hosData);
+        String teamJson = teamData != null ? codec.toJson(teamData) : null;
+        Snapshot latest = latest();
+        if (latest != null && latest.hosJson.equals(hosJson)
+                && (latest.teamJson == null ? teamJson == null : latest.teamJson.equals(teamJson))) {
+            return latest;
+        }
+
+        ArrayList<HOSContract.HOSData> drivers = new ArrayList<>();
+        drivers.add(hosData);
+        if (teamData != null && teamData.getTeamHosData() != null) {
+            drivers.addAll(teamData.getTeamHosData());
+        }
+        Snapshot snapshot = new Snapshot(++sequence, Collections.unmodifiableList(drivers), hosJson, teamJson);
+        snapshots[next] = snapshot;
+        next = (next + 1) % snapshots.length;
+        count = Math.min(count + 1, snapshots.length);
+        return snapshot;
+    }
+
+    /**
+     * @return The latest state, or null if nothing was recorded.
+     */
+    @Nullable
+    synchronized Snapshot latest() {
+        return count > 0 ? snapshots[(next - 1 + snapshots.length) % snapshots.length] : null;
+    }
+
+    /**
+     * @param sequence The sequence number of a previous state.
+     * @return The state, or null if it is no longer kept.
+     */
+    @Nullable
+    synchronized Snapshot get(long sequence) {
+        for (int i = 0; i < count; i++) {
+            Snapshot snapshot = snapshots[i];
+            if (snapshot.sequence == sequence) {
+                return snapshot;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,713 @@
+package org.opencabstandard.provider;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes the JSON used for {@link HOSContract}.KEY_HOS, {@link HOSContract}.KEY_TEAM_HOS
+ * and {@link HOSContract}.KEY_HOS_DELTA in version 0.4 of the contract.
+ *
+ * <p>The codec streams each field with {@link JsonWriter} and {@link JsonReader} instead of using
+ * reflection.  The JSON it writes is identical to <code>new Gson().toJson(...)</code> for the same object,
+ * and it reads anything <code>new Gson().fromJson(...)</code> reads, so providers and consumers can
+ * adopt it independently.  The codec holds no state and can be shared between threads.</p>
+ *
+ * <pre>
+ * <code class="language-java">
+ *     HOSContract.HOSData hos = HOSJsonCodec.getInstance().parseHOSData(result.getString(HOSContract.KEY_HOS));
+ * </code>
+ * </pre>
+ */
+public final class HOSJsonCodec {
+
+    private static final HOSJsonCodec INSTANCE = new HOSJsonCodec();
+
+    private HOSJsonCodec() {
+
+    }
+
+    /**
+     * Get the shared codec.
+     *
+     * @return The codec.
+     */
+    @NonNull
+    public static HOSJsonCodec getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Serialize the HOS for one driver.
+     *
+     * @param hosData The HOS data.
+     * @return The JSON string, or "null" if hosData is null.
+     */
+    @NonNull
+    public String toJson(@Nullable HOSContract.HOSData hosData) {
+        StringBuilderWriter out = new StringBuilderWriter();
+        try {
+            JsonWriter writer = newWriter(out);
+            writeHOSData(writer, hosData);
+            writer.flush();
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Serialize the HOS for the team drivers.
+     *
+     * @param teamData The team HOS data.
+     * @return The JSON string, or "null" if teamData is null.
+     */
+    @NonNull
+    public String toJson(@Nullable HOSContract.HOSTeamData teamData) {
+        StringBuilderWriter out = new StringBuilderWriter();
+        try {
+            JsonWriter writer = newWriter(out);
+            writeHOSTeamData(writer, teamData);
+            writer.flush();
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Parse the HOS for one driver.
+     *
+     * @param json The value of {@link HOSContract}.KEY_HOS.
+     * @return The HOS data, or null if the json is null or empty.
+     * @throws JsonSyntaxException If the json is malformed.
+     */
+    @Nullable
+    public HOSContract.HOSData parseHOSData(@Nullable String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            JsonReader reader = newReader(json);
+            if (isEmptyDocument(reader)) {
+                return null;
+            }
+            return readHOSData(reader);
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    /**
+     * Parse the HOS for the team drivers.
+     *
+     * @param json The value of {@link HOSContract}.KEY_TEAM_HOS.
+     * @return The team HOS data, or null if the json is null or empty.
+     * @throws JsonSyntaxException If the json is malformed.
+     */
+    @Nullable
+    public HOSContract.HOSTeamData parseHOSTeamData(@Nullable String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            JsonReader reader = newReader(json);
+            if (isEmptyDocument(reader)) {
+                return null;
+            }
+            return readHOSTeamData(reader);
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    /**
+     * Serialize the changes returned by {@link HOSContract}.METHOD_GET_HOS_DELTA.
+     *
+     * @param delta The changes.
+     * @return The JSON string, or "null" if delta is null.
+     */
+    @NonNull
+    public String toJson(@Nullable HOSContract.HOSDelta delta) {
+        StringBuilderWriter out = new StringBuilderWriter();
+        try {
+            JsonWriter writer = newWriter(out);
+            writeHOSDelta(writer, delta);
+            writer.flush();
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Parse the changes returned by {@link HOSContract}.METHOD_GET_HOS_DELTA.
+     *
+     * @param json The value of {@link HOSContract}.KEY_HOS_DELTA.
+     * @return The changes, or null if the json is null or empty.
+     * @throws JsonSyntaxException If the json is malformed.
+     */
+    @Nullable
+    public HOSContract.HOSDelta parseHOSDelta(@Nullable String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            JsonReader reader = newReader(json);
+            if (isEmptyDocument(reader)) {
+                return null;
+            }
+            return readHOSDelta(reader);
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    /**
+     * Write the HOS for one driver.
+     *
+     * @param writer  The destination.
+     * @param hosData The HOS data, which may be null.
+     * @throws IOException If the writer fails.
+     */
+    public void writeHOSData(@NonNull JsonWriter writer, @Nullable HOSContract.HOSData hosData) throws IOException {
+        if (hosData == null) {
+            writer.nullValue();
+            return;
+        }
+        // Fields are written in declaration order, matching Gson's reflective output.
+        writer.beginObject();
+        List<HOSContract.ClockData> clocks = hosData.getClocks();
+        if (clocks != null) {
+            writer.name("clocks");
+            writer.beginArray();
+            for (int i = 0, size = clocks.size(); i < size; i++) {
+                writeClockData(writer, clocks.get(i));
+            }
+            writer.endArray();
+        }
+        writeString(writer, "manageAction", hosData.getManageAction());
+        writeString(writer, "logoutAction", hosData.getLogoutAction());
+        writeString(writer, "username", hosData.getUsername());
+        writer.endObject();
+    }
+
+    /**
+     * Write the HOS for the team drivers.
+     *
+     * @param writer   The destination.
+     * @param teamData The team HOS data, which may be null.
+     * @throws IOException If the writer fails.
+     */
+    public void writeHOSTeamData(@NonNull JsonWriter writer, @Nullable HOSContract.HOSTeamData teamData) throws IOException {
+        if (teamData == null) {
+            writer.nullValue();
+            return;
+        }
+        writer.beginObject();
+        List<HOSContract.HOSData> members = teamData.getTeamHosData();
+        if (members != null) {
+            writer.name("teamHosData");
+            writer.beginArray();
+            for (int i = 0, size = members.size(); i < size; i++) {
+                writeHOSData(writer, members.get(i));
+            }
+            writer.endArray();
+        }
+        writer.endObject();
+    }
+
+    /**
+     * Write one clock.
+     *
+     * @param writer The destination.
+     * @param clock  The clock, which may be null.
+     * @throws IOException If the writer fails.
+     */
+    public void writeClockData(@NonNull JsonWriter writer, @Nullable HOSContract.ClockData clock) throws IOException {
+        if (clock == null) {
+            writer.nullValue();
+            return;
+        }
+        writer.beginObject();
+        writeString(writer, "label", clock.getLabel());
+        writeString(writer, "value", clock.getValue());
+        if (clock.getValueType() != null) {
+            writer.name("valueType").value(clock.getValueType().name());
+        }
+        writer.name("important").value(clock.isImportant());
+        writer.name("limitsDrivingRange").value(clock.isLimitsDrivingRange());
+        Double durationSeconds = clock.getDurationSeconds();
+        if (durationSeconds != null) {
+            writer.name("durationSeconds").value(durationSeconds.doubleValue());
+        }
+        writer.endObject();
+    }
+
+    /**
+     * Read the HOS for one driver.
+     *
+     * @param reader The source, positioned at the object or a null value.
+     * @return The HOS data, or null.
+     * @throws IOException If the reader fails or the input is malformed.
+     */
+    @Nullable
+    public HOSContract.HOSData readHOSData(@NonNull JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        HOSContract.HOSData hosData = new HOSContract.HOSData();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "clocks":
+                    if (reader.peek() == JsonToken.NULL) {
+                        reader.nextNull();
+                        hosData.setClocks(null);
+                    } else {
+                        ArrayList<HOSContract.ClockData> clocks = new ArrayList<>();
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            clocks.add(readClockData(reader));
+                        }
+                        reader.endArray();
+                        hosData.setClocks(clocks);
+                    }
+                    break;
+                case "manageAction":
+                    hosData.setManageAction(readString(reader));
+                    break;
+                case "logoutAction":
+                    hosData.setLogoutAction(readString(reader));
+                    break;
+                case "username":
+                    hosData.setUsername(readString(reader));
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return hosData;
+    }
+
+    /**
+     * Read the HOS for the team drivers.
+     *
+     * @param reader The source, positioned at the object or a null value.
+     * @return The team HOS data, or null.
+     * @throws IOException If the reader fails or the input is malformed.
+     */
+    @Nullable
+    public HOSContract.HOSTeamData readHOSTeamData(@NonNull JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        HOSContract.HOSTeamData teamData = new HOSContract.HOSTeamData();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("teamHosData".equals(reader.nextName())) {
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    teamData.setTeamHosData(null);
+                } else {
+                    ArrayList<HOSContract.HOSData> members = new ArrayList<>();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        members.add(readHOSData(reader));
+                    }
+                    reader.endArray();
+                    teamData.setTeamHosData(members);
+                }
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return teamData;
+    }
+
+    /**
+     * Read one clock.
+     *
+     * @param reader The source, positioned at the object or a null value.
+     * @return The clock, or null.
+     * @throws IOException If the reader fails or the input is malformed.
+     */
+    @Nullable
+    public HOSContract.ClockData readClockData(@NonNull JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        HOSContract.ClockData clock = new HOSContract.ClockData();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "label":
+                    clock.setLabel(readString(reader));
+                    break;
+                case "value":
+                    clock.setValue(readString(reader));
+                    break;
+                case "valueType":
+                    clock.setValueType(readValueType(reader));
+                    break;
+                case "important":
+                    Boolean important = readBoolean(reader);
+                    if (important != null) {
+                        clock.setImportant(important);
+                    }
+                    break;
+                case "limitsDrivingRange":
+                    Boolean limitsDrivingRange = readBoolean(reader);
+                    if (limitsDrivingRange != null) {
+                        clock.setLimitsDrivingRange(limitsDrivingRange);
+                    }
+                    break;
+                case "durationSeconds":
+                    if (reader.peek() == JsonToken.NULL) {
+                        reader.nextNull();
+                        clock.setDurationSeconds(null);
+                    } else {
+                        clock.setDurationSeconds(reader.nextDouble());
+                    }
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return clock;
+    }
+
+    /**
+     * Write the changes returned by {@link HOSContract}.METHOD_GET_HOS_DELTA.
+     *
+     * @param writer The destination.
+     * @param delta  The changes, which may be null.
+     * @throws IOException If the writer fails.
+     */
+    public void writeHOSDelta(@NonNull JsonWriter writer, @Nullable HOSContract.HOSDelta delta) throws IOException {
+        if (delta == null) {
+            writer.nullValue();
+            return;
+        }
+        writer.beginObject();
+        writer.name("fromSequence").value(delta.getFromSequence());
+        writer.name("sequence").value(delta.getSequence());
+        List<HOSContract.DriverDelta> drivers = delta.getDrivers();
+        if (drivers != null) {
+            writer.name("drivers");
+            writer.beginArray();
+            for (int i = 0, size = drivers.size(); i < size; i++) {
+                writeDriverDelta(writer, drivers.get(i));
+            }
+            writer.endArray();
+        }
+        writer.endObject();
+    }
+
+    private void writeDriverDelta(JsonWriter writer, HOSContract.DriverDelta driver) throws IOException {
+        if (driver == null) {
+            writer.nullValue();
+            return;
+        }
+        writer.beginObject();
+        writer.name("index").value(driver.getIndex());
+        writer.name("removed").value(driver.isRemoved());
+        writer.name("complete").value(driver.isComplete());
+        writeString(writer, "username", driver.getUsername());
+        writeString(writer, "manageAction", driver.getManageAction());
+        writeString(writer, "logoutAction", driver.getLogoutAction());
+        List<HOSContract.ClockData> clocks = driver.getClocks();
+        if (clocks != null) {
+            writer.name("clocks");
+            writer.beginArray();
+            for (int i = 0, size = clocks.size(); i < size; i++) {
+                writeClockData(writer, clocks.get(i));
+            }
+            writer.endArray();
+        }
+        List<String> removedClocks = driver.getRemovedClocks();
+        if (removedClocks != null) {
+            writer.name("removedClocks");
+            writer.beginArray();
+            for (int i = 0, size = removedClocks.size(); i < size; i++) {
+                String label = removedClocks.get(i);
+                if (label != null) {
+                    writer.value(label);
+                } else {
+                    writer.nullValue();
+                }
+            }
+            writer.endArray();
+        }
+        writer.endObject();
+    }
+
+    /**
+     * Read the changes returned by {@link HOSContract}.METHOD_GET_HOS_DELTA.
+     *
+     * @param reader The source, positioned at the object or a null value.
+     * @return The changes, or null.
+     * @throws IOException If the reader fails or the input is malformed.
+     */
+    @Nullable
+    public HOSContract.HOSDelta readHOSDelta(@NonNull JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        HOSContract.HOSDelta delta = new HOSContract.HOSDelta();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "fromSequence":
+                    if (reader.peek() == JsonToken.NULL) {
+                        reader.nextNull();
+                    } else {
+                        delta.setFromSequence(reader.nextLong());
+                    }
+                    break;
+                case "sequence":
+                    if (reader.peek() == JsonToken.NULL) {
+                        reader.nextNull();
+                    } else {
+                        delta.setSequence(reader.nextLong());
+                    }
+                    break;
+                case "drivers":
+                    if (reader.peek() == JsonToken.NULL) {
+                        reader.nextNull();
+                        delta.setDrivers(null);
+                    } else {
+                        ArrayList<HOSContract.DriverDelta> drivers = new ArrayList<>();
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            drivers.add(readDriverDelta(reader));
+                        }
+                        reader.endArray();
+                        delta.setDrivers(drivers);
+                    }
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return delta;
+    }
+
+    private HOSContract.DriverDelta readDriverDelta(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        HOSContract.DriverDelta driver = new HOSContract.DriverDelta();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "index":
+                    if (reader.peek() == JsonToken.NULL) {
+                        reader.nextNull();
+                    } else {
+                        driver.setIndex(reader.nextInt());
+                    }
+                    break;
+                case "removed":
+                    Boolean removed = readBoolean(reader);
+                    if (removed != null) {
+                        driver.setRemoved(removed);
+                    }
+                    break;
+                case "complete":
+                    Boolean complete = readBoolean(reader);
+                    if (complete != null) {
+                        driver.setComplete(complete);
+                    }
+                    break;
+                case "username":
+                    driver.setUsername(readString(reader));
+                    break;
+                case "manageAction":
+                    driver.setManageAction(readString(reader));
+                    break;
+                case "logoutAction":
+                    driver.setLogoutAction(readString(reader));
+                    break;
+                case "clocks":
+                    if (reader.peek() == JsonToken.NULL) {
+                        reader.nextNull();
+                        driver.setClocks(null);
+                    } else {
+                        ArrayList<HOSContract.ClockData> clocks = new ArrayList<>();
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            clocks.add(readClockData(reader));
+                        }
+                        reader.endArray();
+                        driver.setClocks(clocks);
+                    }
+                    break;
+                case "removedClocks":
+                    if (reader.peek() == JsonToken.NULL) {
+                        reader.nextNull();
+                        driver.setRemovedClocks(null);
+                    } else {
+                        ArrayList<String> removedClocks = new ArrayList<>();
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            removedClocks.add(readString(reader));
+                        }
+                        reader.endArray();
+                        driver.setRemovedClocks(removedClocks);
+                    }
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return driver;
+    }
+
+    /**
+     * Matches the configuration Gson applies to the writers it creates.
+     */
+    private static JsonWriter newWriter(Writer out) {
+        JsonWriter writer = new JsonWriter(out);
+        writer.setHtmlSafe(true);
+        writer.setSerializeNulls(false);
+        return writer;
+    }
+
+    /**
+     * Gson parses leniently, so the codec does as well.
+     */
+    private static JsonReader newReader(String json) {
+        JsonReader reader = new JsonReader(new StringReader(json));
+        reader.setLenient(true);
+        return reader;
+    }
+
+    private static boolean isEmptyDocument(JsonReader reader) throws IOException {
+        try {
+            reader.peek();
+            return false;
+        } catch (EOFException e) {
+            return true;
+        } catch (MalformedJsonException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    private static void writeString(JsonWriter writer, String name, String value) throws IOException {
+        if (value != null) {
+            writer.name(name).value(value);
+        }
+    }
+
+    private static String readString(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return Boolean.toString(reader.nextBoolean());
+        }
+        return reader.nextString();
+    }
+
+    private static Boolean readBoolean(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        if (token == JsonToken.STRING) {
+            return Boolean.parseBoolean(reader.nextString());
+        }
+        return reader.nextBoolean();
+    }
+
+    private static HOSContract.ClockData.ValueType readValueType(JsonReader reader) throws IOException {
+        String name = readString(reader);
+        if (name == null) {
+            return null;
+        }
+        switch (name) {
+            case "STRING":
+                return HOSContract.ClockData.ValueType.STRING;
+            case "DATE":
+                return HOSContract.ClockData.ValueType.DATE;
+            case "COUNTUP":
+                return HOSContract.ClockData.ValueType.COUNTUP;
+            case "COUNTDOWN":
+                return HOSContract.ClockData.ValueType.COUNTDOWN;
+            default:
+                // Gson maps unknown constants to null.
+                return null;
+        }
+    }
+
+    /**
+     * An unsynchronized replacement for {@link java.io.StringWriter}, which locks on every character
+     * {@link JsonWriter} writes.
+     */
+    private static final class StringBuilderWriter extends Writer {
+        private final StringBuilder builder = new StringBuilder(512);
+
+        @Override
+        public void write(int c) {
+            builder.append((char) c);
+        }
+
+        @Override
+        public void write(@NonNull char[] buffer, int offset, int length) {
+            builder.append(buffer, offset, length);
+        }
+
+        @Override
+        public void write(@NonNull String str, int offset, int length) {
+            builder.append(str, offset, offset + length);
+        }
+
+        @Override
+        public Writer append(CharSequence csq) {
+            builder.append(csq);
+            return this;
+        }
+
+        @Override
+        public void flush() {
+
+        }
+
+        @Override
+        public void close() {
+
+        }
+
+        @Override
+        public String toString() {
+            return builder.toString();
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package org.opencabstandard.provider;
+
+import android.os.Bundle;
+import android.os.IBinder;
+import android.os.Message;
+import android.os.Messenger;
+import android.os.RemoteException;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The consumers that passed {@link HOSContract}.KEY_HOS_CALLBACK to METHOD_START_NAVIGATION.  Each one
+ * is sent the HOS until it passes the same callback to METHOD_END_NAVIGATION or its process dies.
+ *
+ * <p>Messages to a consumer are at least its interval apart.  When the HOS changes between two
+ * messages it is sent at the next interval, and a version 0.4 HOS that did not change since the last
+ * message is not sent again.  All messages of a provider are sent from its own background thread,
+ * which never waits for the getters: the HOS is computed once per negotiated version, and sent to
+ * every session of that version that is due when it completes.  A session that waited longer than its
+ * interval is sent the last known HOS in the meantime.  {@link Messenger#send} does not wait for the
+ * consumer either.</p>
+ */
+final class HOSPushSessions {
+    private static final String LOG_TAG = HOSPushSessions.class.getName();
+
+    static final long DEFAULT_INTERVAL_MILLIS = 5000;
+    static final long MIN_INTERVAL_MILLIS = 1000;
+
+    /**
+     * Upper bound on the number of callbacks of one consumer, so that a consumer that never ends
+     * navigation cannot make the provider compute the HOS for ever more sessions.  A consumer that
+     * starts another session beyond it replaces its oldest one, and other consumers are not affected.
+     */
+    static final int MAX_SESSIONS_PER_PACKAGE = 4;
+
+    /**
+     * Obtains the HOS sent to the consumers.  None of its methods may wait for the getters.
+     */
+    interface Source {
+
+        /**
+         * @param negotiatedVersion The contract version to respond with.
+         * @return The same {@link Bundle} as a METHOD_GET_HOS response if it is available without
+         * calling the getters, such as a published HOS, or null.
+         */
+        @Nullable
+        Bundle getAvailableHOS(@NonNull String negotiatedVersion);
+
+        /**
+         * Start computing the HOS, and return without waiting for it.
+         *
+         * @param negotiatedVersion The contract version to respond with.
+         * @param listener          Called once, on any thread, when the HOS is computed.
+         */
+        void computeHOS(@NonNull String negotiatedVersion, @NonNull Listener listener);
+
+        /**
+         * @param negotiatedVersion The contract version to respond with.
+         * @return The last HOS computed for the version with {@link HOSContract}.KEY_STALE_MILLIS, or
+         * null if there is none.
+         */
+        @Nullable
+        Bundle getLastKnownHOS(@NonNull String negotiatedVersion);
+    }
+
+    interface Listener {
+
+        /**
+         * @param result The same {@link Bundle} as a METHOD_GET_HOS response, or null if the getters
+         *               failed.
+         */
+        void onHOS(@Nullable Bundle result);
+    }
+
+    private final Source source;
+    private final ConcurrentHashMap<IBinder, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ScheduledThreadPoolExecutor executor;
+
+    /**
+     * When the computation of each negotiated version started, while it runs.  Only used on the
+     * executor thread.
+     */
+    private final HashMap<String, Long> computing = new HashMap<>();
+
+    HOSPushSessions(@NonNull Source source) {
+        this.source = source;
+        this.executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "OpenCab-HOS-Push");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.setRemoveOnCancelPolicy(true);
+        this.executor.setKeepAliveTime(30, TimeUnit.SECONDS);
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    private final class Session implements IBinder.DeathRecipient, Runnable {
+        final IBinder binder;
+        final Messenger messenger;
+        final String negotiatedVersion;
+        final String callingPackage;
+        final long intervalMillis;
+        final long sequence;
+        volatile ScheduledFuture<?> future;
+
+        // Only used on the executor thread.
+        private long lastSentAt = Long.MIN_VALUE / 2;
+        private String lastHOS;
+        private String lastTeamHOS;
+        private boolean due;
+
+        Session(IBinder binder, String negotiatedVersion, String callingPackage, long intervalMillis, long sequence) {
+            this.binder = binder;
+            this.messenger = new Messenger(binder);
+            this.negotiatedVersion = negotiatedVersion;
+            this.callingPackage = callingPackage;
+            this.intervalMillis = intervalMillis;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            due = true;
+            request(negotiatedVersion);
+        }
+
+        void send(@NonNull Bundle result) {
+            due = false;
+            // The version 0.4 HOS is JSON, so an unchanged HOS is cheap to detect.
+            boolean json = "0.4".equals(negotiatedVersion);
+            String hos = json ? result.getString(HOSContract.KEY_HOS) : null;
+            String teamHOS = json ? result.getString(HOSContract.KEY_TEAM_HOS) : null;
+            if (hos != null && hos.equals(lastHOS) && Objects.equals(teamHOS, lastTeamHOS)
+                    && !result.containsKey(HOSContract.KEY_STALE_MILLIS)) {
+                return;
+            }
+
+            Message message = Message.obtain(null, HOSContract.MESSAGE_HOS);
+            // Sessions of the same version are sent the same result.
+            message.setData(new Bundle(result));
+            try {
+                messenger.send(message);
+            } catch (RemoteException e) {
+                Log.i(LOG_TAG, "Callback of " + callingPackage + " is gone");
+                remove(binder);
+                return;
+            }
+            lastSentAt = SystemClock.elapsedRealtime();
+            lastHOS = hos;
+            lastTeamHOS = teamHOS;
+        }
+
+        @Override
+        public void binderDied() {
+            Log.i(LOG_TAG, "Consumer " + callingPackage + " died during navigation");
+            remove(binder);
+        }
+    }
+
+    /**
+     * Obtain the HOS of a version for the sessions that are due, on the executor thread.
+     */
+    private void request(@NonNull String negotiatedVersion) {
+        Bundle available = source.getAvailableHOS(negotiatedVersion);
+        if (available != null) {
+            sendToDue(negotiatedVersion, available);
+            return;
+        }
+        long now = SystemClock.elapsedRealtime();
+        Long startedAt = computing.get(negotiatedVersion);
+        if (startedAt == null) {
+            computing.put(negotiatedVersion, now);
+            source.computeHOS(negotiatedVersion, result -> executor.execute(() -> {
+                computing.remove(negotiatedVersion);
+                // Sessions stay due when the getters failed, and the next interval tries again.
+                if (result != null) {
+                    sendToDue(negotiatedVersion, result);
+                }
+            }));
+            return;
+        }
+
+        Bundle lastKnown = null;
+        for (Session session : sessions.values()) {
+            if (session.due && session.negotiatedVersion.equals(negotiatedVersion)
+                    && now - startedAt >= session.intervalMillis) {
+                if (lastKnown == null) {
+                    lastKnown = source.getLastKnownHOS(negotiatedVersion);
+                    if (lastKnown == null) {
+                        return;
+                    }
+                }
+                session.send(lastKnown);
+            }
+        }
+    }
+
+    private void sendToDue(@NonNull String negotiatedVersion, @NonNull Bundle result) {
+        for (Session session : sessions.values()) {
+            if (session.due && session.negotiatedVersion.equals(negotiatedVersion)) {
+                session.send(result);
+            }
+        }
+    }
+
+    /**
+     * Start sending the HOS to a callback, replacing any previous session of the same callback, and the
+     * oldest session of the consumer if it has {@link #MAX_SESSIONS_PER_PACKAGE}.
+     *
+     * @param binder            The binder of the consumer's {@link Messenger}.
+     * @param negotiatedVersion The contract version the HOS is sent in.
+     * @param callingPackage    The package of the consumer, for logging and for {@link #removeAll(String)}.
+     * @param intervalMillis    The interval requested by the consumer, or zero or less for the default.
+     * @return False if the consumer is already dead.
+     */
+    synchronized boolean add(@NonNull IBinder binder, @NonNull String negotiatedVersion,
+                             @Nullable String callingPackage, long intervalMillis) {
+        remove(binder);
+        Session oldest = null;
+        int count = 0;
+        for (Session session : sessions.values()) {
+            if (Objects.equals(session.callingPackage, callingPackage)) {
+                count++;
+                if (oldest == null || session.sequence < oldest.sequence) {
+                    oldest = session;
+                }
+            }
+        }
+        if (count >= MAX_SESSIONS_PER_PACKAGE) {
+            Log.w(LOG_TAG, "Too many HOS callbacks of " + callingPackage + ", replacing the oldest");
+            remove(oldest.binder);
+        }
+        long interval = intervalMillis > 0 ? Math.max(MIN_INTERVAL_MILLIS, intervalMillis) : DEFAULT_INTERVAL_MILLIS;
+        Session session = new Session(binder, negotiatedVersion, callingPackage, interval, sequence.incrementAndGet());
+        try {
+            binder.linkToDeath(session, 0);
+        } catch (RemoteException e) {
+            return false;
+        }
+        // Added before its first run, which finds it among the sessions of its version.
+        sessions.put(binder, session);
+        session.future = executor.scheduleWithFixedDelay(session, 0, interval, TimeUnit.MILLISECONDS);
+        if (!binder.isBinderAlive()) {
+            // Died before it was added, so binderDied() did not find it.
+            remove(binder);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Stop sending the HOS to a callback.
+     *
+     * @param binder The binder passed to {@link #add}.
+     * @return False if the callback was not registered.
+     */
+    synchronized boolean remove(@NonNull IBinder binder) {
+        Session session = sessions.remove(binder);
+        if (session == null) {
+            return false;
+        }
+        session.future.cancel(false);
+        try {
+            binder.unlinkToDeath(session, 0);
+        } catch (NoSuchElementException e) {
+            // Already unlinked because the consumer died.
+        }
+        return true;
+    }
+
+    /**
+     * Stop sending the HOS to every callback of a consumer.
+     *
+     * @param callingPackage The package of the consumer.
+     * @return The number of callbacks removed.
+     */
+    int removeAll(@Nullable String callingPackage) {
+        int removed = 0;
+        for (Session session : sessions.values()) {
+            if (Objects.equals(session.callingPackage, callingPackage) && remove(session.binder)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Send the HOS to every callback now, unless it was sent less than its interval ago.
+     */
+    void changed() {
+        if (sessions.isEmpty()) {
+            return;
+        }
+        executor.execute(() -> {
+            long now = SystemClock.elapsedRealtime();
+            Set<String> versions = new LinkedHashSet<>();
+            for (Session session : sessions.values()) {
+                // The others are sent it at their next interval.
+                if (now - session.lastSentAt >= session.intervalMillis) {
+                    session.due = true;
+                    versions.add(session.negotiatedVersion);
+                }
+            }
+            for (String version : versions) {
+                request(version);
+            }
+        });
+    }
+
+    /**
+     * @return The number of callbacks.
+     */
+    int size() {
+        return sessions.size();
+    }
+}
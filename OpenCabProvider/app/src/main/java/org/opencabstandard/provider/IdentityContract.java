@@ -99,6 +99,66 @@ public final class IdentityContract {
      */
     public static final String ACTION_DRIVER_LOGIN = "org.opencabstandard.ACTION_DRIVER_LOGIN";
 
+    /**
+     * The version of the snapshot extras a provider MAY add to {@link #ACTION_DRIVER_LOGIN},
+     * {@link #ACTION_DRIVER_LOGOUT} and {@link #ACTION_IDENTITY_INFORMATION_CHANGED}, as an int.  The
+     * extras are absent from the broadcasts of providers that do not send them.  Later versions only add
+     * extras, so a consumer that understands version 1 can read any version from 1 up.
+     *
+     * <p>A consumer that reads the active drivers from the snapshot does not need to call
+     * <code>METHOD_GET_ACTIVE_DRIVERS</code> after the broadcast.  The snapshot carries no credentials,
+     * so <code>METHOD_GET_LOGIN_CREDENTIALS</code> is still called when they are needed.  The extras are
+     * plain strings, booleans and numbers, so reading them needs none of the classes of this contract.</p>
+     *
+     * <pre>
+     * <code class="language-java">
+     *     public void onReceive(Context context, Intent intent) {
+     *         if (intent.getIntExtra({@link IdentityContract}.EXTRA_SNAPSHOT_VERSION, 0) &gt;= {@link IdentityContract}.SNAPSHOT_VERSION) {
+     *             String[] usernames = intent.getStringArrayExtra({@link IdentityContract}.EXTRA_ACTIVE_DRIVER_USERNAMES);
+     *             boolean[] driving = intent.getBooleanArrayExtra({@link IdentityContract}.EXTRA_ACTIVE_DRIVERS_DRIVING);
+     *         }
+     *     }
+     * </code>
+     * </pre>
+     */
+    public static final String EXTRA_SNAPSHOT_VERSION = "org.opencabstandard.identity.EXTRA_SNAPSHOT_VERSION";
+
+    /**
+     * The version of the snapshot extras described by this contract.
+     */
+    public static final int SNAPSHOT_VERSION = 1;
+
+    /**
+     * A long that increases with every snapshot a provider sends, even across restarts of the provider.
+     * Broadcasts may arrive out of order, so a consumer SHOULD ignore a snapshot whose epoch is lower than
+     * the last one it read from the same provider.
+     */
+    public static final String EXTRA_SNAPSHOT_EPOCH = "org.opencabstandard.identity.EXTRA_SNAPSHOT_EPOCH";
+
+    /**
+     * The package of the provider that sent the snapshot, as a String.  Each provider has its own
+     * {@link #EXTRA_SNAPSHOT_EPOCH}, so a consumer compares epochs per provider package.
+     */
+    public static final String EXTRA_PROVIDER_PACKAGE = "org.opencabstandard.identity.EXTRA_PROVIDER_PACKAGE";
+
+    /**
+     * The username of the driver who logged in, logged out, or whose information changed, as a String.
+     * Absent if the change is not about a single driver.
+     */
+    public static final String EXTRA_USERNAME = "org.opencabstandard.identity.EXTRA_USERNAME";
+
+    /**
+     * The usernames of the active drivers after the change, as a String array, in the order returned by
+     * <code>METHOD_GET_ACTIVE_DRIVERS</code>.  Empty when no driver is logged in.
+     */
+    public static final String EXTRA_ACTIVE_DRIVER_USERNAMES = "org.opencabstandard.identity.EXTRA_ACTIVE_DRIVER_USERNAMES";
+
+    /**
+     * Whether each of the {@link #EXTRA_ACTIVE_DRIVER_USERNAMES} is driving, as a boolean array of the
+     * same length.
+     */
+    public static final String EXTRA_ACTIVE_DRIVERS_DRIVING = "org.opencabstandard.identity.EXTRA_ACTIVE_DRIVERS_DRIVING";
+
     /**
      * Provider method for retrieving the login credentials.  The credentials include a token that uniquely
      * identifies the driver and can be used to authenticate the driver.
@@ -222,6 +282,22 @@ public final class IdentityContract {
      */
     public static final String KEY_ERROR = "error";
 
+    /**
+     * When a consumer calls a method of the provider more often than the provider allows, the returned
+     * {@link android.os.Bundle} contains this key, mapped to a long with the number of milliseconds after which
+     * the consumer may call the method again.  The Bundle also contains either KEY_ERROR or a previous
+     * result of the method.
+     *
+     * <p>
+     * Example:
+     * <pre>
+     * <code class="language-java">
+     *     long retryAfterMillis = result.getLong({@link IdentityContract}.KEY_RETRY_AFTER_MILLIS, 0);
+     * </code>
+     * </pre>
+     */
+    public static final String KEY_RETRY_AFTER_MILLIS = "retry_after_millis";
+
     /**
      * For the methods {@link IdentityContract}.METHOD_GET_LOGIN_CREDENTIALS and {@link IdentityContract}.METHOD_GET_ACTIVE_DRIVERS,
      * the returned {@link android.os.Bundle} object will contain this key which maps to String indicating
@@ -242,6 +318,161 @@ public final class IdentityContract {
      */
     public static final String KEY_VERSION = "key_version";
 
+    /**
+     * Provider method name for making several calls to the provider in a single
+     * {@link android.content.ContentResolver#call}.  The extras {@link android.os.Bundle} contains
+     * {@link IdentityContract}.KEY_BATCH_CALLS, and the returned Bundle contains {@link IdentityContract}.KEY_BATCH_RESULTS
+     * with the result of each call, in the same order.  A call that fails returns a Bundle with KEY_ERROR
+     * without affecting the other calls.  Set the class loader of each result before reading Parcelable
+     * values from it.
+     *
+     * <p>
+     * Example:
+     * <pre>
+     * <code class="language-java">
+     *     {@link Bundle} call = new Bundle();
+     *     call.putString({@link IdentityContract}.KEY_BATCH_METHOD, {@link IdentityContract}.METHOD_GET_ACTIVE_DRIVERS);
+     *     call.putString({@link IdentityContract}.KEY_BATCH_VERSION, {@link IdentityContract}.VERSION);
+     *     {@link java.util.ArrayList}&lt;{@link Bundle}&gt; calls = new ArrayList&lt;&gt;();
+     *     calls.add(call);
+     *     {@link Bundle} extras = new Bundle();
+     *     extras.putParcelableArrayList({@link IdentityContract}.KEY_BATCH_CALLS, calls);
+     *     {@link Bundle} result = resolver.call(Uri.parse("content://" + {@link IdentityContract}.AUTHORITY),
+     *                                  {@link IdentityContract}.METHOD_BATCH,
+     *                                  {@link IdentityContract}.VERSION,
+     *                                  extras);
+     *     {@link java.util.ArrayList}&lt;{@link Bundle}&gt; results = result.getParcelableArrayList({@link IdentityContract}.KEY_BATCH_RESULTS);
+     * </code>
+     * </pre>
+     */
+    public static final String METHOD_BATCH = "batch";
+
+    /**
+     * For the method {@link IdentityContract}.METHOD_BATCH, maps to an {@link java.util.ArrayList} of
+     * {@link android.os.Bundle}, one per call, each with {@link IdentityContract}.KEY_BATCH_METHOD and optionally
+     * {@link IdentityContract}.KEY_BATCH_VERSION and {@link IdentityContract}.KEY_BATCH_EXTRAS.
+     */
+    public static final String KEY_BATCH_CALLS = "batch_calls";
+
+    /**
+     * For a call in {@link IdentityContract}.KEY_BATCH_CALLS, maps to the method name.
+     */
+    public static final String KEY_BATCH_METHOD = "batch_method";
+
+    /**
+     * For a call in {@link IdentityContract}.KEY_BATCH_CALLS, maps to the version passed to the method.
+     */
+    public static final String KEY_BATCH_VERSION = "batch_version";
+
+    /**
+     * For a call in {@link IdentityContract}.KEY_BATCH_CALLS, maps to the extras {@link android.os.Bundle} passed to the method.
+     */
+    public static final String KEY_BATCH_EXTRAS = "batch_extras";
+
+    /**
+     * For the method {@link IdentityContract}.METHOD_BATCH, maps to an {@link java.util.ArrayList} of
+     * {@link android.os.Bundle} with the result of each call in {@link IdentityContract}.KEY_BATCH_CALLS, in the same order.
+     */
+    public static final String KEY_BATCH_RESULTS = "batch_results";
+
+    /**
+     * The consumer can pass this key in the extras {@link android.os.Bundle} of any method, mapped to an
+     * int, to accept results split into chunks of at most that many bytes.  When the result is larger,
+     * the returned Bundle only contains the first {@link IdentityContract}.KEY_CHUNK, {@link IdentityContract}.KEY_CHUNK_TOKEN
+     * and {@link IdentityContract}.KEY_CHUNK_COUNT, and the consumer fetches the remaining chunks with
+     * {@link IdentityContract}.METHOD_GET_CHUNK.  {@link ChunkedResults#join} does this and returns the full result.
+     *
+     * <p>
+     * Example:
+     * <pre>
+     * <code class="language-java">
+     *     {@link Bundle} extras = new Bundle();
+     *     extras.putInt({@link IdentityContract}.KEY_MAX_CHUNK_BYTES, 64 * 1024);
+     *     {@link Bundle} result = ChunkedResults.join(resolver, uri,
+     *             resolver.call(uri, {@link IdentityContract}.METHOD_GET_LOGIN_CREDENTIALS, {@link IdentityContract}.VERSION, extras));
+     * </code>
+     * </pre>
+     */
+    public static final String KEY_MAX_CHUNK_BYTES = "max_chunk_bytes";
+
+    /**
+     * Provider method name for retrieving the remaining chunks of a result.  The extras
+     * {@link android.os.Bundle} contains {@link IdentityContract}.KEY_CHUNK_TOKEN and {@link IdentityContract}.KEY_CHUNK_INDEX,
+     * and the returned Bundle contains {@link IdentityContract}.KEY_CHUNK, or KEY_ERROR if the token expired.
+     */
+    public static final String METHOD_GET_CHUNK = "getChunk";
+
+    /**
+     * Maps to a byte array with one chunk of a result.  Joined in order, the chunks are a
+     * {@link android.os.Parcel} holding the result {@link android.os.Bundle}.
+     */
+    public static final String KEY_CHUNK = "chunk";
+
+    /**
+     * Maps to a String identifying a result split into chunks.
+     */
+    public static final String KEY_CHUNK_TOKEN = "chunk_token";
+
+    /**
+     * Maps to an int with the number of chunks of a result.
+     */
+    public static final String KEY_CHUNK_COUNT = "chunk_count";
+
+    /**
+     * For the method {@link IdentityContract}.METHOD_GET_CHUNK, maps to the int index of the chunk to return,
+     * starting at 1 for the chunk after the one returned by the original call.
+     */
+    public static final String KEY_CHUNK_INDEX = "chunk_index";
+
+    /**
+     * Provider method name for the metrics of the calls made to the provider, per method, negotiated
+     * version and calling package.  The returned {@link android.os.Bundle} contains {@link IdentityContract}.KEY_METRICS.
+     * Consumers only receive the metrics of their own calls.
+     */
+    public static final String METHOD_GET_METRICS = "getMetrics";
+
+    /**
+     * For the method {@link IdentityContract}.METHOD_GET_METRICS, maps to an {@link java.util.ArrayList} of
+     * {@link android.os.Bundle}, one per method, version and calling package, with the keys defined in
+     * {@link ProviderMetrics}.
+     */
+    public static final String KEY_METRICS = "metrics";
+
+    /**
+     * The path of the content URI <code>content://AUTHORITY/active_drivers</code>, for
+     * querying the active drivers, one row per driver
+     * with {@link android.content.ContentResolver#query}.  The projection can name any of the
+     * {@link IdentityContract}.COLUMN_ constants below.  The selection supports equality terms joined by AND, with
+     * <code>?</code>, number or single-quoted string values.  Boolean columns hold 0 or 1.
+     *
+     * <p>The provider calls {@link android.content.ContentResolver#notifyChange} for this URI when the
+     * active drivers change.  Consumers can register a {@link android.database.ContentObserver} for it
+     * and only call {@link IdentityContract}.METHOD_GET_ACTIVE_DRIVERS again when it fires, instead of polling.</p>
+     *
+     * <p>
+     * Example:
+     * <pre>
+     * <code class="language-java">
+     *     resolver.registerContentObserver(Uri.parse("content://" + authority + "/" + {@link IdentityContract}.PATH_ACTIVE_DRIVERS),
+     *             false, observer);
+     *     {@link android.database.Cursor} cursor = resolver.query(Uri.parse("content://" + authority + "/" + {@link IdentityContract}.PATH_ACTIVE_DRIVERS),
+     *             new String[]{{@link IdentityContract}.COLUMN_USERNAME},
+     *             "driving = 1", null, null);
+     * </code>
+     * </pre>
+     */
+    public static final String PATH_ACTIVE_DRIVERS = "active_drivers";
+
+    /**
+     * The username of the driver.
+     */
+    public static final String COLUMN_USERNAME = "username";
+
+    /**
+     * Is the driver driving, 0 or 1.
+     */
+    public static final String COLUMN_DRIVING = "driving";
+
     public IdentityContract() {
 
     }
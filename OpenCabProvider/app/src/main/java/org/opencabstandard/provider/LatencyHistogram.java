@@ -0,0 +1,60 @@
+package org.opencabstandard.provider;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of durations in microseconds, with one bucket per power of two.  Percentiles
+ * are reported as the upper bound of the bucket they fall in, so they are at most twice the actual
+ * value, which is enough to tell a 2 ms call from a 200 ms one.
+ */
+final class LatencyHistogram {
+
+    /**
+     * Bucket i counts durations below 2^i microseconds.  The last bucket also counts everything longer,
+     * from about 67 seconds.
+     */
+    static final int BUCKETS = 27;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    void record(long micros) {
+        counts.incrementAndGet(bucket(micros));
+    }
+
+    /**
+     * @param percentile The percentile, from 0 to 100.
+     * @return The upper bound in microseconds of the bucket holding the percentile, or zero if nothing
+     * was recorded.
+     */
+    long percentile(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    static int bucket(long micros) {
+        if (micros <= 0) {
+            return 0;
+        }
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    static long upperBound(int bucket) {
+        return 1L << bucket;
+    }
+}
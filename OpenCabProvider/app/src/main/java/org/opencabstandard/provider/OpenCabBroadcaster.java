@@ -0,0 +1,156 @@
+package org.opencabstandard.provider;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ActivityInfo;
+import android.os.Bundle;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the OpenCab broadcast intents of section 3.4 of the specification from a background
+ * thread.  Each broadcast is an explicit intent to every receiver found by an
+ * {@link OpenCabReceiverIndex}.
+ *
+ * <p>The broadcasts published within {@link #getWindowMillis()} of the first are sent together, and
+ * an action published more than once in that window is sent once, after the others.  Switching
+ * drivers then wakes each consumer once with a logout, a login and a single identity change, rather
+ * than with every intermediate change.  A login or logout is only merged with one of the same driver,
+ * as named by {@link IdentityContract#EXTRA_USERNAME} in its extras.</p>
+ *
+ * <pre>
+ * <code class="language-java">
+ *     broadcaster = new OpenCabBroadcaster(context, receiverIndex, OpenCabBroadcaster.DEFAULT_WINDOW_MILLIS);
+ *
+ *     broadcaster.publish(IdentityContract.IDENTITY_CHANGED_RECEIVER, IdentityContract.ACTION_DRIVER_LOGOUT,
+ *             OpenCabSnapshots.newIdentitySnapshot(username, null));
+ * </code>
+ * </pre>
+ */
+public final class OpenCabBroadcaster {
+    private static final String LOG_TAG = OpenCabBroadcaster.class.getName();
+
+    /**
+     * Long enough to cover the broadcasts of one driver change, short enough that consumers do not
+     * notice the delay.
+     */
+    public static final long DEFAULT_WINDOW_MILLIS = 250;
+
+    /**
+     * Decides which receivers are sent broadcasts, for example by checking their package name against
+     * a list provided by a server.  See section 5, "Security," of the specification.
+     */
+    public interface ReceiverFilter {
+
+        /**
+         * @param receiver A receiver found in the installed packages.
+         * @return True to send it broadcasts.
+         */
+        boolean accept(@NonNull ActivityInfo receiver);
+    }
+
+    private final Context context;
+    private final OpenCabReceiverIndex receiverIndex;
+    private final long windowMillis;
+    private final PendingBroadcasts pending = new PendingBroadcasts();
+    private final ScheduledThreadPoolExecutor executor;
+    private final Runnable flush = this::flush;
+    private volatile ReceiverFilter receiverFilter;
+
+    /**
+     * @param context       Any context of the app.  Its application context is kept.
+     * @param receiverIndex Finds the receivers of each broadcast.
+     * @param windowMillis  How long to collect broadcasts before sending them, or 0 to send each one as
+     *                      soon as possible.
+     */
+    public OpenCabBroadcaster(@NonNull Context context, @NonNull OpenCabReceiverIndex receiverIndex, long windowMillis) {
+        Context applicationContext = context.getApplicationContext();
+        this.context = applicationContext != null ? applicationContext : context;
+        this.receiverIndex = receiverIndex;
+        this.windowMillis = windowMillis;
+        this.executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "OpenCab-Broadcasts");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.setKeepAliveTime(30, TimeUnit.SECONDS);
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    /**
+     * @param receiverFilter Decides which receivers are sent broadcasts, or null to send them to all.
+     */
+    public void setReceiverFilter(@Nullable ReceiverFilter receiverFilter) {
+        this.receiverFilter = receiverFilter;
+    }
+
+    /**
+     * Send a broadcast to every receiver of a type, at the end of the current window.
+     *
+     * @param receiverType The last segment of the receiver class name, such as
+     *                     {@link IdentityContract#IDENTITY_CHANGED_RECEIVER}.
+     * @param action       The action, such as {@link IdentityContract#ACTION_DRIVER_LOGIN}.
+     */
+    public void publish(@NonNull String receiverType, @NonNull String action) {
+        publish(receiverType, action, null);
+    }
+
+    /**
+     * Send a broadcast with extras to every receiver of a type, at the end of the current window.  If
+     * the action is published again within the window, only the later extras are sent.
+     *
+     * @param receiverType The last segment of the receiver class name, such as
+     *                     {@link IdentityContract#IDENTITY_CHANGED_RECEIVER}.
+     * @param action       The action, such as {@link IdentityContract#ACTION_DRIVER_LOGIN}.
+     * @param extras       The extras, such as a snapshot from {@link OpenCabSnapshots}, or null.  A
+     *                     snapshot is sent with the package of the provider app added.
+     */
+    public void publish(@NonNull String receiverType, @NonNull String action, @Nullable Bundle extras) {
+        if (extras != null) {
+            extras = OpenCabSnapshots.withProviderPackage(extras, context.getPackageName());
+        }
+        if (pending.add(receiverType, action, extras)) {
+            executor.schedule(flush, windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Send the pending broadcasts on the calling thread, without waiting for the end of the window.
+     */
+    public void flush() {
+        Map<String, List<PendingBroadcasts.Broadcast>> broadcasts = pending.drain();
+        ReceiverFilter filter = receiverFilter;
+        for (Map.Entry<String, List<PendingBroadcasts.Broadcast>> entry : broadcasts.entrySet()) {
+            for (Map.Entry<String, ActivityInfo> receiver : receiverIndex.getReceivers(entry.getKey()).entrySet()) {
+                if (filter != null && !filter.accept(receiver.getValue())) {
+                    continue;
+                }
+                ComponentName component = new ComponentName(receiver.getValue().packageName, receiver.getKey());
+                for (PendingBroadcasts.Broadcast broadcast : entry.getValue()) {
+                    Intent intent = new Intent(broadcast.action);
+                    intent.setComponent(component);
+                    if (broadcast.extras != null) {
+                        intent.putExtras(broadcast.extras);
+                    }
+                    context.sendBroadcast(intent);
+                }
+            }
+        }
+        if (ProviderTracer.isLoggable(Log.DEBUG)) {
+            Log.d(LOG_TAG, "Sent " + broadcasts.keySet() + ", " + pending.getCoalescedCount() + " of "
+                    + pending.getPublishedCount() + " broadcasts coalesced so far");
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package org.opencabstandard.provider;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.ActivityInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.net.Uri;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The broadcast receivers of the installed packages, by the last segment of their class name, for
+ * publishing broadcast intents as described in section 3.4 of the specification.
+ *
+ * <p>The installed packages are scanned once, on the first lookup.  After {@link #register()}, the
+ * index is updated for each package that is added, replaced or removed, so a lookup never scans the
+ * installed packages again.</p>
+ *
+ * <pre>
+ * <code class="language-java">
+ *     receiverIndex = new OpenCabReceiverIndex(context);
+ *     receiverIndex.register();
+ *
+ *     for (ActivityInfo receiver : receiverIndex.getReceivers(IdentityContract.IDENTITY_CHANGED_RECEIVER).values()) {
+ *         Intent intent = new Intent(IdentityContract.ACTION_DRIVER_LOGOUT);
+ *         intent.setComponent(new ComponentName(receiver.packageName, receiver.name));
+ *         context.sendBroadcast(intent);
+ *     }
+ * </code>
+ * </pre>
+ *
+ * <p>Only the packages visible to the app are indexed, see the <code>queries</code> element of the
+ * manifest.</p>
+ */
+public final class OpenCabReceiverIndex {
+    private static final String LOG_TAG = OpenCabReceiverIndex.class.getName();
+
+    private final Context context;
+
+    /**
+     * The receivers of each package.  Guarded by this.
+     */
+    private final HashMap<String, ActivityInfo[]> byPackage = new HashMap<>();
+
+    /**
+     * The receivers by the last segment of their name, then by name.  The inner maps are never
+     * modified once published, so a lookup does not lock.
+     */
+    private final ConcurrentHashMap<String, Map<String, ActivityInfo>> bySuffix = new ConcurrentHashMap<>();
+
+    private volatile boolean built;
+
+    private final BroadcastReceiver packageReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            Uri data = intent.getData();
+            String packageName = data != null ? data.getSchemeSpecificPart() : null;
+            if (packageName == null) {
+                return;
+            }
+            if (Intent.ACTION_PACKAGE_REMOVED.equals(intent.getAction())) {
+                // A package being replaced is indexed again on ACTION_PACKAGE_REPLACED.
+                if (!intent.getBooleanExtra(Intent.EXTRA_REPLACING, false)) {
+                    removePackage(packageName);
+                }
+            } else {
+                updatePackage(packageName);
+            }
+        }
+    };
+
+    /**
+     * @param context Any context of the app.  Its application context is kept.
+     */
+    public OpenCabReceiverIndex(@NonNull Context context) {
+        Context applicationContext = context.getApplicationContext();
+        this.context = applicationContext != null ? applicationContext : context;
+    }
+
+    /**
+     * Start updating the index as packages are added, replaced and removed.
+     */
+    public void register() {
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addDataScheme("package");
+        context.registerReceiver(packageReceiver, filter);
+    }
+
+    /**
+     * Stop updating the index.  The next lookup scans the installed packages again.
+     */
+    public void unregister() {
+        context.unregisterReceiver(packageReceiver);
+        synchronized (this) {
+            built = false;
+        }
+    }
+
+    /**
+     * The receivers whose class name ends with the given name, as in
+     * {@link IdentityContract#IDENTITY_CHANGED_RECEIVER}.
+     *
+     * @param type The last segment of the class name.
+     * @return The receivers by class name, which must not be modified.
+     */
+    @NonNull
+    public Map<String, ActivityInfo> getReceivers(@NonNull String type) {
+        if (!built) {
+            build();
+        }
+        String suffix = type.substring(type.lastIndexOf('.') + 1);
+        Map<String, ActivityInfo> receivers = bySuffix.get(suffix);
+        if (receivers == null) {
+            return Collections.emptyMap();
+        }
+        if (suffix.length() == type.length()) {
+            return receivers;
+        }
+
+        HashMap<String, ActivityInfo> matching = new HashMap<>();
+        for (Map.Entry<String, ActivityInfo> entry : receivers.entrySet()) {
+            if (entry.getKey().endsWith("." + type)) {
+                matching.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return Collections.unmodifiableMap(matching);
+    }
+
+    private synchronized void build() {
+        if (built) {
+            return;
+        }
+        List<PackageInfo> packages = getInstalledPackages(context.getPackageManager());
+        byPackage.clear();
+        HashMap<String, HashMap<String, ActivityInfo>> index = new HashMap<>();
+        if (packages != null) {
+            for (PackageInfo packageInfo : packages) {
+                if (packageInfo.receivers == null) {
+                    continue;
+                }
+                byPackage.put(packageInfo.packageName, packageInfo.receivers);
+                for (ActivityInfo receiver : packageInfo.receivers) {
+                    String suffix = getSuffix(receiver.name);
+                    HashMap<String, ActivityInfo> receivers = index.get(suffix);
+                    if (receivers == null) {
+                        receivers = new HashMap<>();
+                        index.put(suffix, receivers);
+                    }
+                    receivers.put(receiver.name, receiver);
+                }
+            }
+        }
+        bySuffix.clear();
+        for (Map.Entry<String, HashMap<String, ActivityInfo>> entry : index.entrySet()) {
+            bySuffix.put(entry.getKey(), Collections.unmodifiableMap(entry.getValue()));
+        }
+        built = true;
+    }
+
+    /**
+     * Index the receivers of a package that was added or replaced.
+     */
+    synchronized void updatePackage(@NonNull String packageName) {
+        if (!built) {
+            return;
+        }
+        ActivityInfo[] receivers = null;
+        try {
+            receivers = getPackageInfo(context.getPackageManager(), packageName).receivers;
+        } catch (PackageManager.NameNotFoundException e) {
+            Log.w(LOG_TAG, "Package " + packageName + " is not visible", e);
+        }
+        replace(packageName, receivers);
+    }
+
+    /**
+     * Remove the receivers of a package that was uninstalled.
+     */
+    synchronized void removePackage(@NonNull String packageName) {
+        if (built) {
+            replace(packageName, null);
+        }
+    }
+
+    private void replace(@NonNull String packageName, @Nullable ActivityInfo[] receivers) {
+        ActivityInfo[] previous = receivers != null ? byPackage.put(packageName, receivers) : byPackage.remove(packageName);
+        if (previous != null) {
+            for (ActivityInfo receiver : previous) {
+                copySuffix(getSuffix(receiver.name), receiver.name, packageName, null);
+            }
+        }
+        if (receivers != null) {
+            for (ActivityInfo receiver : receivers) {
+                copySuffix(getSuffix(receiver.name), receiver.name, packageName, receiver);
+            }
+        }
+    }
+
+    /**
+     * Publish a copy of the receivers of one suffix, with the receiver of a package added or removed.
+     */
+    private void copySuffix(@NonNull String suffix, @NonNull String name, @NonNull String packageName,
+                            @Nullable ActivityInfo receiver) {
+        Map<String, ActivityInfo> existing = bySuffix.get(suffix);
+        HashMap<String, ActivityInfo> receivers = existing != null ? new HashMap<>(existing) : new HashMap<>();
+        if (receiver != null) {
+            receivers.put(name, receiver);
+        } else {
+            ActivityInfo indexed = receivers.get(name);
+            // Another package may declare a receiver with the same class name.
+            if (indexed == null || !packageName.equals(indexed.packageName)) {
+                return;
+            }
+            receivers.remove(name);
+        }
+        if (receivers.isEmpty()) {
+            bySuffix.remove(suffix);
+        } else {
+            bySuffix.put(suffix, Collections.unmodifiableMap(receivers));
+        }
+    }
+
+    /**
+     * Lists the packages with their receivers, with the flags type on API 33 and later, where the int
+     * flags are deprecated.
+     */
+    @SuppressWarnings("deprecation")
+    private static List<PackageInfo> getInstalledPackages(@NonNull PackageManager packageManager) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            return packageManager.getInstalledPackages(PackageManager.PackageInfoFlags.of(PackageManager.GET_RECEIVERS));
+        }
+        return packageManager.getInstalledPackages(PackageManager.GET_RECEIVERS);
+    }
+
+    /**
+     * Reads a package with its receivers, with the flags type on API 33 and later.
+     */
+    @NonNull
+    @SuppressWarnings("deprecation")
+    private static PackageInfo getPackageInfo(@NonNull PackageManager packageManager, @NonNull String packageName)
+            throws PackageManager.NameNotFoundException {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            return packageManager.getPackageInfo(packageName, PackageManager.PackageInfoFlags.of(PackageManager.GET_RECEIVERS));
+        }
+        return packageManager.getPackageInfo(packageName, PackageManager.GET_RECEIVERS);
+    }
+
+    @NonNull
+    private static String getSuffix(@NonNull String name) {
+        return name.substring(name.lastIndexOf('.') + 1);
+    }
+}
@@ -0,0 +1,235 @@
+package org.opencabstandard.provider;
+
+import android.os.Bundle;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Builds and reads the snapshot extras of the OpenCab broadcasts, described at
+ * {@link IdentityContract#EXTRA_SNAPSHOT_VERSION} and {@link VehicleInformationContract#EXTRA_SNAPSHOT_VERSION}.
+ *
+ * <pre>
+ * <code class="language-java">
+ *     broadcaster.publish(IdentityContract.IDENTITY_CHANGED_RECEIVER, IdentityContract.ACTION_DRIVER_LOGIN,
+ *             OpenCabSnapshots.newIdentitySnapshot(username, activeDrivers));
+ * </code>
+ * </pre>
+ */
+public final class OpenCabSnapshots {
+    private static final AtomicLong EPOCH = new AtomicLong();
+
+    private OpenCabSnapshots() {
+    }
+
+    /**
+     * The latest epoch read from each provider, for consumers that skip snapshots delivered out of order.
+     * Providers count their epochs independently, so a snapshot is only compared with earlier snapshots
+     * of the same provider.
+     *
+     * <pre>
+     * <code class="language-java">
+     *     private static final OpenCabSnapshots.LatestEpochs EPOCHS = new OpenCabSnapshots.LatestEpochs();
+     *
+     *     if (EPOCHS.update(intent.getExtras())) {
+     *         activeDrivers = OpenCabSnapshots.getActiveDrivers(intent.getExtras());
+     *     }
+     * </code>
+     * </pre>
+     */
+    public static final class LatestEpochs {
+        private final ConcurrentHashMap<String, AtomicLong> epochs = new ConcurrentHashMap<>();
+
+        /**
+         * @param extras The extras of an identity or vehicle information broadcast.
+         * @return True if the broadcast carries a snapshot at least as recent as every snapshot read from
+         * the same provider, which is then the latest.
+         */
+        public boolean update(@Nullable Bundle extras) {
+            return update(getProviderPackage(extras), getEpoch(extras));
+        }
+
+        /**
+         * @param providerPackage The package of the provider, or null if the snapshot does not name it.
+         * @param epoch           The epoch of the snapshot, or 0 if there is none.
+         * @return True if the epoch is at least the latest one of the provider, which it then becomes.
+         */
+        boolean update(@Nullable String providerPackage, long epoch) {
+            if (epoch == 0) {
+                return false;
+            }
+            // Providers that do not name themselves share one epoch.
+            String key = providerPackage != null ? providerPackage : "";
+            AtomicLong latest = epochs.get(key);
+            if (latest == null) {
+                epochs.putIfAbsent(key, new AtomicLong());
+                latest = epochs.get(key);
+            }
+            return latest.accumulateAndGet(epoch, Math::max) == epoch;
+        }
+    }
+
+    /**
+     * The next epoch: at least the wall clock time in milliseconds, so that it keeps increasing when the
+     * provider restarts, and always higher than the previous one.
+     */
+    static long nextEpoch(long nowMillis) {
+        while (true) {
+            long previous = EPOCH.get();
+            long next = Math.max(previous + 1, nowMillis);
+            if (EPOCH.compareAndSet(previous, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * @param username      The driver the change is about, or null.
+     * @param activeDrivers The active drivers after the change, or null if there are none.
+     * @return The extras of an identity broadcast.
+     */
+    @NonNull
+    public static Bundle newIdentitySnapshot(@Nullable String username, @Nullable List<IdentityContract.Driver> activeDrivers) {
+        int count = activeDrivers != null ? activeDrivers.size() : 0;
+        String[] usernames = new String[count];
+        boolean[] driving = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            usernames[i] = activeDrivers.get(i).getUsername();
+            driving[i] = activeDrivers.get(i).isDriving();
+        }
+
+        Bundle extras = new Bundle();
+        extras.putInt(IdentityContract.EXTRA_SNAPSHOT_VERSION, IdentityContract.SNAPSHOT_VERSION);
+        extras.putLong(IdentityContract.EXTRA_SNAPSHOT_EPOCH, nextEpoch(System.currentTimeMillis()));
+        if (username != null) {
+            extras.putString(IdentityContract.EXTRA_USERNAME, username);
+        }
+        extras.putStringArray(IdentityContract.EXTRA_ACTIVE_DRIVER_USERNAMES, usernames);
+        extras.putBooleanArray(IdentityContract.EXTRA_ACTIVE_DRIVERS_DRIVING, driving);
+        return extras;
+    }
+
+    /**
+     * @param vehicleInformation The vehicle information after the change, or null if the device is not
+     *                           in a vehicle.
+     * @return The extras of a vehicle information broadcast.
+     */
+    @NonNull
+    public static Bundle newVehicleInformationSnapshot(@Nullable VehicleInformationContract.VehicleInformation vehicleInformation) {
+        Bundle extras = new Bundle();
+        extras.putInt(VehicleInformationContract.EXTRA_SNAPSHOT_VERSION, VehicleInformationContract.SNAPSHOT_VERSION);
+        extras.putLong(VehicleInformationContract.EXTRA_SNAPSHOT_EPOCH, nextEpoch(System.currentTimeMillis()));
+        if (vehicleInformation != null) {
+            extras.putString(VehicleInformationContract.EXTRA_VIN, vehicleInformation.getVin());
+            extras.putString(VehicleInformationContract.EXTRA_VEHICLE_ID, vehicleInformation.getVehicleId());
+            extras.putBoolean(VehicleInformationContract.EXTRA_IN_GEAR, vehicleInformation.isInGear());
+        }
+        return extras;
+    }
+
+    /**
+     * @param extras The extras of an identity broadcast.
+     * @return The active drivers of the snapshot, or null if the broadcast carries no snapshot this
+     * version understands, in which case call <code>METHOD_GET_ACTIVE_DRIVERS</code>.
+     */
+    @Nullable
+    public static ArrayList<IdentityContract.Driver> getActiveDrivers(@Nullable Bundle extras) {
+        if (extras == null || extras.getInt(IdentityContract.EXTRA_SNAPSHOT_VERSION, 0) < IdentityContract.SNAPSHOT_VERSION) {
+            return null;
+        }
+        String[] usernames = extras.getStringArray(IdentityContract.EXTRA_ACTIVE_DRIVER_USERNAMES);
+        boolean[] driving = extras.getBooleanArray(IdentityContract.EXTRA_ACTIVE_DRIVERS_DRIVING);
+        if (usernames == null || driving == null || driving.length != usernames.length) {
+            return null;
+        }
+        ArrayList<IdentityContract.Driver> activeDrivers = new ArrayList<>(usernames.length);
+        for (int i = 0; i < usernames.length; i++) {
+            IdentityContract.Driver driver = new IdentityContract.Driver();
+            driver.setUsername(usernames[i]);
+            driver.setDriving(driving[i]);
+            activeDrivers.add(driver);
+        }
+        return activeDrivers;
+    }
+
+    /**
+     * @param extras The extras of a vehicle information broadcast.
+     * @return True if the broadcast carries a snapshot this version understands.  The vehicle
+     * information is then read with {@link #getVehicleInformation(Bundle)}.
+     */
+    public static boolean hasVehicleInformation(@Nullable Bundle extras) {
+        return extras != null
+                && extras.getInt(VehicleInformationContract.EXTRA_SNAPSHOT_VERSION, 0) >= VehicleInformationContract.SNAPSHOT_VERSION;
+    }
+
+    /**
+     * @param extras The extras of a vehicle information broadcast.
+     * @return The vehicle information of the snapshot, or null if the broadcast carries no snapshot this
+     * version understands, or the device is not in a vehicle.
+     */
+    @Nullable
+    public static VehicleInformationContract.VehicleInformation getVehicleInformation(@Nullable Bundle extras) {
+        if (!hasVehicleInformation(extras)
+                || (!extras.containsKey(VehicleInformationContract.EXTRA_VIN) && !extras.containsKey(VehicleInformationContract.EXTRA_VEHICLE_ID))) {
+            return null;
+        }
+        VehicleInformationContract.VehicleInformation vehicleInformation = new VehicleInformationContract.VehicleInformation();
+        vehicleInformation.setVin(extras.getString(VehicleInformationContract.EXTRA_VIN));
+        vehicleInformation.setVehicleId(extras.getString(VehicleInformationContract.EXTRA_VEHICLE_ID));
+        vehicleInformation.setInGear(extras.getBoolean(VehicleInformationContract.EXTRA_IN_GEAR));
+        return vehicleInformation;
+    }
+
+    /**
+     * The extras with the package of the provider sending them, if they are a snapshot.
+     *
+     * @param extras          The extras of an identity or vehicle information broadcast.
+     * @param providerPackage The package of the provider app.
+     * @return A copy of the extras with the provider package, or the extras themselves if they are not
+     * a snapshot.
+     */
+    @NonNull
+    static Bundle withProviderPackage(@NonNull Bundle extras, @NonNull String providerPackage) {
+        String key;
+        if (extras.containsKey(IdentityContract.EXTRA_SNAPSHOT_VERSION)) {
+            key = IdentityContract.EXTRA_PROVIDER_PACKAGE;
+        } else if (extras.containsKey(VehicleInformationContract.EXTRA_SNAPSHOT_VERSION)) {
+            key = VehicleInformationContract.EXTRA_PROVIDER_PACKAGE;
+        } else {
+            return extras;
+        }
+        Bundle copy = new Bundle(extras);
+        copy.putString(key, providerPackage);
+        return copy;
+    }
+
+    /**
+     * @param extras The extras of an identity or vehicle information broadcast.
+     * @return The package of the provider that sent the snapshot, or null if it is not named.
+     */
+    @Nullable
+    public static String getProviderPackage(@Nullable Bundle extras) {
+        if (extras == null) {
+            return null;
+        }
+        String providerPackage = extras.getString(IdentityContract.EXTRA_PROVIDER_PACKAGE);
+        return providerPackage != null ? providerPackage : extras.getString(VehicleInformationContract.EXTRA_PROVIDER_PACKAGE);
+    }
+
+    /**
+     * @param extras The extras of an identity or vehicle information broadcast.
+     * @return The epoch of the snapshot, or 0 if there is none.
+     */
+    public static long getEpoch(@Nullable Bundle extras) {
+        if (extras == null) {
+            return 0;
+        }
+        long epoch = extras.getLong(IdentityContract.EXTRA_SNAPSHOT_EPOCH, 0);
+        return epoch != 0 ? epoch : extras.getLong(VehicleInformationContract.EXTRA_SNAPSHOT_EPOCH, 0);
+    }
+}
@@ -0,0 +1,92 @@
+package org.opencabstandard.provider;
+
+import android.os.Bundle;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The broadcasts published within one window, by receiver class name, in the order they are sent.
+ * An action published again while it is pending is moved to the end rather than sent twice, so the
+ * last broadcast of each action reflects the final state.  A logout followed by a login sends both,
+ * as the specification requires, but a login, logout and login again sends one logout and one login.
+ * The extras of the last occurrence of an action are sent, as they hold the latest snapshot.
+ *
+ * <p>A login or logout is only coalesced with one of the same {@link IdentityContract#EXTRA_USERNAME},
+ * so that the logout of one team driver is not dropped by the logout of another.</p>
+ */
+final class PendingBroadcasts {
+
+    static final class Broadcast {
+        @NonNull
+        final String action;
+        @Nullable
+        final Bundle extras;
+
+        Broadcast(@NonNull String action, @Nullable Bundle extras) {
+            this.action = action;
+            this.extras = extras;
+        }
+    }
+
+    private final LinkedHashMap<String, LinkedHashMap<String, Broadcast>> actions = new LinkedHashMap<>();
+    private int published;
+    private int coalesced;
+
+    /**
+     * @return True if this is the first broadcast of the window.
+     */
+    synchronized boolean add(@NonNull String receiverType, @NonNull String action, @Nullable Bundle extras) {
+        boolean first = actions.isEmpty();
+        LinkedHashMap<String, Broadcast> pending = actions.get(receiverType);
+        if (pending == null) {
+            pending = new LinkedHashMap<>();
+            actions.put(receiverType, pending);
+        }
+        String key = getKey(action, extras);
+        if (pending.remove(key) != null) {
+            coalesced++;
+        }
+        pending.put(key, new Broadcast(action, extras));
+        published++;
+        return first;
+    }
+
+    /**
+     * Take the broadcasts of the window, leaving none pending.
+     *
+     * @return The broadcasts to send, in order, by receiver class name.
+     */
+    @NonNull
+    synchronized Map<String, List<Broadcast>> drain() {
+        LinkedHashMap<String, List<Broadcast>> drained = new LinkedHashMap<>();
+        for (Map.Entry<String, LinkedHashMap<String, Broadcast>> entry : actions.entrySet()) {
+            drained.put(entry.getKey(), new ArrayList<>(entry.getValue().values()));
+        }
+        actions.clear();
+        return drained;
+    }
+
+    @NonNull
+    private static String getKey(@NonNull String action, @Nullable Bundle extras) {
+        if (extras == null || !(IdentityContract.ACTION_DRIVER_LOGIN.equals(action)
+                || IdentityContract.ACTION_DRIVER_LOGOUT.equals(action))) {
+            return action;
+        }
+        String username = extras.getString(IdentityContract.EXTRA_USERNAME);
+        return username != null ? action + "/" + username : action;
+    }
+
+    synchronized int getPublishedCount() {
+        return published;
+    }
+
+    synchronized int getCoalescedCount() {
+        return coalesced;
+    }
+}
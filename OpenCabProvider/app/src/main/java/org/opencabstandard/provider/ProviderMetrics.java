@@ -0,0 +1,277 @@
+package org.opencabstandard.provider;
+
+import android.os.Bundle;
+import android.os.Parcel;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The calls made to a provider, counted per method, negotiated version and calling package.  Every
+ * provider extending {@link AbstractOpenCabProvider} records them, and returns them for METHOD_GET_METRICS
+ * in KEY_METRICS, an {@link ArrayList} of {@link Bundle} with the keys below.
+ *
+ * <pre>
+ * <code class="language-java">
+ *     Bundle result = resolver.call(uri, HOSContract.METHOD_GET_METRICS, HOSContract.VERSION, null);
+ *     for (Bundle metrics : result.&lt;Bundle&gt;getParcelableArrayList(HOSContract.KEY_METRICS)) {
+ *         Log.d(TAG, metrics.getString(ProviderMetrics.METRIC_METHOD) + ": "
+ *                 + metrics.getLong(ProviderMetrics.METRIC_LATENCY_P95_MICROS) + " us");
+ *     }
+ * </code>
+ * </pre>
+ *
+ * <p>The same figures are printed by <code>adb shell dumpsys activity provider</code> followed by the
+ * name of the provider class.</p>
+ */
+public final class ProviderMetrics {
+
+    /**
+     * The method called, a String.
+     */
+    public static final String METRIC_METHOD = "metric_method";
+
+    /**
+     * The negotiated contract version, a String, or null for methods that do not depend on the version
+     * and for calls whose version was not supported.
+     */
+    public static final String METRIC_VERSION = "metric_version";
+
+    /**
+     * The package of the consumer, a String, or null if it is not known.
+     */
+    public static final String METRIC_CALLER = "metric_caller";
+
+    /**
+     * The number of calls, a long.
+     */
+    public static final String METRIC_CALLS = "metric_calls";
+
+    /**
+     * The number of calls that returned KEY_ERROR or threw an exception, a long.
+     */
+    public static final String METRIC_ERRORS = "metric_errors";
+
+    /**
+     * The median duration of the calls in microseconds, a long.  Durations are bucketed by powers of two,
+     * and each percentile is the upper bound of its bucket.
+     */
+    public static final String METRIC_LATENCY_P50_MICROS = "metric_latency_p50_micros";
+
+    /**
+     * The 95th percentile of the duration of the calls in microseconds, a long.
+     */
+    public static final String METRIC_LATENCY_P95_MICROS = "metric_latency_p95_micros";
+
+    /**
+     * The 99th percentile of the duration of the calls in microseconds, a long.
+     */
+    public static final String METRIC_LATENCY_P99_MICROS = "metric_latency_p99_micros";
+
+    /**
+     * The average encoded size of the results in bytes, a long.  Measuring the size requires encoding
+     * the result a second time, so it is measured for one call in {@link #SIZE_SAMPLE_INTERVAL}.
+     */
+    public static final String METRIC_AVERAGE_BYTES = "metric_average_bytes";
+
+    /**
+     * The largest encoded size of the measured results in bytes, a long.
+     */
+    public static final String METRIC_MAX_BYTES = "metric_max_bytes";
+
+    /**
+     * The result of every this many calls, starting with the first, is measured.
+     */
+    public static final int SIZE_SAMPLE_INTERVAL = 16;
+
+    /**
+     * Upper bound on the number of method, version and package combinations recorded, so that consumers
+     * passing arbitrary method names or versions cannot grow the metrics indefinitely.  Calls beyond it
+     * are not recorded.
+     */
+    private static final int MAX_ENTRIES = 256;
+
+    private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    ProviderMetrics() {
+
+    }
+
+    private static final class Key {
+        final String method;
+        final String version;
+        final String caller;
+        final int hash;
+
+        Key(String method, String version, String caller) {
+            this.method = method;
+            this.version = version;
+            this.caller = caller;
+            int hash = method.hashCode();
+            hash = 31 * hash + (version != null ? version.hashCode() : 0);
+            this.hash = 31 * hash + (caller != null ? caller.hashCode() : 0);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return hash == key.hash && method.equals(key.method) && equal(version, key.version) && equal(caller, key.caller);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        private static boolean equal(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+
+    /**
+     * The metrics of one method, version and calling package.
+     */
+    static final class Entry {
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicLong sizeSamples = new AtomicLong();
+        private final AtomicLong sizeTotal = new AtomicLong();
+        private final AtomicLong sizeMax = new AtomicLong();
+
+        /**
+         * Record one call.
+         *
+         * @return True if the size of its result should be measured with {@link #recordSize(Bundle)}.
+         */
+        boolean record(long micros, boolean error) {
+            long count = calls.incrementAndGet();
+            if (error) {
+                errors.incrementAndGet();
+            }
+            latency.record(micros);
+            return (count - 1) % SIZE_SAMPLE_INTERVAL == 0;
+        }
+
+        void recordSize(@NonNull Bundle result) {
+            int size;
+            Parcel parcel = Parcel.obtain();
+            try {
+                parcel.writeBundle(result);
+                size = parcel.dataSize();
+            } catch (RuntimeException e) {
+                // Results holding binders or file descriptors can not be marshalled.
+                return;
+            } finally {
+                parcel.recycle();
+            }
+            sizeSamples.incrementAndGet();
+            sizeTotal.addAndGet(size);
+            long max;
+            while (size > (max = sizeMax.get()) && !sizeMax.compareAndSet(max, size)) {
+                // Retry until the maximum is at least this size.
+            }
+        }
+
+        long averageBytes() {
+            long samples = sizeSamples.get();
+            return samples > 0 ? sizeTotal.get() / samples : 0;
+        }
+    }
+
+    /**
+     * The entry of one method, version and calling package, created on first use.
+     *
+     * @return The entry, or null if {@link #MAX_ENTRIES} are already recorded.
+     */
+    @Nullable
+    Entry get(@NonNull String method, @Nullable String version, @Nullable String caller) {
+        Key key = new Key(method, version, caller);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            if (entries.size() >= MAX_ENTRIES) {
+                return null;
+            }
+            Entry created = new Entry();
+            entry = entries.putIfAbsent(key, created);
+            if (entry == null) {
+                entry = created;
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * The metrics for KEY_METRICS.
+     *
+     * @param everyCaller True to return the metrics of every calling package.
+     * @param caller      Otherwise, the calling package whose metrics are returned.
+     */
+    @NonNull
+    ArrayList<Bundle> toBundles(boolean everyCaller, @Nullable String caller) {
+        ArrayList<Bundle> result = new ArrayList<>();
+        for (Map.Entry<Key, Entry> mapEntry : entries.entrySet()) {
+            Key key = mapEntry.getKey();
+            if (!everyCaller && (caller == null || !caller.equals(key.caller))) {
+                continue;
+            }
+            Entry entry = mapEntry.getValue();
+            Bundle metrics = new Bundle();
+            metrics.putString(METRIC_METHOD, key.method);
+            metrics.putString(METRIC_VERSION, key.version);
+            metrics.putString(METRIC_CALLER, key.caller);
+            metrics.putLong(METRIC_CALLS, entry.calls.get());
+            metrics.putLong(METRIC_ERRORS, entry.errors.get());
+            metrics.putLong(METRIC_LATENCY_P50_MICROS, entry.latency.percentile(50));
+            metrics.putLong(METRIC_LATENCY_P95_MICROS, entry.latency.percentile(95));
+            metrics.putLong(METRIC_LATENCY_P99_MICROS, entry.latency.percentile(99));
+            metrics.putLong(METRIC_AVERAGE_BYTES, entry.averageBytes());
+            metrics.putLong(METRIC_MAX_BYTES, entry.sizeMax.get());
+            result.add(metrics);
+        }
+        return result;
+    }
+
+    /**
+     * Print every entry, one per line, for {@link AbstractOpenCabProvider#dump}.
+     */
+    void dump(@NonNull PrintWriter writer) {
+        writer.println("Calls (method version caller: calls errors p50/p95/p99 us avg/max bytes):");
+        for (Map.Entry<Key, Entry> mapEntry : entries.entrySet()) {
+            Key key = mapEntry.getKey();
+            Entry entry = mapEntry.getValue();
+            writer.print("  ");
+            writer.print(key.method);
+            writer.print(' ');
+            writer.print(key.version);
+            writer.print(' ');
+            writer.print(key.caller);
+            writer.print(": ");
+            writer.print(entry.calls.get());
+            writer.print(' ');
+            writer.print(entry.errors.get());
+            writer.print(' ');
+            writer.print(entry.latency.percentile(50));
+            writer.print('/');
+            writer.print(entry.latency.percentile(95));
+            writer.print('/');
+            writer.print(entry.latency.percentile(99));
+            writer.print(' ');
+            writer.print(entry.averageBytes());
+            writer.print('/');
+            writer.println(entry.sizeMax.get());
+        }
+    }
+}
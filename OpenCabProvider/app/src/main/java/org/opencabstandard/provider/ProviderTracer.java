@@ -0,0 +1,107 @@
+package org.opencabstandard.provider;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.PrintWriter;
+
+/**
+ * The most recent calls made to a provider, kept in a ring buffer.  Recording a call only stores its
+ * arguments, so nothing is formatted unless the calls are dumped or logging is enabled with
+ * <code>adb shell setprop log.tag.OpenCab DEBUG</code>.
+ *
+ * <p>The Trace section names below mark each stage of a call in systrace and Perfetto captures.  They
+ * are constants so that beginning a section does not build a string.</p>
+ */
+final class ProviderTracer {
+
+    /**
+     * The log tag checked before building any log message on the call path.  It is shorter than the
+     * class names used elsewhere because {@link Log#isLoggable} rejects tags longer than 23 characters
+     * before API 26.
+     */
+    static final String TAG = "OpenCab";
+
+    static final String SECTION_CALL = "OpenCab call";
+    static final String SECTION_RESOLVE_VERSION = "OpenCab resolveVersion";
+    static final String SECTION_HANDLE = "OpenCab handle";
+    static final String SECTION_SPLIT = "OpenCab split";
+    static final String SECTION_QUERY = "OpenCab query";
+
+    /**
+     * The number of calls kept.
+     */
+    private static final int CAPACITY = 128;
+
+    private final String[] methods = new String[CAPACITY];
+    private final String[] versions = new String[CAPACITY];
+    private final String[] callers = new String[CAPACITY];
+    private final long[] startMillis = new long[CAPACITY];
+    private final long[] durationMicros = new long[CAPACITY];
+    private final boolean[] errors = new boolean[CAPACITY];
+    private long count;
+
+    /**
+     * @param level The {@link Log} level.
+     * @return True if messages of this level should be built and logged.
+     */
+    static boolean isLoggable(int level) {
+        return Log.isLoggable(TAG, level);
+    }
+
+    /**
+     * Record one call.
+     *
+     * @param method      The method called.
+     * @param version     The negotiated version, or the version passed if it was not supported.
+     * @param caller      The package of the consumer, or null if it is not known.
+     * @param startMillis The {@link SystemClock#elapsedRealtime()} when the call started.
+     * @param micros      The duration of the call.
+     * @param error       True if the call returned KEY_ERROR or threw an exception.
+     */
+    void record(@NonNull String method, @Nullable String version, @Nullable String caller, long startMillis, long micros, boolean error) {
+        synchronized (this) {
+            int index = (int) (count++ % CAPACITY);
+            methods[index] = method;
+            versions[index] = version;
+            callers[index] = caller;
+            this.startMillis[index] = startMillis;
+            durationMicros[index] = micros;
+            errors[index] = error;
+        }
+        if (isLoggable(Log.DEBUG)) {
+            Log.d(TAG, method + " " + version + " from " + caller + " took " + micros + " us" + (error ? ", failed" : ""));
+        }
+    }
+
+    /**
+     * Print the recorded calls, oldest first, for {@link AbstractOpenCabProvider#dump}.
+     */
+    void dump(@NonNull PrintWriter writer) {
+        long now = SystemClock.elapsedRealtime();
+        writer.println("Recent calls (ms ago, method, version, caller, us):");
+        synchronized (this) {
+            long first = Math.max(0, count - CAPACITY);
+            for (long i = first; i < count; i++) {
+                int index = (int) (i % CAPACITY);
+                writer.print("  -");
+                writer.print(now - startMillis[index]);
+                writer.print(' ');
+                writer.print(methods[index]);
+                writer.print(' ');
+                writer.print(versions[index]);
+                writer.print(' ');
+                writer.print(callers[index]);
+                writer.print(' ');
+                writer.print(durationMicros[index]);
+                if (errors[index]) {
+                    writer.print(" error");
+                }
+                writer.println();
+            }
+        }
+    }
+}
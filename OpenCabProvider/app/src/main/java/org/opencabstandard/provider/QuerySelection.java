@@ -0,0 +1,137 @@
+package org.opencabstandard.provider;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The selection of a {@link android.content.ContentProvider#query} call on an OpenCab provider.  The
+ * providers do not use SQL, so only equality terms joined by AND are supported, for example
+ * <code>username = ? AND important = 1</code>.  Values are either a <code>?</code> bound to the next
+ * selection argument, a number, or a single-quoted string.
+ *
+ * <p>As in SQL, a term never matches a null column value.  Boolean columns hold 0 or 1.</p>
+ */
+final class QuerySelection {
+
+    private static final Pattern TERM = Pattern.compile("\\s*(\\w+)\\s*=\\s*(\\?|-?\\d+(?:\\.\\d+)?|'(?:[^']|'')*')\\s*");
+    private static final Pattern AND = Pattern.compile("(?i)AND\\b");
+
+    private static final QuerySelection ALL = new QuerySelection(new int[0], new String[0]);
+
+    private final int[] columns;
+    private final String[] values;
+
+    private QuerySelection(int[] columns, String[] values) {
+        this.columns = columns;
+        this.values = values;
+    }
+
+    /**
+     * Parse a selection.
+     *
+     * @param selection     The selection, or null to select every row.
+     * @param selectionArgs The values bound to each <code>?</code>, in order.
+     * @param columnNames   The columns of the rows being selected.
+     * @return The parsed selection.
+     * @throws IllegalArgumentException If the selection is not supported, names an unknown column, or
+     *                                  does not have an argument for every <code>?</code>.
+     */
+    @NonNull
+    static QuerySelection parse(@Nullable String selection, @Nullable String[] selectionArgs, @NonNull String[] columnNames) {
+        if (selection == null || selection.trim().isEmpty()) {
+            return ALL;
+        }
+        int terms = 1;
+        Matcher and = AND.matcher(selection);
+        while (and.find()) {
+            terms++;
+        }
+        int[] columns = new int[terms];
+        String[] values = new String[terms];
+        int count = 0;
+        int arg = 0;
+        Matcher matcher = TERM.matcher(selection);
+        int position = 0;
+        while (true) {
+            matcher.region(position, selection.length());
+            if (!matcher.lookingAt() || count == terms) {
+                throw new IllegalArgumentException("Unsupported selection: " + selection);
+            }
+            columns[count] = indexOf(columnNames, matcher.group(1));
+            String value = matcher.group(2);
+            if ("?".equals(value)) {
+                if (selectionArgs == null || arg >= selectionArgs.length) {
+                    throw new IllegalArgumentException("Missing selection argument " + (arg + 1) + ": " + selection);
+                }
+                value = selectionArgs[arg++];
+            } else if (value.startsWith("'")) {
+                value = value.substring(1, value.length() - 1).replace("''", "'");
+            }
+            values[count++] = value;
+            position = matcher.end();
+            if (position == selection.length()) {
+                break;
+            }
+            Matcher next = AND.matcher(selection);
+            next.region(position, selection.length());
+            if (!next.lookingAt()) {
+                throw new IllegalArgumentException("Unsupported selection: " + selection);
+            }
+            position = next.end();
+        }
+        if (count < terms) {
+            int[] trimmedColumns = new int[count];
+            String[] trimmedValues = new String[count];
+            System.arraycopy(columns, 0, trimmedColumns, 0, count);
+            System.arraycopy(values, 0, trimmedValues, 0, count);
+            return new QuerySelection(trimmedColumns, trimmedValues);
+        }
+        return new QuerySelection(columns, values);
+    }
+
+    /**
+     * The index of a column.
+     *
+     * @throws IllegalArgumentException If there is no such column.
+     */
+    static int indexOf(@NonNull String[] columnNames, @NonNull String column) {
+        for (int i = 0; i < columnNames.length; i++) {
+            if (columnNames[i].equalsIgnoreCase(column)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown column: " + column);
+    }
+
+    /**
+     * Does the row match every term of the selection.
+     *
+     * @param row The column values, in the order of the column names passed to {@link #parse}.
+     * @return True if the row is selected.
+     */
+    boolean matches(@NonNull Object[] row) {
+        for (int i = 0; i < columns.length; i++) {
+            if (!matches(row[columns[i]], values[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(Object actual, String expected) {
+        if (actual == null || expected == null) {
+            return false;
+        }
+        if (actual instanceof Number) {
+            try {
+                return ((Number) actual).doubleValue() == Double.parseDouble(expected);
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        return actual.toString().equals(expected);
+    }
+}
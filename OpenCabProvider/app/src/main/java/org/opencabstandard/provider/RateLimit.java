@@ -0,0 +1,39 @@
+package org.opencabstandard.provider;
+
+/**
+ * The budget of calls a single consumer may make to one provider method, as a token bucket: the
+ * consumer may make {@link #getBurst()} calls at once, and then {@link #getPermitsPerSecond()} calls
+ * per second.  See {@link AbstractOpenCabProvider#getRateLimit(String)}.
+ */
+public final class RateLimit {
+    private final double permitsPerSecond;
+    private final int burst;
+
+    /**
+     * @param permitsPerSecond The sustained number of calls allowed per second.
+     * @param burst            The number of calls allowed at once.
+     * @throws IllegalArgumentException If either value is not positive.
+     */
+    public RateLimit(double permitsPerSecond, int burst) {
+        if (!(permitsPerSecond > 0) || burst < 1) {
+            throw new IllegalArgumentException("Invalid rate limit: " + permitsPerSecond + "/s, burst " + burst);
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * The time between two calls at the sustained rate.
+     */
+    long getIntervalNanos() {
+        return (long) (1000000000L / permitsPerSecond);
+    }
+}
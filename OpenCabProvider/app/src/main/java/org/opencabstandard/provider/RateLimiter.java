@@ -0,0 +1,88 @@
+package org.opencabstandard.provider;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One token bucket per calling package and method.  Each bucket is a single {@link AtomicLong} holding
+ * the time at which it will be full again, so admitting a call is one map lookup and one
+ * compare-and-set, without locking.
+ */
+final class RateLimiter {
+
+    /**
+     * Upper bound on the number of buckets.  Callers beyond it are not limited, rather than evicting
+     * the buckets of callers that are.
+     */
+    private static final int MAX_BUCKETS = 256;
+
+    private final ConcurrentHashMap<Key, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    private static final class Key {
+        final String caller;
+        final String method;
+
+        Key(String caller, String method) {
+            this.caller = caller;
+            this.method = method;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return method.equals(key.method) && (caller == null ? key.caller == null : caller.equals(key.caller));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * method.hashCode() + (caller != null ? caller.hashCode() : 0);
+        }
+    }
+
+    /**
+     * Take a token for one call.
+     *
+     * @param caller   The package of the consumer, or null if it is not known.
+     * @param method   The method called.
+     * @param limit    The budget of the method.
+     * @param nowNanos A monotonic clock, in nanoseconds.
+     * @return Zero if the call is admitted, and otherwise the number of milliseconds until it would be.
+     */
+    long acquire(@Nullable String caller, @NonNull String method, @NonNull RateLimit limit, long nowNanos) {
+        Key key = new Key(caller, method);
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= MAX_BUCKETS) {
+                return 0;
+            }
+            AtomicLong created = new AtomicLong(nowNanos);
+            bucket = buckets.putIfAbsent(key, created);
+            if (bucket == null) {
+                bucket = created;
+            }
+        }
+
+        long interval = limit.getIntervalNanos();
+        long tolerance = interval * (limit.getBurst() - 1);
+        while (true) {
+            long full = bucket.get();
+            long start = Math.max(full, nowNanos);
+            long waitNanos = start - tolerance - nowNanos;
+            if (waitNanos > 0) {
+                return (waitNanos + 999999) / 1000000;
+            }
+            if (bucket.compareAndSet(full, start + interval)) {
+                return 0;
+            }
+        }
+    }
+}
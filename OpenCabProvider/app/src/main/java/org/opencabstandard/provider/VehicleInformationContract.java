@@ -61,6 +61,61 @@ public final class VehicleInformationContract {
      */
     public static final String ACTION_VEHICLE_INFORMATION_CHANGED = "com.opencabstandard.VEHICLE_INFORMATION_CHANGED";
 
+    /**
+     * The version of the snapshot extras a provider MAY add to {@link #ACTION_VEHICLE_INFORMATION_CHANGED},
+     * as an int.  The extras are absent from the broadcasts of providers that do not send them.  Later
+     * versions only add extras, so a consumer that understands version 1 can read any version from 1 up.
+     *
+     * <p>A consumer that reads the vehicle information from the snapshot does not need to call
+     * <code>METHOD_GET_VEHICLE_INFORMATION</code> after the broadcast.  The extras are plain strings and booleans,
+     * so reading them needs none of the classes of this contract.</p>
+     *
+     * <pre>
+     * <code class="language-java">
+     *     public void onReceive(Context context, Intent intent) {
+     *         if (intent.getIntExtra({@link VehicleInformationContract}.EXTRA_SNAPSHOT_VERSION, 0) &gt;= {@link VehicleInformationContract}.SNAPSHOT_VERSION) {
+     *             String vin = intent.getStringExtra({@link VehicleInformationContract}.EXTRA_VIN);
+     *         }
+     *     }
+     * </code>
+     * </pre>
+     */
+    public static final String EXTRA_SNAPSHOT_VERSION = "org.opencabstandard.vehicleinformation.EXTRA_SNAPSHOT_VERSION";
+
+    /**
+     * The version of the snapshot extras described by this contract.
+     */
+    public static final int SNAPSHOT_VERSION = 1;
+
+    /**
+     * A long that increases with every snapshot a provider sends, even across restarts of the provider.
+     * Broadcasts may arrive out of order, so a consumer SHOULD ignore a snapshot whose epoch is lower than
+     * the last one it read from the same provider.
+     */
+    public static final String EXTRA_SNAPSHOT_EPOCH = "org.opencabstandard.vehicleinformation.EXTRA_SNAPSHOT_EPOCH";
+
+    /**
+     * The package of the provider that sent the snapshot, as a String.  Each provider has its own
+     * {@link #EXTRA_SNAPSHOT_EPOCH}, so a consumer compares epochs per provider package.
+     */
+    public static final String EXTRA_PROVIDER_PACKAGE = "org.opencabstandard.vehicleinformation.EXTRA_PROVIDER_PACKAGE";
+
+    /**
+     * The VIN of the vehicle after the change, as a String.  Absent if the device is not in a vehicle.
+     */
+    public static final String EXTRA_VIN = "org.opencabstandard.vehicleinformation.EXTRA_VIN";
+
+    /**
+     * The identifier of the vehicle after the change, as a String.  Absent if the device is not in a
+     * vehicle.
+     */
+    public static final String EXTRA_VEHICLE_ID = "org.opencabstandard.vehicleinformation.EXTRA_VEHICLE_ID";
+
+    /**
+     * Whether the vehicle is in gear after the change, as a boolean.
+     */
+    public static final String EXTRA_IN_GEAR = "org.opencabstandard.vehicleinformation.EXTRA_IN_GEAR";
+
     /**
      * Provider method for retrieving the vehicle information.
      *
@@ -120,6 +175,22 @@ public final class VehicleInformationContract {
      */
     public static final String KEY_ERROR = "error";
 
+    /**
+     * When a consumer calls a method of the provider more often than the provider allows, the returned
+     * {@link android.os.Bundle} contains this key, mapped to a long with the number of milliseconds after which
+     * the consumer may call the method again.  The Bundle also contains either KEY_ERROR or a previous
+     * result of the method.
+     *
+     * <p>
+     * Example:
+     * <pre>
+     * <code class="language-java">
+     *     long retryAfterMillis = result.getLong({@link VehicleInformationContract}.KEY_RETRY_AFTER_MILLIS, 0);
+     * </code>
+     * </pre>
+     */
+    public static final String KEY_RETRY_AFTER_MILLIS = "retry_after_millis";
+
     /**
      * For the methods {@link VehicleInformationContract}.METHOD_GET_VEHICLE_INFORMATION and {@link VehicleInformationContract}.METHOD_GET_VEHICLE_INFORMATION,
      * the returned {@link Bundle} object will contain this key which maps to String indicating
@@ -140,6 +211,118 @@ public final class VehicleInformationContract {
      */
     public static final String KEY_VERSION = "key_version";
 
+    /**
+     * Provider method name for making several calls to the provider in a single
+     * {@link android.content.ContentResolver#call}.  The extras {@link android.os.Bundle} contains
+     * {@link VehicleInformationContract}.KEY_BATCH_CALLS, and the returned Bundle contains {@link VehicleInformationContract}.KEY_BATCH_RESULTS
+     * with the result of each call, in the same order.  A call that fails returns a Bundle with KEY_ERROR
+     * without affecting the other calls.  Set the class loader of each result before reading Parcelable
+     * values from it.
+     *
+     * <p>
+     * Example:
+     * <pre>
+     * <code class="language-java">
+     *     {@link Bundle} call = new Bundle();
+     *     call.putString({@link VehicleInformationContract}.KEY_BATCH_METHOD, {@link VehicleInformationContract}.METHOD_GET_VEHICLE_INFORMATION);
+     *     call.putString({@link VehicleInformationContract}.KEY_BATCH_VERSION, {@link VehicleInformationContract}.VERSION);
+     *     {@link java.util.ArrayList}&lt;{@link Bundle}&gt; calls = new ArrayList&lt;&gt;();
+     *     calls.add(call);
+     *     {@link Bundle} extras = new Bundle();
+     *     extras.putParcelableArrayList({@link VehicleInformationContract}.KEY_BATCH_CALLS, calls);
+     *     {@link Bundle} result = resolver.call(Uri.parse("content://" + {@link VehicleInformationContract}.AUTHORITY),
+     *                                  {@link VehicleInformationContract}.METHOD_BATCH,
+     *                                  {@link VehicleInformationContract}.VERSION,
+     *                                  extras);
+     *     {@link java.util.ArrayList}&lt;{@link Bundle}&gt; results = result.getParcelableArrayList({@link VehicleInformationContract}.KEY_BATCH_RESULTS);
+     * </code>
+     * </pre>
+     */
+    public static final String METHOD_BATCH = "batch";
+
+    /**
+     * For the method {@link VehicleInformationContract}.METHOD_BATCH, maps to an {@link java.util.ArrayList} of
+     * {@link android.os.Bundle}, one per call, each with {@link VehicleInformationContract}.KEY_BATCH_METHOD and optionally
+     * {@link VehicleInformationContract}.KEY_BATCH_VERSION and {@link VehicleInformationContract}.KEY_BATCH_EXTRAS.
+     */
+    public static final String KEY_BATCH_CALLS = "batch_calls";
+
+    /**
+     * For a call in {@link VehicleInformationContract}.KEY_BATCH_CALLS, maps to the method name.
+     */
+    public static final String KEY_BATCH_METHOD = "batch_method";
+
+    /**
+     * For a call in {@link VehicleInformationContract}.KEY_BATCH_CALLS, maps to the version passed to the method.
+     */
+    public static final String KEY_BATCH_VERSION = "batch_version";
+
+    /**
+     * For a call in {@link VehicleInformationContract}.KEY_BATCH_CALLS, maps to the extras {@link android.os.Bundle} passed to the method.
+     */
+    public static final String KEY_BATCH_EXTRAS = "batch_extras";
+
+    /**
+     * For the method {@link VehicleInformationContract}.METHOD_BATCH, maps to an {@link java.util.ArrayList} of
+     * {@link android.os.Bundle} with the result of each call in {@link VehicleInformationContract}.KEY_BATCH_CALLS, in the same order.
+     */
+    public static final String KEY_BATCH_RESULTS = "batch_results";
+
+    /**
+     * Provider method name for the metrics of the calls made to the provider, per method, negotiated
+     * version and calling package.  The returned {@link android.os.Bundle} contains {@link VehicleInformationContract}.KEY_METRICS.
+     * Consumers only receive the metrics of their own calls.
+     */
+    public static final String METHOD_GET_METRICS = "getMetrics";
+
+    /**
+     * For the method {@link VehicleInformationContract}.METHOD_GET_METRICS, maps to an {@link java.util.ArrayList} of
+     * {@link android.os.Bundle}, one per method, version and calling package, with the keys defined in
+     * {@link ProviderMetrics}.
+     */
+    public static final String KEY_METRICS = "metrics";
+
+    /**
+     * The path of the content URI <code>content://AUTHORITY/vehicle_information</code>, for
+     * querying the vehicle information, in a single row
+     * with {@link android.content.ContentResolver#query}.  The projection can name any of the
+     * {@link VehicleInformationContract}.COLUMN_ constants below.  The selection supports equality terms joined by AND, with
+     * <code>?</code>, number or single-quoted string values.  Boolean columns hold 0 or 1.
+     *
+     * <p>The provider calls {@link android.content.ContentResolver#notifyChange} for this URI when the
+     * vehicle information changes.  Consumers can register a {@link android.database.ContentObserver} for it
+     * and only call {@link VehicleInformationContract}.METHOD_GET_VEHICLE_INFORMATION again when it fires,
+     * instead of polling.</p>
+     *
+     * <p>
+     * Example:
+     * <pre>
+     * <code class="language-java">
+     *     resolver.registerContentObserver(Uri.parse("content://" + authority + "/" + {@link VehicleInformationContract}.PATH_VEHICLE_INFORMATION),
+     *             false, observer);
+     *     {@link android.database.Cursor} cursor = resolver.query(Uri.parse("content://" + authority + "/" + {@link VehicleInformationContract}.PATH_VEHICLE_INFORMATION),
+     *             new String[]{{@link VehicleInformationContract}.COLUMN_IN_GEAR},
+     *             null, null, null);
+     * </code>
+     * </pre>
+     */
+    public static final String PATH_VEHICLE_INFORMATION = "vehicle_information";
+
+    /**
+     * The VIN of the vehicle.
+     */
+    public static final String COLUMN_VIN = "vin";
+
+    /**
+     * The identifier of the vehicle.
+     */
+    public static final String COLUMN_VEHICLE_ID = "vehicle_id";
+
+    /**
+     * Is the vehicle in gear, 0 or 1.
+     */
+    public static final String COLUMN_IN_GEAR = "in_gear";
+
     public VehicleInformationContract() {
 
     }
@@ -1,14 +1,35 @@
 package org.opencabstandard.provider;
 
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * This class allows us to compare contract versions. It uses semantic version comparison. Class implements {@link Comparable} interface.
  * This class was taken from here:
  * https://stackoverflow.com/questions/198431/how-do-you-compare-two-version-strings-in-java/11024200#11024200
  * Solution provided by: https://stackoverflow.com/users/1445568/alex
+ *
+ * <p>The version string is parsed once, when the object is created, so comparisons do not allocate.
+ * Versions are immutable, and {@link #of(String)} returns shared instances for commonly used versions.</p>
  */
 public class Version implements Comparable<Version> {
 
-    private String version;
+    /**
+     * Upper bound on the number of versions kept by {@link #of(String)}, so that arbitrary input from
+     * other apps cannot grow the cache without limit.
+     */
+    private static final int MAX_INTERNED_VERSIONS = 64;
+
+    private static final ConcurrentHashMap<String, Version> INTERNED = new ConcurrentHashMap<>();
+
+    static {
+        for (String version : new String[]{"0.1", "0.2", "0.3", "0.4", "0.5", "1", "1.0"}) {
+            INTERNED.put(version, new Version(version));
+        }
+    }
+
+    private final String version;
+    private final int[] parts;
+    private final int hash;
 
     public final String get() {
         return this.version;
@@ -16,20 +37,86 @@ public class Version implements Comparable<Version> {
 
     public Version(String version) {
         if (version == null) throw new IllegalArgumentException("Version can not be null");
-        if (!version.matches("[0-9]+(\\.[0-9]+)*"))
-            throw new IllegalArgumentException("Invalid version format");
         this.version = version;
+        this.parts = parse(version);
+        this.hash = computeHash(parts);
+    }
+
+    /**
+     * Returns a shared {@link Version} for the given string, parsing it only the first time it is seen.
+     *
+     * @param version The version string, e.g. "0.3".
+     * @return The parsed version.
+     * @throws IllegalArgumentException If the version is null or not a valid version string.
+     */
+    public static Version of(String version) {
+        if (version == null) throw new IllegalArgumentException("Version can not be null");
+        Version interned = INTERNED.get(version);
+        if (interned == null) {
+            interned = new Version(version);
+            if (INTERNED.size() < MAX_INTERNED_VERSIONS) {
+                Version existing = INTERNED.putIfAbsent(version, interned);
+                if (existing != null) {
+                    interned = existing;
+                }
+            }
+        }
+        return interned;
+    }
+
+    /**
+     * Parses a version of the form "[0-9]+(\.[0-9]+)*" without regular expressions.
+     */
+    private static int[] parse(String version) {
+        int length = version.length();
+        int count = 1;
+        for (int i = 0; i < length; i++) {
+            if (version.charAt(i) == '.') count++;
+        }
+        int[] parts = new int[count];
+        int part = 0;
+        int digits = 0;
+        long value = 0;
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? version.charAt(i) : '.';
+            if (c == '.') {
+                if (digits == 0) throw new IllegalArgumentException("Invalid version format");
+                parts[part++] = (int) value;
+                digits = 0;
+                value = 0;
+            } else if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                if (value > Integer.MAX_VALUE) throw new IllegalArgumentException("Invalid version format");
+                digits++;
+            } else {
+                throw new IllegalArgumentException("Invalid version format");
+            }
+        }
+        return parts;
+    }
+
+    /**
+     * Trailing zero parts are ignored so that versions that are equal, such as "1" and "1.0", have the same hash.
+     */
+    private static int computeHash(int[] parts) {
+        int end = parts.length;
+        while (end > 0 && parts[end - 1] == 0) end--;
+        int hash = 1;
+        for (int i = 0; i < end; i++) {
+            hash = 31 * hash + parts[i];
+        }
+        return hash;
     }
 
     @Override
     public int compareTo(Version that) {
         if (that == null) return 1;
-        String[] thisParts = this.get().split("\\.");
-        String[] thatParts = that.get().split("\\.");
+        int[] thisParts = this.parts;
+        int[] thatParts = that.parts;
         int length = Math.max(thisParts.length, thatParts.length);
         for (int i = 0; i < length; i++) {
-            int thisPart = i < thisParts.length ? Integer.parseInt(thisParts[i]) : 0;
-            int thatPart = i < thatParts.length ? Integer.parseInt(thatParts[i]) : 0;
+            int thisPart = i < thisParts.length ? thisParts[i] : 0;
+            int thatPart = i < thatParts.length ? thatParts[i] : 0;
             if (thisPart < thatPart) return -1;
             if (thisPart > thatPart) return 1;
         }
@@ -44,4 +131,14 @@ public class Version implements Comparable<Version> {
         return this.compareTo((Version) that) == 0;
     }
 
-}
\ No newline at end of file
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return version;
+    }
+
+}
@@ -0,0 +1,93 @@
+package org.opencabstandard.provider;
+
+import androidx.annotation.NonNull;
+
+/**
+ * An inclusive range of contract versions, used to check whether a version is supported.
+ *
+ * <pre>
+ * <code class="language-java">
+ *     VersionRange supported = VersionRange.between("0.2", "0.4");
+ *     boolean ok = supported.contains(result.getString(HOSContract.KEY_VERSION));
+ * </code>
+ * </pre>
+ */
+public final class VersionRange {
+
+    private final Version lower;
+    private final Version upper;
+
+    /**
+     * @param lower The oldest version in the range.
+     * @param upper The newest version in the range.
+     */
+    public VersionRange(@NonNull Version lower, @NonNull Version upper) {
+        if (lower.compareTo(upper) > 0) {
+            throw new IllegalArgumentException("Lower version " + lower + " is newer than upper version " + upper);
+        }
+        this.lower = lower;
+        this.upper = upper;
+    }
+
+    /**
+     * Create a range from two version strings.
+     *
+     * @param lower The oldest version in the range.
+     * @param upper The newest version in the range.
+     * @return The range.
+     */
+    @NonNull
+    public static VersionRange between(@NonNull String lower, @NonNull String upper) {
+        return new VersionRange(Version.of(lower), Version.of(upper));
+    }
+
+    /**
+     * The oldest version in the range.
+     *
+     * @return The lower bound.
+     */
+    @NonNull
+    public Version getLower() {
+        return lower;
+    }
+
+    /**
+     * The newest version in the range.
+     *
+     * @return The upper bound.
+     */
+    @NonNull
+    public Version getUpper() {
+        return upper;
+    }
+
+    /**
+     * Is the version within the range?
+     *
+     * @param version The version to check.
+     * @return True if the version is between the lower and upper bound, inclusive.
+     */
+    public boolean contains(Version version) {
+        return version != null && lower.compareTo(version) <= 0 && upper.compareTo(version) >= 0;
+    }
+
+    /**
+     * Is the version within the range?
+     *
+     * @param version The version string to check.
+     * @return True if the version is valid and between the lower and upper bound, inclusive.
+     */
+    public boolean contains(String version) {
+        if (version == null) return false;
+        try {
+            return contains(Version.of(version));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "[" + lower + ", " + upper + "]";
+    }
+}
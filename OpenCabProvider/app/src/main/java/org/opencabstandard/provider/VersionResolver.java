@@ -0,0 +1,129 @@
+package org.opencabstandard.provider;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps the version requested by a consumer to the contract version a provider will respond with,
+ * following section 3.5 of the specification:
+ *
+ * <ol>
+ *     <li>A missing version is treated as "0.2".</li>
+ *     <li>A version lower than every supported version is not supported and {@link #resolve(String)}
+ *     returns null, so the provider can respond with KEY_ERROR.</li>
+ *     <li>A supported version resolves to itself.</li>
+ *     <li>Any other version resolves to the newest supported version that is not newer than the request.</li>
+ * </ol>
+ *
+ * <p>The supported versions are parsed once, and each distinct requested version string is only
+ * parsed the first time it is seen.  Later lookups of the same string are a single map lookup.</p>
+ */
+public final class VersionResolver {
+
+    /**
+     * The version assumed when a consumer does not pass one.  See subsection 3.5.4 of the specification.
+     */
+    public static final String DEFAULT_VERSION = "0.2";
+
+    /**
+     * Upper bound on the number of distinct requested version strings that are remembered, so that
+     * arbitrary input from consumers cannot grow the cache without limit.
+     */
+    private static final int MAX_CACHED_VERSIONS = 32;
+
+    private static final Integer UNSUPPORTED = -1;
+
+    private final Version[] supported;
+    private final String[] names;
+    private final ConcurrentHashMap<String, Integer> resolved = new ConcurrentHashMap<>();
+
+    /**
+     * @param supportedVersions The contract versions supported by the provider, in any order.
+     */
+    public VersionResolver(@NonNull String... supportedVersions) {
+        if (supportedVersions.length == 0) {
+            throw new IllegalArgumentException("At least one supported version is required");
+        }
+        supported = new Version[supportedVersions.length];
+        for (int i = 0; i < supportedVersions.length; i++) {
+            supported[i] = Version.of(supportedVersions[i]);
+        }
+        Arrays.sort(supported);
+        names = new String[supported.length];
+        for (int i = 0; i < supported.length; i++) {
+            names[i] = supported[i].get();
+            resolved.put(names[i], i);
+        }
+        resolved.put(DEFAULT_VERSION, compute(DEFAULT_VERSION));
+    }
+
+    /**
+     * The newest contract version supported.
+     *
+     * @return The newest supported version.
+     */
+    @NonNull
+    public String getLatest() {
+        return names[names.length - 1];
+    }
+
+    /**
+     * Resolve the version requested by a consumer.
+     *
+     * @param requested The version passed by the consumer, or null if none was passed.
+     * @return The supported version to respond with, or null if the request is older than every
+     * supported version or is not a valid version string.
+     */
+    @Nullable
+    public String resolve(@Nullable String requested) {
+        int index = indexOf(requested);
+        return index >= 0 ? names[index] : null;
+    }
+
+    /**
+     * Resolve the version requested by a consumer, never returning a version newer than the ceiling.
+     *
+     * @param requested The version passed by the consumer, or null if none was passed.
+     * @param ceiling   The newest version the provider is currently willing to return, or null for no limit.
+     * @return The supported version to respond with, or null if the request is older than every
+     * supported version or is not a valid version string.
+     */
+    @Nullable
+    public String resolve(@Nullable String requested, @Nullable String ceiling) {
+        int index = indexOf(requested);
+        if (ceiling != null && index >= 0) {
+            index = Math.min(index, indexOf(ceiling));
+        }
+        return index >= 0 ? names[index] : null;
+    }
+
+    private int indexOf(@Nullable String requested) {
+        String key = requested != null ? requested : DEFAULT_VERSION;
+        Integer index = resolved.get(key);
+        if (index == null) {
+            index = compute(key);
+            if (resolved.size() < MAX_CACHED_VERSIONS) {
+                resolved.putIfAbsent(key, index);
+            }
+        }
+        return index;
+    }
+
+    private Integer compute(String requested) {
+        Version version;
+        try {
+            version = Version.of(requested);
+        } catch (IllegalArgumentException e) {
+            return UNSUPPORTED;
+        }
+        for (int i = supported.length - 1; i >= 0; i--) {
+            if (version.compareTo(supported[i]) >= 0) {
+                return i;
+            }
+        }
+        return UNSUPPORTED;
+    }
+}
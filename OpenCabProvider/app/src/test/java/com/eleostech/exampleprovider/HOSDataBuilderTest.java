@@ -0,0 +1,65 @@
+package com.eleostech.exampleprovider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+import org.opencabstandard.provider.HOSContract;
+import org.opencabstandard.provider.HOSJsonCodec;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+public class HOSDataBuilderTest {
+
+    private static HOSContract.ClockData.Builder drive() {
+        return new HOSContract.ClockData.Builder()
+                .setLabel("Drive")
+                .setValue("05:30")
+                .setValueType(HOSContract.ClockData.ValueType.STRING)
+                .setImportant(true)
+                .setLimitsDrivingRange(true)
+                .setDurationSeconds(19800.0);
+    }
+
+    @Test
+    public void builder_MatchesSetters() {
+        HOSContract.ClockData clock = new HOSContract.ClockData();
+        clock.setLabel("Drive");
+        clock.setValue("05:30");
+        clock.setValueType(HOSContract.ClockData.ValueType.STRING);
+        clock.setImportant(true);
+        clock.setLimitsDrivingRange(true);
+        clock.setDurationSeconds(19800.0);
+        assertEquals(clock, drive().build());
+        assertEquals(clock.hashCode(), drive().build().hashCode());
+        assertNotEquals(clock, drive().setDurationSeconds(null).build());
+
+        HOSContract.HOSData hosData = new HOSContract.HOSData();
+        hosData.setUsername("JOHN");
+        hosData.setClocks(Collections.singletonList(clock));
+        HOSContract.HOSData built = new HOSContract.HOSData.Builder()
+                .setUsername("JOHN")
+                .setClocks(Collections.singletonList(drive().build()))
+                .build();
+        assertEquals(hosData, built);
+        assertEquals(HOSJsonCodec.getInstance().toJson(hosData), HOSJsonCodec.getInstance().toJson(built));
+        assertNull(new HOSContract.HOSData.Builder().build().getClocks());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void builtClock_CannotBeModified() {
+        drive().build().setValue("05:29");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void builtHOSData_ClocksCannotBeModified() {
+        ArrayList<HOSContract.ClockData> clocks = new ArrayList<>();
+        clocks.add(drive().build());
+        HOSContract.HOSData hosData = new HOSContract.HOSData.Builder().setClocks(clocks).build();
+        clocks.clear();
+        assertEquals(1, hosData.getClocks().size());
+        hosData.getClocks().clear();
+    }
+}
@@ -0,0 +1,90 @@
+package com.eleostech.exampleprovider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.opencabstandard.provider.HOSContract;
+import org.opencabstandard.provider.HOSJsonCodec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class HOSDeltaTest {
+    private final HOSJsonCodec codec = HOSJsonCodec.getInstance();
+
+    private static HOSContract.ClockData clock(String label, String value) {
+        HOSContract.ClockData clock = new HOSContract.ClockData();
+        clock.setLabel(label);
+        clock.setValue(value);
+        clock.setValueType(HOSContract.ClockData.ValueType.STRING);
+        return clock;
+    }
+
+    private static HOSContract.HOSData driver(String username, HOSContract.ClockData... clocks) {
+        HOSContract.HOSData hos = new HOSContract.HOSData();
+        hos.setUsername(username);
+        hos.setClocks(new ArrayList<>(Arrays.asList(clocks)));
+        return hos;
+    }
+
+    private String json(List<HOSContract.HOSData> drivers) {
+        StringBuilder json = new StringBuilder();
+        for (HOSContract.HOSData driver : drivers) {
+            json.append(codec.toJson(driver)).append('\n');
+        }
+        return json.toString();
+    }
+
+    private HOSContract.HOSDelta roundTrip(List<HOSContract.HOSData> from, List<HOSContract.HOSData> to) {
+        HOSContract.HOSDelta delta = codec.parseHOSDelta(codec.toJson(HOSContract.HOSDelta.between(1, from, 2, to)));
+        assertEquals(1, delta.getFromSequence());
+        assertEquals(2, delta.getSequence());
+        assertEquals(json(to), json(delta.applyTo(from)));
+        return delta;
+    }
+
+    @Test
+    public void hosDelta_OnlyChangedClocks() {
+        List<HOSContract.HOSData> from = Arrays.asList(
+                driver("JOHN", clock("Status", "D"), clock("Drive", "8:00"), clock("Break", "2:00")),
+                driver("TEAM_1", clock("Status", "SB")));
+        List<HOSContract.HOSData> to = Arrays.asList(
+                driver("JOHN", clock("Status", "D"), clock("Drive", "7:59"), clock("Cycle", "60:00")),
+                driver("TEAM_1", clock("Status", "SB")));
+
+        HOSContract.HOSDelta delta = roundTrip(from, to);
+        assertEquals(1, delta.getDrivers().size());
+        HOSContract.DriverDelta john = delta.getDrivers().get(0);
+        assertEquals(0, john.getIndex());
+        assertFalse(john.isComplete());
+        assertEquals(2, john.getClocks().size());
+        assertEquals("Drive", john.getClocks().get(0).getLabel());
+        assertEquals("Cycle", john.getClocks().get(1).getLabel());
+        assertEquals(Collections.singletonList("Break"), john.getRemovedClocks());
+
+        assertTrue(roundTrip(to, to).getDrivers().isEmpty());
+    }
+
+    @Test
+    public void hosDelta_ReorderedClocksAndTeamChanges() {
+        List<HOSContract.HOSData> from = Arrays.asList(
+                driver("JOHN", clock("Status", "D"), clock("Drive", "8:00")),
+                driver("TEAM_1", clock("Status", "SB")));
+        List<HOSContract.HOSData> to = Arrays.asList(
+                driver("JOHN", clock("Drive", "8:00"), clock("Status", "D")),
+                driver("TEAM_1", clock("Status", "SB")),
+                driver("TEAM_2", clock("Status", "OFF")));
+
+        HOSContract.HOSDelta delta = roundTrip(from, to);
+        assertEquals(2, delta.getDrivers().size());
+        assertTrue(delta.getDrivers().get(0).isComplete());
+        assertEquals(2, delta.getDrivers().get(1).getIndex());
+
+        HOSContract.HOSDelta removed = roundTrip(to, from);
+        assertTrue(removed.getDrivers().get(1).isRemoved());
+    }
+}
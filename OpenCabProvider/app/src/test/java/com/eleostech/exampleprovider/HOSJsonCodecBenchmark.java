@@ -0,0 +1,78 @@
+package com.eleostech.exampleprovider;
+
+import com.google.gson.Gson;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.opencabstandard.provider.HOSContract;
+import org.opencabstandard.provider.HOSJsonCodec;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link HOSJsonCodec} with the reflective Gson serialization it replaces, for the
+ * version 0.4 payload of a two driver team.
+ *
+ * <p>This is a plain JVM benchmark. Run it with the {@link #main(String[])} method.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HOSJsonCodecBenchmark {
+
+    private final Gson gson = new Gson();
+    private final HOSJsonCodec codec = HOSJsonCodec.getInstance();
+    private final HOSContract.HOSData hos = HOSJsonCodecTest.hosData("JOHN");
+    private final HOSContract.HOSTeamData team = new HOSContract.HOSTeamData();
+    private String hosJson;
+    private String teamJson;
+
+    {
+        ArrayList<HOSContract.HOSData> members = new ArrayList<>();
+        members.add(HOSJsonCodecTest.hosData("TEAM_1"));
+        members.add(HOSJsonCodecTest.hosData("TEAM_2"));
+        team.setTeamHosData(members);
+        hosJson = codec.toJson(hos);
+        teamJson = codec.toJson(team);
+    }
+
+    @Benchmark
+    public Object writeGson() {
+        return gson.toJson(hos) + gson.toJson(team);
+    }
+
+    @Benchmark
+    public Object writeCodec() {
+        return codec.toJson(hos) + codec.toJson(team);
+    }
+
+    @Benchmark
+    public Object readGson() {
+        gson.fromJson(hosJson, HOSContract.HOSData.class);
+        return gson.fromJson(teamJson, HOSContract.HOSTeamData.class);
+    }
+
+    @Benchmark
+    public Object readCodec() {
+        codec.parseHOSData(hosJson);
+        return codec.parseHOSTeamData(teamJson);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(HOSJsonCodecBenchmark.class.getSimpleName()).build()).run();
+    }
+}
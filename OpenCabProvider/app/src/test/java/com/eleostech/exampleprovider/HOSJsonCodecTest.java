@@ -0,0 +1,92 @@
+package com.eleostech.exampleprovider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.google.gson.Gson;
+
+import org.junit.Test;
+import org.opencabstandard.provider.HOSContract;
+import org.opencabstandard.provider.HOSJsonCodec;
+
+import java.util.ArrayList;
+
+public class HOSJsonCodecTest {
+    private final Gson gson = new Gson();
+    private final HOSJsonCodec codec = HOSJsonCodec.getInstance();
+
+    static HOSContract.HOSData hosData(String username) {
+        ArrayList<HOSContract.ClockData> clocks = new ArrayList<>();
+        HOSContract.ClockData drive = new HOSContract.ClockData();
+        drive.setLabel("Drive <11h>");
+        drive.setValue("10:30");
+        drive.setValueType(HOSContract.ClockData.ValueType.COUNTDOWN);
+        drive.setImportant(true);
+        drive.setLimitsDrivingRange(true);
+        drive.setDurationSeconds(37800.0);
+        clocks.add(drive);
+        HOSContract.ClockData cycle = new HOSContract.ClockData();
+        cycle.setLabel("Cycle \"70/8\" & reset");
+        cycle.setValue("12/31 00:00");
+        cycle.setValueType(HOSContract.ClockData.ValueType.DATE);
+        clocks.add(cycle);
+        HOSContract.ClockData status = new HOSContract.ClockData();
+        status.setValue("Off duty");
+        clocks.add(status);
+
+        HOSContract.HOSData hos = new HOSContract.HOSData();
+        hos.setClocks(clocks);
+        hos.setManageAction("opencab://hos?driver=" + username);
+        hos.setUsername(username);
+        return hos;
+    }
+
+    @Test
+    public void hosJsonCodec_MatchesGson() {
+        HOSContract.HOSData hos = hosData("JOHN");
+        assertEquals(gson.toJson(hos), codec.toJson(hos));
+
+        HOSContract.HOSTeamData team = new HOSContract.HOSTeamData();
+        ArrayList<HOSContract.HOSData> members = new ArrayList<>();
+        members.add(hosData("TEAM_1"));
+        members.add(new HOSContract.HOSData());
+        team.setTeamHosData(members);
+        assertEquals(gson.toJson(team), codec.toJson(team));
+
+        assertEquals(gson.toJson(new HOSContract.HOSTeamData()), codec.toJson(new HOSContract.HOSTeamData()));
+        assertEquals(gson.toJson(null), codec.toJson((HOSContract.HOSData) null));
+    }
+
+    @Test
+    public void hosJsonCodec_RoundTrip() {
+        HOSContract.HOSData hos = hosData("JOHN");
+        String json = codec.toJson(hos);
+        assertEquals(json, codec.toJson(codec.parseHOSData(json)));
+        assertEquals(json, gson.toJson(codec.parseHOSData(json)));
+        assertEquals(json, codec.toJson(gson.fromJson(json, HOSContract.HOSData.class)));
+
+        HOSContract.HOSTeamData team = new HOSContract.HOSTeamData();
+        ArrayList<HOSContract.HOSData> members = new ArrayList<>();
+        members.add(hosData("TEAM_1"));
+        members.add(hosData("TEAM_2"));
+        team.setTeamHosData(members);
+        String teamJson = codec.toJson(team);
+        assertEquals(teamJson, codec.toJson(codec.parseHOSTeamData(teamJson)));
+
+        assertNull(codec.parseHOSData(null));
+        assertNull(codec.parseHOSData(""));
+        assertNull(codec.parseHOSData("null"));
+    }
+
+    @Test
+    public void hosJsonCodec_ReadsLikeGson() {
+        String json = "{\"username\":\"JOHN\",\"extra\":{\"a\":[1,2]},\"clocks\":["
+                + "{\"label\":\"Drive\",\"valueType\":\"UNKNOWN\",\"important\":\"true\",\"durationSeconds\":\"60\"},"
+                + "{\"valueType\":\"COUNTUP\",\"limitsDrivingRange\":true,\"durationSeconds\":null}]}";
+        HOSContract.HOSData expected = gson.fromJson(json, HOSContract.HOSData.class);
+        HOSContract.HOSData actual = codec.parseHOSData(json);
+        assertEquals(gson.toJson(expected), codec.toJson(actual));
+        assertNull(actual.getClocks().get(0).getValueType());
+        assertEquals(Double.valueOf(60), actual.getClocks().get(0).getDurationSeconds());
+    }
+}
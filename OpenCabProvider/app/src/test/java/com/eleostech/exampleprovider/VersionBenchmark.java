@@ -0,0 +1,106 @@
+package com.eleostech.exampleprovider;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.opencabstandard.provider.Version;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares parsing and comparing {@link Version} against the previous implementation, which ran a
+ * regular expression in the constructor and split and parsed the string on every comparison.
+ *
+ * <p>This is a plain JVM benchmark. Run it with the {@link #main(String[])} method.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VersionBenchmark {
+
+    private final String requested = "0.3";
+    private final Version supported = new Version("0.4");
+    private final LegacyVersion legacySupported = new LegacyVersion("0.4");
+    private final Version parsed = new Version("0.3");
+    private final LegacyVersion legacyParsed = new LegacyVersion("0.3");
+
+    @Benchmark
+    public Object parseLegacy() {
+        return new LegacyVersion(requested);
+    }
+
+    @Benchmark
+    public Object parse() {
+        return new Version(requested);
+    }
+
+    @Benchmark
+    public Object parseInterned() {
+        return Version.of(requested);
+    }
+
+    @Benchmark
+    public int compareLegacy() {
+        return legacyParsed.compareTo(legacySupported);
+    }
+
+    @Benchmark
+    public int compare() {
+        return parsed.compareTo(supported);
+    }
+
+    @Benchmark
+    public int parseAndCompareLegacy() {
+        return new LegacyVersion(requested).compareTo(new LegacyVersion("0.4"));
+    }
+
+    @Benchmark
+    public int parseAndCompareInterned() {
+        return Version.of(requested).compareTo(Version.of("0.4"));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(VersionBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * The implementation of {@link Version} before it parsed the version once, kept as a baseline.
+     */
+    static final class LegacyVersion implements Comparable<LegacyVersion> {
+        private final String version;
+
+        LegacyVersion(String version) {
+            if (version == null) throw new IllegalArgumentException("Version can not be null");
+            if (!version.matches("[0-9]+(\\.[0-9]+)*"))
+                throw new IllegalArgumentException("Invalid version format");
+            this.version = version;
+        }
+
+        @Override
+        public int compareTo(LegacyVersion that) {
+            if (that == null) return 1;
+            String[] thisParts = this.version.split("\\.");
+            String[] thatParts = that.version.split("\\.");
+            int length = Math.max(thisParts.length, thatParts.length);
+            for (int i = 0; i < length; i++) {
+                int thisPart = i < thisParts.length ? Integer.parseInt(thisParts[i]) : 0;
+                int thatPart = i < thatParts.length ? Integer.parseInt(thatParts[i]) : 0;
+                if (thisPart < thatPart) return -1;
+                if (thisPart > thatPart) return 1;
+            }
+            return 0;
+        }
+    }
+}
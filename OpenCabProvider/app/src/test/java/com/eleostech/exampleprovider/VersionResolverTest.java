@@ -0,0 +1,27 @@
+package com.eleostech.exampleprovider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+import org.opencabstandard.provider.VersionResolver;
+
+public class VersionResolverTest {
+    @Test
+    public void versionResolver_TestNegotiation() {
+        VersionResolver resolver = new VersionResolver("0.4", "0.2", "0.3");
+
+        assertEquals("0.4", resolver.getLatest());
+        assertEquals("0.2", resolver.resolve(null));     // a missing version is treated as 0.2
+        assertEquals("0.3", resolver.resolve("0.3"));
+        assertEquals("0.3", resolver.resolve("0.3.0"));
+        assertEquals("0.3", resolver.resolve("0.3.1"));  // between supported versions
+        assertEquals("0.4", resolver.resolve("1.0"));    // newer than any supported version
+        assertNull(resolver.resolve("0.1"));             // older than any supported version
+        assertNull(resolver.resolve("abc"));
+
+        assertEquals("0.3", resolver.resolve("0.4", "0.3"));
+        assertEquals("0.2", resolver.resolve(null, "0.4"));
+        assertNull(resolver.resolve("0.1", "0.4"));
+    }
+}
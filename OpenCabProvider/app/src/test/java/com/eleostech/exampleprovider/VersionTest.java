@@ -1,10 +1,13 @@
 package com.eleostech.exampleprovider;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 import org.opencabstandard.provider.Version;
+import org.opencabstandard.provider.VersionRange;
 
 public class VersionTest {
     @Test
@@ -35,4 +38,30 @@ public class VersionTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void version_TestHashCodeAndInterning() {
+        assertEquals(new Version("1.0").hashCode(), new Version("1").hashCode());
+        assertEquals(new Version("0.3.0.0").hashCode(), new Version("0.3").hashCode());
+        assertSame(Version.of("0.3"), Version.of("0.3"));
+        assertEquals(new Version("0.3"), Version.of("0.3"));
+        assertEquals("0.3", Version.of("0.3").get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void version_TestInvalidFormat() {
+        new Version("0..3");
+    }
+
+    @Test
+    public void versionRange_TestContains() {
+        VersionRange range = VersionRange.between("0.2", "0.4");
+        assertTrue(range.contains("0.2"));
+        assertTrue(range.contains("0.3.1"));
+        assertTrue(range.contains("0.4.0"));
+        assertFalse(range.contains("0.4.1"));
+        assertFalse(range.contains("0.1"));
+        assertFalse(range.contains("x"));
+        assertFalse(range.contains((String) null));
+    }
+
+}
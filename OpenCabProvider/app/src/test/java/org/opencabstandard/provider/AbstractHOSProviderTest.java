@@ -0,0 +1,588 @@
+package org.opencabstandard.provider;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.Parcel;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowSystemClock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs on Robolectric, for {@link Bundle} and {@link android.os.SystemClock}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AbstractHOSProviderTest {
+    private static final String AUTHORITY = "org.opencabstandard.provider.test.hos";
+
+    /**
+     * A provider whose getters count their calls and return the HOS of one driver.  While a gate is
+     * set, the getters block until it is opened.
+     */
+    public static class TestHOSProvider extends AbstractHOSProvider {
+        final AtomicInteger hosDataCalls = new AtomicInteger();
+        final Semaphore started = new Semaphore(0);
+        volatile CountDownLatch gate;
+        volatile long timeoutMillis;
+        volatile int threadCount = 2;
+        volatile int queueCapacity = 4;
+        volatile int teamDrivers;
+        volatile boolean teamComputedSeparately;
+        volatile String hosVersion;
+        volatile boolean failing;
+        volatile boolean rateLimited;
+
+        @Override
+        protected HOSContract.HOSData getHOSData() {
+            hosDataCalls.incrementAndGet();
+            started.release();
+            if (failing) {
+                throw new IllegalStateException("HOS failed");
+            }
+            CountDownLatch gate = this.gate;
+            if (gate != null) {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return newHOSData("JOHN", "05:30");
+        }
+
+        @Override
+        protected long getHOSTimeoutMillis() {
+            return timeoutMillis;
+        }
+
+        @Override
+        protected int getHOSThreadCount() {
+            return threadCount;
+        }
+
+        @Override
+        protected int getHOSQueueCapacity() {
+            return queueCapacity;
+        }
+
+        @Override
+        protected HOSContract.HOSTeamData getHOSTeamData() {
+            HOSContract.HOSTeamData teamData = new HOSContract.HOSTeamData();
+            teamData.setTeamHosData(new ArrayList<>(Arrays.asList(newHOSData("JANE", "06:00"), newHOSData("JIM", "07:00"))));
+            return teamData;
+        }
+
+        @Override
+        protected boolean isTeamDriverHOSComputedSeparately() {
+            return teamComputedSeparately;
+        }
+
+        @Override
+        protected Boolean startNavigation(String version) {
+            return true;
+        }
+
+        @Override
+        protected Boolean endNavigation(String version) {
+            return true;
+        }
+
+        @Override
+        protected Boolean isTeamDriverEnabled() {
+            return teamDrivers > 0;
+        }
+
+        @Override
+        protected String getHosVersion() {
+            return hosVersion;
+        }
+
+        @Override
+        protected int getTeamsDriversNumber() {
+            return teamDrivers;
+        }
+
+        @Override
+        protected RateLimit getRateLimit(String method) {
+            return rateLimited ? super.getRateLimit(method) : null;
+        }
+    }
+
+    /**
+     * A provider that computes team drivers separately.  The first driver is available, the second is
+     * not, the third fails, and the drivers from {@link #hangFrom} on block until interrupted.
+     */
+    public static class TeamHOSProvider extends TestHOSProvider {
+        final Semaphore hung = new Semaphore(0);
+        final Semaphore interrupted = new Semaphore(0);
+        volatile int hangFrom = Integer.MAX_VALUE;
+        volatile long teamTimeoutMillis;
+
+        public TeamHOSProvider() {
+            teamComputedSeparately = true;
+        }
+
+        @Override
+        protected HOSContract.HOSData getTeamDriverHOSData(int index) {
+            if (index >= hangFrom) {
+                hung.release();
+                try {
+                    new CountDownLatch(1).await();
+                } catch (InterruptedException e) {
+                    interrupted.release();
+                }
+                return null;
+            }
+            switch (index) {
+                case 0:
+                    return newHOSData("JANE", "06:00");
+                case 1:
+                    return null;
+                default:
+                    throw new IllegalStateException("Driver " + index + " failed");
+            }
+        }
+
+        @Override
+        protected long getTeamDriverTimeoutMillis() {
+            return teamTimeoutMillis;
+        }
+    }
+
+    private static HOSContract.HOSData newHOSData(String username, String drive) {
+        return new HOSContract.HOSData.Builder()
+                .setUsername(username)
+                .setClocks(Collections.singletonList(new HOSContract.ClockData.Builder()
+                        .setLabel("Drive")
+                        .setValue(drive)
+                        .setValueType(HOSContract.ClockData.ValueType.STRING)
+                        .setImportant(true)
+                        .setLimitsDrivingRange(true)
+                        .build()))
+                .build();
+    }
+
+    /**
+     * The drive clock of a version 0.4 response.
+     */
+    private static String getDrive(Bundle result) {
+        return HOSJsonCodec.getInstance().parseHOSData(result.getString(HOSContract.KEY_HOS)).getClocks().get(0).getValue();
+    }
+
+    /**
+     * The usernames of the team drivers of a version 0.4 response.
+     */
+    private static List<String> getTeamUsernames(Bundle result) {
+        List<String> usernames = new ArrayList<>();
+        for (HOSContract.HOSData driver : HOSJsonCodec.getInstance().parseHOSTeamData(result.getString(HOSContract.KEY_TEAM_HOS)).getTeamHosData()) {
+            usernames.add(driver.getUsername());
+        }
+        return usernames;
+    }
+
+    private static HOSContract.HOSTeamData newTeamData(int drivers) {
+        ArrayList<HOSContract.HOSData> team = new ArrayList<>();
+        for (int i = 0; i < drivers; i++) {
+            team.add(newHOSData("TEAM_DRIVER_" + i, "06:00"));
+        }
+        HOSContract.HOSTeamData teamData = new HOSContract.HOSTeamData();
+        teamData.setTeamHosData(team);
+        return teamData;
+    }
+
+    private static byte[] marshall(Bundle result) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeBundle(result);
+            return parcel.marshall();
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    /**
+     * A version 0.3 HOS call that accepts chunks of 4 KB, the smallest allowed.
+     */
+    private static Bundle callInChunks(TestHOSProvider provider) {
+        Bundle extras = new Bundle();
+        extras.putInt(HOSContract.KEY_MAX_CHUNK_BYTES, 4 * 1024);
+        return provider.call(HOSContract.METHOD_GET_HOS, "0.3", extras);
+    }
+
+    private static Bundle getChunk(TestHOSProvider provider, String token, int index) {
+        Bundle extras = new Bundle();
+        extras.putString(HOSContract.KEY_CHUNK_TOKEN, token);
+        extras.putInt(HOSContract.KEY_CHUNK_INDEX, index);
+        return provider.call(HOSContract.METHOD_GET_CHUNK, null, extras);
+    }
+
+    private static Bundle newBatchCall(String method, String version) {
+        Bundle call = new Bundle();
+        call.putString(HOSContract.KEY_BATCH_METHOD, method);
+        call.putString(HOSContract.KEY_BATCH_VERSION, version);
+        return call;
+    }
+
+    private static List<Bundle> callBatch(TestHOSProvider provider, List<Bundle> calls) {
+        Bundle extras = new Bundle();
+        extras.putParcelableArrayList(HOSContract.KEY_BATCH_CALLS, new ArrayList<>(calls));
+        Bundle result = provider.call(HOSContract.METHOD_BATCH, null, extras);
+        return result.getParcelableArrayList(HOSContract.KEY_BATCH_RESULTS, Bundle.class);
+    }
+
+    @Test
+    public void publish_ReturnsCachedResponsesWithoutCallingGetters() {
+        TestHOSProvider provider = Robolectric.setupContentProvider(TestHOSProvider.class, AUTHORITY);
+        provider.publish(newHOSData("JOHN", "04:00"), null);
+
+        Bundle v4 = provider.call(HOSContract.METHOD_GET_HOS, "0.4", null);
+        assertEquals("0.4", v4.getString(HOSContract.KEY_VERSION));
+        assertEquals("04:00", getDrive(v4));
+        assertEquals("0.3", provider.call(HOSContract.METHOD_GET_HOS, "0.3", null).getString(HOSContract.KEY_VERSION));
+        assertEquals("0.5", provider.call(HOSContract.METHOD_GET_HOS, "0.5", null).getString(HOSContract.KEY_VERSION));
+
+        // Every call gets its own copy, so a caller modifying its result does not change the next one.
+        v4.remove(HOSContract.KEY_HOS);
+        Bundle again = provider.call(HOSContract.METHOD_GET_HOS, "0.4", null);
+        assertNotSame(v4, again);
+        assertEquals(v4.getString(HOSContract.KEY_VERSION), again.getString(HOSContract.KEY_VERSION));
+        assertTrue(again.containsKey(HOSContract.KEY_HOS));
+
+        provider.publish(newHOSData("JOHN", "03:59"), null);
+        assertEquals("03:59", getDrive(provider.call(HOSContract.METHOD_GET_HOS, "0.4", null)));
+        assertEquals(0, provider.hosDataCalls.get());
+        assertEquals(0, provider.getComputedHOSCalls());
+    }
+
+    @Test
+    public void getHOS_FallsBackToLastKnownHOSOnTimeout() throws InterruptedException {
+        TestHOSProvider provider = Robolectric.setupContentProvider(TestHOSProvider.class, AUTHORITY);
+        provider.timeoutMillis = 100;
+        provider.gate = new CountDownLatch(1);
+        try {
+            Bundle unavailable = provider.call(HOSContract.METHOD_GET_HOS, "0.4", null);
+            assertTrue(unavailable.containsKey(HOSContract.KEY_ERROR));
+            assertFalse(unavailable.containsKey(HOSContract.KEY_STALE_MILLIS));
+        } finally {
+            provider.gate.countDown();
+        }
+        // The computation that timed out still completes, and becomes the last known HOS.
+        assertTrue(provider.started.tryAcquire(5, TimeUnit.SECONDS));
+        Bundle fresh = provider.call(HOSContract.METHOD_GET_HOS, "0.4", null);
+        assertEquals("05:30", getDrive(fresh));
+        assertFalse(fresh.containsKey(HOSContract.KEY_STALE_MILLIS));
+
+        ShadowSystemClock.advanceBy(5, TimeUnit.SECONDS);
+        provider.timeoutMillis = 0;
+        provider.gate = new CountDownLatch(1);
+        Bundle extras = new Bundle();
+        extras.putLong(HOSContract.KEY_TIMEOUT_MILLIS, 100);
+        try {
+            Bundle stale = provider.call(HOSContract.METHOD_GET_HOS, "0.4", extras);
+            assertEquals("05:30", getDrive(stale));
+            assertEquals(5000, stale.getLong(HOSContract.KEY_STALE_MILLIS));
+            assertFalse(stale.containsKey(HOSContract.KEY_ERROR));
+        } finally {
+            provider.gate.countDown();
+        }
+    }
+
+    @Test
+    public void getHOS_MergesConcurrentCallsForTheSameVersion() throws Exception {
+        TestHOSProvider provider = Robolectric.setupContentProvider(TestHOSProvider.class, AUTHORITY);
+        provider.gate = new CountDownLatch(1);
+        ExecutorService consumers = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<Bundle>> results = new ArrayList<>();
+            results.add(consumers.submit(() -> provider.call(HOSContract.METHOD_GET_HOS, "0.4", null)));
+            assertTrue(provider.started.tryAcquire(5, TimeUnit.SECONDS));
+            results.add(consumers.submit(() -> provider.call(HOSContract.METHOD_GET_HOS, "0.4", null)));
+            results.add(consumers.submit(() -> provider.call(HOSContract.METHOD_GET_HOS, "0.4", null)));
+            for (int i = 0; i < 500 && provider.getMergedHOSCalls() < 2; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, provider.getMergedHOSCalls());
+            provider.gate.countDown();
+
+            for (Future<Bundle> result : results) {
+                assertEquals("05:30", getDrive(result.get(5, TimeUnit.SECONDS)));
+            }
+            // Each call gets its own copy of the shared result.
+            assertNotSame(results.get(0).get(), results.get(1).get());
+            assertEquals(1, provider.hosDataCalls.get());
+            assertEquals(1, provider.getComputedHOSCalls());
+            assertEquals(0, provider.getRejectedHOSCalls());
+        } finally {
+            provider.gate.countDown();
+            consumers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void getHOS_RejectsCallsWhenTheExecutorIsFull() throws Exception {
+        TestHOSProvider provider = Robolectric.setupContentProvider(TestHOSProvider.class, AUTHORITY);
+        provider.threadCount = 1;
+        provider.queueCapacity = 1;
+        assertEquals("0.5", provider.call(HOSContract.METHOD_GET_HOS, "0.5", null).getString(HOSContract.KEY_VERSION));
+        ShadowSystemClock.advanceBy(2, TimeUnit.SECONDS);
+
+        provider.gate = new CountDownLatch(1);
+        ExecutorService consumers = Executors.newFixedThreadPool(2);
+        try {
+            // One computation runs and blocks the only thread, the other fills the queue.
+            Future<Bundle> running = consumers.submit(() -> provider.call(HOSContract.METHOD_GET_HOS, "0.4", null));
+            assertTrue(provider.started.tryAcquire(2, 5, TimeUnit.SECONDS));
+            Future<Bundle> queued = consumers.submit(() -> provider.call(HOSContract.METHOD_GET_HOS, "0.3", null));
+            for (int i = 0; i < 500 && provider.getComputedHOSCalls() < 3; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(3, provider.getComputedHOSCalls());
+
+            Bundle rejected = provider.call(HOSContract.METHOD_GET_HOS, "0.5", null);
+            assertEquals("0.5", rejected.getString(HOSContract.KEY_VERSION));
+            assertEquals(2000, rejected.getLong(HOSContract.KEY_STALE_MILLIS));
+            assertTrue(provider.call(HOSContract.METHOD_GET_HOS, "0.2", null).containsKey(HOSContract.KEY_ERROR));
+            assertEquals(2, provider.getRejectedHOSCalls());
+            assertEquals(2, provider.hosDataCalls.get());
+
+            provider.gate.countDown();
+            assertEquals("0.4", running.get(5, TimeUnit.SECONDS).getString(HOSContract.KEY_VERSION));
+            assertEquals("0.3", queued.get(5, TimeUnit.SECONDS).getString(HOSContract.KEY_VERSION));
+        } finally {
+            provider.gate.countDown();
+            consumers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void teamDrivers_DefaultToTheTeamData() {
+        TestHOSProvider provider = Robolectric.setupContentProvider(TestHOSProvider.class, AUTHORITY);
+        provider.teamDrivers = 3;
+        provider.teamComputedSeparately = true;
+
+        Bundle result = provider.call(HOSContract.METHOD_GET_HOS, "0.4", null);
+        assertEquals("05:30", getDrive(result));
+        assertEquals(Arrays.asList("JANE", "JIM", null), getTeamUsernames(result));
+        List<String> errors = result.getStringArrayList(HOSContract.KEY_TEAM_HOS_ERRORS);
+        assertNull(errors.get(0));
+        assertNull(errors.get(1));
+        assertEquals("The HOS is not available for team driver 3.", errors.get(2));
+    }
+
+    @Test
+    public void teamDrivers_ReturnPartialResultsWithErrors() {
+        TeamHOSProvider provider = Robolectric.setupContentProvider(TeamHOSProvider.class, AUTHORITY);
+        provider.teamDrivers = 4;
+        provider.hangFrom = 3;
+        provider.teamTimeoutMillis = 1000;
+
+        Bundle result = provider.call(HOSContract.METHOD_GET_HOS, "0.4", null);
+        assertEquals("05:30", getDrive(result));
+        assertEquals(Arrays.asList("JANE", null, null, null), getTeamUsernames(result));
+        List<String> errors = result.getStringArrayList(HOSContract.KEY_TEAM_HOS_ERRORS);
+        assertNull(errors.get(0));
+        assertEquals("The HOS is not available for team driver 2.", errors.get(1));
+        assertTrue(errors.get(2), errors.get(2).startsWith("The HOS for team driver 3 failed: java.lang.IllegalStateException"));
+        assertEquals("The HOS for team driver 4 is not available within 1000 ms.", errors.get(3));
+    }
+
+    @Test
+    public void teamDrivers_InterruptDriversThatTimeOut() throws InterruptedException {
+        TeamHOSProvider provider = Robolectric.setupContentProvider(TeamHOSProvider.class, AUTHORITY);
+        provider.teamDrivers = 2;
+        provider.hangFrom = 1;
+        provider.teamTimeoutMillis = 500;
+
+        Bundle result = provider.call(HOSContract.METHOD_GET_HOS, "0.4", null);
+        assertEquals(Arrays.asList("JANE", null), getTeamUsernames(result));
+        assertEquals("The HOS for team driver 2 is not available within 500 ms.",
+                result.getStringArrayList(HOSContract.KEY_TEAM_HOS_ERRORS).get(1));
+        assertTrue(provider.interrupted.tryAcquire(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void teamDrivers_QueuedDriversRunBeforeTimingOut() throws InterruptedException {
+        TeamHOSProvider provider = Robolectric.setupContentProvider(TeamHOSProvider.class, AUTHORITY);
+        // 4 drivers run, 8 wait for a thread and the last one is rejected.
+        provider.teamDrivers = 13;
+        provider.hangFrom = 0;
+        provider.teamTimeoutMillis = 100;
+
+        Bundle result = provider.call(HOSContract.METHOD_GET_HOS, "0.4", null);
+        List<String> errors = result.getStringArrayList(HOSContract.KEY_TEAM_HOS_ERRORS);
+        for (int i = 0; i < 12; i++) {
+            assertEquals("The HOS for team driver " + (i + 1) + " is not available within 100 ms.", errors.get(i));
+        }
+        assertEquals("The provider is too busy to compute the HOS for team driver 13.", errors.get(12));
+        // Every queued driver was given a thread, and its time limit, before it timed out.
+        assertTrue(provider.hung.tryAcquire(12, 5, TimeUnit.SECONDS));
+        assertTrue(provider.interrupted.tryAcquire(12, 5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void queryClocks_HonoursTheVersionCeiling() {
+        TestHOSProvider provider = Robolectric.setupContentProvider(TestHOSProvider.class, AUTHORITY);
+        Uri clocks = new Uri.Builder().scheme("content").authority(AUTHORITY).appendPath(HOSContract.PATH_CLOCKS).build();
+
+        try (Cursor cursor = provider.query(clocks, new String[]{HOSContract.COLUMN_VALUE}, null, null, null)) {
+            assertEquals(1, cursor.getCount());
+            assertTrue(cursor.moveToFirst());
+            assertEquals("05:30", cursor.getString(0));
+        }
+
+        provider.hosVersion = "0.3";
+        try (Cursor cursor = provider.query(clocks, null, null, null, null)) {
+            assertEquals(0, cursor.getCount());
+        }
+        assertEquals(1, provider.hosDataCalls.get());
+    }
+
+    @Test
+    public void chunks_JoinRebuildsTheResult() {
+        TestHOSProvider provider = Robolectric.setupContentProvider(TestHOSProvider.class, AUTHORITY);
+        provider.publish(newHOSData("JOHN", "04:00"), newTeamData(100));
+        Bundle expected = provider.call(HOSContract.METHOD_GET_HOS, "0.3", null);
+        assertTrue(marshall(expected).length > 4 * 1024);
+
+        Bundle first = callInChunks(provider);
+        String token = first.getString(HOSContract.KEY_CHUNK_TOKEN);
+        int count = first.getInt(HOSContract.KEY_CHUNK_COUNT);
+        assertTrue(token != null && count > 1);
+        assertFalse(first.containsKey(HOSContract.KEY_HOS));
+
+        Uri uri = new Uri.Builder().scheme("content").authority(AUTHORITY).build();
+        Bundle joined = ChunkedResults.join(RuntimeEnvironment.getApplication().getContentResolver(), uri, first);
+        assertArrayEquals(marshall(expected), marshall(joined));
+        assertEquals(100, joined.getParcelableArrayList(HOSContract.KEY_TEAM_HOS, HOSContract.HOSStatusV2.class).size());
+
+        // The result is released once its last chunk is fetched.
+        assertTrue(getChunk(provider, token, count - 1).containsKey(HOSContract.KEY_ERROR));
+        assertTrue(getChunk(provider, token, 1).containsKey(HOSContract.KEY_ERROR));
+    }
+
+    @Test
+    public void chunks_RejectInvalidIndexesAndExpiredTokens() {
+        TestHOSProvider provider = Robolectric.setupContentProvider(TestHOSProvider.class, AUTHORITY);
+        provider.publish(newHOSData("JOHN", "04:00"), newTeamData(100));
+
+        Bundle first = callInChunks(provider);
+        String token = first.getString(HOSContract.KEY_CHUNK_TOKEN);
+        int count = first.getInt(HOSContract.KEY_CHUNK_COUNT);
+        assertEquals("The chunk index is not valid: 0", getChunk(provider, token, 0).getString(HOSContract.KEY_ERROR));
+        assertEquals("The chunk index is not valid: " + count, getChunk(provider, token, count).getString(HOSContract.KEY_ERROR));
+        assertEquals("The chunked result is not available: unknown", getChunk(provider, "unknown", 1).getString(HOSContract.KEY_ERROR));
+        assertTrue(getChunk(provider, token, 1).containsKey(HOSContract.KEY_CHUNK));
+
+        ShadowSystemClock.advanceBy(30, TimeUnit.SECONDS);
+        assertEquals("The chunked result is not available: " + token, getChunk(provider, token, 1).getString(HOSContract.KEY_ERROR));
+    }
+
+    @Test
+    public void chunks_CapThePendingResults() {
+        TestHOSProvider provider = Robolectric.setupContentProvider(TestHOSProvider.class, AUTHORITY);
+        provider.publish(newHOSData("JOHN", "04:00"), newTeamData(100));
+
+        for (int i = 0; i < 16; i++) {
+            assertTrue(callInChunks(provider).containsKey(HOSContract.KEY_CHUNK_TOKEN));
+        }
+        Bundle rejected = callInChunks(provider);
+        assertFalse(rejected.containsKey(HOSContract.KEY_CHUNK_TOKEN));
+        assertEquals("The result is too large and too many chunked results are pending.", rejected.getString(HOSContract.KEY_ERROR));
+
+        // Expired results no longer count against the cap.
+        ShadowSystemClock.advanceBy(30, TimeUnit.SECONDS);
+        assertTrue(callInChunks(provider).containsKey(HOSContract.KEY_CHUNK_TOKEN));
+    }
+
+    @Test
+    public void batch_ReturnsResultsInOrderWithTheirOwnVersions() {
+        TestHOSProvider provider = Robolectric.setupContentProvider(TestHOSProvider.class, AUTHORITY);
+        provider.publish(newHOSData("JOHN", "04:00"), null);
+
+        List<Bundle> results = callBatch(provider, Arrays.asList(
+                newBatchCall(HOSContract.METHOD_GET_HOS, "0.4"),
+                newBatchCall(HOSContract.METHOD_GET_HOS, "0.2"),
+                newBatchCall(HOSContract.METHOD_BATCH, null),
+                new Bundle(),
+                newBatchCall(HOSContract.METHOD_GET_HOS, "0.1"),
+                newBatchCall(HOSContract.METHOD_GET_HOS, "0.5")));
+        assertEquals(6, results.size());
+        assertEquals("0.4", results.get(0).getString(HOSContract.KEY_VERSION));
+        assertEquals("04:00", getDrive(results.get(0)));
+        assertEquals("0.2", results.get(1).getString(HOSContract.KEY_VERSION));
+        assertEquals("A batch can not contain another batch.", results.get(2).getString(HOSContract.KEY_ERROR));
+        assertEquals("The batch call does not contain a method.", results.get(3).getString(HOSContract.KEY_ERROR));
+        assertEquals("The requested version is not supported: 0.1", results.get(4).getString(HOSContract.KEY_ERROR));
+        assertEquals("0.5", results.get(5).getString(HOSContract.KEY_VERSION));
+    }
+
+    @Test
+    public void batch_RejectsTooManyCalls() {
+        TestHOSProvider provider = Robolectric.setupContentProvider(TestHOSProvider.class, AUTHORITY);
+        List<Bundle> calls = new ArrayList<>();
+        for (int i = 0; i < 33; i++) {
+            calls.add(newBatchCall(HOSContract.METHOD_GET_HOS, "0.4"));
+        }
+        Bundle extras = new Bundle();
+        extras.putParcelableArrayList(HOSContract.KEY_BATCH_CALLS, new ArrayList<>(calls));
+
+        Bundle result = provider.call(HOSContract.METHOD_BATCH, null, extras);
+        assertEquals("The batch contains more than 32 calls.", result.getString(HOSContract.KEY_ERROR));
+        assertEquals(0, provider.hosDataCalls.get());
+        assertEquals(32, callBatch(provider, calls.subList(0, 32)).size());
+    }
+
+    @Test
+    public void batch_ReturnsAnErrorForACallThatThrows() {
+        TestHOSProvider provider = Robolectric.setupContentProvider(TestHOSProvider.class, AUTHORITY);
+        provider.failing = true;
+
+        List<Bundle> results = callBatch(provider, Arrays.asList(
+                newBatchCall(HOSContract.METHOD_GET_HOS, "0.4"),
+                newBatchCall(HOSContract.METHOD_END_NAVIGATION, null)));
+        assertEquals("The call failed: " + HOSContract.METHOD_GET_HOS, results.get(0).getString(HOSContract.KEY_ERROR));
+        assertTrue(results.get(1).getBoolean(HOSContract.KEY_NAVIGATION_RESULT));
+    }
+
+    @Test
+    public void batch_CountsCallsAgainstTheirMethodsRateLimit() {
+        TestHOSProvider provider = Robolectric.setupContentProvider(TestHOSProvider.class, AUTHORITY);
+        provider.rateLimited = true;
+        List<Bundle> calls = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            calls.add(newBatchCall(HOSContract.METHOD_GET_HOS, "0.4"));
+        }
+
+        // The burst of METHOD_GET_HOS is 10, and the batch itself is not limited.
+        List<Bundle> results = callBatch(provider, calls);
+        for (int i = 0; i < 10; i++) {
+            assertFalse(results.get(i).containsKey(HOSContract.KEY_RETRY_AFTER_MILLIS));
+        }
+        assertTrue(results.get(10).getLong(HOSContract.KEY_RETRY_AFTER_MILLIS) > 0);
+        assertEquals("05:30", getDrive(results.get(10)));
+        assertTrue(provider.call(HOSContract.METHOD_GET_HOS, "0.4", null).containsKey(HOSContract.KEY_RETRY_AFTER_MILLIS));
+    }
+}
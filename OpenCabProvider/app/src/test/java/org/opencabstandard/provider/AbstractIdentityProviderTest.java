@@ -0,0 +1,134 @@
+package org.opencabstandard.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.os.Bundle;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs on Robolectric, for {@link Bundle}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AbstractIdentityProviderTest {
+    private static final String AUTHORITY = "org.opencabstandard.provider.test.identity";
+
+    /**
+     * A provider with one driver, whose getters count their calls.
+     */
+    public static class TestIdentityProvider extends AbstractIdentityProvider {
+        final AtomicInteger loginCredentialsCalls = new AtomicInteger();
+        volatile boolean failing;
+
+        @Override
+        public IdentityContract.LoginCredentials getLoginCredentials(String version) {
+            loginCredentialsCalls.incrementAndGet();
+            if (failing) {
+                throw new IllegalStateException("Credentials failed");
+            }
+            IdentityContract.LoginCredentials credentials = new IdentityContract.LoginCredentials();
+            credentials.setToken("token-" + loginCredentialsCalls.get());
+            return credentials;
+        }
+
+        @Override
+        public ArrayList<IdentityContract.DriverSession> getAllLoginCredentials(String version) {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public ArrayList<IdentityContract.Driver> getActiveDrivers(String version) {
+            IdentityContract.Driver driver = new IdentityContract.Driver();
+            driver.setUsername("JOHN");
+            driver.setDriving(true);
+            return new ArrayList<>(Collections.singletonList(driver));
+        }
+    }
+
+    private static Bundle newBatchCall(String method, String version) {
+        Bundle call = new Bundle();
+        call.putString(IdentityContract.KEY_BATCH_METHOD, method);
+        call.putString(IdentityContract.KEY_BATCH_VERSION, version);
+        return call;
+    }
+
+    private static List<Bundle> callBatch(TestIdentityProvider provider, List<Bundle> calls) {
+        Bundle extras = new Bundle();
+        extras.putParcelableArrayList(IdentityContract.KEY_BATCH_CALLS, new ArrayList<>(calls));
+        Bundle result = provider.call(IdentityContract.METHOD_BATCH, null, extras);
+        return result.getParcelableArrayList(IdentityContract.KEY_BATCH_RESULTS, Bundle.class);
+    }
+
+    @Test
+    public void batch_ReturnsResultsInOrderWithTheirOwnVersions() {
+        TestIdentityProvider provider = Robolectric.setupContentProvider(TestIdentityProvider.class, AUTHORITY);
+
+        List<Bundle> results = callBatch(provider, Arrays.asList(
+                newBatchCall(IdentityContract.METHOD_GET_LOGIN_CREDENTIALS, "0.2"),
+                newBatchCall(IdentityContract.METHOD_GET_ACTIVE_DRIVERS, "0.3"),
+                newBatchCall(IdentityContract.METHOD_BATCH, "0.3"),
+                newBatchCall(IdentityContract.METHOD_GET_LOGIN_CREDENTIALS, "0.3")));
+        assertEquals(4, results.size());
+        assertEquals("0.2", results.get(0).getString(IdentityContract.KEY_VERSION));
+        assertEquals("token-1", results.get(0).getParcelable(IdentityContract.KEY_LOGIN_CREDENTIALS,
+                IdentityContract.LoginCredentials.class).getToken());
+        assertEquals("0.3", results.get(1).getString(IdentityContract.KEY_VERSION));
+        assertEquals("JOHN", results.get(1).getParcelableArrayList(IdentityContract.KEY_ACTIVE_DRIVERS,
+                IdentityContract.Driver.class).get(0).getUsername());
+        assertEquals("A batch can not contain another batch.", results.get(2).getString(IdentityContract.KEY_ERROR));
+        assertEquals("0.3", results.get(3).getString(IdentityContract.KEY_VERSION));
+        assertTrue(results.get(3).containsKey(IdentityContract.KEY_ALL_LOGIN_CREDENTIALS));
+    }
+
+    @Test
+    public void batch_ReturnsAnErrorForACallThatThrows() {
+        TestIdentityProvider provider = Robolectric.setupContentProvider(TestIdentityProvider.class, AUTHORITY);
+        provider.failing = true;
+
+        List<Bundle> results = callBatch(provider, Arrays.asList(
+                newBatchCall(IdentityContract.METHOD_GET_LOGIN_CREDENTIALS, "0.3"),
+                newBatchCall(IdentityContract.METHOD_GET_ACTIVE_DRIVERS, "0.3")));
+        assertEquals("The call failed: " + IdentityContract.METHOD_GET_LOGIN_CREDENTIALS,
+                results.get(0).getString(IdentityContract.KEY_ERROR));
+        assertFalse(results.get(1).containsKey(IdentityContract.KEY_ERROR));
+    }
+
+    @Test
+    public void batch_CountsCallsAgainstTheirMethodsRateLimit() {
+        TestIdentityProvider provider = Robolectric.setupContentProvider(TestIdentityProvider.class, AUTHORITY);
+        List<Bundle> calls = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            calls.add(newBatchCall(IdentityContract.METHOD_GET_ACTIVE_DRIVERS, "0.3"));
+        }
+
+        // The burst of METHOD_GET_ACTIVE_DRIVERS is 10.
+        List<Bundle> results = callBatch(provider, calls);
+        for (int i = 0; i < 10; i++) {
+            assertFalse(results.get(i).containsKey(IdentityContract.KEY_ERROR));
+        }
+        assertTrue(results.get(10).getLong(IdentityContract.KEY_RETRY_AFTER_MILLIS) > 0);
+        assertTrue(results.get(10).containsKey(IdentityContract.KEY_ERROR));
+    }
+
+    @Test
+    public void getLoginCredentials_IsNotRateLimited() {
+        TestIdentityProvider provider = Robolectric.setupContentProvider(TestIdentityProvider.class, AUTHORITY);
+        for (int i = 0; i < 20; i++) {
+            Bundle result = provider.call(IdentityContract.METHOD_GET_LOGIN_CREDENTIALS, "0.3", null);
+            assertFalse(result.containsKey(IdentityContract.KEY_ERROR));
+            assertFalse(result.containsKey(IdentityContract.KEY_RETRY_AFTER_MILLIS));
+        }
+        assertEquals(20, provider.loginCredentialsCalls.get());
+    }
+}
@@ -0,0 +1,130 @@
+package org.opencabstandard.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs on Robolectric, for the {@link android.util.Base64} that decodes JWTs.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class CredentialCacheTest {
+    private static final long MAX_AGE = 60000;
+    private static final long REFRESH_AHEAD = 10000;
+
+    private static final class CountingMinter implements CredentialCache.Minter {
+        final AtomicInteger mints = new AtomicInteger();
+
+        @Override
+        public IdentityContract.LoginCredentials mint(String username) {
+            IdentityContract.LoginCredentials credentials = new IdentityContract.LoginCredentials();
+            credentials.setToken(username + "-" + mints.incrementAndGet());
+            return credentials;
+        }
+    }
+
+    private static String newJWT(String claims) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString("{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8))
+                + "." + encoder.encodeToString(claims.getBytes(StandardCharsets.UTF_8))
+                + "." + encoder.encodeToString("signature".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void credentialCache_MintsOncePerDriverUntilExpiry() {
+        CredentialCache cache = new CredentialCache(MAX_AGE, REFRESH_AHEAD);
+        CountingMinter minter = new CountingMinter();
+
+        IdentityContract.LoginCredentials first = cache.get("JOHN", minter, 0);
+        assertSame(first, cache.get("JOHN", minter, 1000));
+        assertEquals("JANE-2", cache.get("JANE", minter, 1000).getToken());
+        assertEquals(2, minter.mints.get());
+
+        assertEquals("JOHN-3", cache.get("JOHN", minter, MAX_AGE).getToken());
+    }
+
+    @Test
+    public void credentialCache_RefreshesInBackgroundBeforeExpiry() {
+        List<Runnable> refreshes = new ArrayList<>();
+        CredentialCache cache = new CredentialCache(MAX_AGE, REFRESH_AHEAD, refreshes::add);
+        CountingMinter minter = new CountingMinter();
+
+        cache.get("JOHN", minter, 0);
+        assertEquals(0, refreshes.size());
+        assertEquals("JOHN-1", cache.get("JOHN", minter, MAX_AGE - REFRESH_AHEAD).getToken());
+        assertEquals("JOHN-1", cache.get("JOHN", minter, MAX_AGE - REFRESH_AHEAD + 1).getToken());
+        assertEquals(1, refreshes.size());
+        assertEquals(1, minter.mints.get());
+
+        refreshes.get(0).run();
+        assertEquals(2, minter.mints.get());
+        assertEquals("JOHN-2", cache.get("JOHN", minter, MAX_AGE - REFRESH_AHEAD + 1).getToken());
+        assertEquals(1, refreshes.size());
+    }
+
+    @Test
+    public void credentialCache_KeepsCredentialsWhenTheRefreshIsRejected() {
+        CountingMinter minter = new CountingMinter();
+        CredentialCache cache = new CredentialCache(MAX_AGE, REFRESH_AHEAD, runnable -> {
+            throw new RejectedExecutionException();
+        });
+
+        cache.get("JOHN", minter, 0);
+        assertEquals("JOHN-1", cache.get("JOHN", minter, MAX_AGE - REFRESH_AHEAD).getToken());
+        assertEquals("JOHN-2", cache.get("JOHN", minter, MAX_AGE).getToken());
+    }
+
+    @Test
+    public void credentialCache_MintsAgainAfterInvalidation() {
+        CredentialCache cache = new CredentialCache(MAX_AGE, REFRESH_AHEAD);
+        CountingMinter minter = new CountingMinter();
+
+        cache.get("JOHN", minter, 0);
+        cache.invalidate("JOHN");
+        assertEquals("JOHN-2", cache.get("JOHN", minter, 0).getToken());
+        cache.invalidateAll();
+        assertEquals("JOHN-3", cache.get("JOHN", minter, 0).getToken());
+        assertNull(cache.get("NOBODY", username -> null, 0));
+    }
+
+    @Test
+    public void getExpiryMillis_ReadsTheExpClaimOfAJWT() {
+        assertEquals(1700000000000L, CredentialCache.getExpiryMillis(newJWT("{\"sub\":\"JOHN\",\"exp\":1700000000}")));
+        assertEquals(0, CredentialCache.getExpiryMillis(newJWT("{\"sub\":\"JOHN\"}")));
+        assertEquals(0, CredentialCache.getExpiryMillis(newJWT("[1700000000]")));
+        assertEquals(0, CredentialCache.getExpiryMillis("not-a-jwt"));
+        assertEquals(0, CredentialCache.getExpiryMillis("header.!!!.signature"));
+        assertEquals(0, CredentialCache.getExpiryMillis(null));
+    }
+
+    @Test
+    public void credentialCache_KeepsAJWTUntilItsExpiry() {
+        CredentialCache cache = new CredentialCache(MAX_AGE, REFRESH_AHEAD);
+        long expiresAt = 10 * MAX_AGE;
+        AtomicInteger mints = new AtomicInteger();
+        CredentialCache.Minter minter = username -> {
+            IdentityContract.LoginCredentials credentials = new IdentityContract.LoginCredentials();
+            credentials.setToken(newJWT("{\"sub\":\"" + username + "\",\"exp\":" + expiresAt / 1000 + "}"));
+            mints.incrementAndGet();
+            return credentials;
+        };
+
+        IdentityContract.LoginCredentials first = cache.get("JOHN", minter, 0);
+        assertSame(first, cache.get("JOHN", minter, MAX_AGE));
+        assertSame(first, cache.get("JOHN", minter, expiresAt - REFRESH_AHEAD - 1));
+        assertEquals(1, mints.get());
+        cache.get("JOHN", minter, expiresAt);
+        assertEquals(2, mints.get());
+    }
+}
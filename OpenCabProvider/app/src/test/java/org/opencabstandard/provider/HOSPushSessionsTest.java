@@ -0,0 +1,167 @@
+package org.opencabstandard.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.IBinder;
+import android.os.Message;
+import android.os.Messenger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowSystemClock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs on Robolectric, for {@link Messenger} and {@link IBinder}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class HOSPushSessionsTest {
+    private HandlerThread thread;
+
+    /**
+     * Records the computations, which only complete when the test completes them.
+     */
+    private static final class TestSource implements HOSPushSessions.Source {
+        final LinkedBlockingQueue<String> computed = new LinkedBlockingQueue<>();
+        final LinkedBlockingQueue<HOSPushSessions.Listener> listeners = new LinkedBlockingQueue<>();
+        volatile Bundle available;
+        volatile Bundle lastKnown;
+
+        @Override
+        public Bundle getAvailableHOS(String negotiatedVersion) {
+            return available;
+        }
+
+        @Override
+        public void computeHOS(String negotiatedVersion, HOSPushSessions.Listener listener) {
+            computed.add(negotiatedVersion);
+            listeners.add(listener);
+        }
+
+        @Override
+        public Bundle getLastKnownHOS(String negotiatedVersion) {
+            return lastKnown;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        thread = new HandlerThread("HOSPushSessionsTest");
+        thread.start();
+    }
+
+    @After
+    public void tearDown() {
+        thread.quit();
+    }
+
+    private IBinder newCallback(LinkedBlockingQueue<Bundle> received) {
+        return new Messenger(new Handler(thread.getLooper()) {
+            @Override
+            public void handleMessage(Message message) {
+                received.add(message.getData());
+            }
+        }).getBinder();
+    }
+
+    private static Bundle newHOS(String hos) {
+        Bundle result = new Bundle();
+        result.putString(HOSContract.KEY_HOS, hos);
+        return result;
+    }
+
+    @Test
+    public void add_ReplacesTheOldestSessionOfTheSamePackage() {
+        TestSource source = new TestSource();
+        source.available = new Bundle();
+        HOSPushSessions sessions = new HOSPushSessions(source);
+        LinkedBlockingQueue<Bundle> received = new LinkedBlockingQueue<>();
+        try {
+            List<IBinder> callbacks = new ArrayList<>();
+            for (int i = 0; i < HOSPushSessions.MAX_SESSIONS_PER_PACKAGE; i++) {
+                IBinder callback = newCallback(received);
+                callbacks.add(callback);
+                assertTrue(sessions.add(callback, "0.4", "com.example.navigation", 0));
+            }
+            IBinder other = newCallback(received);
+            assertTrue(sessions.add(other, "0.4", "com.example.other", 0));
+
+            assertTrue(sessions.add(newCallback(received), "0.4", "com.example.navigation", 0));
+            assertEquals(HOSPushSessions.MAX_SESSIONS_PER_PACKAGE + 1, sessions.size());
+            assertFalse(sessions.remove(callbacks.get(0)));
+            assertTrue(sessions.remove(callbacks.get(1)));
+            assertTrue(sessions.remove(other));
+        } finally {
+            sessions.removeAll("com.example.navigation");
+        }
+    }
+
+    @Test
+    public void push_ComputesOncePerVersionForEverySession() throws InterruptedException {
+        TestSource source = new TestSource();
+        HOSPushSessions sessions = new HOSPushSessions(source);
+        LinkedBlockingQueue<Bundle> received = new LinkedBlockingQueue<>();
+        try {
+            assertTrue(sessions.add(newCallback(received), "0.4", "com.example.navigation", 0));
+            assertTrue(sessions.add(newCallback(received), "0.4", "com.example.other", 0));
+            assertTrue(sessions.add(newCallback(received), "0.3", "com.example.navigation", 0));
+
+            List<String> versions = new ArrayList<>();
+            versions.add(source.computed.poll(5, TimeUnit.SECONDS));
+            versions.add(source.computed.poll(5, TimeUnit.SECONDS));
+            versions.sort(null);
+            assertEquals("0.3", versions.get(0));
+            assertEquals("0.4", versions.get(1));
+            assertNull(source.computed.poll(200, TimeUnit.MILLISECONDS));
+
+            Bundle hos = newHOS("{}");
+            hos.putString(HOSContract.KEY_VERSION, "0.4");
+            source.listeners.take().onHOS(hos);
+            source.listeners.take().onHOS(hos);
+            for (int i = 0; i < 3; i++) {
+                assertNotNull(received.poll(5, TimeUnit.SECONDS));
+            }
+            assertNull(received.poll(200, TimeUnit.MILLISECONDS));
+        } finally {
+            sessions.removeAll("com.example.navigation");
+            sessions.removeAll("com.example.other");
+        }
+    }
+
+    @Test
+    public void push_SendsTheLastKnownHOSWhileTheGettersAreBusy() throws InterruptedException {
+        TestSource source = new TestSource();
+        Bundle lastKnown = newHOS("{}");
+        lastKnown.putLong(HOSContract.KEY_STALE_MILLIS, 1000);
+        source.lastKnown = lastKnown;
+        HOSPushSessions sessions = new HOSPushSessions(source);
+        LinkedBlockingQueue<Bundle> received = new LinkedBlockingQueue<>();
+        try {
+            assertTrue(sessions.add(newCallback(received), "0.4", "com.example.navigation", HOSPushSessions.MIN_INTERVAL_MILLIS));
+            assertEquals("0.4", source.computed.poll(5, TimeUnit.SECONDS));
+            ShadowSystemClock.advanceBy(HOSPushSessions.MIN_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+
+            // The computation never completes, yet the next interval is sent the last known HOS.
+            Bundle stale = received.poll(5, TimeUnit.SECONDS);
+            assertNotNull(stale);
+            assertEquals(1000, stale.getLong(HOSContract.KEY_STALE_MILLIS));
+            assertTrue(source.computed.isEmpty());
+        } finally {
+            sessions.removeAll("com.example.navigation");
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.opencabstandard.provider;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void latencyHistogram_ReportsBucketUpperBounds() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentile(50));
+
+        for (int i = 0; i < 90; i++) {
+            histogram.record(300);
+        }
+        for (int i = 0; i < 9; i++) {
+            histogram.record(5000);
+        }
+        histogram.record(2000000);
+
+        assertEquals(512, histogram.percentile(50));
+        assertEquals(8192, histogram.percentile(95));
+        assertEquals(8192, histogram.percentile(99));
+        assertEquals(2097152, histogram.percentile(100));
+    }
+
+    @Test
+    public void latencyHistogram_ClampsOutOfRangeDurations() {
+        assertEquals(0, LatencyHistogram.bucket(-1));
+        assertEquals(0, LatencyHistogram.bucket(0));
+        assertEquals(1, LatencyHistogram.bucket(1));
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucket(Long.MAX_VALUE));
+    }
+}
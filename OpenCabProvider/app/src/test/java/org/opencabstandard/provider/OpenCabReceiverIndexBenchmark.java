@@ -0,0 +1,160 @@
+package org.opencabstandard.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.Application;
+import android.content.Intent;
+import android.content.pm.ActivityInfo;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.net.Uri;
+import android.os.Looper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowPackageManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares looking up the OpenCab receivers in an {@link OpenCabReceiverIndex} with scanning the
+ * installed packages on every broadcast, as the sample app did, over a few hundred shadow packages.
+ * Runs on Robolectric and prints the time of each.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class OpenCabReceiverIndexBenchmark {
+    private static final int PACKAGES = 400;
+    private static final int CONSUMER_EVERY = 20;
+    private static final int ITERATIONS = 200;
+
+    private Application context;
+    private ShadowPackageManager packageManager;
+
+    @Before
+    public void installPackages() {
+        context = RuntimeEnvironment.getApplication();
+        packageManager = shadowOf(context.getPackageManager());
+        for (int i = 0; i < PACKAGES; i++) {
+            packageManager.installPackage(newPackage("com.example.app" + i, i % CONSUMER_EVERY == 0));
+        }
+    }
+
+    @Test
+    public void receiverIndex_MatchesScan() {
+        OpenCabReceiverIndex index = new OpenCabReceiverIndex(context);
+
+        Map<String, ActivityInfo> receivers = index.getReceivers(IdentityContract.IDENTITY_CHANGED_RECEIVER);
+        assertEquals(scan(IdentityContract.IDENTITY_CHANGED_RECEIVER).keySet(), receivers.keySet());
+        assertEquals(PACKAGES / CONSUMER_EVERY, receivers.size());
+        assertTrue(index.getReceivers(VehicleInformationContract.VEHICLE_INFORMATION_CHANGED_RECEIVER).isEmpty());
+        assertEquals(1, index.getReceivers("app0.IdentityChangedReceiver").size());
+    }
+
+    @Test
+    public void receiverIndex_FollowsPackageChanges() {
+        OpenCabReceiverIndex index = new OpenCabReceiverIndex(context);
+        index.register();
+        int consumers = index.getReceivers(IdentityContract.IDENTITY_CHANGED_RECEIVER).size();
+
+        packageManager.installPackage(newPackage("com.example.added", true));
+        broadcast(Intent.ACTION_PACKAGE_ADDED, "com.example.added", false);
+        assertTrue(index.getReceivers(IdentityContract.IDENTITY_CHANGED_RECEIVER).containsKey(receiverName("com.example.added")));
+
+        packageManager.removePackage("com.example.app0");
+        broadcast(Intent.ACTION_PACKAGE_REMOVED, "com.example.app0", false);
+        assertFalse(index.getReceivers(IdentityContract.IDENTITY_CHANGED_RECEIVER).containsKey(receiverName("com.example.app0")));
+
+        packageManager.installPackage(newPackage("com.example.app" + CONSUMER_EVERY, false));
+        broadcast(Intent.ACTION_PACKAGE_REMOVED, "com.example.app" + CONSUMER_EVERY, true);
+        assertEquals(consumers, index.getReceivers(IdentityContract.IDENTITY_CHANGED_RECEIVER).size());
+        broadcast(Intent.ACTION_PACKAGE_REPLACED, "com.example.app" + CONSUMER_EVERY, false);
+        assertEquals(consumers - 1, index.getReceivers(IdentityContract.IDENTITY_CHANGED_RECEIVER).size());
+
+        index.unregister();
+    }
+
+    @Test
+    public void receiverIndex_IsFasterThanScan() {
+        OpenCabReceiverIndex index = new OpenCabReceiverIndex(context);
+        long buildStart = System.nanoTime();
+        index.getReceivers(IdentityContract.IDENTITY_CHANGED_RECEIVER);
+        long build = System.nanoTime() - buildStart;
+
+        int found = 0;
+        long scanStart = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            found += scan(IdentityContract.IDENTITY_CHANGED_RECEIVER).size();
+        }
+        long scan = (System.nanoTime() - scanStart) / ITERATIONS;
+
+        long lookupStart = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            found -= index.getReceivers(IdentityContract.IDENTITY_CHANGED_RECEIVER).size();
+        }
+        long lookup = (System.nanoTime() - lookupStart) / ITERATIONS;
+
+        System.out.println(String.format("%d packages: build %d us, scan %d us, lookup %d ns",
+                PACKAGES, build / 1000, scan / 1000, lookup));
+        assertEquals(0, found);
+        assertTrue(lookup < scan);
+    }
+
+    /**
+     * The scan the sample app ran for every broadcast before the index.
+     */
+    private HashMap<String, ActivityInfo> scan(String type) {
+        List<PackageInfo> packages = context.getPackageManager().getInstalledPackages(PackageManager.GET_RECEIVERS);
+        HashMap<String, ActivityInfo> discoveredReceivers = new HashMap<>();
+        for (PackageInfo packageInfo : packages) {
+            if (packageInfo.receivers != null) {
+                for (ActivityInfo activityInfo : packageInfo.receivers) {
+                    if (activityInfo.name.endsWith("." + type)) {
+                        discoveredReceivers.put(activityInfo.name, activityInfo);
+                    }
+                }
+            }
+        }
+        return discoveredReceivers;
+    }
+
+    private void broadcast(String action, String packageName, boolean replacing) {
+        Intent intent = new Intent(action, Uri.fromParts("package", packageName, null));
+        intent.putExtra(Intent.EXTRA_REPLACING, replacing);
+        context.sendBroadcast(intent);
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    private static String receiverName(String packageName) {
+        return packageName + "." + IdentityContract.IDENTITY_CHANGED_RECEIVER;
+    }
+
+    private static PackageInfo newPackage(String packageName, boolean consumer) {
+        PackageInfo packageInfo = new PackageInfo();
+        packageInfo.packageName = packageName;
+        packageInfo.applicationInfo = new ApplicationInfo();
+        packageInfo.applicationInfo.packageName = packageName;
+        String[] names = {
+                packageName + ".BootReceiver",
+                packageName + ".PushReceiver",
+                consumer ? receiverName(packageName) : packageName + ".AlarmReceiver"
+        };
+        packageInfo.receivers = new ActivityInfo[names.length];
+        for (int i = 0; i < names.length; i++) {
+            ActivityInfo receiver = new ActivityInfo();
+            receiver.name = names[i];
+            receiver.packageName = packageName;
+            receiver.applicationInfo = packageInfo.applicationInfo;
+            packageInfo.receivers[i] = receiver;
+        }
+        return packageInfo;
+    }
+}
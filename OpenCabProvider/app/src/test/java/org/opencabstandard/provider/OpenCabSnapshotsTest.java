@@ -0,0 +1,40 @@
+package org.opencabstandard.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class OpenCabSnapshotsTest {
+
+    @Test
+    public void nextEpoch_IncreasesEvenWhenClockDoesNot() {
+        long now = 1700000000000L;
+        long first = OpenCabSnapshots.nextEpoch(now);
+        assertTrue(first >= now);
+        assertEquals(first + 1, OpenCabSnapshots.nextEpoch(now));
+        assertEquals(first + 2, OpenCabSnapshots.nextEpoch(now - 1000));
+    }
+
+    @Test
+    public void nextEpoch_FollowsClockAfterRestart() {
+        long later = OpenCabSnapshots.nextEpoch(0) + 60000;
+        assertEquals(later, OpenCabSnapshots.nextEpoch(later));
+    }
+
+    @Test
+    public void latestEpochs_ComparesEpochsOfTheSameProvider() {
+        OpenCabSnapshots.LatestEpochs epochs = new OpenCabSnapshots.LatestEpochs();
+        assertTrue(epochs.update("com.example.ahead", 2000));
+        // Another provider whose clock is behind is not compared with the first one.
+        assertTrue(epochs.update("com.example.behind", 1000));
+        assertFalse(epochs.update("com.example.ahead", 1999));
+        assertTrue(epochs.update("com.example.behind", 1001));
+        assertTrue(epochs.update("com.example.behind", 1001));
+        assertFalse(epochs.update("com.example.behind", 0));
+
+        assertTrue(epochs.update(null, 10));
+        assertFalse(epochs.update(null, 9));
+    }
+}
@@ -0,0 +1,91 @@
+package org.opencabstandard.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.os.Bundle;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs on Robolectric, for the {@link Bundle} that names the driver of a login or logout.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class PendingBroadcastsTest {
+    private static final String IDENTITY = IdentityContract.IDENTITY_CHANGED_RECEIVER;
+    private static final String VEHICLE = VehicleInformationContract.VEHICLE_INFORMATION_CHANGED_RECEIVER;
+
+    private static List<String> getActions(List<PendingBroadcasts.Broadcast> broadcasts) {
+        List<String> actions = new ArrayList<>();
+        for (PendingBroadcasts.Broadcast broadcast : broadcasts) {
+            actions.add(broadcast.action);
+        }
+        return actions;
+    }
+
+    private static Bundle newSnapshot(String username) {
+        Bundle extras = new Bundle();
+        extras.putString(IdentityContract.EXTRA_USERNAME, username);
+        return extras;
+    }
+
+    @Test
+    public void pendingBroadcasts_KeepsLogoutAndLoginOfDriverSwitch() {
+        PendingBroadcasts pending = new PendingBroadcasts();
+        assertTrue(pending.add(IDENTITY, IdentityContract.ACTION_DRIVER_LOGOUT, null));
+        assertFalse(pending.add(IDENTITY, IdentityContract.ACTION_IDENTITY_INFORMATION_CHANGED, null));
+        pending.add(IDENTITY, IdentityContract.ACTION_DRIVER_LOGIN, null);
+        pending.add(IDENTITY, IdentityContract.ACTION_IDENTITY_INFORMATION_CHANGED, null);
+
+        Map<String, List<PendingBroadcasts.Broadcast>> drained = pending.drain();
+        assertEquals(Arrays.asList(IdentityContract.ACTION_DRIVER_LOGOUT, IdentityContract.ACTION_DRIVER_LOGIN,
+                IdentityContract.ACTION_IDENTITY_INFORMATION_CHANGED), getActions(drained.get(IDENTITY)));
+        assertEquals(1, pending.getCoalescedCount());
+        assertEquals(4, pending.getPublishedCount());
+    }
+
+    @Test
+    public void pendingBroadcasts_SendsLastOccurrenceOfEachAction() {
+        PendingBroadcasts pending = new PendingBroadcasts();
+        pending.add(IDENTITY, IdentityContract.ACTION_DRIVER_LOGIN, null);
+        pending.add(IDENTITY, IdentityContract.ACTION_DRIVER_LOGOUT, null);
+        pending.add(VEHICLE, VehicleInformationContract.ACTION_VEHICLE_INFORMATION_CHANGED, null);
+        pending.add(IDENTITY, IdentityContract.ACTION_DRIVER_LOGIN, null);
+        pending.add(VEHICLE, VehicleInformationContract.ACTION_VEHICLE_INFORMATION_CHANGED, null);
+
+        Map<String, List<PendingBroadcasts.Broadcast>> drained = pending.drain();
+        assertEquals(Arrays.asList(IdentityContract.ACTION_DRIVER_LOGOUT, IdentityContract.ACTION_DRIVER_LOGIN),
+                getActions(drained.get(IDENTITY)));
+        assertEquals(Arrays.asList(VehicleInformationContract.ACTION_VEHICLE_INFORMATION_CHANGED), getActions(drained.get(VEHICLE)));
+
+        assertTrue(pending.drain().isEmpty());
+        assertTrue(pending.add(IDENTITY, IdentityContract.ACTION_DRIVER_LOGOUT, null));
+    }
+
+    @Test
+    public void pendingBroadcasts_KeepsLogoutOfEachDriver() {
+        PendingBroadcasts pending = new PendingBroadcasts();
+        Bundle john = newSnapshot("JOHN");
+        Bundle jane = newSnapshot("JANE");
+        Bundle johnAgain = newSnapshot("JOHN");
+        pending.add(IDENTITY, IdentityContract.ACTION_DRIVER_LOGOUT, john);
+        pending.add(IDENTITY, IdentityContract.ACTION_DRIVER_LOGOUT, jane);
+        pending.add(IDENTITY, IdentityContract.ACTION_DRIVER_LOGOUT, johnAgain);
+
+        List<PendingBroadcasts.Broadcast> drained = pending.drain().get(IDENTITY);
+        assertEquals(Arrays.asList(IdentityContract.ACTION_DRIVER_LOGOUT, IdentityContract.ACTION_DRIVER_LOGOUT),
+                getActions(drained));
+        assertSame(jane, drained.get(0).extras);
+        assertSame(johnAgain, drained.get(1).extras);
+        assertEquals(1, pending.getCoalescedCount());
+    }
+}
@@ -0,0 +1,43 @@
+package org.opencabstandard.provider;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class QuerySelectionTest {
+    private static final String[] COLUMNS = {"username", "label", "important", "duration_seconds"};
+
+    @Test
+    public void querySelection_MatchesEqualityTerms() {
+        Object[] drive = {"JOHN", "Drive", 1, 3600.0};
+        Object[] status = {"JOHN", "Status", 0, null};
+
+        QuerySelection all = QuerySelection.parse(null, null, COLUMNS);
+        assertTrue(all.matches(drive));
+        assertTrue(all.matches(status));
+
+        QuerySelection important = QuerySelection.parse("username = ? and important=1", new String[]{"JOHN"}, COLUMNS);
+        assertTrue(important.matches(drive));
+        assertFalse(important.matches(status));
+
+        assertTrue(QuerySelection.parse("label = 'Drive' AND duration_seconds = 3600", null, COLUMNS).matches(drive));
+        assertFalse(QuerySelection.parse("duration_seconds = ?", new String[]{"0"}, COLUMNS).matches(status));
+        assertTrue(QuerySelection.parse("label = 'it''s AND more'", null, COLUMNS).matches(new Object[]{"JOHN", "it's AND more", 0, null}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void querySelection_RejectsUnknownColumn() {
+        QuerySelection.parse("vin = ?", new String[]{"1"}, COLUMNS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void querySelection_RejectsUnsupportedOperator() {
+        QuerySelection.parse("important > 0", null, COLUMNS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void querySelection_RejectsMissingArgument() {
+        QuerySelection.parse("username = ? AND label = ?", new String[]{"JOHN"}, COLUMNS);
+    }
+}
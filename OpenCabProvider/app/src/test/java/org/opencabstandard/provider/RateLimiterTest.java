@@ -0,0 +1,41 @@
+package org.opencabstandard.provider;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class RateLimiterTest {
+    private static final long SECOND = 1000000000L;
+
+    @Test
+    public void rateLimiter_AdmitsBurstThenSustainedRate() {
+        RateLimiter limiter = new RateLimiter();
+        RateLimit limit = new RateLimit(2, 3);
+        long now = 100 * SECOND;
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.acquire("com.example", "getHOS", limit, now));
+        }
+        assertEquals(500, limiter.acquire("com.example", "getHOS", limit, now));
+        assertEquals(0, limiter.acquire("com.example", "getHOS", limit, now + SECOND / 2));
+        assertEquals(500, limiter.acquire("com.example", "getHOS", limit, now + SECOND / 2));
+    }
+
+    @Test
+    public void rateLimiter_KeepsSeparateBudgetsPerCallerAndMethod() {
+        RateLimiter limiter = new RateLimiter();
+        RateLimit limit = new RateLimit(1, 1);
+        long now = 100 * SECOND;
+
+        assertEquals(0, limiter.acquire("com.example", "getHOS", limit, now));
+        assertEquals(1000, limiter.acquire("com.example", "getHOS", limit, now));
+        assertEquals(0, limiter.acquire("com.other", "getHOS", limit, now));
+        assertEquals(0, limiter.acquire("com.example", "getActiveDrivers", limit, now));
+        assertEquals(0, limiter.acquire(null, "getHOS", limit, now));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rateLimit_RejectsEmptyBudget() {
+        new RateLimit(0, 1);
+    }
+}